@@ -0,0 +1,104 @@
+package emu.nebula.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.openjdk.jmh.annotations.*;
+
+import emu.nebula.util.AeadHelper;
+import emu.nebula.util.AeadHelper.EcdhKeyPair;
+
+/**
+ * Session encryption and the server side of the ike_req key exchange. The cipher and handshake benchmarks use
+ * separate states, so the handshake isn't repeated for every cipher method and size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AeadBenchmark {
+    
+    @State(Scope.Thread)
+    public static class Cipher {
+        // 0 = AES GCM, 1 = ChaCha20-Poly1305
+        @Param({"0", "1"})
+        private int method;
+        
+        @Param({"64", "1024", "16384"})
+        private int size;
+        
+        private SecretKeySpec key;
+        private byte[] plaintext;
+        private byte[] ciphertext;
+        private byte[] buffer;
+        
+        @Setup
+        public void setup() throws Exception {
+            this.key = AeadHelper.createKeySpec(AeadHelper.generateBytes(32), this.method);
+            this.plaintext = AeadHelper.generateBytes(this.size);
+            this.ciphertext = AeadHelper.encrypt(this.plaintext, this.key, this.method);
+            this.buffer = new byte[AeadHelper.IV_LENGTH + this.size + AeadHelper.TAG_LENGTH];
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class Handshake {
+        private byte[] clientPublic;
+        private EcdhKeyPair serverPair;
+        
+        @Setup
+        public void setup() {
+            var clientPair = AeadHelper.generateECDHKEyPair();
+            
+            this.clientPublic = ((ECPublicKeyParameters) clientPair.getPublic()).getQ().getEncoded(false);
+            this.serverPair = AeadHelper.generateServerKeyPair();
+        }
+    }
+    
+    // Encryption
+    
+    @Benchmark
+    public byte[] encrypt(Cipher state) throws Exception {
+        return AeadHelper.encrypt(state.plaintext, state.key, state.method);
+    }
+    
+    @Benchmark
+    public byte[] decrypt(Cipher state) throws Exception {
+        return AeadHelper.decrypt(state.ciphertext, state.key, state.method);
+    }
+    
+    @Benchmark
+    public int encryptInPlace(Cipher state) throws Exception {
+        System.arraycopy(state.plaintext, 0, state.buffer, AeadHelper.IV_LENGTH, state.size);
+        return AeadHelper.encryptInPlace(state.buffer, AeadHelper.IV_LENGTH, state.size, state.key, state.method);
+    }
+    
+    @Benchmark
+    public int decryptInPlace(Cipher state) throws Exception {
+        System.arraycopy(state.ciphertext, 0, state.buffer, 0, state.ciphertext.length);
+        return AeadHelper.decryptInPlace(state.buffer, 0, state.ciphertext.length, state.key, state.method);
+    }
+    
+    // Key exchange. Generating the key pair is normally done ahead of time by the key pair pool.
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public EcdhKeyPair generateKeyPair() {
+        return AeadHelper.generateServerKeyPair();
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] sharedKey(Handshake state) {
+        return AeadHelper.calcECDHSharedKey(state.clientPublic, state.serverPair.privateKey());
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] sharedKeyNative(Handshake state) {
+        return AeadHelper.calcECDHSharedKeyNative(state.clientPublic, state.serverPair.privateKey());
+    }
+}
@@ -0,0 +1,61 @@
+package emu.nebula.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import emu.nebula.Nebula;
+import emu.nebula.net.GameSession;
+import emu.nebula.net.NetMsgId;
+import emu.nebula.net.PacketHelper;
+import emu.nebula.proto.Public.Nil;
+import emu.nebula.server.routes.AgentZoneHandler;
+import emu.nebula.util.AeadHelper;
+
+/**
+ * Sends a request from a logged in session through {@link AgentZoneHandler}: decrypt, parse the message id,
+ * dispatch to the handler, encrypt the response and commit the write batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AgentZoneBenchmark {
+    private AgentZoneHandler handler;
+    private BenchmarkContext ctx;
+    private byte[] request;
+    
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkEnvironment.init();
+        
+        GameSession session = BenchmarkEnvironment.createSession(BenchmarkEnvironment.createPlayer());
+        Nebula.getGameContext().generateSessionToken(session);
+        
+        this.handler = new AgentZoneHandler();
+        this.ctx = new BenchmarkContext(Map.of("X-Token", session.getToken()));
+        
+        // Create request like the client does: 10 byte header, message id and then the proto
+        var proto = Nil.newInstance();
+        var data = new byte[10 + 2 + proto.getSerializedSize()];
+        
+        System.arraycopy(PacketHelper.encodeMsg(NetMsgId.player_ping_req, proto), 0, data, 10, data.length - 10);
+        
+        this.request = AeadHelper.encrypt(data, session.getKeySpec(), session.getEncryptMethod());
+    }
+    
+    @Benchmark
+    public byte[] roundTrip() throws Exception {
+        // The request body is a new array for every request
+        this.handler.handle(this.ctx.reset(this.request.clone()));
+        
+        if (this.ctx.getStatus() != 200) {
+            throw new IllegalStateException("Request failed with status " + this.ctx.getStatus());
+        }
+        
+        return this.ctx.getResult();
+    }
+}
@@ -0,0 +1,201 @@
+package emu.nebula.benchmark;
+
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import io.javalin.config.Key;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+import io.javalin.http.HttpStatus;
+import io.javalin.json.JsonMapper;
+import io.javalin.plugin.ContextPlugin;
+import io.javalin.security.RouteRole;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Minimal Javalin context for calling route handlers without a web server. Only supports what the game
+ * handlers use: request headers, the request body, the client ip, the status and a byte array result.
+ */
+public class BenchmarkContext implements Context {
+    // Response headers are ignored
+    private static final HttpServletResponse RESPONSE = (HttpServletResponse) Proxy.newProxyInstance(
+        HttpServletResponse.class.getClassLoader(),
+        new Class<?>[] {HttpServletResponse.class},
+        (proxy, method, args) -> null
+    );
+
+    private final Map<String, String> headers;
+    private byte[] body;
+    private int status;
+    private byte[] result;
+
+    public BenchmarkContext(Map<String, String> headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * Sets the body of the next request and clears the last response
+     */
+    public BenchmarkContext reset(byte[] body) {
+        this.body = body;
+        this.status = 0;
+        this.result = null;
+        return this;
+    }
+
+    public int getStatus() {
+        return this.status;
+    }
+
+    public byte[] getResult() {
+        return this.result;
+    }
+
+    // Used by the handlers
+
+    @Override
+    public String header(String header) {
+        return this.headers.get(header);
+    }
+
+    @Override
+    public byte[] bodyAsBytes() {
+        return this.body;
+    }
+
+    @Override
+    public String ip() {
+        return "127.0.0.1";
+    }
+
+    @Override
+    public HttpServletResponse res() {
+        return RESPONSE;
+    }
+
+    @Override
+    public Context status(int status) {
+        this.status = status;
+        return this;
+    }
+
+    @Override
+    public Context status(HttpStatus status) {
+        return this.status(status.getCode());
+    }
+
+    @Override
+    public Context result(byte[] result) {
+        this.result = result;
+        return this;
+    }
+
+    @Override
+    public Context result(String result) {
+        return this.result(result.getBytes());
+    }
+
+    // Not supported
+
+    @Override
+    public HttpServletRequest req() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public HandlerType handlerType() {
+        return HandlerType.POST;
+    }
+
+    @Override
+    public String matchedPath() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String endpointHandlerPath() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T appData(Key<T> key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public JsonMapper jsonMapper() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T with(Class<? extends ContextPlugin<?, T>> plugin) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean strictContentTypes() {
+        return false;
+    }
+
+    @Override
+    public String pathParam(String key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, String> pathParamMap() {
+        return Map.of();
+    }
+
+    @Override
+    public ServletOutputStream outputStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Context minSizeForCompression(int size) {
+        return this;
+    }
+
+    @Override
+    public Context result(InputStream result) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public InputStream resultInputStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void future(Supplier<? extends CompletableFuture<?>> future) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void redirect(String location, HttpStatus status) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeJsonStream(Stream<?> stream) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Context skipRemainingHandlers() {
+        return this;
+    }
+
+    @Override
+    public Set<RouteRole> routeRoles() {
+        return Set.of();
+    }
+}
@@ -0,0 +1,113 @@
+package emu.nebula.benchmark;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+
+import emu.nebula.GameConstants;
+import emu.nebula.Nebula;
+import emu.nebula.data.GameData;
+import emu.nebula.game.account.Account;
+import emu.nebula.game.player.Player;
+import emu.nebula.net.GameSession;
+import emu.nebula.util.AeadHelper;
+import us.hebi.quickbuf.RepeatedByte;
+
+/**
+ * Sets up the server state that the benchmarks need: config, keys, game data and an in-memory database.
+ * Game data is loaded from the resource directory in the config, so benchmarks that use it should be run
+ * from the server directory.
+ */
+public class BenchmarkEnvironment {
+    private static final AtomicInteger accountCounter = new AtomicInteger();
+    private static boolean initialized;
+    
+    /**
+     * Initializes the server with an internal MongoDB server that uses the memory backend
+     */
+    public static void init() {
+        init(false);
+    }
+    
+    /**
+     * Initializes the server. The database is kept in the embedded storage, or in an internal MongoDB server if
+     * embedded is false.
+     */
+    public static synchronized void init(boolean embedded) {
+        // Only initialize once per fork
+        if (initialized) {
+            return;
+        }
+        
+        Nebula.initLocalServer(embedded, null);
+        
+        initialized = true;
+    }
+    
+    /**
+     * Creates a new account and player in the database
+     */
+    @SuppressWarnings("deprecation")
+    public static Player createPlayer() {
+        // Create account
+        var account = new Account("bench" + accountCounter.incrementAndGet() + "@nebula", null, 0);
+        account.save();
+        
+        // Create player
+        var player = new Player(account, "Benchmark", false);
+        player.onLoad();
+        player.save();
+        player.onCreate();
+        
+        return player;
+    }
+    
+    /**
+     * Creates a new player and gives them every character, disc and some of every item
+     */
+    public static Player createFullPlayer() {
+        var player = createPlayer();
+        
+        for (var data : GameData.getCharacterDataTable()) {
+            if (data.isAvailable() && data.isVisible() && !player.getCharacters().hasCharacter(data.getId())) {
+                player.getCharacters().addCharacter(data.getId());
+            }
+        }
+        
+        for (var data : GameData.getDiscDataTable()) {
+            if (data.isAvailable() && data.isVisible() && !player.getCharacters().hasDisc(data.getId())) {
+                player.getCharacters().addDisc(data.getId());
+            }
+        }
+        
+        for (var data : GameData.getItemDataTable()) {
+            player.getInventory().addItem(data.getId(), 100);
+        }
+        
+        player.getInventory().addItem(GameConstants.GOLD_ITEM_ID, 50_000_000);
+        
+        return player;
+    }
+    
+    /**
+     * Creates a session that has finished the key exchange and is logged in as the player
+     */
+    public static GameSession createSession(Player player) {
+        var session = new GameSession();
+        
+        // Key exchange
+        var clientPair = AeadHelper.generateECDHKEyPair();
+        var clientKey = ((ECPublicKeyParameters) clientPair.getPublic()).getQ().getEncoded(false);
+        
+        session.setClientKey(RepeatedByte.newEmptyInstance().addAll(clientKey));
+        session.generateServerKey();
+        session.calculateKey();
+        
+        // Set player
+        if (player != null) {
+            session.setPlayer(player);
+        }
+        
+        return session;
+    }
+}
@@ -0,0 +1,75 @@
+package emu.nebula.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import emu.nebula.data.BaseDef;
+import emu.nebula.data.DataTable;
+
+/**
+ * Looks up random existing ids in a data table, before and after it is frozen.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataTableBenchmark {
+    @Param({"dense", "sparse"})
+    private String ids;
+    
+    @Param({"100", "2000"})
+    private int size;
+    
+    @Param({"false", "true"})
+    private boolean frozen;
+    
+    private DataTable<TestDef> table;
+    private int[] lookups;
+    private int index;
+    
+    @Setup
+    public void setup() {
+        var random = new SplittableRandom(0);
+        
+        this.table = new DataTable<>();
+        this.lookups = new int[1024];
+        
+        // Item ids are mostly contiguous, some tables use sparse ids
+        for (int i = 0; i < this.size; i++) {
+            int id = this.ids.equals("dense") ? 10000 + i : random.nextInt(1, 100_000_000);
+            this.table.add(new TestDef(id));
+        }
+        
+        var keys = this.table.keySet().toIntArray();
+        
+        for (int i = 0; i < this.lookups.length; i++) {
+            this.lookups[i] = keys[random.nextInt(keys.length)];
+        }
+        
+        if (this.frozen) {
+            this.table.freeze();
+        }
+    }
+    
+    @Benchmark
+    public TestDef get() {
+        return this.table.get(this.lookups[this.index++ & 1023]);
+    }
+    
+    public static class TestDef extends BaseDef {
+        private final int id;
+        
+        public TestDef(int id) {
+            this.id = id;
+        }
+        
+        @Override
+        public int getId() {
+            return this.id;
+        }
+    }
+}
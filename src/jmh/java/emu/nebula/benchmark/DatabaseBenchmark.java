@@ -0,0 +1,56 @@
+package emu.nebula.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import emu.nebula.Nebula;
+import emu.nebula.game.character.GameCharacter;
+import emu.nebula.game.player.Player;
+
+/**
+ * Runs the database operations that requests use the most, on the embedded storage and on an internal MongoDB server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+    @Param({"embedded", "mongo"})
+    private String storage;
+    
+    private Player player;
+    private int value;
+    
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.init(this.storage.equals("embedded"));
+        
+        this.player = BenchmarkEnvironment.createPlayer();
+    }
+    
+    @Benchmark
+    public void update() {
+        var db = Nebula.getGameDatabase();
+        db.beginWriteBatch();
+        
+        try {
+            db.update(this.player.getInventory(), this.player.getUid(), "resources.1", ++this.value);
+        } finally {
+            db.commitWriteBatch();
+        }
+    }
+    
+    @Benchmark
+    public Player getObjectByUid() {
+        return Nebula.getGameDatabase().getObjectByUid(Player.class, this.player.getUid());
+    }
+    
+    @Benchmark
+    public List<GameCharacter> getObjects() {
+        return Nebula.getGameDatabase().getObjects(GameCharacter.class, "playerUid", this.player.getUid()).toList();
+    }
+}
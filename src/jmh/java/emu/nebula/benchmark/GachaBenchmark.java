@@ -0,0 +1,53 @@
+package emu.nebula.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import emu.nebula.data.GameData;
+import emu.nebula.data.resources.GachaDef;
+import emu.nebula.game.gacha.GachaPityState.GachaPityDraft;
+import emu.nebula.game.gacha.GachaRollEngine;
+import emu.nebula.game.gacha.GachaRollEngine.PullOutcome;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GachaBenchmark {
+    private GachaDef data;
+    private GachaPityDraft pity;
+    
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.init();
+        
+        // Use the first banner that has pity data
+        for (var gacha : GameData.getGachaDataTable()) {
+            if (gacha.getStorageData() != null) {
+                this.data = gacha;
+                break;
+            }
+        }
+        
+        if (this.data == null) {
+            throw new IllegalStateException("No gacha data loaded");
+        }
+        
+        this.pity = new GachaPityDraft(0, 0, 0, false);
+    }
+    
+    @Benchmark
+    public PullOutcome pull() {
+        var outcome = GachaRollEngine.pull(this.data, this.pity);
+        
+        // Carry pity over to the next pull
+        if (outcome != null) {
+            this.pity = outcome.pityDraft();
+        }
+        
+        return outcome;
+    }
+}
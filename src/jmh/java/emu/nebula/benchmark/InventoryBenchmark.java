@@ -0,0 +1,41 @@
+package emu.nebula.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import emu.nebula.GameConstants;
+import emu.nebula.Nebula;
+import emu.nebula.game.player.Player;
+import emu.nebula.game.player.PlayerChangeInfo;
+
+/**
+ * Adds an item like a request would, including the database write at the end of the request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryBenchmark {
+    private Player player;
+    
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.init();
+        
+        this.player = BenchmarkEnvironment.createPlayer();
+    }
+    
+    @Benchmark
+    public PlayerChangeInfo addItem() {
+        Nebula.getGameDatabase().beginWriteBatch();
+        
+        try {
+            return this.player.getInventory().addItem(GameConstants.GOLD_ITEM_ID, 1);
+        } finally {
+            Nebula.getGameDatabase().commitWriteBatch();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package emu.nebula.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import emu.nebula.net.GameSession;
+import emu.nebula.net.NetMsgId;
+import emu.nebula.proto.Public.Nil;
+import emu.nebula.proto.Public.UI32;
+
+/**
+ * Encodes a response while the player has next packages queued, which chains them into the response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PacketEncodeBenchmark {
+    @Param({"0", "1", "8", "32"})
+    private int nextPackages;
+    
+    private GameSession session;
+    
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.init();
+        
+        this.session = BenchmarkEnvironment.createSession(BenchmarkEnvironment.createPlayer());
+    }
+    
+    @Benchmark
+    public byte[] encodeMsg() {
+        var player = this.session.getPlayer();
+        
+        for (int i = 0; i < this.nextPackages; i++) {
+            player.addNextPackage(NetMsgId.mail_state_notify, UI32.newInstance().setValue(i));
+        }
+        
+        return this.session.encodeMsg(NetMsgId.player_ping_succeed_ack, Nil.newInstance());
+    }
+}
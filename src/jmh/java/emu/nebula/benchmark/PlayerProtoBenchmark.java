@@ -0,0 +1,33 @@
+package emu.nebula.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import emu.nebula.game.player.Player;
+import emu.nebula.proto.PlayerData.PlayerInfo;
+
+/**
+ * Serializes the login data of a player that owns every character, disc and item.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerProtoBenchmark {
+    private Player player;
+    
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.init();
+        
+        this.player = BenchmarkEnvironment.createFullPlayer();
+    }
+    
+    @Benchmark
+    public PlayerInfo toProto() {
+        return this.player.toProto();
+    }
+}
@@ -0,0 +1,40 @@
+package emu.nebula.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import emu.nebula.util.WeightedList;
+
+/**
+ * Samples one value at a time from a weighted list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WeightedListBenchmark {
+    @Param({"8", "256"})
+    private int entries;
+    
+    private WeightedList<Integer> list;
+    private SplittableRandom random;
+    
+    @Setup
+    public void setup() {
+        this.list = new WeightedList<>();
+        this.random = new SplittableRandom(0);
+        
+        for (int i = 0; i < this.entries; i++) {
+            this.list.add(1 + this.random.nextInt(1000), i);
+        }
+    }
+    
+    @Benchmark
+    public Integer next() {
+        return this.list.next(this.random);
+    }
+}
@@ -22,12 +22,15 @@ public class Config {
     public ServerRates serverRates = new ServerRates();
     public LogOptions logOptions = new LogOptions();
     public RemoteCommand remoteCommand = new RemoteCommand();
+    public MetricsOptions metrics = new MetricsOptions();
+    public PacketCaptureOptions packetCapture = new PacketCaptureOptions();
 
     public int customDataVersion = 0;
     public String region = "global";
     public String language = "en_US";
     
     public String resourceDir = "./resources";
+    public String resourceCachePath = "./data/resources.cache"; // Leave empty to always parse resources from json
     public String webFilesDir = "./web";
     public String patchListPath = "./patchlist.json";
 
@@ -54,6 +57,11 @@ public class Config {
         public String address = "localhost";
         public int port = 27017;
         public String filePath = "./data/database.mv";
+        
+        // Keeps the internal database inside the server process instead of running a local MongoDB server for it.
+        // Data in filePath is moved over automatically. Turn this off if other programs need to connect to the database.
+        public boolean useEmbeddedStorage = true;
+        public String embeddedFilePath = "./data/storage.mv"; // Leave empty to keep the database in memory
     }
 
     @Getter
@@ -135,10 +143,22 @@ public class Config {
         public boolean showAllSkinInMall = true;
         // How long to wait (in seconds) after the last http request from a session before removing it from the server.
         public int sessionTimeout = 300;
+        // How long to keep players in memory (in seconds) after they go offline, so they can log back in without being loaded again.
+        public int offlinePlayerCacheTime = 1800;
+        // Max amount of offline players to keep in memory. Set to 0 to unload players as soon as they go offline.
+        public int offlinePlayerCacheSize = 1000;
+        // Max amount of player summaries (name, level, head icon, etc. used by the friend list) to keep in memory.
+        public int playerSummaryCacheSize = 10000;
+        // Amount of server key pairs to generate ahead of time in the background, so that handshakes don't have to wait for them.
+        // Set to 0 to generate the key pair while handling the handshake.
+        public int keyPairPoolSize = 256;
+        // Uses the JDK's ECDH implementation instead of BouncyCastle to calculate session keys during the handshake.
+        public boolean useNativeEcdh = true;
         // The local server hour when daily, weekly, and monthly reset boundaries occur.
         // Example: "dailyResetHour = 4" means all reset boundaries happen at 04:00 in the server's system time zone.
         public int dailyResetHour = 4;
-        // Leaderboard for Boss Blitz refresh time in seconds.
+        // Unused, leaderboards are now updated as soon as a score is settled.
+        @Deprecated
         public int leaderboardRefreshTime = 60;
         // The welcome mail to send when a player is created. Set to null to disable.
         public WelcomeMail welcomeMail = new WelcomeMail();
@@ -162,6 +182,25 @@ public class Config {
         public String serverAdminKey = "HJHASDPIIQWEASDHHAN";
     }
 
+    @Getter
+    public static class MetricsOptions {
+        // Records request, database and game loop metrics and serves them in the Prometheus text format.
+        public boolean enabled = false;
+        public String route = "/metrics";
+        // If set, scrapers need to send this token in an "Authorization: Bearer <token>" header.
+        public String token = "";
+    }
+
+    @Getter
+    public static class PacketCaptureOptions {
+        // Writes decrypted packets to binary capture files in the background, see PacketReplay to replay them.
+        public boolean enabled = false;
+        public String directory = "./captures";
+        public int bufferSize = 16384; // Packets that can wait to be written before new ones are dropped
+        public int maxFileSize = 64; // In megabytes
+        public int maxFiles = 16; // Oldest files are deleted after this, 0 keeps all files
+    }
+
     @Getter
     public static class WelcomeMail {
         public String title;
@@ -50,6 +50,8 @@ public class GameConstants {
     public static final int MAX_FRIENDSHIPS = 50;
     public static final int MAX_PENDING_FRIENDSHIPS = 30;
     
+    public static final int MAX_LEADERBOARD_ENTRIES = 50;
+    
     public static final int TOWER_COIN_ITEM_ID = 11;
     public static final int[] TOWER_EVENTS_IDS = new int[] {
         101, 102, 104, 105, 106, 107, 108, 114, 115, 116, 126, 127, 128
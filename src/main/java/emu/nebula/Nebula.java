@@ -21,6 +21,7 @@ import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class Nebula {
     private static final Logger log = LoggerFactory.getLogger(Nebula.class);
@@ -122,7 +123,7 @@ public class Nebula {
         }
         
         // Start game context
-        Nebula.gameContext = new GameContext();
+        Nebula.initGameContext();
         Nebula.commandManager = new CommandManager();
         
         // Start servers
@@ -147,7 +148,7 @@ public class Nebula {
     
     // Database
 
-    private static void initDatabases() {
+    public static void initDatabases() {
         if (Nebula.getConfig().useSameDatabase) {
             // Setup account and game database
             accountDatabase = new DatabaseManager(Nebula.getConfig().getAccountDatabase(), serverType);
@@ -165,6 +166,46 @@ public class Nebula {
         }
     }
     
+    public static void initGameContext() {
+        Nebula.gameContext = new GameContext();
+    }
+    
+    // Local server
+    
+    /**
+     * Starts the game server inside this process for tools, load tests and benchmarks. Loads the config, keys and game
+     * data, then starts an internal in-memory database and the game context. The http server is not started.
+     * @param embeddedStorage Keep the database in the embedded storage instead of the MongoServer memory backend
+     * @param options Changes the config before anything is started, can be null. Changes are not saved.
+     */
+    public static void initLocalServer(boolean embeddedStorage, Consumer<Config> options) {
+        // Load config and keys
+        Nebula.loadConfig();
+        Nebula.loadDataVersions();
+        AeadHelper.loadKeys();
+        
+        // Always use an internal in-memory database on a random port
+        var config = Nebula.getConfig();
+        config.useSameDatabase = true;
+        config.getAccountDatabase().useInternal = true;
+        config.getInternalMongoServer().filePath = "";
+        config.getInternalMongoServer().embeddedFilePath = "";
+        config.getInternalMongoServer().port = 0;
+        config.getInternalMongoServer().useEmbeddedStorage = embeddedStorage;
+        
+        if (options != null) {
+            options.accept(config);
+        }
+        
+        // Load game data
+        ResourceLoader.loadAll();
+        PacketHelper.cacheProtos();
+        
+        // Start database and game context
+        Nebula.initDatabases();
+        Nebula.initGameContext();
+    }
+    
     // Config
 
     public static void loadConfig() {
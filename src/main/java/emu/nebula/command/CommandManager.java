@@ -5,10 +5,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import org.reflections.Reflections;
-
 import emu.nebula.Nebula;
 import emu.nebula.game.player.Player;
+import emu.nebula.util.ClassRegistry;
 import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import lombok.Getter;
@@ -23,7 +22,7 @@ public class CommandManager {
         this.commands = new Object2ObjectOpenHashMap<>();
         
         // Scan for commands
-        var commandClasses = new Reflections(CommandManager.class.getPackageName()).getTypesAnnotatedWith(Command.class);
+        var commandClasses = ClassRegistry.getTypesAnnotatedWith(Command.class);
         
         for (var cls : commandClasses) {
             if (!CommandHandler.class.isAssignableFrom(cls)) {
@@ -15,7 +15,7 @@ import java.util.Locale;
                 !ban {all | ip | uid} [player uid | ip] (end timestamp) (reason) - Ban a player\
                 
                 - all mode bans both the player object and their IP address by UID, so the next parameter should be UID instead of IP
-                - ip mode can only ban IP addresses, so the next parameter should be an IP
+                - ip mode can only ban IP addresses, so the next parameter should be an IP or a CIDR range (e.g. 10.0.0.0/24)
                 - uid mode can only ban UIDs, so the next parameter should be a UID
                 - If you don't fill in the end timestamp, it will be permanently banned by default\
                 """)
@@ -89,11 +89,14 @@ public class BanCommand implements CommandHandler {
                         (reason != null ? " (" + reason + ")" : "");
             }
             case "ip" -> {
-                banModule.banIp(
+                boolean result = banModule.banIp(
                         bannedIp,
                         banEndTime,
                         reason,
                         args.getSender() != null ? String.valueOf(args.getSender().getUid()) : "Console");
+                if (!result) {
+                    return "Unable to parse ip.";
+                }
                 return "Banned ip " + bannedIp + " until " + Utils.formatTimestamp(banEndTime) +
                         (reason != null ? " (" + reason + ")" : "");
             }
@@ -57,19 +57,27 @@ public class UnbanCommand implements CommandHandler {
             case "all" -> {
                 BanInfo banInfo = banModule.getPlayerBanInfo(player.getUid());
 
-                banModule.unbanPlayer(player.getUid());
+                boolean unbanned = banModule.unbanPlayer(player.getUid());
 
                 if (banInfo != null) {
                     unbannedIp = banInfo.getIpAddress();
                     if (unbannedIp != null)
-                        banModule.unbanIp(unbannedIp);
+                        unbanned |= banModule.unbanIp(unbannedIp);
+                }
+
+                if (!unbanned) {
+                    return "Player " + unbannedUid + " is not banned";
                 }
                 return "Unban a player all mode " + unbannedUid;
             } case "uid" -> {
-                banModule.unbanPlayer(player.getUid());
+                if (!banModule.unbanPlayer(player.getUid())) {
+                    return "Player " + unbannedUid + " is not banned";
+                }
                 return "Unban a player " + unbannedUid;
             } case "ip" -> {
-                banModule.unbanIp(unbannedIp);
+                if (!banModule.unbanIp(unbannedIp)) {
+                    return "No ban found for " + unbannedIp + ". Addresses inside a banned range can only be unbanned by unbanning the whole range.";
+                }
                 return "Unban a ip " + unbannedIp;
             }
             default -> {
@@ -1,89 +1,420 @@
 package emu.nebula.data;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.stream.Stream;
 
+import it.unimi.dsi.fastutil.ints.AbstractInt2ObjectMap;
+import it.unimi.dsi.fastutil.ints.AbstractIntSet;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMaps;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.objects.AbstractObjectCollection;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSet;
 import it.unimi.dsi.fastutil.objects.ObjectCollection;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 
+/**
+ * Table of resource defs by id. Defs are added to a hash map while resources are loading, after that the table is
+ * frozen by the resource loader. Frozen tables are immutable and pick a layout based on how dense their ids are:
+ * <ul>
+ * <li>DENSE - Array indexed by the id minus the lowest id</li>
+ * <li>SORTED - Sorted id array that is binary searched, for small tables with sparse ids</li>
+ * <li>HASH - Hash map, for other tables with sparse ids</li>
+ * </ul>
+ * Frozen tables are always iterated in id order.
+ * <p>
+ * Def fields with the {@link Index} annotation are indexed when the resource is loaded, see {@link #lookupBy(String, int)}.
+ */
 public class DataTable<T> implements Iterable<T> {
+    // Dense tables can have at most this many empty slots per def
+    private static final int MAX_DENSE_RATIO = 4;
+    // Sparse tables larger than this use a hash map, binary searches are only faster than hashing for small tables
+    private static final int MAX_SORTED_SIZE = 8;
+
     private Int2ObjectMap<T> map;
-    
+    private volatile Frozen<T> frozen;
+    private volatile Map<String, Int2ObjectMap<List<T>>> indexes = Map.of();
+    private Map<String, Field> indexFields = Map.of();
+
     public DataTable() {
         this.map = new Int2ObjectOpenHashMap<>();
     }
-    
+
     @SuppressWarnings("unchecked")
     public void add(Object res) {
+        if (this.isFrozen()) {
+            throw new IllegalStateException("Can't add to a frozen data table");
+        }
+
         if (res instanceof BaseDef r) {
             this.map.put(r.getId(), (T) res);
         }
     }
-    
+
+    public boolean isFrozen() {
+        return this.frozen != null;
+    }
+
+    public Layout getLayout() {
+        var frozen = this.frozen;
+        return frozen != null ? frozen.layout : null;
+    }
+
+    /**
+     * Makes this table immutable. Called by the resource loader once all resources are loaded.
+     */
+    public synchronized void freeze() {
+        if (this.isFrozen()) {
+            return;
+        }
+
+        this.frozen = new Frozen<>(this.map);
+        this.map = null;
+    }
+
     public int size() {
-        return this.map.size();
+        var frozen = this.frozen;
+        return frozen != null ? frozen.ids.length : this.map.size();
     }
-    
+
     // Wrapper functions
-    
+
     /**
-     * Wrapper for {@link it.unimi.dsi.fastutil.ints.Int2ObjectMap.get}
+     * Returns the def with this id, or null if there isn't one
      */
     public T get(int id) {
-        return this.map.get(id);
+        var frozen = this.frozen;
+        return frozen != null ? frozen.get(id) : this.map.get(id);
     }
 
     /**
-     * Wrapper for {@link it.unimi.dsi.fastutil.ints.Int2ObjectMap.containsKey}
+     * Returns true if this table has a def with this id
      */
     public boolean containsKey(int id) {
-        return this.map.containsKey(id);
+        return this.get(id) != null;
     }
 
     /**
-     * Wrapper for {@link it.unimi.dsi.fastutil.ints.Int2ObjectMap.keySet}
+     * Returns the ids of this table
      */
     public IntSet keySet() {
-        return this.map.keySet();
+        var frozen = this.frozen;
+        return frozen != null ? frozen.keySet : this.map.keySet();
     }
 
     /**
-     * Wrapper for {@link it.unimi.dsi.fastutil.ints.Int2ObjectMap.values}
+     * Returns the defs of this table
      */
     public ObjectCollection<T> values() {
-        return this.map.values();
+        var frozen = this.frozen;
+        return frozen != null ? frozen.values : this.map.values();
     }
 
     /**
-     * Wrapper for {@link it.unimi.dsi.fastutil.ints.Int2ObjectMap.int2ObjectEntrySet}
+     * Returns the id/def entries of this table
      */
     public ObjectSet<Int2ObjectMap.Entry<T>> int2ObjectEntrySet() {
-        return this.map.int2ObjectEntrySet();
+        var frozen = this.frozen;
+        return frozen != null ? frozen.entrySet : this.map.int2ObjectEntrySet();
     }
-    
+
+    // Indexes
+
+    /**
+     * Returns all defs where the field with this index name equals the key, in id order. Returns an empty list if
+     * there are none.
+     */
+    public List<T> lookupBy(String index, int key) {
+        var map = this.indexes.get(index);
+
+        if (map == null) {
+            throw new IllegalArgumentException("Data table has no index named " + index);
+        }
+
+        var list = map.get(key);
+        return list != null ? list : List.of();
+    }
+
+    /**
+     * Registers the indexes declared by the resource class of this table. The indexes start out empty, so lookups on
+     * a table whose resource file is missing or failed to load return nothing instead of failing.
+     */
+    synchronized void registerIndexes(Class<?> resourceClass) {
+        var fields = new HashMap<String, Field>();
+
+        for (Class<?> cls = resourceClass; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+            for (Field field : cls.getDeclaredFields()) {
+                var index = field.getAnnotation(Index.class);
+
+                if (index == null) {
+                    continue;
+                }
+
+                if (field.getType() != int.class) {
+                    throw new IllegalStateException("Indexed field " + field.getName() + " must be an int");
+                }
+
+                field.setAccessible(true);
+                fields.put(index.value(), field);
+            }
+        }
+
+        var indexes = new HashMap<String, Int2ObjectMap<List<T>>>();
+
+        for (var name : fields.keySet()) {
+            indexes.put(name, Int2ObjectMaps.emptyMap());
+        }
+
+        this.indexFields = Map.copyOf(fields);
+        this.indexes = Map.copyOf(indexes);
+    }
+
+    /**
+     * Builds the registered indexes from the defs that are in this table, in id order.
+     */
+    synchronized void buildIndexes() throws IllegalAccessException {
+        if (this.indexFields.isEmpty()) {
+            return;
+        }
+
+        // Sort defs by id
+        var ids = this.keySet().toIntArray();
+        Arrays.sort(ids);
+
+        // Index fields
+        var indexes = new HashMap<String, Int2ObjectMap<List<T>>>();
+
+        for (var entry : this.indexFields.entrySet()) {
+            var field = entry.getValue();
+            var groups = new Int2ObjectOpenHashMap<List<T>>();
+
+            for (int id : ids) {
+                T def = this.get(id);
+                groups.computeIfAbsent(field.getInt(def), k -> new ArrayList<>()).add(def);
+            }
+
+            // Make immutable
+            for (var group : groups.int2ObjectEntrySet()) {
+                group.setValue(List.copyOf(group.getValue()));
+            }
+
+            groups.trim();
+            indexes.put(entry.getKey(), Int2ObjectMaps.unmodifiable(groups));
+        }
+
+        this.indexes = Map.copyOf(indexes);
+    }
+
     // Iterable/Streamable
-    
+
     @Override
     public Iterator<T> iterator() {
         return this.values().iterator();
     }
-    
+
     public Stream<T> stream() {
         return this.values().stream();
     }
-    
+
     // Custom
-    
+
     public IntCollection getIds() {
-        return this.map.keySet();
+        return this.keySet();
     }
-    
+
     public IntCollection getAllIds() {
         return this.getIds();
     }
 
+    // Frozen
+
+    public static enum Layout {
+        DENSE, SORTED, HASH;
+    }
+
+    private static class Frozen<T> {
+        private final Layout layout;
+
+        // Sorted ids and their defs, used by every layout for iteration
+        private final int[] ids;
+        private final T[] defs;
+
+        // Dense layout
+        private final int offset;
+        private final T[] dense;
+
+        // Hash layout
+        private final Int2ObjectMap<T> hash;
+
+        // Views
+        private final IntSet keySet;
+        private final ObjectCollection<T> values;
+        private final ObjectSet<Int2ObjectMap.Entry<T>> entrySet;
+
+        @SuppressWarnings("unchecked")
+        private Frozen(Int2ObjectMap<T> map) {
+            // Sort by id
+            this.ids = map.keySet().toIntArray();
+            Arrays.sort(this.ids);
+
+            this.defs = (T[]) new Object[this.ids.length];
+
+            for (int i = 0; i < this.ids.length; i++) {
+                this.defs[i] = map.get(this.ids[i]);
+            }
+
+            // Pick layout
+            long range = this.ids.length > 0 ? (long) this.ids[this.ids.length - 1] - this.ids[0] + 1 : 0;
+
+            if (range <= (long) this.ids.length * MAX_DENSE_RATIO) {
+                this.layout = Layout.DENSE;
+            } else if (this.ids.length <= MAX_SORTED_SIZE) {
+                this.layout = Layout.SORTED;
+            } else {
+                this.layout = Layout.HASH;
+            }
+
+            // Build lookup
+            if (this.layout == Layout.DENSE) {
+                this.offset = this.ids.length > 0 ? this.ids[0] : 0;
+                this.dense = (T[]) new Object[(int) range];
+
+                for (int i = 0; i < this.ids.length; i++) {
+                    this.dense[this.ids[i] - this.offset] = this.defs[i];
+                }
+            } else {
+                this.offset = 0;
+                this.dense = null;
+            }
+
+            if (this.layout == Layout.HASH) {
+                this.hash = new Int2ObjectOpenHashMap<>(this.ids, this.defs);
+            } else {
+                this.hash = null;
+            }
+
+            // Create views
+            this.keySet = new KeySet();
+            this.values = new Values();
+            this.entrySet = new EntrySet();
+        }
+
+        private T get(int id) {
+            switch (this.layout) {
+                case DENSE -> {
+                    // Unsigned compare also handles ids below the offset
+                    int index = id - this.offset;
+                    return Integer.compareUnsigned(index, this.dense.length) < 0 ? this.dense[index] : null;
+                }
+                case SORTED -> {
+                    int index = Arrays.binarySearch(this.ids, id);
+                    return index >= 0 ? this.defs[index] : null;
+                }
+                default -> {
+                    return this.hash.get(id);
+                }
+            }
+        }
+
+        private class KeySet extends AbstractIntSet {
+            @Override
+            public int size() {
+                return ids.length;
+            }
+
+            @Override
+            public boolean contains(int id) {
+                return get(id) != null;
+            }
+
+            @Override
+            public IntIterator iterator() {
+                return new IntIterator() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.index < ids.length;
+                    }
+
+                    @Override
+                    public int nextInt() {
+                        if (!this.hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        return ids[this.index++];
+                    }
+                };
+            }
+        }
+
+        private class Values extends AbstractObjectCollection<T> {
+            @Override
+            public int size() {
+                return ids.length;
+            }
+
+            @Override
+            public ObjectIterator<T> iterator() {
+                return new ObjectIterator<T>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.index < defs.length;
+                    }
+
+                    @Override
+                    public T next() {
+                        if (!this.hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        return defs[this.index++];
+                    }
+                };
+            }
+        }
+
+        private class EntrySet extends AbstractObjectSet<Int2ObjectMap.Entry<T>> {
+            @Override
+            public int size() {
+                return ids.length;
+            }
+
+            @Override
+            public ObjectIterator<Int2ObjectMap.Entry<T>> iterator() {
+                return new ObjectIterator<Int2ObjectMap.Entry<T>>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.index < ids.length;
+                    }
+
+                    @Override
+                    public Int2ObjectMap.Entry<T> next() {
+                        if (!this.hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        int i = this.index++;
+                        return new AbstractInt2ObjectMap.BasicEntry<>(ids[i], defs[i]);
+                    }
+                };
+            }
+        }
+    }
 }
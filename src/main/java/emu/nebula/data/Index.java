@@ -0,0 +1,18 @@
+package emu.nebula.data;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indexes an int field of a resource def, so defs can be looked up by that field with
+ * {@link DataTable#lookupBy(String, int)} instead of scanning the whole table.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Index {
+
+    /** Name of the index */
+    String value();
+}
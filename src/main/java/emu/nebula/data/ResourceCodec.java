@@ -0,0 +1,946 @@
+package emu.nebula.data;
+
+import java.lang.reflect.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Binary codec for parsed resource defs, used by the resource snapshot. Codecs are built by reflection from the
+ * declared field types, the same way Gson creates the defs from json: every non static, non transient field is
+ * written, nested objects are created with their no-arg constructor and collections/maps with the same default
+ * implementations that Gson uses.
+ * <p>
+ * Types that can't be encoded (interfaces without a default implementation, generic fields, etc.) can only be null.
+ * Writing a non null value of such a type throws an {@link UnsupportedOperationException}, so the caller can skip
+ * the snapshot for that resource.
+ */
+public final class ResourceCodec {
+    private static final Map<Type, Codec> codecs = new HashMap<>();
+
+    private ResourceCodec() {}
+
+    /**
+     * Returns the codec for this type
+     */
+    public static synchronized Codec get(Type type) {
+        var codec = codecs.get(type);
+
+        if (codec == null) {
+            codec = create(type);
+        }
+
+        return codec;
+    }
+
+    /**
+     * Returns a hash of the layout of every class that the codec for this type can write. Snapshots that were
+     * written with a different layout can't be read anymore.
+     */
+    public static long getSchemaHash(Type type) {
+        var builder = new StringBuilder();
+        get(type).describe(builder, new HashSet<>());
+
+        long hash = 1125899906842597L;
+
+        for (int i = 0; i < builder.length(); i++) {
+            hash = 31 * hash + builder.charAt(i);
+        }
+
+        return hash;
+    }
+
+    // Codec factory
+
+    private static Codec create(Type type) {
+        // Resolve wildcards
+        if (type instanceof WildcardType wildcard) {
+            return get(wildcard.getUpperBounds()[0]);
+        }
+
+        // Generic type parameters are not supported
+        var raw = getRawType(type);
+
+        if (raw == null) {
+            return put(type, new UnsupportedCodec(type));
+        }
+
+        // Primitives
+        if (raw == int.class) return put(type, new IntCodec());
+        if (raw == long.class) return put(type, new LongCodec());
+        if (raw == boolean.class) return put(type, new BooleanCodec());
+        if (raw == double.class) return put(type, new DoubleCodec());
+        if (raw == float.class) return put(type, new FloatCodec());
+        if (raw == short.class) return put(type, new ShortCodec());
+        if (raw == byte.class) return put(type, new ByteCodec());
+        if (raw == char.class) return put(type, new CharCodec());
+
+        // Boxed primitives
+        if (raw == Integer.class) return put(type, new NullableCodec(get(int.class)));
+        if (raw == Long.class) return put(type, new NullableCodec(get(long.class)));
+        if (raw == Boolean.class) return put(type, new NullableCodec(get(boolean.class)));
+        if (raw == Double.class) return put(type, new NullableCodec(get(double.class)));
+        if (raw == Float.class) return put(type, new NullableCodec(get(float.class)));
+        if (raw == Short.class) return put(type, new NullableCodec(get(short.class)));
+        if (raw == Byte.class) return put(type, new NullableCodec(get(byte.class)));
+        if (raw == Character.class) return put(type, new NullableCodec(get(char.class)));
+
+        // Common types
+        if (raw == String.class) {
+            return put(type, new StringCodec());
+        } else if (raw.isEnum()) {
+            return put(type, new EnumCodec(raw));
+        } else if (raw == int[].class) {
+            return put(type, new IntArrayCodec());
+        } else if (raw.isArray()) {
+            var componentType = type instanceof GenericArrayType array ? array.getGenericComponentType() : raw.getComponentType();
+            var codec = new ArrayCodec(raw.getComponentType());
+            put(type, codec);
+            codec.elementCodec = get(componentType);
+            return codec;
+        } else if (Collection.class.isAssignableFrom(raw)) {
+            var cls = getCollectionClass(raw);
+            var elementType = getTypeArgument(type, Collection.class, 0);
+
+            if (cls == null || elementType == null) {
+                return put(type, new UnsupportedCodec(type));
+            }
+
+            var codec = new CollectionCodec(cls);
+            put(type, codec);
+            codec.elementCodec = get(elementType);
+            return codec;
+        } else if (Map.class.isAssignableFrom(raw)) {
+            var cls = getMapClass(raw);
+            var keyType = getTypeArgument(type, Map.class, 0);
+            var valueType = getTypeArgument(type, Map.class, 1);
+
+            if (cls == null || keyType == null || valueType == null) {
+                return put(type, new UnsupportedCodec(type));
+            }
+
+            var codec = new MapCodec(cls);
+            put(type, codec);
+            codec.keyCodec = get(keyType);
+            codec.valueCodec = get(valueType);
+            return codec;
+        }
+
+        // Objects
+        var constructor = getConstructor(raw);
+
+        if (constructor == null || raw.getName().startsWith("java.") || raw.getTypeParameters().length > 0) {
+            return put(type, new UnsupportedCodec(type));
+        }
+
+        var codec = new ObjectCodec(raw, constructor);
+        put(type, codec);
+        codec.init();
+
+        return codec;
+    }
+
+    private static Codec put(Type type, Codec codec) {
+        codecs.put(type, codec);
+        return codec;
+    }
+
+    private static Constructor<?> getConstructor(Class<?> cls) {
+        if (cls.isInterface() || Modifier.isAbstract(cls.getModifiers())) {
+            return null;
+        }
+
+        // Non static inner classes don't have a no-arg constructor
+        try {
+            var constructor = cls.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Class<?> getCollectionClass(Class<?> raw) {
+        if (getConstructor(raw) != null) {
+            return raw;
+        }
+
+        // Same defaults as Gson
+        if (raw.isAssignableFrom(ArrayList.class)) {
+            return ArrayList.class;
+        } else if (raw.isAssignableFrom(LinkedHashSet.class)) {
+            return LinkedHashSet.class;
+        } else if (raw.isAssignableFrom(TreeSet.class)) {
+            return TreeSet.class;
+        } else if (raw.isAssignableFrom(ArrayDeque.class)) {
+            return ArrayDeque.class;
+        }
+
+        return null;
+    }
+
+    private static Class<?> getMapClass(Class<?> raw) {
+        if (getConstructor(raw) != null) {
+            return raw;
+        }
+
+        if (raw.isAssignableFrom(LinkedHashMap.class)) {
+            return LinkedHashMap.class;
+        } else if (raw.isAssignableFrom(TreeMap.class)) {
+            return TreeMap.class;
+        }
+
+        return null;
+    }
+
+    // Generics
+
+    private static Class<?> getRawType(Type type) {
+        if (type instanceof Class<?> cls) {
+            return cls;
+        } else if (type instanceof ParameterizedType parameterized) {
+            return (Class<?>) parameterized.getRawType();
+        } else if (type instanceof GenericArrayType array) {
+            var component = getRawType(array.getGenericComponentType());
+            return component != null ? component.arrayType() : null;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the type argument at this index that the type passes to the target super type. Returns null if it
+     * can't be resolved.
+     */
+    private static Type getTypeArgument(Type type, Class<?> target, int index) {
+        var raw = getRawType(type);
+        var bindings = new HashMap<TypeVariable<?>, Type>();
+
+        if (type instanceof ParameterizedType parameterized) {
+            var vars = raw.getTypeParameters();
+            var args = parameterized.getActualTypeArguments();
+
+            for (int i = 0; i < vars.length; i++) {
+                bindings.put(vars[i], args[i]);
+            }
+        }
+
+        var result = findTypeArgument(raw, bindings, target, index);
+
+        if (result instanceof WildcardType wildcard) {
+            result = wildcard.getUpperBounds()[0];
+        }
+
+        return result instanceof TypeVariable ? null : result;
+    }
+
+    private static Type findTypeArgument(Class<?> cls, Map<TypeVariable<?>, Type> bindings, Class<?> target, int index) {
+        if (cls == target) {
+            return bindings.get(cls.getTypeParameters()[index]);
+        }
+
+        var supers = new ArrayList<Type>();
+        supers.add(cls.getGenericSuperclass());
+        supers.addAll(Arrays.asList(cls.getGenericInterfaces()));
+
+        for (var superType : supers) {
+            var superRaw = getRawType(superType);
+
+            if (superRaw == null || !target.isAssignableFrom(superRaw)) {
+                continue;
+            }
+
+            // Bind the type parameters of the super type
+            var superBindings = new HashMap<TypeVariable<?>, Type>();
+
+            if (superType instanceof ParameterizedType parameterized) {
+                var vars = superRaw.getTypeParameters();
+                var args = parameterized.getActualTypeArguments();
+
+                for (int i = 0; i < vars.length; i++) {
+                    var arg = args[i];
+
+                    if (arg instanceof TypeVariable<?> var) {
+                        arg = bindings.get(var);
+                    }
+
+                    if (arg != null) {
+                        superBindings.put(vars[i], arg);
+                    }
+                }
+            }
+
+            var result = findTypeArgument(superRaw, superBindings, target, index);
+
+            if (result != null) {
+                return result;
+            }
+        }
+
+        return null;
+    }
+
+    // Encoding helpers
+
+    private static void writeVarInt(Output out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+    }
+
+    public static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    private static void writeVarLong(Output out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    /**
+     * Writes the length of a value that can be null. Null is written as 0, so the length is shifted by 1.
+     */
+    private static void writeLength(Output out, int length) {
+        writeVarInt(out, length + 1);
+    }
+
+    /**
+     * Reads a length that was written with {@link #writeLength(Output, int)}. Returns -1 if the value was null.
+     */
+    private static int readLength(ByteBuffer in) {
+        return readVarInt(in) - 1;
+    }
+
+    // Output
+
+    /**
+     * Growable byte array that codecs write to
+     */
+    public static class Output {
+        private byte[] buffer;
+        private int size;
+
+        public Output(int capacity) {
+            this.buffer = new byte[Math.max(capacity, 16)];
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(this.buffer, this.size);
+        }
+
+        private void ensureCapacity(int length) {
+            if (this.size + length > this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length << 1, this.size + length));
+            }
+        }
+
+        public void write(int b) {
+            this.ensureCapacity(1);
+            this.buffer[this.size++] = (byte) b;
+        }
+
+        public void write(byte[] bytes) {
+            this.ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, this.buffer, this.size, bytes.length);
+            this.size += bytes.length;
+        }
+
+        public void writeVarInt(int value) {
+            ResourceCodec.writeVarInt(this, value);
+        }
+    }
+
+    // Codecs
+
+    public static abstract class Codec {
+        public abstract void write(Output out, Object value);
+
+        public abstract Object read(ByteBuffer in);
+
+        protected void describe(StringBuilder builder, Set<Codec> visited) {
+            builder.append(this.getClass().getSimpleName()).append(';');
+        }
+
+        /**
+         * Writes the value of a field. Primitive codecs override this so the value isn't boxed.
+         */
+        protected void writeField(Output out, Field field, Object obj) throws IllegalAccessException {
+            this.write(out, field.get(obj));
+        }
+
+        protected void readField(ByteBuffer in, Field field, Object obj) throws IllegalAccessException {
+            field.set(obj, this.read(in));
+        }
+    }
+
+    private static class IntCodec extends Codec {
+        @Override
+        public void write(Output out, Object value) {
+            writeInt(out, (Integer) value);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return readInt(in);
+        }
+
+        @Override
+        protected void writeField(Output out, Field field, Object obj) throws IllegalAccessException {
+            writeInt(out, field.getInt(obj));
+        }
+
+        @Override
+        protected void readField(ByteBuffer in, Field field, Object obj) throws IllegalAccessException {
+            field.setInt(obj, readInt(in));
+        }
+
+        private static void writeInt(Output out, int value) {
+            // Zigzag so negative values stay small
+            writeVarInt(out, (value << 1) ^ (value >> 31));
+        }
+
+        private static int readInt(ByteBuffer in) {
+            int value = readVarInt(in);
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    private static class LongCodec extends Codec {
+        @Override
+        public void write(Output out, Object value) {
+            long v = (Long) value;
+            writeVarLong(out, (v << 1) ^ (v >> 63));
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            long value = readVarLong(in);
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    private static class BooleanCodec extends Codec {
+        @Override
+        public void write(Output out, Object value) {
+            out.write((Boolean) value ? 1 : 0);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return in.get() != 0;
+        }
+
+        @Override
+        protected void writeField(Output out, Field field, Object obj) throws IllegalAccessException {
+            out.write(field.getBoolean(obj) ? 1 : 0);
+        }
+
+        @Override
+        protected void readField(ByteBuffer in, Field field, Object obj) throws IllegalAccessException {
+            field.setBoolean(obj, in.get() != 0);
+        }
+    }
+
+    private static class DoubleCodec extends Codec {
+        @Override
+        public void write(Output out, Object value) {
+            writeVarLong(out, Long.reverseBytes(Double.doubleToRawLongBits((Double) value)));
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return Double.longBitsToDouble(Long.reverseBytes(readVarLong(in)));
+        }
+    }
+
+    private static class FloatCodec extends Codec {
+        @Override
+        public void write(Output out, Object value) {
+            writeVarInt(out, Integer.reverseBytes(Float.floatToRawIntBits((Float) value)));
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return Float.intBitsToFloat(Integer.reverseBytes(readVarInt(in)));
+        }
+    }
+
+    private static class ShortCodec extends Codec {
+        @Override
+        public void write(Output out, Object value) {
+            IntCodec.writeInt(out, (Short) value);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return (short) IntCodec.readInt(in);
+        }
+    }
+
+    private static class ByteCodec extends Codec {
+        @Override
+        public void write(Output out, Object value) {
+            out.write((Byte) value);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return in.get();
+        }
+    }
+
+    private static class CharCodec extends Codec {
+        @Override
+        public void write(Output out, Object value) {
+            writeVarInt(out, (Character) value);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return (char) readVarInt(in);
+        }
+    }
+
+    private static class NullableCodec extends Codec {
+        private final Codec codec;
+
+        private NullableCodec(Codec codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public void write(Output out, Object value) {
+            if (value == null) {
+                out.write(0);
+            } else {
+                out.write(1);
+                this.codec.write(out, value);
+            }
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return in.get() != 0 ? this.codec.read(in) : null;
+        }
+
+        @Override
+        protected void describe(StringBuilder builder, Set<Codec> visited) {
+            builder.append("Nullable:");
+            this.codec.describe(builder, visited);
+        }
+    }
+
+    private static class StringCodec extends Codec {
+        @Override
+        public void write(Output out, Object value) {
+            if (value == null) {
+                writeLength(out, -1);
+                return;
+            }
+
+            var bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            writeLength(out, bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            int length = readLength(in);
+
+            if (length < 0) {
+                return null;
+            }
+
+            var bytes = new byte[length];
+            in.get(bytes);
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class EnumCodec extends Codec {
+        private final Class<?> type;
+        private final Object[] values;
+
+        private EnumCodec(Class<?> type) {
+            this.type = type;
+            this.values = type.getEnumConstants();
+        }
+
+        @Override
+        public void write(Output out, Object value) {
+            writeVarInt(out, value != null ? ((Enum<?>) value).ordinal() + 1 : 0);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            int ordinal = readVarInt(in);
+            return ordinal > 0 ? this.values[ordinal - 1] : null;
+        }
+
+        @Override
+        protected void describe(StringBuilder builder, Set<Codec> visited) {
+            builder.append("Enum:").append(this.type.getName()).append(Arrays.toString(this.values)).append(';');
+        }
+    }
+
+    private static class IntArrayCodec extends Codec {
+        @Override
+        public void write(Output out, Object value) {
+            if (value == null) {
+                writeLength(out, -1);
+                return;
+            }
+
+            var array = (int[]) value;
+            writeLength(out, array.length);
+
+            for (int v : array) {
+                IntCodec.writeInt(out, v);
+            }
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            int length = readLength(in);
+
+            if (length < 0) {
+                return null;
+            }
+
+            var array = new int[length];
+
+            for (int i = 0; i < length; i++) {
+                array[i] = IntCodec.readInt(in);
+            }
+
+            return array;
+        }
+    }
+
+    private static class ArrayCodec extends Codec {
+        private final Class<?> componentType;
+        private Codec elementCodec;
+
+        private ArrayCodec(Class<?> componentType) {
+            this.componentType = componentType;
+        }
+
+        @Override
+        public void write(Output out, Object value) {
+            if (value == null) {
+                writeLength(out, -1);
+                return;
+            }
+
+            int length = Array.getLength(value);
+            writeLength(out, length);
+
+            for (int i = 0; i < length; i++) {
+                this.elementCodec.write(out, Array.get(value, i));
+            }
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            int length = readLength(in);
+
+            if (length < 0) {
+                return null;
+            }
+
+            var array = Array.newInstance(this.componentType, length);
+
+            for (int i = 0; i < length; i++) {
+                Array.set(array, i, this.elementCodec.read(in));
+            }
+
+            return array;
+        }
+
+        @Override
+        protected void describe(StringBuilder builder, Set<Codec> visited) {
+            builder.append("Array:");
+            this.elementCodec.describe(builder, visited);
+        }
+    }
+
+    private static class CollectionCodec extends Codec {
+        private final Class<?> type;
+        private Codec elementCodec;
+
+        private CollectionCodec(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(Output out, Object value) {
+            if (value == null) {
+                writeLength(out, -1);
+                return;
+            }
+
+            // We can only recreate the collection if it's the class we would create
+            if (value.getClass() != this.type) {
+                throw new UnsupportedOperationException("Can't encode " + value.getClass().getName() + " as " + this.type.getName());
+            }
+
+            var collection = (Collection<?>) value;
+            writeLength(out, collection.size());
+
+            for (var element : collection) {
+                this.elementCodec.write(out, element);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object read(ByteBuffer in) {
+            int length = readLength(in);
+
+            if (length < 0) {
+                return null;
+            }
+
+            var collection = (Collection<Object>) newInstance(this.type);
+
+            for (int i = 0; i < length; i++) {
+                collection.add(this.elementCodec.read(in));
+            }
+
+            return collection;
+        }
+
+        @Override
+        protected void describe(StringBuilder builder, Set<Codec> visited) {
+            builder.append("Collection:").append(this.type.getName()).append(':');
+            this.elementCodec.describe(builder, visited);
+        }
+    }
+
+    private static class MapCodec extends Codec {
+        private final Class<?> type;
+        private Codec keyCodec;
+        private Codec valueCodec;
+
+        private MapCodec(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(Output out, Object value) {
+            if (value == null) {
+                writeLength(out, -1);
+                return;
+            }
+
+            // We can only recreate the map if it's the class we would create
+            if (value.getClass() != this.type) {
+                throw new UnsupportedOperationException("Can't encode " + value.getClass().getName() + " as " + this.type.getName());
+            }
+
+            var map = (Map<?, ?>) value;
+            writeLength(out, map.size());
+
+            for (var entry : map.entrySet()) {
+                this.keyCodec.write(out, entry.getKey());
+                this.valueCodec.write(out, entry.getValue());
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object read(ByteBuffer in) {
+            int length = readLength(in);
+
+            if (length < 0) {
+                return null;
+            }
+
+            var map = (Map<Object, Object>) newInstance(this.type);
+
+            for (int i = 0; i < length; i++) {
+                var key = this.keyCodec.read(in);
+                map.put(key, this.valueCodec.read(in));
+            }
+
+            return map;
+        }
+
+        @Override
+        protected void describe(StringBuilder builder, Set<Codec> visited) {
+            builder.append("Map:").append(this.type.getName()).append(':');
+            this.keyCodec.describe(builder, visited);
+            this.valueCodec.describe(builder, visited);
+        }
+    }
+
+    private static class ObjectCodec extends Codec {
+        private final Class<?> type;
+        private final Constructor<?> constructor;
+        private Field[] fields;
+        private Codec[] fieldCodecs;
+
+        private ObjectCodec(Class<?> type, Constructor<?> constructor) {
+            this.type = type;
+            this.constructor = constructor;
+        }
+
+        private void init() {
+            var fields = new ArrayList<Field>();
+
+            // Same fields as Gson
+            for (Class<?> cls = this.type; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+                for (var field : cls.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+
+            this.fields = fields.toArray(Field[]::new);
+            this.fieldCodecs = new Codec[this.fields.length];
+
+            for (int i = 0; i < this.fields.length; i++) {
+                this.fieldCodecs[i] = get(this.fields[i].getGenericType());
+            }
+        }
+
+        @Override
+        public void write(Output out, Object value) {
+            if (value == null) {
+                out.write(0);
+                return;
+            }
+
+            // Subclasses would lose their fields
+            if (value.getClass() != this.type) {
+                throw new UnsupportedOperationException("Can't encode " + value.getClass().getName() + " as " + this.type.getName());
+            }
+
+            out.write(1);
+
+            try {
+                for (int i = 0; i < this.fields.length; i++) {
+                    this.fieldCodecs[i].writeField(out, this.fields[i], value);
+                }
+            } catch (IllegalAccessException e) {
+                throw new UnsupportedOperationException(e);
+            }
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            if (in.get() == 0) {
+                return null;
+            }
+
+            try {
+                var value = this.constructor.newInstance();
+
+                for (int i = 0; i < this.fields.length; i++) {
+                    this.fieldCodecs[i].readField(in, this.fields[i], value);
+                }
+
+                return value;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        protected void describe(StringBuilder builder, Set<Codec> visited) {
+            builder.append("Object:").append(this.type.getName());
+
+            // Only describe each class once
+            if (!visited.add(this)) {
+                builder.append(';');
+                return;
+            }
+
+            builder.append('{');
+
+            for (int i = 0; i < this.fields.length; i++) {
+                builder.append(this.fields[i].getName()).append('=');
+                this.fieldCodecs[i].describe(builder, visited);
+            }
+
+            builder.append('}');
+        }
+    }
+
+    private static class UnsupportedCodec extends Codec {
+        private final Type type;
+
+        private UnsupportedCodec(Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(Output out, Object value) {
+            if (value != null) {
+                throw new UnsupportedOperationException("Can't encode " + this.type.getTypeName());
+            }
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return null;
+        }
+
+        @Override
+        protected void describe(StringBuilder builder, Set<Codec> visited) {
+            builder.append("Unsupported:").append(this.type.getTypeName()).append(';');
+        }
+    }
+
+    private static Object newInstance(Class<?> cls) {
+        try {
+            var constructor = cls.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package emu.nebula.data;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
-import org.reflections.Reflections;
-
+import emu.nebula.util.ClassRegistry;
 import emu.nebula.util.JsonUtils;
 import emu.nebula.util.Utils;
 import emu.nebula.Nebula;
@@ -33,64 +40,149 @@ public class ResourceLoader {
     
     public static void loadResources() {
         // Get resource classes and sort
-        List<Class<?>> classes = new Reflections(ResourceLoader.class.getPackage().getName())
-                .getTypesAnnotatedWith(ResourceType.class)
+        List<Class<?>> classes = ClassRegistry.getTypesAnnotatedWith(ResourceType.class)
                 .stream()
                 .collect(Collectors.toList());
 
         classes.sort((a, b) -> b.getAnnotation(ResourceType.class).loadPriority().value() - a.getAnnotation(ResourceType.class).loadPriority().value());
 
-        // Load resource
+        // Open resource snapshot
+        var snapshot = ResourceSnapshot.open(Nebula.getConfig().resourceCachePath);
+
+        // Parse resource files in parallel, parsing doesn't depend on other resources
+        var tasks = new ArrayList<CompletableFuture<List<?>>>(classes.size());
+
         for (Class<?> def : classes) {
-            loadFromResource(def);
+            tasks.add(CompletableFuture.supplyAsync(() -> parseResource(def, snapshot)));
+        }
+
+        // Load resources in priority order, so onLoad can still use resources with a higher priority
+        for (int i = 0; i < classes.size(); i++) {
+            loadResource(classes.get(i), tasks.get(i).join());
         }
+
+        // Save snapshot
+        if (snapshot != null) {
+            snapshot.save();
+        }
+        
+        // Tables can't be changed after this
+        freezeTables(GameData.class);
     }
 
     public static void loadFromResource(Class<?> resourceClass) {
-        // Load to map
-        DataTable<?> table = getTableForResource(GameData.class, resourceClass);
+        loadResource(resourceClass, parseResource(resourceClass, null));
+    }
+
+    private static List<?> parseResource(Class<?> resourceClass, ResourceSnapshot snapshot) {
         ResourceType type = resourceClass.getAnnotation(ResourceType.class);
         
         // Sanity check
         if (type == null) {
-            return;
+            return null;
         }
         
-        int count = 0;
-        
         try {
-            // Init defs collection
-            Iterable<?> defs = null;
-            
             // Load resource file
             if (type.useInternal()) {
                 // Load from internal resources in jar
                 try (var in = ResourceLoader.class.getResourceAsStream("/defs/" + type.name()); var reader = new InputStreamReader(in)) {
-                    defs = JsonUtils.loadToList(reader, resourceClass);
+                    return JsonUtils.loadToList(reader, resourceClass);
                 } catch (Exception e) {
                     // Ignored
+                    return null;
                 }
-            } else {
-                // Load json from ./resources/bin/ folder
-                var json = JsonUtils.loadToMap(Nebula.getConfig().resourceDir + "/bin/" + type.name(), String.class, resourceClass);
-                
-                // Get json values
-                defs = json.values();
             }
-
-            for (Object o : defs) {
-                BaseDef res = (BaseDef) o;
-
-                if (res == null) {
-                    continue;
+            
+            // Load json from ./resources/bin/ folder
+            var file = Path.of(Nebula.getConfig().resourceDir, "bin", type.name());
+            
+            if (!Files.exists(file)) {
+                Nebula.getLogger().error("File not found: {}.", file);
+                return null;
+            }
+            
+            var source = Files.readAllBytes(file);
+            
+            // Try to decode from snapshot
+            byte[] sourceHash = null;
+            long schemaHash = 0;
+            
+            if (snapshot != null) {
+                sourceHash = ResourceSnapshot.hash(source);
+                schemaHash = ResourceCodec.getSchemaHash(resourceClass);
+                
+                var data = snapshot.get(type.name(), sourceHash, schemaHash);
+                
+                if (data != null) {
+                    try {
+                        return decodeDefs(resourceClass, data);
+                    } catch (Exception e) {
+                        Nebula.getLogger().warn("Could not decode {} from resource snapshot", type.name());
+                    }
                 }
+            }
+            
+            // Parse json
+            try (var reader = new InputStreamReader(new ByteArrayInputStream(source), StandardCharsets.UTF_8)) {
+                var defs = new ArrayList<Object>(JsonUtils.loadToMap(reader, String.class, resourceClass).values());
                 
-                res.onLoad();
+                // Add to snapshot before onLoad is called
+                if (snapshot != null) {
+                    try {
+                        snapshot.put(type.name(), sourceHash, schemaHash, encodeDefs(resourceClass, defs));
+                    } catch (UnsupportedOperationException e) {
+                        // Resource will always be parsed from json
+                    }
+                }
                 
-                count++;
+                return defs;
+            }
+        } catch (Exception e) {
+            Nebula.getLogger().error("Error loading resource file: {}", type.name(), e);
+        }
+        
+        return null;
+    }
 
+    private static void loadResource(Class<?> resourceClass, List<?> defs) {
+        // Load to map
+        DataTable<?> table = getTableForResource(GameData.class, resourceClass);
+        ResourceType type = resourceClass.getAnnotation(ResourceType.class);
+        
+        // Sanity check
+        if (type == null) {
+            return;
+        }
+        
+        int count = 0;
+        
+        try {
+            // Register indexes first, so they exist even if the resource doesn't load
+            if (table != null) {
+                table.registerIndexes(resourceClass);
+            }
+            
+            if (defs != null) {
+                for (Object o : defs) {
+                    BaseDef res = (BaseDef) o;
+    
+                    if (res == null) {
+                        continue;
+                    }
+                    
+                    res.onLoad();
+                    
+                    count++;
+    
+                    if (table != null) {
+                        table.add(o);
+                    }
+                }
+                
+                // Build indexes after onLoad so they are usable by resources with a lower priority
                 if (table != null) {
-                    table.add(o);
+                    table.buildIndexes();
                 }
             }
         } catch (Exception e) {
@@ -100,8 +192,52 @@ public class ResourceLoader {
         Nebula.getLogger().info("Loaded {} {}s.", count, resourceClass.getSimpleName());
     }
     
+    // Snapshot
+    
+    private static byte[] encodeDefs(Class<?> resourceClass, List<?> defs) {
+        var codec = ResourceCodec.get(resourceClass);
+        var out = new ResourceCodec.Output(defs.size() * 32);
+        
+        out.writeVarInt(defs.size());
+        
+        for (var def : defs) {
+            codec.write(out, def);
+        }
+        
+        return out.toByteArray();
+    }
+    
+    private static List<?> decodeDefs(Class<?> resourceClass, ByteBuffer data) {
+        var codec = ResourceCodec.get(resourceClass);
+        int count = ResourceCodec.readVarInt(data);
+        var defs = new ArrayList<Object>(count);
+        
+        for (int i = 0; i < count; i++) {
+            defs.add(codec.read(data));
+        }
+        
+        return defs;
+    }
+    
     // Utility
     
+    private static void freezeTables(Class<?> dataClass) {
+        for (Field field : dataClass.getDeclaredFields()) {
+            if (field.getType() != DataTable.class || !Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            
+            try {
+                field.setAccessible(true);
+                ((DataTable<?>) field.get(null)).freeze();
+            } catch (Exception e) {
+                // ignore exception
+            } finally {
+                field.setAccessible(false);
+            }
+        }
+    }
+    
     @SuppressWarnings("unchecked")
     private static <T> DataTable<T> getTableForResource(Class<?> dataClass, Class<T> resourceClass) {
         // Init
@@ -0,0 +1,183 @@
+package emu.nebula.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import emu.nebula.Nebula;
+
+/**
+ * Binary snapshot of parsed resource files. Each resource is stored with a hash of its source json and a hash of
+ * the layout of its def class, so it is only used while both are unchanged. The snapshot file is read into memory
+ * once when it is opened, and entries are decoded directly from that buffer. It is not memory mapped, since a
+ * mapped file can't be replaced on Windows until the mapping is garbage collected.
+ * <p>
+ * The file is only rewritten if a resource was added, changed or removed.
+ */
+public class ResourceSnapshot {
+    private static final int MAGIC = 0x4E425253; // NBRS
+    private static final int VERSION = 1;
+
+    private final Path path;
+    private final Map<String, Entry> entries;
+    private final Map<String, Entry> used;
+    private volatile boolean dirty;
+
+    private ResourceSnapshot(Path path) {
+        this.path = path;
+        this.entries = new ConcurrentHashMap<>();
+        this.used = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Opens the snapshot at this path. Returns null if the path is empty, which disables the snapshot.
+     */
+    public static ResourceSnapshot open(String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+
+        var snapshot = new ResourceSnapshot(Path.of(path));
+        snapshot.load();
+
+        return snapshot;
+    }
+
+    private void load() {
+        if (!Files.exists(this.path)) {
+            return;
+        }
+
+        try {
+            var buffer = ByteBuffer.wrap(Files.readAllBytes(this.path));
+
+            // Check header
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return;
+            }
+
+            int count = buffer.getInt();
+
+            for (int i = 0; i < count; i++) {
+                // Read name
+                var name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+
+                // Read hashes
+                var sourceHash = new byte[buffer.get() & 0xFF];
+                buffer.get(sourceHash);
+
+                long schemaHash = buffer.getLong();
+
+                // Slice data
+                int length = buffer.getInt();
+                var data = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+
+                this.entries.put(new String(name, StandardCharsets.UTF_8), new Entry(sourceHash, schemaHash, data));
+            }
+        } catch (Exception e) {
+            // Snapshot will be rebuilt
+            this.entries.clear();
+            Nebula.getLogger().warn("Could not read resource snapshot, resources will be parsed from json");
+        }
+    }
+
+    /**
+     * Returns the encoded defs of this resource, or null if the snapshot doesn't have them or they are outdated.
+     */
+    public ByteBuffer get(String name, byte[] sourceHash, long schemaHash) {
+        var entry = this.entries.get(name);
+
+        if (entry == null || entry.schemaHash() != schemaHash || !Arrays.equals(entry.sourceHash(), sourceHash)) {
+            return null;
+        }
+
+        this.used.put(name, entry);
+
+        return entry.data().duplicate();
+    }
+
+    /**
+     * Adds or replaces the encoded defs of this resource
+     */
+    public void put(String name, byte[] sourceHash, long schemaHash, byte[] data) {
+        this.used.put(name, new Entry(sourceHash, schemaHash, ByteBuffer.wrap(data)));
+        this.dirty = true;
+    }
+
+    /**
+     * Writes the snapshot to disk if any resource was changed. Resources that were not loaded are removed.
+     */
+    public void save() {
+        if (!this.dirty && this.used.size() == this.entries.size()) {
+            return;
+        }
+
+        try {
+            // Write to a temp file first so the snapshot is never left half written
+            var parent = this.path.toAbsolutePath().getParent();
+
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+
+            var temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(this.used.size());
+
+                for (var e : this.used.entrySet()) {
+                    var name = e.getKey().getBytes(StandardCharsets.UTF_8);
+                    var entry = e.getValue();
+                    var data = entry.data().duplicate();
+
+                    out.writeShort(name.length);
+                    out.write(name);
+                    out.writeByte(entry.sourceHash().length);
+                    out.write(entry.sourceHash());
+                    out.writeLong(entry.schemaHash());
+                    out.writeInt(data.remaining());
+
+                    var bytes = new byte[data.remaining()];
+                    data.get(bytes);
+                    out.write(bytes);
+                }
+            }
+
+            try {
+                Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (Exception e) {
+                Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Exception e) {
+            // Not fatal, the resources will just be parsed again on the next start
+            Nebula.getLogger().warn("Could not write resource snapshot: {}", e.toString());
+        }
+    }
+
+    /**
+     * Returns the hash of a resource file
+     */
+    public static byte[] hash(byte[] source) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(source);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static record Entry(byte[] sourceHash, long schemaHash, ByteBuffer data) {
+
+    }
+}
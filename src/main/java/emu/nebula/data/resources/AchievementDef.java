@@ -1,11 +1,10 @@
 package emu.nebula.data.resources;
 
 import emu.nebula.data.BaseDef;
+import emu.nebula.data.Index;
 import emu.nebula.data.ResourceType;
 import emu.nebula.data.custom.AchievementParamDef;
-import emu.nebula.game.achievement.AchievementHelper;
 import emu.nebula.game.achievement.AchievementParamCond;
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import lombok.Getter;
 
 @Getter
@@ -13,6 +12,7 @@ import lombok.Getter;
 public class AchievementDef extends BaseDef {
     private int Id;
     private int Type;
+    @Index("condition")
     private int CompleteCond;
     private int AimNumShow;
     private int[] Prerequisites;
@@ -67,11 +67,4 @@ public class AchievementDef extends BaseDef {
         
         return this.paramCond2.test(this.param2, value);
     }
-
-    @Override
-    public void onLoad() {
-        // Add to cached achievement list
-        var list = AchievementHelper.getCache().computeIfAbsent(this.CompleteCond, i -> new ObjectArrayList<>());
-        list.add(this);
-    }
 }
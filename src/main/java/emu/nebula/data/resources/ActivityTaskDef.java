@@ -1,6 +1,7 @@
 package emu.nebula.data.resources;
 
 import emu.nebula.data.BaseDef;
+import emu.nebula.data.Index;
 import emu.nebula.data.ResourceType;
 import emu.nebula.game.inventory.ItemParamMap;
 import lombok.Getter;
@@ -9,6 +10,7 @@ import lombok.Getter;
 @ResourceType(name = "ActivityTask.json")
 public class ActivityTaskDef extends BaseDef {
     private int Id;
+    @Index("group")
     private int ActivityTaskGroupId;
     
     private int CompleteCond;
@@ -1,6 +1,7 @@
 package emu.nebula.data.resources;
 
 import emu.nebula.data.BaseDef;
+import emu.nebula.data.Index;
 import emu.nebula.data.ResourceType;
 import emu.nebula.game.inventory.ItemParamMap;
 import lombok.Getter;
@@ -9,6 +10,7 @@ import lombok.Getter;
 @ResourceType(name = "ActivityTaskGroup.json")
 public class ActivityTaskGroupDef extends BaseDef {
     private int Id;
+    @Index("activity")
     private int ActivityId;
     
     private int Reward1;
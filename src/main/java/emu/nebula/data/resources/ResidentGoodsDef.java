@@ -1,6 +1,7 @@
 package emu.nebula.data.resources;
 
 import emu.nebula.data.BaseDef;
+import emu.nebula.data.Index;
 import emu.nebula.data.ResourceType;
 import emu.nebula.game.inventory.ItemParamMap;
 import emu.nebula.game.player.Player;
@@ -11,6 +12,7 @@ import lombok.Getter;
 @ResourceType(name = "ResidentGoods.json")
 public class ResidentGoodsDef extends BaseDef {
     private int Id;
+    @Index("shop")
     private int ShopId;
     private int MaximumLimit;
     
@@ -1,6 +1,7 @@
 package emu.nebula.data.resources;
 
 import emu.nebula.data.BaseDef;
+import emu.nebula.data.Index;
 import emu.nebula.data.ResourceType;
 import lombok.Getter;
 
@@ -9,6 +10,7 @@ import lombok.Getter;
 public class StarTowerGrowthNodeDef extends BaseDef {
     private int Id;
     private int NodeId;
+    @Index("group")
     private int Group;
     
     private int ItemId1;
@@ -11,13 +11,12 @@ public class DatabaseCounter {
 
     public DatabaseCounter() {}
 
-    public DatabaseCounter(String id) {
+    public DatabaseCounter(String id, int count) {
         this.id = id;
-        this.count = 10000;
+        this.count = count;
     }
 
-    public int getNextId() {
-        int id = ++count;
-        return id;
+    public int getCount() {
+        return this.count;
     }
 }
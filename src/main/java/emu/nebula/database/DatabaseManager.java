@@ -1,8 +1,12 @@
 package emu.nebula.database;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import emu.nebula.Config.DatabaseInfo;
@@ -10,17 +14,23 @@ import emu.nebula.Config.InternalMongoInfo;
 import emu.nebula.Nebula;
 import emu.nebula.Nebula.ServerType;
 import emu.nebula.database.codecs.*;
+import emu.nebula.game.gacha.GachaDataMigration;
+import emu.nebula.metrics.Metrics;
+import emu.nebula.util.ClassRegistry;
 import emu.nebula.util.Utils;
 
+import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.codecs.configuration.CodecRegistries;
-import org.reflections.Reflections;
+import org.h2.mvstore.MVStore;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.MongoCommandException;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoIterable;
-import com.mongodb.client.result.DeleteResult;
 
 import de.bwaldvogel.mongo.MongoBackend;
 import de.bwaldvogel.mongo.MongoServer;
@@ -29,22 +39,26 @@ import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
 import dev.morphia.*;
 import dev.morphia.annotations.Entity;
 import dev.morphia.mapping.MapperOptions;
-import dev.morphia.query.FindOptions;
-import dev.morphia.query.Sort;
-import dev.morphia.query.filters.Filters;
-import dev.morphia.query.updates.UpdateOperator;
-import dev.morphia.query.updates.UpdateOperators;
 import lombok.Getter;
 
 @Getter
 public final class DatabaseManager {
     @Getter
     private static MongoServer server;
+    private static MVStore embeddedStore;
     private Datastore datastore;
+    private DatabaseStorage storage;
+    private DocumentSnapshots snapshots;
+    
+    // Per-request write batch
+    private final ThreadLocal<DatabaseWriteBatch> writeBatch = new ThreadLocal<>();
 
-    private static final InsertOneOptions INSERT_OPTIONS = new InsertOneOptions();
-    private static final DeleteOptions DELETE_OPTIONS = new DeleteOptions();
-    private static final DeleteOptions DELETE_MANY = new DeleteOptions().multi(true);
+    // A load balanced connection string creates a client without any background connections
+    private static final String EMBEDDED_CONNECTION_STRING = "mongodb://localhost/?loadBalanced=true";
+    
+    // Database counters
+    private static final int ID_BLOCK_SIZE = 64;
+    private final Map<String, IdAllocator> idAllocators = new ConcurrentHashMap<>();
 
     public DatabaseManager(DatabaseInfo info, ServerType type) {
         // Variables
@@ -52,9 +66,13 @@ public final class DatabaseManager {
         String connectionString = info.getConnectionString();
 
         boolean useMongo = System.getenv("NEBULA_MONGODB_HOST") != null;
+        boolean useEmbedded = info.isUseInternal() && !useMongo && internalConfig.isUseEmbeddedStorage();
 
-        // Start local mongo server
-        if (info.isUseInternal() && !useMongo) {
+        // Use the embedded storage or start local mongo server
+        if (useEmbedded) {
+            // Morphia still needs a client to create the datastore, but it never connects
+            connectionString = EMBEDDED_CONNECTION_STRING;
+        } else if (info.isUseInternal() && !useMongo) {
             if (Utils.isPortOpen(internalConfig.getAddress(), internalConfig.getPort())) {
                 connectionString = startInternalMongoServer(internalConfig);
                 Nebula.getLogger().info("Started local MongoDB server at " + server.getConnectionString());
@@ -64,7 +82,12 @@ public final class DatabaseManager {
         }
 
         // Initialize
-        MongoClient mongoClient = MongoClients.create(connectionString);
+        var settings = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(connectionString))
+                .addCommandListener(Metrics.getDatabaseMetrics())
+                .build();
+        
+        MongoClient mongoClient = MongoClients.create(settings);
         
         // Add our custom fastutil codecs
         var codecProvider = CodecRegistries.fromCodecs(
@@ -81,10 +104,13 @@ public final class DatabaseManager {
 
         // Create data store.
         datastore = Morphia.createDatastore(mongoClient, info.getCollection(), mapperOptions);
+        
+        // Keep snapshots of loaded game objects so saves only write what changed
+        snapshots = new DocumentSnapshots(datastore);
+        datastore.getMapper().addInterceptor(snapshots);
 
         // Map classes
-        var entities = new Reflections(Nebula.class.getPackageName())
-                .getTypesAnnotatedWith(Entity.class)
+        var entities = ClassRegistry.getTypesAnnotatedWith(Entity.class)
                 .stream()
                 .filter(cls -> {
                     Entity e = cls.getAnnotation(Entity.class);
@@ -109,14 +135,29 @@ public final class DatabaseManager {
             datastore.getMapper().map(map);
         }
 
-        // Ensure indexes
-        ensureIndexes();
-        
-        // Done
-        Nebula.getLogger().info("Connected to the MongoDB database at {}", connectionString);
+        // Create storage
+        if (useEmbedded) {
+            storage = new EmbeddedStorage(datastore, openEmbeddedStore(internalConfig), info.getCollection());
+            Nebula.getLogger().info("Opened the embedded database at {}", getEmbeddedStoreName(internalConfig));
+        } else {
+            storage = new MongoStorage(datastore);
+            
+            // Ensure indexes
+            ensureIndexes();
+            
+            // Done
+            Nebula.getLogger().info("Connected to the MongoDB database at {}", connectionString);
+        }
     }
 
+    /**
+     * Returns the MongoDB database, or null if the embedded storage is used
+     */
     public MongoDatabase getDatabase() {
+        if (!(storage instanceof MongoStorage)) {
+            return null;
+        }
+        
         return getDatastore().getDatabase();
     }
 
@@ -141,43 +182,52 @@ public final class DatabaseManager {
     // Database Functions
 
     public boolean checkIfObjectExists(Class<?> cls, String filter, String value) {
-        return getDatastore().find(cls).filter(Filters.eq(filter, value)).count() > 0;
+        this.flushWriteBatch();
+        return getStorage().count(cls, filter, value) > 0;
     }
 
     public <T> T getObjectByUid(Class<T> cls, long uid) {
-        return getDatastore().find(cls).filter(Filters.eq("_id", uid)).first();
+        this.flushWriteBatch();
+        return getStorage().findFirst(cls, "_id", uid);
     }
 
     public <T> T getObjectByField(Class<T> cls, String filter, Object value) {
-        return getDatastore().find(cls).filter(Filters.eq(filter, value)).first();
+        this.flushWriteBatch();
+        return getStorage().findFirst(cls, filter, value);
     }
 
     public <T> T getObjectByField(Class<T> cls, String filter, long value) {
-        return getDatastore().find(cls).filter(Filters.eq(filter, value)).first();
+        this.flushWriteBatch();
+        return getStorage().findFirst(cls, filter, value);
     }
     
     public <T> Stream<T> getObjects(Class<T> cls, String filter, Object value) {
-        return getDatastore().find(cls).filter(Filters.eq(filter, value)).stream();
+        this.flushWriteBatch();
+        return getStorage().find(cls, filter, value);
     }
 
     public <T> Stream<T> getObjects(Class<T> cls, String filter, long value) {
-        return getDatastore().find(cls).filter(Filters.eq(filter, value)).stream();
+        this.flushWriteBatch();
+        return getStorage().find(cls, filter, value);
     }
 
     public <T> Stream<T> getObjects(Class<T> cls) {
-        return getDatastore().find(cls).stream();
+        this.flushWriteBatch();
+        return getStorage().find(cls, null, null);
+    }
+    
+    /**
+     * Returns the raw documents of all objects where the filter field matches one of the values. Only the specified
+     * fields (and the id) are read from the database.
+     */
+    public List<Document> getProjectedObjects(Class<?> cls, String filter, Collection<?> values, String... fields) {
+        this.flushWriteBatch();
+        return getStorage().findProjected(cls, filter, values, fields);
     }
     
     public <T> List<T> getSortedObjects(Class<T> cls, String filter, int value, String sortBy, int limit) {
-        var options = new FindOptions()
-                .sort(Sort.descending(sortBy))
-                .limit(limit);
-        
-        return getDatastore()
-                .find(cls)
-                .filter(Filters.eq(filter, value))
-                .iterator(options)
-                .toList();
+        this.flushWriteBatch();
+        return getStorage().findSorted(cls, Map.of(filter, value), null, 0, sortBy, limit);
     }
 
     public <T> List<T> getSortedObjects(
@@ -191,31 +241,117 @@ public final class DatabaseManager {
             String sortBy,
             int limit
     ) {
-        var options = new FindOptions()
-                .sort(Sort.descending(sortBy))
-                .limit(limit);
-
-        return getDatastore()
-                .find(cls)
-                .filter(Filters.eq(filter, value))
-                .filter(Filters.eq(filter2, value2))
-                .filter(Filters.gte(minFilter, minValue))
-                .iterator(options)
-                .toList();
+        this.flushWriteBatch();
+        
+        var filters = new LinkedHashMap<String, Object>();
+        filters.put(filter, value);
+        filters.put(filter2, value2);
+        
+        return getStorage().findSorted(cls, filters, minFilter, minValue, sortBy, limit);
     }
 
     public <T> void save(T obj) {
-        getDatastore().save(obj, INSERT_OPTIONS);
+        // Game objects only write the fields that changed since they were loaded or last saved
+        if (obj instanceof GameDatabaseObject) {
+            this.saveChanges(obj, true);
+            return;
+        }
+        
+        this.flushWriteBatch();
+        getStorage().save(obj);
+    }
+    
+    /**
+     * Same as {@link #save(Object)}, but the changes are written right away instead of going into the write batch of
+     * the current thread.
+     */
+    public <T> void saveNow(T obj) {
+        if (obj instanceof GameDatabaseObject) {
+            this.saveChanges(obj, false);
+            return;
+        }
+        
+        this.flushWriteBatch();
+        getStorage().save(obj);
+    }
+    
+    private <T> void saveChanges(T obj, boolean useBatch) {
+        var document = this.snapshots.encode(obj);
+        var snapshot = this.snapshots.get(obj);
+        var id = document.get("_id");
+        
+        // Write the whole document if we don't know what is in the database
+        if (snapshot == null || id == null || !id.equals(snapshot.get("_id"))) {
+            this.flushWriteBatch();
+            getStorage().save(obj);
+            this.snapshots.put(obj, document);
+            return;
+        }
+        
+        // Compare with the snapshot
+        var changes = DocumentSnapshots.diff(snapshot, document);
+        this.snapshots.put(obj, document);
+        
+        // Skip if nothing changed
+        if (changes.isEmpty()) {
+            return;
+        }
+        
+        // Record in the current write batch if we have one
+        var batch = useBatch ? this.writeBatch.get() : null;
+        Object uid = id.isInt32() ? (Object) id.asInt32().getValue() : id;
+        
+        if (batch != null) {
+            batch.track(obj);
+            
+            for (var change : changes) {
+                if (change.value() != null) {
+                    batch.set(obj.getClass(), uid, change.field(), change.value(), false);
+                } else {
+                    batch.unset(obj.getClass(), uid, change.field());
+                }
+            }
+            
+            return;
+        }
+        
+        // Write changes
+        var update = new DocumentUpdate(uid);
+        
+        for (var change : changes) {
+            if (change.value() != null) {
+                update.set(change.field(), change.value());
+            } else {
+                update.unset(change.field());
+            }
+        }
+        
+        try {
+            this.write(obj.getClass(), update);
+        } catch (Exception e) {
+            // Write the whole document next time
+            this.snapshots.remove(obj);
+            throw e;
+        }
     }
 
     public <T> boolean delete(T obj) {
-        DeleteResult result = getDatastore().delete(obj, DELETE_OPTIONS);
-        return result.getDeletedCount() > 0;
+        this.flushWriteBatch();
+        this.snapshots.remove(obj);
+        return getStorage().delete(obj);
     }
 
     public boolean delete(Class<?> cls, String filter, long uid) {
-        DeleteResult result = getDatastore().find(cls).filter(Filters.eq(filter, uid)).delete(DELETE_MANY);
-        return result.getDeletedCount() > 0;
+        this.flushWriteBatch();
+        return getStorage().delete(cls, filter, uid) > 0;
+    }
+    
+    /**
+     * Writes an update right away, after anything that is still pending in the current write batch
+     */
+    private void write(Class<?> cls, DocumentUpdate update) {
+        this.flushWriteBatch();
+        getStorage().update(cls, List.of(update));
     }
     
     public void update(Object obj, int uid, String field, Object item) {
@@ -223,76 +359,145 @@ public final class DatabaseManager {
     }
     
     public void update(Object obj, int uid, String field, Object value, boolean upsert) {
-        var opt = new UpdateOptions().upsert(upsert);
+        this.snapshots.invalidate(obj, field);
+        
+        // Record in the current write batch if we have one
+        var batch = this.writeBatch.get();
+        
+        if (batch != null) {
+            batch.set(obj.getClass(), uid, field, value, upsert);
+            return;
+        }
         
-        getDatastore().find(obj.getClass())
-            .filter(Filters.eq("_id", uid))
-            .update(opt, UpdateOperators.set(field, value));
+        this.write(obj.getClass(), new DocumentUpdate(uid).set(field, value, upsert));
     }
     
-    // TODO optimize to not require 2 db calls
     public void update(Object obj, int uid, String field, Object value, String field2, Object value2) {
-        /*
-        getDatastore().find(obj.getClass())
-            .filter(Filters.eq("_id", uid))
-            .update(UpdateOperators.set(field, value), UpdateOperators.set(field2, value2));
-        */
-        update(obj, uid, field, value);
-        update(obj, uid, field2, value2);
+        this.snapshots.invalidate(obj, field);
+        this.snapshots.invalidate(obj, field2);
+        
+        // Record in the current write batch if we have one
+        var batch = this.writeBatch.get();
+        
+        if (batch != null) {
+            batch.set(obj.getClass(), uid, field, value, false);
+            batch.set(obj.getClass(), uid, field2, value2, false);
+            return;
+        }
+        
+        this.write(obj.getClass(), new DocumentUpdate(uid).set(field, value).set(field2, value2));
     }
     
     public void updateUnset(Object obj, int uid, String field) {
-        var opt = new UpdateOptions().upsert(false);
+        this.snapshots.invalidate(obj, field);
+        
+        // Record in the current write batch if we have one
+        var batch = this.writeBatch.get();
+        
+        if (batch != null) {
+            batch.unset(obj.getClass(), uid, field);
+            return;
+        }
         
-        getDatastore().find(obj.getClass())
-            .filter(Filters.eq("_id", uid))
-            .update(opt, UpdateOperators.unset(field));
+        this.write(obj.getClass(), new DocumentUpdate(uid).unset(field));
     }
     
     public void updateNested(Object obj, int uid, String filter, int filterId, String field, Object item) {
-        var opt = new UpdateOptions().upsert(false);
+        this.snapshots.invalidate(obj, field);
+        
+        // Record in the current write batch if we have one
+        var batch = this.writeBatch.get();
+        
+        if (batch != null) {
+            batch.setNested(obj.getClass(), uid, filter, filterId, field, item);
+            return;
+        }
         
-        getDatastore().find(obj.getClass())
-            .filter(Filters.eq("_id", uid))
-            .filter(Filters.eq(filter, filterId))
-            .update(opt, UpdateOperators.set(field, item));
+        this.write(obj.getClass(), new DocumentUpdate(uid, filter, filterId).set(field, item));
     }
     
     public void addToSet(Object obj, int uid, String field, Object item) {
-        var opt = new UpdateOptions().upsert(false);
+        this.snapshots.invalidate(obj, field);
         
-        getDatastore().find(obj.getClass())
-            .filter(Filters.eq("_id", uid))
-            .update(opt, UpdateOperators.addToSet(field, item));
+        // Record in the current write batch if we have one
+        var batch = this.writeBatch.get();
+        
+        if (batch != null) {
+            batch.addToSet(obj.getClass(), uid, field, item);
+            return;
+        }
+        
+        this.write(obj.getClass(), new DocumentUpdate(uid).addToSet(field, item));
     }
 
     public void update(Object obj, int uid, Map<String, Object> fields) {
         if (fields == null || fields.isEmpty()) {
             return;
         }
+        
+        fields.keySet().forEach(field -> this.snapshots.invalidate(obj, field));
+        
+        // Record in the current write batch if we have one
+        var batch = this.writeBatch.get();
+        
+        if (batch != null) {
+            fields.forEach((field, value) -> batch.set(obj.getClass(), uid, field, value, false));
+            return;
+        }
 
-        var operators = new ArrayList<UpdateOperator>();
-        fields.forEach((field, value) -> operators.add(UpdateOperators.set(field, value)));
-
-        var opt = new UpdateOptions().upsert(false);
-        getDatastore().find(obj.getClass())
-            .filter(Filters.eq("_id", uid))
-            .update(opt, operators.toArray(UpdateOperator[]::new));
+        var update = new DocumentUpdate(uid);
+        fields.forEach(update::set);
+        
+        this.write(obj.getClass(), update);
     }
     
-    // Database counter
+    // Write batches
+    
+    /**
+     * Starts collecting update operations on the current thread instead of writing them to the database right away.
+     * The collected operations are written by {@link #commitWriteBatch()}. Threads without a write batch (commands,
+     * scheduled tasks) keep writing synchronously.
+     */
+    public void beginWriteBatch() {
+        // Write out anything left over from a previous batch on this thread
+        this.commitWriteBatch();
+        
+        // Create new batch
+        this.writeBatch.set(new DatabaseWriteBatch(this));
+    }
     
-    public synchronized int getNextObjectId(Class<?> c) {
-        DatabaseCounter counter = getDatastore().find(DatabaseCounter.class).filter(Filters.eq("_id", c.getSimpleName())).first();
-        if (counter == null) {
-            counter = new DatabaseCounter(c.getSimpleName());
+    /**
+     * Writes all update operations collected on the current thread and ends the write batch.
+     */
+    public void commitWriteBatch() {
+        var batch = this.writeBatch.get();
+        
+        if (batch == null) {
+            return;
         }
-        try {
-            return counter.getNextId();
-        } finally {
-            getDatastore().save(counter);
+        
+        this.writeBatch.remove();
+        batch.flush();
+    }
+    
+    /**
+     * Writes any pending operations in the current write batch, so that reads and full document writes see them.
+     */
+    public void flushWriteBatch() {
+        var batch = this.writeBatch.get();
+        
+        if (batch != null) {
+            batch.flush();
         }
     }
+    
+    // Database counter
+    
+    public int getNextObjectId(Class<?> c) {
+        return this.idAllocators
+                .computeIfAbsent(c.getSimpleName(), name -> new IdAllocator(this, name, ID_BLOCK_SIZE))
+                .next();
+    }
 
     // Internal MongoDB server
 
@@ -318,4 +523,106 @@ public final class DatabaseManager {
 
         return server.getConnectionString();
     }
+
+    // Embedded storage
+    
+    private static String getEmbeddedStoreName(InternalMongoInfo internalMongo) {
+        var path = internalMongo.getEmbeddedFilePath();
+        return path != null && path.length() > 0 ? path : "memory";
+    }
+
+    /**
+     * Opens the store of the embedded storage. All databases share the same store. The first time the store is
+     * created, the data of the internal MongoDB server is moved into it.
+     */
+    public static synchronized MVStore openEmbeddedStore(InternalMongoInfo internalMongo) {
+        if (embeddedStore != null && !embeddedStore.isClosed()) {
+            return embeddedStore;
+        }
+        
+        var builder = new MVStore.Builder();
+        var path = internalMongo.getEmbeddedFilePath();
+        
+        if (path != null && path.length() > 0) {
+            var file = new File(path).getAbsoluteFile();
+            file.getParentFile().mkdirs();
+            
+            // Move existing data over from the internal MongoDB server
+            var oldFile = internalMongo.getFilePath();
+            
+            if (!file.exists() && oldFile != null && oldFile.length() > 0 && new File(oldFile).exists()) {
+                migrateInternalMongoServer(oldFile, path);
+            }
+            
+            builder.fileName(path);
+        }
+        
+        embeddedStore = builder.open();
+        
+        // Close the store on shutdown so the last changes are written
+        var store = embeddedStore;
+        Runtime.getRuntime().addShutdownHook(new Thread(store::close));
+        
+        return embeddedStore;
+    }
+    
+    /**
+     * Copies every database of an internal MongoDB server file into a new embedded store. The store is written to a
+     * temporary file first, so that an interrupted migration is started again on the next launch. The old file is
+     * kept with a ".migrated" extension.
+     */
+    private static void migrateInternalMongoServer(String oldFile, String path) {
+        Nebula.getLogger().info("Moving the internal MongoDB database at {} to the embedded database at {}...", oldFile, path);
+        
+        var tempFile = new File(path + ".migrating");
+        tempFile.delete();
+        
+        var mongoServer = new MongoServer(new H2Backend(oldFile));
+        var store = new MVStore.Builder().fileName(tempFile.getPath()).open();
+        
+        try (var client = MongoClients.create(mongoServer.bindAndGetConnectionString())) {
+            for (var databaseName : client.listDatabaseNames()) {
+                var database = client.getDatabase(databaseName);
+                var collectionNames = database.listCollectionNames().into(new ArrayList<>());
+                
+                // Finish the legacy gacha migration first, since it needs MongoDB queries
+                if (Nebula.getServerType().runGame() && collectionNames.contains("gacha")) {
+                    GachaDataMigration.run(database);
+                    collectionNames = database.listCollectionNames().into(new ArrayList<>());
+                }
+                
+                // Copy documents
+                for (var collectionName : collectionNames) {
+                    if (collectionName.startsWith("system.")) {
+                        continue;
+                    }
+                    
+                    var collection = new EmbeddedCollection(store.openMap(databaseName + "." + collectionName));
+                    
+                    for (var document : database.getCollection(collectionName, RawBsonDocument.class).find()) {
+                        collection.put(document);
+                    }
+                    
+                    Nebula.getLogger().info("Moved {} documents from {}.{}", collection.size(), databaseName, collectionName);
+                }
+            }
+            
+            store.close();
+        } catch (Exception e) {
+            store.closeImmediately();
+            tempFile.delete();
+            throw e;
+        } finally {
+            mongoServer.shutdownNow();
+        }
+        
+        // Replace files
+        if (!tempFile.renameTo(new File(path))) {
+            throw new IllegalStateException("Could not move the embedded database to " + path);
+        }
+        
+        new File(oldFile).renameTo(new File(oldFile + ".migrated"));
+        
+        Nebula.getLogger().info("Finished moving the internal MongoDB database. The old file was renamed to {}.migrated", oldFile);
+    }
 }
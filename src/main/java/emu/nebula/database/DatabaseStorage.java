@@ -0,0 +1,65 @@
+package emu.nebula.database;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+
+/**
+ * Where the {@link DatabaseManager} reads and writes its objects. Objects are always converted with the Morphia
+ * codecs, so both storages hold the same documents.
+ */
+public interface DatabaseStorage {
+
+    /**
+     * Returns the first object where the field equals the value
+     */
+    public <T> T findFirst(Class<T> cls, String field, Object value);
+
+    /**
+     * Returns all objects where the field equals the value, or all objects if the field is null
+     */
+    public <T> Stream<T> find(Class<T> cls, String field, Object value);
+
+    public long count(Class<?> cls, String field, Object value);
+
+    /**
+     * Returns the raw documents of all objects where the field matches one of the values. Only the given fields (and
+     * the id) are included.
+     */
+    public List<Document> findProjected(Class<?> cls, String field, Collection<?> values, String... fields);
+
+    /**
+     * Returns objects where every filter field equals its value and the min field is at least the min value, sorted
+     * by the sort field in descending order. The min field can be null.
+     */
+    public <T> List<T> findSorted(Class<T> cls, Map<String, Object> filters, String minField, long minValue, String sortBy, int limit);
+
+    /**
+     * Writes the whole object, replacing the document with the same id
+     */
+    public void save(Object obj);
+
+    public boolean delete(Object obj);
+
+    /**
+     * Deletes all objects where the field equals the value
+     */
+    public long delete(Class<?> cls, String field, Object value);
+
+    /**
+     * Applies the updates in order
+     */
+    public void update(Class<?> cls, List<DocumentUpdate> updates);
+
+    /**
+     * Adds the amount to a counter and returns the new count. Missing counters start at the initial value.
+     */
+    public int incrementCounter(String name, int amount, int initialValue);
+
+    public default void close() {
+
+    }
+}
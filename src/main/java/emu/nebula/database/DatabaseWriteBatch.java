@@ -0,0 +1,121 @@
+package emu.nebula.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import emu.nebula.Nebula;
+import emu.nebula.database.DocumentUpdate.OpType;
+
+/**
+ * Records the update operations issued while handling a single request and writes them out as one
+ * ordered bulk write per collection. Operations on the same document are merged into one update
+ * (last write wins per path) unless they would conflict, in which case a new update is started so
+ * that the original order is kept.
+ * <p>
+ * Objects whose snapshot was updated before their changes were written are tracked, so that their snapshots can be
+ * dropped if the write fails. Otherwise the next save would see no changes and never send them again.
+ */
+public class DatabaseWriteBatch {
+    private final DatabaseManager database;
+    private final Map<Class<?>, List<DocumentUpdate>> updates;
+    private final Map<Class<?>, Set<Object>> objects;
+
+    public DatabaseWriteBatch(DatabaseManager database) {
+        this.database = database;
+        this.updates = new LinkedHashMap<>();
+        this.objects = new IdentityHashMap<>();
+    }
+
+    public boolean isEmpty() {
+        return this.updates.isEmpty();
+    }
+
+    // Record operations
+
+    public void set(Class<?> cls, Object id, String field, Object value, boolean upsert) {
+        this.getUpdate(cls, id, null, 0, OpType.SET, field).set(field, value, upsert);
+    }
+
+    public void setNested(Class<?> cls, Object id, String filter, int filterId, String field, Object value) {
+        this.getUpdate(cls, id, filter, filterId, OpType.SET, field).set(field, value, false);
+    }
+
+    public void unset(Class<?> cls, Object id, String field) {
+        this.getUpdate(cls, id, null, 0, OpType.UNSET, field).unset(field);
+    }
+
+    public void addToSet(Class<?> cls, Object id, String field, Object value) {
+        this.getUpdate(cls, id, null, 0, OpType.ADD_TO_SET, field).addToSet(field, value);
+    }
+
+    /**
+     * Tracks an object whose snapshot already contains the changes recorded in this batch
+     */
+    public void track(Object obj) {
+        this.objects.computeIfAbsent(obj.getClass(), c -> Collections.newSetFromMap(new IdentityHashMap<>())).add(obj);
+    }
+
+    private DocumentUpdate getUpdate(Class<?> cls, Object id, String filter, int filterId, OpType type, String field) {
+        var list = this.updates.computeIfAbsent(cls, c -> new ArrayList<>());
+
+        // Find the latest pending update for this document that we can merge into
+        for (int i = list.size() - 1; i >= 0; i--) {
+            var update = list.get(i);
+
+            if (!Objects.equals(update.getId(), id)) {
+                continue;
+            }
+
+            if (update.matches(filter, filterId) && update.canMerge(type, field)) {
+                return update;
+            }
+
+            // Keep the order of operations on the same document
+            break;
+        }
+
+        // Create a new update
+        var update = new DocumentUpdate(id, filter, filterId);
+        list.add(update);
+
+        return update;
+    }
+
+    // Flush
+
+    /**
+     * Writes all pending operations to the database and clears this batch.
+     */
+    public void flush() {
+        // Skip if we have nothing to write
+        if (this.isEmpty()) {
+            return;
+        }
+
+        // Write each collection
+        for (var entry : this.updates.entrySet()) {
+            try {
+                this.database.getStorage().update(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                Nebula.getLogger().error("Error writing database batch for " + entry.getKey().getSimpleName(), e);
+
+                // Write the whole document of these objects on their next save
+                var tracked = this.objects.get(entry.getKey());
+
+                if (tracked != null) {
+                    tracked.forEach(this.database.getSnapshots()::remove);
+                }
+            }
+        }
+
+        // Clear
+        this.updates.clear();
+        this.objects.clear();
+    }
+}
@@ -0,0 +1,171 @@
+package emu.nebula.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+
+import dev.morphia.Datastore;
+import dev.morphia.EntityInterceptor;
+
+/**
+ * Keeps the last document that was read from or written to the database for each loaded {@link GameDatabaseObject}.
+ * Saving an object then only has to write the fields that are different from its snapshot, or nothing at all if the
+ * object didn't change.
+ * <p>
+ * Snapshots are weakly referenced by their object, so they are dropped when the object is no longer used.
+ */
+public class DocumentSnapshots implements EntityInterceptor {
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+
+    private final Datastore datastore;
+    private final Map<Object, BsonDocument> snapshots;
+
+    public DocumentSnapshots(Datastore datastore) {
+        this.datastore = datastore;
+        this.snapshots = Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+    /**
+     * Takes a snapshot of game objects when they are loaded. Objects that were already saved while they were being
+     * loaded keep the newer snapshot.
+     */
+    @Override
+    public void postLoad(Object ent, Document document, Datastore datastore) {
+        if (!(ent instanceof GameDatabaseObject)) {
+            return;
+        }
+
+        this.snapshots.putIfAbsent(ent, document.toBsonDocument(BsonDocument.class, datastore.getCodecRegistry()));
+    }
+
+    /**
+     * Encodes an object into the document that would be written to the database
+     */
+    @SuppressWarnings("unchecked")
+    public <T> BsonDocument encode(T obj) {
+        var codec = (Codec<T>) this.datastore.getCodecRegistry().get(obj.getClass());
+        var document = new BsonDocument();
+
+        codec.encode(new BsonDocumentWriter(document), obj, ENCODER_CONTEXT);
+
+        return document;
+    }
+
+    public BsonDocument get(Object obj) {
+        return this.snapshots.get(obj);
+    }
+
+    public void put(Object obj, BsonDocument document) {
+        this.snapshots.put(obj, document);
+    }
+
+    public void remove(Object obj) {
+        this.snapshots.remove(obj);
+    }
+
+    /**
+     * Forgets the value of a field in the snapshot of this object, so that the field is always written by the next
+     * save. Called when the field is updated in the database without going through a save.
+     */
+    public void invalidate(Object obj, String field) {
+        var snapshot = this.snapshots.get(obj);
+
+        if (snapshot == null) {
+            return;
+        }
+
+        // Find the document that holds the field
+        var path = field.split("\\.");
+        var document = snapshot;
+
+        for (int i = 0; i < path.length - 1; i++) {
+            var value = document.get(path[i]);
+
+            // Positional updates change an array element, so forget the whole array
+            if (path[i + 1].startsWith("$") || value == null || !value.isDocument()) {
+                document.remove(path[i]);
+                return;
+            }
+
+            document = value.asDocument();
+        }
+
+        document.remove(path[path.length - 1]);
+    }
+
+    // Diff
+
+    /**
+     * A changed field. The value is null if the field was removed.
+     */
+    public static record FieldChange(String field, BsonValue value) {
+
+    }
+
+    /**
+     * Returns the changes that turn the snapshot into the new document. Nested documents are compared field by
+     * field, all other values are replaced when they are different.
+     */
+    public static List<FieldChange> diff(BsonDocument snapshot, BsonDocument document) {
+        var changes = new ArrayList<FieldChange>();
+        diff(snapshot, document, "", changes);
+        return changes;
+    }
+
+    private static void diff(BsonDocument snapshot, BsonDocument document, String prefix, List<FieldChange> changes) {
+        // Set new and changed fields
+        for (var entry : document.entrySet()) {
+            var key = entry.getKey();
+            var value = entry.getValue();
+            var oldValue = snapshot.get(key);
+
+            if (value.equals(oldValue)) {
+                continue;
+            }
+
+            if (canDiff(oldValue, value)) {
+                diff(oldValue.asDocument(), value.asDocument(), prefix + key + ".", changes);
+            } else {
+                changes.add(new FieldChange(prefix + key, value));
+            }
+        }
+
+        // Unset removed fields
+        for (var key : snapshot.keySet()) {
+            if (!document.containsKey(key)) {
+                changes.add(new FieldChange(prefix + key, null));
+            }
+        }
+    }
+
+    /**
+     * Returns true if the fields of these values can be compared one by one. Both have to be documents, and their
+     * keys have to be usable in a dotted field path.
+     */
+    private static boolean canDiff(BsonValue oldValue, BsonValue value) {
+        if (oldValue == null || !oldValue.isDocument() || !value.isDocument() || value.asDocument().isEmpty()) {
+            return false;
+        }
+
+        return hasPathKeys(oldValue.asDocument()) && hasPathKeys(value.asDocument());
+    }
+
+    private static boolean hasPathKeys(BsonDocument document) {
+        for (var key : document.keySet()) {
+            if (key.isEmpty() || key.indexOf('.') >= 0 || key.charAt(0) == '$') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package emu.nebula.database;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+
+/**
+ * Set, unset and add to set operations on a single document. The document is found by its id, and optionally by a
+ * filter on an array field so that positional ($) paths can update the matching array element.
+ */
+@Getter
+public class DocumentUpdate {
+    private final Object id;
+    private final String filter;
+    private final int filterId;
+    private boolean upsert;
+
+    private final Map<String, Object> sets;
+    private final Set<String> unsets;
+    private final Map<String, List<Object>> addToSets;
+
+    public DocumentUpdate(Object id) {
+        this(id, null, 0);
+    }
+
+    public DocumentUpdate(Object id, String filter, int filterId) {
+        this.id = id;
+        this.filter = filter;
+        this.filterId = filterId;
+
+        this.sets = new LinkedHashMap<>();
+        this.unsets = new LinkedHashSet<>();
+        this.addToSets = new LinkedHashMap<>();
+    }
+
+    public boolean hasFilter() {
+        return this.filter != null;
+    }
+
+    public boolean matches(String filter, int filterId) {
+        if (this.filter == null) {
+            return filter == null;
+        }
+
+        return this.filter.equals(filter) && this.filterId == filterId;
+    }
+
+    /**
+     * Returns true if the operation can be folded into this update without changing the end result
+     */
+    public boolean canMerge(OpType type, String field) {
+        // Adding to a set cannot be combined with any other operation on the same field
+        if (type == OpType.ADD_TO_SET && (this.sets.containsKey(field) || this.unsets.contains(field))) {
+            return false;
+        }
+
+        // Parent/child paths cannot be combined in one update
+        return !this.hasOverlap(this.sets.keySet(), field)
+                && !this.hasOverlap(this.unsets, field)
+                && !this.hasOverlap(this.addToSets.keySet(), field);
+    }
+
+    private boolean hasOverlap(Set<String> fields, String field) {
+        for (var other : fields) {
+            if (other.length() == field.length()) {
+                continue;
+            }
+
+            if (other.startsWith(field + ".") || field.startsWith(other + ".")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public DocumentUpdate set(String field, Object value, boolean upsert) {
+        this.unsets.remove(field);
+        this.addToSets.remove(field);
+        this.sets.put(field, value);
+        this.upsert |= upsert;
+        return this;
+    }
+
+    public DocumentUpdate set(String field, Object value) {
+        return this.set(field, value, false);
+    }
+
+    public DocumentUpdate unset(String field) {
+        this.sets.remove(field);
+        this.addToSets.remove(field);
+        this.unsets.add(field);
+        return this;
+    }
+
+    public DocumentUpdate addToSet(String field, Object value) {
+        this.addToSets.computeIfAbsent(field, f -> new ArrayList<>()).add(value);
+        return this;
+    }
+
+    public static enum OpType {
+        SET, UNSET, ADD_TO_SET;
+    }
+}
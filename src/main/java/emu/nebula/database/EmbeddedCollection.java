@@ -0,0 +1,358 @@
+package emu.nebula.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.h2.mvstore.MVMap;
+
+/**
+ * A collection of documents in the embedded storage. Documents are kept as BSON in an MVStore map keyed by their id.
+ * Fields that are queried get an in-memory index the first time they are used, which is kept up to date by every
+ * write. Writes to a collection are serialized, reads never block.
+ */
+class EmbeddedCollection {
+    private static final BsonDocumentCodec DOCUMENT_CODEC = new BsonDocumentCodec();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private final MVMap<Object, byte[]> map;
+    private final Map<String, Map<Object, Set<Object>>> indexes;
+
+    public EmbeddedCollection(MVMap<Object, byte[]> map) {
+        this.map = map;
+        this.indexes = new ConcurrentHashMap<>();
+    }
+
+    public int size() {
+        return this.map.size();
+    }
+
+    // Read
+
+    public RawBsonDocument get(BsonValue id) {
+        return this.get(idKey(id));
+    }
+
+    private RawBsonDocument get(Object key) {
+        var bytes = this.map.get(key);
+        return bytes != null ? new RawBsonDocument(bytes) : null;
+    }
+
+    /**
+     * Returns all documents where the field equals the value, or all documents if the field is null
+     */
+    public Stream<RawBsonDocument> find(String field, BsonValue value) {
+        // All documents
+        if (field == null) {
+            return this.map.values().stream().map(RawBsonDocument::new);
+        }
+
+        // By id
+        if (field.equals("_id")) {
+            var doc = this.get(value);
+            return doc != null ? Stream.of(doc) : Stream.empty();
+        }
+
+        // Missing fields are not indexed
+        var key = valueKey(value);
+
+        if (key == null) {
+            return this.find(null, null).filter(doc -> matches(doc, field, value));
+        }
+
+        // Look up the ids in the index. Documents are checked again, since they could have changed after the lookup.
+        var ids = this.getIndex(field).get(key);
+
+        if (ids == null) {
+            return Stream.empty();
+        }
+
+        return List.copyOf(ids).stream()
+                .map(this::get)
+                .filter(doc -> doc != null && matches(doc, field, value));
+    }
+
+    // Write
+
+    public synchronized void put(BsonDocument document) {
+        var raw = document instanceof RawBsonDocument r ? r : toRaw(document);
+        var key = idKey(raw.get("_id"));
+        var old = this.get(key);
+
+        this.map.put(key, toBytes(raw));
+        this.reindex(key, old, raw);
+    }
+
+    public synchronized boolean remove(BsonValue id) {
+        var key = idKey(id);
+        var bytes = this.map.remove(key);
+
+        if (bytes == null) {
+            return false;
+        }
+
+        this.reindex(key, new RawBsonDocument(bytes), null);
+        return true;
+    }
+
+    public synchronized long remove(String field, BsonValue value) {
+        var ids = this.find(field, value).map(doc -> doc.get("_id")).toList();
+        long count = 0;
+
+        for (var id : ids) {
+            if (this.remove(id)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Replaces a document with the result of the function. The function gets a copy of the document that it can
+     * change, or null if there is no document with this id. Nothing is written if the function returns null.
+     */
+    public synchronized BsonDocument modify(BsonValue id, UnaryOperator<BsonDocument> function) {
+        var raw = this.get(id);
+        var document = function.apply(raw != null ? toDocument(raw) : null);
+
+        if (document != null) {
+            this.put(document);
+        }
+
+        return document;
+    }
+
+    // Indexes
+
+    private Map<Object, Set<Object>> getIndex(String field) {
+        var index = this.indexes.get(field);
+
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (this) {
+            return this.indexes.computeIfAbsent(field, f -> {
+                var newIndex = new ConcurrentHashMap<Object, Set<Object>>();
+
+                for (var entry : this.map.entrySet()) {
+                    addToIndex(newIndex, entry.getKey(), new RawBsonDocument(entry.getValue()), f);
+                }
+
+                return newIndex;
+            });
+        }
+    }
+
+    private void reindex(Object id, BsonDocument oldDocument, BsonDocument newDocument) {
+        for (var entry : this.indexes.entrySet()) {
+            var field = entry.getKey();
+            var index = entry.getValue();
+
+            if (oldDocument != null) {
+                for (var key : indexKeys(oldDocument, field)) {
+                    var ids = index.get(key);
+
+                    if (ids != null) {
+                        ids.remove(id);
+
+                        if (ids.isEmpty()) {
+                            index.remove(key);
+                        }
+                    }
+                }
+            }
+
+            if (newDocument != null) {
+                addToIndex(index, id, newDocument, field);
+            }
+        }
+    }
+
+    private static void addToIndex(Map<Object, Set<Object>> index, Object id, BsonDocument document, String field) {
+        for (var key : indexKeys(document, field)) {
+            index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private static List<Object> indexKeys(BsonDocument document, String field) {
+        var values = getValues(document, field);
+
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        var keys = new ArrayList<Object>(values.size());
+
+        for (var value : values) {
+            var key = valueKey(value);
+
+            if (key != null && !keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+
+        return keys;
+    }
+
+    // Document paths
+
+    /**
+     * Returns every value at this dotted path. Arrays on the way are searched element by element, and the elements
+     * of an array at the end of the path are returned along with the array itself, like MongoDB queries do.
+     */
+    public static List<BsonValue> getValues(BsonValue value, String path) {
+        var values = new ArrayList<BsonValue>();
+        collectValues(value, path.split("\\."), 0, values);
+        return values;
+    }
+
+    private static void collectValues(BsonValue value, String[] path, int i, List<BsonValue> values) {
+        if (value == null) {
+            return;
+        }
+
+        if (i == path.length) {
+            values.add(value);
+
+            if (value.isArray()) {
+                values.addAll(value.asArray().getValues());
+            }
+
+            return;
+        }
+
+        if (value.isDocument()) {
+            collectValues(value.asDocument().get(path[i]), path, i + 1, values);
+        } else if (value.isArray()) {
+            var array = value.asArray();
+            int index = parseIndex(path[i]);
+
+            if (index >= 0) {
+                if (index < array.size()) {
+                    collectValues(array.get(index), path, i + 1, values);
+                }
+            } else {
+                for (var element : array) {
+                    collectValues(element, path, i, values);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if a value at this path equals the value. A null value matches missing fields.
+     */
+    public static boolean matches(BsonValue document, String path, BsonValue value) {
+        var values = getValues(document, path);
+
+        if (value == null || value.isNull()) {
+            return values.isEmpty() || values.stream().anyMatch(BsonValue::isNull);
+        }
+
+        var key = valueKey(value);
+
+        for (var other : values) {
+            if (key.equals(valueKey(other))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    static int parseIndex(String key) {
+        if (key.isEmpty() || key.length() > 9) {
+            return -1;
+        }
+
+        for (int i = 0; i < key.length(); i++) {
+            if (!Character.isDigit(key.charAt(i))) {
+                return -1;
+            }
+        }
+
+        return Integer.parseInt(key);
+    }
+
+    // Keys
+
+    /**
+     * Returns the map key of a document id. Numbers of any type are the same id, like in MongoDB.
+     */
+    static Object idKey(BsonValue id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Document has no id");
+        }
+
+        return switch (id.getBsonType()) {
+            case INT32 -> (long) id.asInt32().getValue();
+            case INT64 -> id.asInt64().getValue();
+            case STRING -> id.asString().getValue();
+            case OBJECT_ID -> "$oid:" + id.asObjectId().getValue().toHexString();
+            default -> "$" + id.getBsonType() + ":" + new BsonDocument("v", id).toJson();
+        };
+    }
+
+    /**
+     * Returns a key that is equal for values that MongoDB considers equal in a query. Returns null for null values.
+     */
+    static Object valueKey(BsonValue value) {
+        if (value == null) {
+            return null;
+        }
+
+        return switch (value.getBsonType()) {
+            case NULL, UNDEFINED -> null;
+            case INT32 -> (long) value.asInt32().getValue();
+            case INT64 -> value.asInt64().getValue();
+            case DOUBLE -> {
+                double d = value.asDouble().getValue();
+                yield d == (long) d ? (Object) (long) d : (Object) d;
+            }
+            case STRING -> value.asString().getValue();
+            case BOOLEAN -> value.asBoolean().getValue();
+            case OBJECT_ID -> value.asObjectId().getValue();
+            case ARRAY -> {
+                var keys = new ArrayList<Object>();
+                value.asArray().forEach(element -> keys.add(valueKey(element)));
+                yield keys;
+            }
+            default -> value;
+        };
+    }
+
+    // Conversion
+
+    static BsonDocument toDocument(RawBsonDocument raw) {
+        return DOCUMENT_CODEC.decode(raw.asBsonReader(), DECODER_CONTEXT);
+    }
+
+    static RawBsonDocument toRaw(BsonDocument document) {
+        var buffer = new BasicOutputBuffer();
+        DOCUMENT_CODEC.encode(new BsonBinaryWriter(buffer), document, ENCODER_CONTEXT);
+        return new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+    }
+
+    private static byte[] toBytes(RawBsonDocument raw) {
+        var buffer = raw.getByteBuffer();
+        var bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
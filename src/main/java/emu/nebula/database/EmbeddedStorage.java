@@ -0,0 +1,523 @@
+package emu.nebula.database;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.bson.BsonArray;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.h2.mvstore.MVStore;
+
+import dev.morphia.Datastore;
+import emu.nebula.metrics.Metrics;
+
+/**
+ * Stores objects in an MVStore inside the server process, so the internal database is used without a MongoDB server
+ * or any network round trips. Objects are converted with the same Morphia codecs as the MongoDB storage, and updates
+ * follow the same rules as their MongoDB operators.
+ * <p>
+ * Each database gets its own set of maps in the store, named "database.collection".
+ */
+public class EmbeddedStorage implements DatabaseStorage {
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+
+    private final Datastore datastore;
+    private final MVStore store;
+    private final String databaseName;
+    private final Map<String, EmbeddedCollection> collections;
+
+    public EmbeddedStorage(Datastore datastore, MVStore store, String databaseName) {
+        this.datastore = datastore;
+        this.store = store;
+        this.databaseName = databaseName;
+        this.collections = new ConcurrentHashMap<>();
+    }
+
+    EmbeddedCollection getCollection(String name) {
+        return this.collections.computeIfAbsent(name, n -> {
+            return new EmbeddedCollection(this.store.openMap(this.databaseName + "." + n));
+        });
+    }
+
+    /**
+     * Returns the names of all collections of this database in the store
+     */
+    List<String> getCollectionNames() {
+        var prefix = this.databaseName + ".";
+
+        return this.store.getMapNames().stream()
+                .filter(name -> name.startsWith(prefix))
+                .map(name -> name.substring(prefix.length()))
+                .toList();
+    }
+
+    private EmbeddedCollection getCollection(Class<?> cls) {
+        return this.getCollection(this.datastore.getMapper().getEntityModel(cls).getCollectionName());
+    }
+
+    // Conversion
+
+    private <T> T decode(Class<T> cls, RawBsonDocument document) {
+        return this.datastore.getCodecRegistry().get(cls).decode(document.asBsonReader(), DECODER_CONTEXT);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> RawBsonDocument encode(T obj) {
+        var codec = (Codec<T>) this.datastore.getCodecRegistry().get(obj.getClass());
+        var buffer = new BasicOutputBuffer();
+
+        codec.encode(new BsonBinaryWriter(buffer), obj, ENCODER_CONTEXT);
+
+        return new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+    }
+
+    /**
+     * Converts a value to bson the same way the MongoDB driver does when it is used in a query or update
+     */
+    @SuppressWarnings("unchecked")
+    private <T> BsonValue toBson(T value) {
+        if (value == null) {
+            return BsonNull.VALUE;
+        } else if (value instanceof BsonValue bson) {
+            return bson;
+        } else if (value instanceof Integer i) {
+            return new BsonInt32(i);
+        } else if (value instanceof Long l) {
+            return new BsonInt64(l);
+        } else if (value instanceof String s) {
+            return new BsonString(s);
+        } else if (value instanceof Boolean b) {
+            return BsonBoolean.valueOf(b);
+        }
+
+        var codec = (Codec<T>) this.datastore.getCodecRegistry().get(value.getClass());
+        var document = new BsonDocument();
+        var writer = new BsonDocumentWriter(document);
+
+        writer.writeStartDocument();
+        writer.writeName("v");
+        codec.encode(writer, value, EncoderContext.builder().build());
+        writer.writeEndDocument();
+
+        return document.get("v");
+    }
+
+    private <R> R timed(String name, Supplier<R> operation) {
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            var result = operation.get();
+            failed = false;
+            return result;
+        } finally {
+            Metrics.getDatabaseMetrics().record(name, System.nanoTime() - start, failed);
+        }
+    }
+
+    // Reads
+
+    @Override
+    public <T> T findFirst(Class<T> cls, String field, Object value) {
+        return this.timed("find", () -> {
+            return this.getCollection(cls)
+                    .find(field, this.toBson(value))
+                    .findFirst()
+                    .map(doc -> this.decode(cls, doc))
+                    .orElse(null);
+        });
+    }
+
+    @Override
+    public <T> Stream<T> find(Class<T> cls, String field, Object value) {
+        return this.timed("find", () -> {
+            return this.getCollection(cls)
+                    .find(field, field != null ? this.toBson(value) : null)
+                    .toList();
+        }).stream().map(doc -> this.decode(cls, doc));
+    }
+
+    @Override
+    public long count(Class<?> cls, String field, Object value) {
+        return this.timed("count", () -> {
+            return this.getCollection(cls)
+                    .find(field, field != null ? this.toBson(value) : null)
+                    .count();
+        });
+    }
+
+    @Override
+    public List<Document> findProjected(Class<?> cls, String field, Collection<?> values, String... fields) {
+        return this.timed("find", () -> {
+            var collection = this.getCollection(cls);
+            var documentCodec = this.datastore.getCodecRegistry().get(Document.class);
+            var results = new ArrayList<Document>();
+
+            for (var value : values) {
+                collection.find(field, this.toBson(value)).forEach(raw -> {
+                    // Only copy the requested fields
+                    var projected = new BsonDocument("_id", raw.get("_id"));
+
+                    for (var name : fields) {
+                        var fieldValue = raw.get(name);
+
+                        if (fieldValue != null) {
+                            projected.put(name, fieldValue);
+                        }
+                    }
+
+                    results.add(documentCodec.decode(new BsonDocumentReader(projected), DECODER_CONTEXT));
+                });
+            }
+
+            return results;
+        });
+    }
+
+    @Override
+    public <T> List<T> findSorted(Class<T> cls, Map<String, Object> filters, String minField, long minValue, String sortBy, int limit) {
+        var documents = this.timed("find", () -> {
+            // Convert filters
+            var bsonFilters = new ArrayList<Map.Entry<String, BsonValue>>();
+            filters.forEach((field, value) -> bsonFilters.add(Map.entry(field, this.toBson(value))));
+
+            // Use the index of the first filter
+            Stream<RawBsonDocument> stream;
+
+            if (bsonFilters.isEmpty()) {
+                stream = this.getCollection(cls).find(null, null);
+            } else {
+                var first = bsonFilters.get(0);
+                stream = this.getCollection(cls).find(first.getKey(), first.getValue());
+            }
+
+            return stream
+                    .filter(doc -> bsonFilters.stream().allMatch(e -> EmbeddedCollection.matches(doc, e.getKey(), e.getValue())))
+                    .filter(doc -> minField == null || getNumber(doc, minField) >= minValue)
+                    .sorted(Comparator.comparingDouble((RawBsonDocument doc) -> getNumber(doc, sortBy)).reversed())
+                    .limit(limit)
+                    .toList();
+        });
+
+        return documents.stream().map(doc -> this.decode(cls, doc)).toList();
+    }
+
+    private static double getNumber(BsonDocument document, String field) {
+        for (var value : EmbeddedCollection.getValues(document, field)) {
+            if (value.isNumber()) {
+                return value.asNumber().doubleValue();
+            }
+        }
+
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    // Writes
+
+    @Override
+    public void save(Object obj) {
+        this.timed("update", () -> {
+            this.getCollection(obj.getClass()).put(this.encode(obj));
+            return null;
+        });
+    }
+
+    @Override
+    public boolean delete(Object obj) {
+        return this.timed("delete", () -> {
+            var id = this.datastore.getMapper().getEntityModel(obj.getClass()).getIdProperty().getValue(obj);
+            return id != null && this.getCollection(obj.getClass()).remove(this.toBson(id));
+        });
+    }
+
+    @Override
+    public long delete(Class<?> cls, String field, Object value) {
+        return this.timed("delete", () -> {
+            return this.getCollection(cls).remove(field, this.toBson(value));
+        });
+    }
+
+    @Override
+    public void update(Class<?> cls, List<DocumentUpdate> updates) {
+        this.timed("update", () -> {
+            var collection = this.getCollection(cls);
+
+            for (var update : updates) {
+                collection.modify(this.toBson(update.getId()), document -> this.apply(update, document));
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Applies an update to a copy of the document. Returns null if the document doesn't match the update, so that
+     * nothing is written.
+     */
+    private BsonDocument apply(DocumentUpdate update, BsonDocument document) {
+        // Create the document if this is an upsert
+        if (document == null) {
+            if (!update.isUpsert() || update.hasFilter()) {
+                return null;
+            }
+
+            document = new BsonDocument("_id", this.toBson(update.getId()));
+        }
+
+        // Find the array element that the positional operator stands for
+        int position = -1;
+
+        if (update.hasFilter()) {
+            var filterValue = new BsonInt32(update.getFilterId());
+
+            if (!EmbeddedCollection.matches(document, update.getFilter(), filterValue)) {
+                return null;
+            }
+
+            position = findPosition(document, update.getFilter(), filterValue);
+        }
+
+        // Apply operators
+        for (var entry : update.getSets().entrySet()) {
+            var path = resolvePath(entry.getKey(), position);
+
+            if (path != null) {
+                setValue(document, path, this.toBson(entry.getValue()));
+            }
+        }
+
+        for (var field : update.getUnsets()) {
+            var path = resolvePath(field, position);
+
+            if (path != null) {
+                unsetValue(document, path);
+            }
+        }
+
+        for (var entry : update.getAddToSets().entrySet()) {
+            var path = resolvePath(entry.getKey(), position);
+
+            if (path == null) {
+                continue;
+            }
+
+            for (var value : entry.getValue()) {
+                addToSet(document, path, this.toBson(value));
+            }
+        }
+
+        return document;
+    }
+
+    @Override
+    public int incrementCounter(String name, int amount, int initialValue) {
+        return this.timed("findAndModify", () -> {
+            var document = this.getCollection(DatabaseCounter.class).modify(new BsonString(name), counter -> {
+                if (counter == null) {
+                    counter = new BsonDocument("_id", new BsonString(name)).append("count", new BsonInt32(initialValue));
+                }
+
+                int count = counter.getNumber("count").intValue() + amount;
+                counter.put("count", new BsonInt32(count));
+
+                return counter;
+            });
+
+            return document.getInt32("count").getValue();
+        });
+    }
+
+    @Override
+    public void close() {
+        if (!this.store.isClosed()) {
+            this.store.close();
+        }
+    }
+
+    // Update paths
+
+    /**
+     * Returns the index of the array element that matches the filter. The filter field is a path into the array, like
+     * "list.id" for the array "list".
+     */
+    private static int findPosition(BsonDocument document, String filter, BsonValue value) {
+        var path = filter.split("\\.");
+        BsonValue current = document;
+
+        for (int i = 0; i < path.length; i++) {
+            if (current == null) {
+                return -1;
+            }
+
+            if (current.isArray()) {
+                var rest = String.join(".", List.of(path).subList(i, path.length));
+                var array = current.asArray();
+
+                for (int j = 0; j < array.size(); j++) {
+                    if (EmbeddedCollection.matches(array.get(j), rest, value)) {
+                        return j;
+                    }
+                }
+
+                return -1;
+            }
+
+            current = current.isDocument() ? current.asDocument().get(path[i]) : null;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Replaces the positional operator in a path with the matched array index. Returns null if the path has a
+     * positional operator but no array element matched.
+     */
+    private static String resolvePath(String path, int position) {
+        if (!path.contains("$")) {
+            return path;
+        }
+
+        if (position < 0) {
+            return null;
+        }
+
+        return path.replace(".$.", "." + position + ".").replaceAll("\\.\\$$", "." + position);
+    }
+
+    private static void setValue(BsonDocument document, String path, BsonValue value) {
+        var keys = path.split("\\.");
+        var parent = getParent(document, keys, true);
+
+        if (parent != null) {
+            putChild(parent, keys[keys.length - 1], value);
+        }
+    }
+
+    private static void unsetValue(BsonDocument document, String path) {
+        var keys = path.split("\\.");
+        var parent = getParent(document, keys, false);
+        var key = keys[keys.length - 1];
+
+        if (parent == null) {
+            return;
+        }
+
+        if (parent.isDocument()) {
+            parent.asDocument().remove(key);
+        } else {
+            // Unsetting an array element sets it to null
+            int index = EmbeddedCollection.parseIndex(key);
+
+            if (index >= 0 && index < parent.asArray().size()) {
+                parent.asArray().set(index, BsonNull.VALUE);
+            }
+        }
+    }
+
+    private static void addToSet(BsonDocument document, String path, BsonValue value) {
+        var keys = path.split("\\.");
+        var parent = getParent(document, keys, true);
+        var key = keys[keys.length - 1];
+
+        if (parent == null) {
+            return;
+        }
+
+        var array = getChild(parent, key);
+
+        if (array == null || array.isNull()) {
+            array = new BsonArray();
+            putChild(parent, key, array);
+        } else if (!array.isArray()) {
+            throw new IllegalStateException("Cannot add to set of a non-array field " + path);
+        }
+
+        if (!array.asArray().contains(value)) {
+            array.asArray().add(value);
+        }
+    }
+
+    /**
+     * Returns the document or array that holds the last key of the path. Missing documents are created if create is
+     * true, otherwise null is returned.
+     */
+    private static BsonValue getParent(BsonDocument document, String[] keys, boolean create) {
+        BsonValue current = document;
+
+        for (int i = 0; i < keys.length - 1; i++) {
+            var child = getChild(current, keys[i]);
+
+            if (child == null || child.isNull()) {
+                if (!create) {
+                    return null;
+                }
+
+                child = new BsonDocument();
+                putChild(current, keys[i], child);
+            } else if (!child.isDocument() && !child.isArray()) {
+                if (!create) {
+                    return null;
+                }
+
+                throw new IllegalStateException("Cannot create field " + keys[i + 1] + " in a non-document field " + keys[i]);
+            }
+
+            current = child;
+        }
+
+        return current;
+    }
+
+    private static BsonValue getChild(BsonValue parent, String key) {
+        if (parent.isDocument()) {
+            return parent.asDocument().get(key);
+        }
+
+        int index = EmbeddedCollection.parseIndex(key);
+        var array = parent.asArray();
+
+        return index >= 0 && index < array.size() ? array.get(index) : null;
+    }
+
+    private static void putChild(BsonValue parent, String key, BsonValue value) {
+        if (parent.isDocument()) {
+            parent.asDocument().put(key, value);
+            return;
+        }
+
+        int index = EmbeddedCollection.parseIndex(key);
+        var array = parent.asArray();
+
+        if (index < 0) {
+            throw new IllegalStateException("Cannot create field " + key + " in an array");
+        }
+
+        // Pad with nulls like MongoDB does
+        while (array.size() <= index) {
+            array.add(BsonNull.VALUE);
+        }
+
+        array.set(index, value);
+    }
+}
@@ -0,0 +1,113 @@
+package emu.nebula.database;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import emu.nebula.Nebula;
+
+/**
+ * Hands out ids from a database counter. Ids are reserved in blocks with a single atomic increment of the counter, so
+ * servers sharing a database never get the same id. Ids inside a block are handed out without locking, and the next
+ * block is reserved in the background before the current one runs out.
+ * <p>
+ * Ids that were reserved but not used are skipped when the server restarts.
+ */
+public class IdAllocator {
+    // Counters start here, so the first id is 10001
+    private static final int FIRST_ID = 10001;
+
+    private final DatabaseManager database;
+    private final String name;
+    private final int blockSize;
+    private final int refillAt;
+
+    private volatile Block block;
+    private final AtomicReference<CompletableFuture<Block>> nextBlock;
+
+    public IdAllocator(DatabaseManager database, String name, int blockSize) {
+        this.database = database;
+        this.name = name;
+        this.blockSize = blockSize;
+        this.refillAt = blockSize / 4;
+        this.block = new Block(1, 0);
+        this.nextBlock = new AtomicReference<>();
+    }
+
+    public int next() {
+        while (true) {
+            var block = this.block;
+            int id = block.next.getAndIncrement();
+
+            if (id <= block.end) {
+                // Reserve the next block when this one is running low
+                if (block.end - id == this.refillAt) {
+                    this.prefetch();
+                }
+
+                return id;
+            }
+
+            // Block is used up
+            this.advance(block);
+        }
+    }
+
+    private synchronized void advance(Block exhausted) {
+        // Another thread already moved to a new block
+        if (this.block != exhausted) {
+            return;
+        }
+
+        var future = this.nextBlock.getAndSet(null);
+        Block block = null;
+
+        if (future != null) {
+            try {
+                block = future.join();
+            } catch (Exception e) {
+                Nebula.getLogger().warn("Could not reserve ids for " + this.name + " in the background", e);
+            }
+        }
+
+        if (block == null) {
+            block = this.reserve();
+        }
+
+        this.block = block;
+    }
+
+    private void prefetch() {
+        var future = new CompletableFuture<Block>();
+
+        if (!this.nextBlock.compareAndSet(null, future)) {
+            return;
+        }
+
+        Thread.startVirtualThread(() -> {
+            try {
+                future.complete(this.reserve());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Reserves the next block of ids by incrementing the counter in the database
+     */
+    private Block reserve() {
+        int end = this.database.getStorage().incrementCounter(this.name, this.blockSize, FIRST_ID - 1);
+        return new Block(end - this.blockSize + 1, end);
+    }
+
+    private static class Block {
+        private final AtomicInteger next;
+        private final int end;
+
+        public Block(int start, int end) {
+            this.next = new AtomicInteger(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package emu.nebula.database;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+
+import dev.morphia.Datastore;
+import dev.morphia.DeleteOptions;
+import dev.morphia.InsertOneOptions;
+import dev.morphia.ModifyOptions;
+import dev.morphia.query.FindOptions;
+import dev.morphia.query.Query;
+import dev.morphia.query.Sort;
+import dev.morphia.query.filters.Filters;
+import dev.morphia.query.updates.UpdateOperators;
+import lombok.Getter;
+
+/**
+ * Stores objects in a MongoDB database through Morphia.
+ */
+@Getter
+public class MongoStorage implements DatabaseStorage {
+    private static final InsertOneOptions INSERT_OPTIONS = new InsertOneOptions();
+    private static final DeleteOptions DELETE_OPTIONS = new DeleteOptions();
+    private static final DeleteOptions DELETE_MANY = new DeleteOptions().multi(true);
+    private static final BulkWriteOptions BULK_OPTIONS = new BulkWriteOptions().ordered(true);
+
+    private final Datastore datastore;
+
+    public MongoStorage(Datastore datastore) {
+        this.datastore = datastore;
+    }
+
+    private <T> Query<T> query(Class<T> cls, String field, Object value) {
+        var query = this.datastore.find(cls);
+
+        if (field != null) {
+            query.filter(Filters.eq(field, value));
+        }
+
+        return query;
+    }
+
+    @Override
+    public <T> T findFirst(Class<T> cls, String field, Object value) {
+        return this.query(cls, field, value).first();
+    }
+
+    @Override
+    public <T> Stream<T> find(Class<T> cls, String field, Object value) {
+        return this.query(cls, field, value).stream();
+    }
+
+    @Override
+    public long count(Class<?> cls, String field, Object value) {
+        return this.query(cls, field, value).count();
+    }
+
+    @Override
+    public List<Document> findProjected(Class<?> cls, String field, Collection<?> values, String... fields) {
+        return this.datastore
+                .getCollection(cls)
+                .withDocumentClass(Document.class)
+                .find(new Document(field, new Document("$in", values)))
+                .projection(Projections.include(fields))
+                .into(new ArrayList<>());
+    }
+
+    @Override
+    public <T> List<T> findSorted(Class<T> cls, Map<String, Object> filters, String minField, long minValue, String sortBy, int limit) {
+        var options = new FindOptions()
+                .sort(Sort.descending(sortBy))
+                .limit(limit);
+
+        var query = this.datastore.find(cls);
+
+        filters.forEach((field, value) -> query.filter(Filters.eq(field, value)));
+
+        if (minField != null) {
+            query.filter(Filters.gte(minField, minValue));
+        }
+
+        return query.iterator(options).toList();
+    }
+
+    @Override
+    public void save(Object obj) {
+        this.datastore.save(obj, INSERT_OPTIONS);
+    }
+
+    @Override
+    public boolean delete(Object obj) {
+        return this.datastore.delete(obj, DELETE_OPTIONS).getDeletedCount() > 0;
+    }
+
+    @Override
+    public long delete(Class<?> cls, String field, Object value) {
+        return this.query(cls, field, value).delete(DELETE_MANY).getDeletedCount();
+    }
+
+    @Override
+    public void update(Class<?> cls, List<DocumentUpdate> updates) {
+        this.write(cls, updates);
+    }
+
+    private <T> void write(Class<T> cls, List<DocumentUpdate> updates) {
+        var models = new ArrayList<WriteModel<T>>(updates.size());
+
+        for (var update : updates) {
+            models.add(toModel(update));
+        }
+
+        this.datastore.getCollection(cls).bulkWrite(models, BULK_OPTIONS);
+    }
+
+    private static <T> UpdateOneModel<T> toModel(DocumentUpdate update) {
+        // Create filter
+        Bson filter = com.mongodb.client.model.Filters.eq("_id", update.getId());
+
+        if (update.hasFilter()) {
+            filter = com.mongodb.client.model.Filters.and(
+                    filter,
+                    com.mongodb.client.model.Filters.eq(update.getFilter(), update.getFilterId())
+            );
+        }
+
+        // Create update operators
+        var operators = new ArrayList<Bson>();
+
+        update.getSets().forEach((field, value) -> operators.add(Updates.set(field, value)));
+        update.getUnsets().forEach(field -> operators.add(Updates.unset(field)));
+        update.getAddToSets().forEach((field, values) -> {
+            if (values.size() == 1) {
+                operators.add(Updates.addToSet(field, values.get(0)));
+            } else {
+                operators.add(Updates.addEachToSet(field, values));
+            }
+        });
+
+        return new UpdateOneModel<>(filter, Updates.combine(operators), new UpdateOptions().upsert(update.isUpsert()));
+    }
+
+    @Override
+    public int incrementCounter(String name, int amount, int initialValue) {
+        var options = new ModifyOptions().returnDocument(ReturnDocument.AFTER);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            var counter = this.datastore
+                    .find(DatabaseCounter.class)
+                    .filter(Filters.eq("_id", name))
+                    .modify(options, UpdateOperators.inc("count", amount));
+
+            if (counter != null) {
+                return counter.getCount();
+            }
+
+            // Create the counter. If another server created it first, the insert fails and we increment theirs.
+            try {
+                this.datastore.insert(new DatabaseCounter(name, initialValue));
+            } catch (MongoWriteException e) {
+                if (ErrorCategory.fromErrorCode(e.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+        }
+
+        throw new IllegalStateException("Could not increment counter " + name);
+    }
+}
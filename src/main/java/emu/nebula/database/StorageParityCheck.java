@@ -0,0 +1,307 @@
+package emu.nebula.database;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.json.JsonWriterSettings;
+
+import emu.nebula.Nebula;
+import emu.nebula.data.GameData;
+import emu.nebula.game.account.Account;
+import emu.nebula.game.account.AccountHelper;
+import emu.nebula.game.character.GameCharacter;
+import emu.nebula.game.gacha.GachaHistoryLog;
+import emu.nebula.game.inventory.Inventory;
+import emu.nebula.game.mail.GameMail;
+import emu.nebula.game.mail.Mailbox;
+import emu.nebula.game.player.Player;
+import emu.nebula.game.player.PlayerSummary;
+import emu.nebula.net.GameSession;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Checks that the embedded storage and MongoDB give the same results. The same workload of reads, writes, batched
+ * writes and deletes is run against a fresh in-memory database of each backend, and the query results and every
+ * stored document are compared. Object ids, account uids, timestamps and tokens are masked since they differ between
+ * runs, and fields are compared in sorted order since MongoDB appends fields that an update adds.
+ * <p>
+ * Usage: java -cp Nebula.jar emu.nebula.database.StorageParityCheck [embedded|mongo]
+ * <p>
+ * Without an argument, both backends are run in their own process and any difference is printed. With an argument,
+ * only that backend is run and its results are printed. Should be run from the server directory so the config and
+ * resources are found.
+ */
+public class StorageParityCheck {
+    private static final String RESULT = "R ";
+    private static final String DOCUMENT = "D ";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.exit(compare() ? 0 : 1);
+        }
+
+        try {
+            run(args[0].equals("embedded"));
+        } catch (Throwable e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+
+        System.exit(0);
+    }
+
+    // Compare
+
+    private static boolean compare() throws Exception {
+        var embedded = runProcess("embedded");
+        var mongo = runProcess("mongo");
+
+        if (embedded == null || mongo == null) {
+            return false;
+        }
+
+        boolean same = true;
+
+        for (int i = 0; i < Math.max(embedded.size(), mongo.size()); i++) {
+            var a = i < embedded.size() ? embedded.get(i) : "<none>";
+            var b = i < mongo.size() ? mongo.get(i) : "<none>";
+
+            if (!a.equals(b)) {
+                System.out.println("embedded: " + a);
+                System.out.println("mongo:    " + b);
+                same = false;
+            }
+        }
+
+        System.out.println(same ? "Results match (" + embedded.size() + " lines)" : "Results differ");
+
+        return same;
+    }
+
+    /**
+     * Runs one backend in a new process and returns its results, or null if it failed
+     */
+    private static List<String> runProcess(String mode) throws Exception {
+        var java = ProcessHandle.current().info().command().orElse("java");
+        var process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), StorageParityCheck.class.getName(), mode)
+                .redirectErrorStream(true)
+                .start();
+
+        var lines = new ArrayList<String>();
+
+        try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT) || line.startsWith(DOCUMENT)) {
+                    lines.add(line);
+                }
+            }
+        }
+
+        if (process.waitFor() != 0) {
+            System.out.println("Run against " + mode + " storage failed");
+            return null;
+        }
+
+        return lines;
+    }
+
+    // Workload
+
+    private static void result(Object... values) {
+        var sb = new StringBuilder(RESULT);
+
+        for (var value : values) {
+            sb.append(value).append(' ');
+        }
+
+        System.out.println(sb.toString().trim());
+    }
+
+    private static void run(boolean embedded) throws Exception {
+        // Use an internal in-memory database
+        Nebula.initLocalServer(embedded, config -> config.getServerOptions().skipIntro = true);
+
+        var db = Nebula.getGameDatabase();
+
+        // Accounts
+        var account = AccountHelper.createAccount("a@parity", null, 0);
+        AccountHelper.createAccount("b@parity", null, 0);
+
+        result("by email", db.getObjectByField(Account.class, "email", "a@parity").getUid().equals(account.getUid()));
+        result("exists", db.checkIfObjectExists(Account.class, "email", "b@parity"), db.checkIfObjectExists(Account.class, "email", "c@parity"));
+        result("missing", db.getObjectByField(Account.class, "email", "none"));
+        result("accounts", db.getObjects(Account.class).count());
+
+        // Log in
+        var token = account.generateLoginToken();
+        account.save();
+
+        var session = new GameSession();
+        Nebula.getGameContext().generateSessionToken(session);
+        session.login(token);
+
+        var player = session.getPlayer();
+        int uid = player.getUid();
+        result("player uid", uid);
+
+        // Characters
+        var characters = new ArrayList<>(GameData.getCharacterDataTable().values());
+        var character = player.getCharacters().addCharacter(characters.get(0));
+        player.getCharacters().addCharacter(characters.get(1));
+        character.setLevel(33);
+        character.save();
+
+        result("characters", db.getObjects(GameCharacter.class, "playerUid", uid).count());
+        result("characters by long uid", db.getObjects(GameCharacter.class, "playerUid", (long) uid).count());
+
+        // Mail, which adds to a set and updates array elements by position
+        var mailbox = player.getMailbox();
+
+        for (int i = 0; i < 4; i++) {
+            var mail = new GameMail("Parity", "Mail " + i, "");
+            mail.addAttachment(1, 10 + i);
+            mailbox.sendMail(mail);
+        }
+
+        var ids = mailbox.getList().stream().map(GameMail::getId).toList();
+        mailbox.readMail(ids.get(1), 0);
+        mailbox.pinMail(ids.get(2), 0, true);
+        mailbox.readMail(999, 0);
+        db.updateNested(mailbox, uid, "list.id", 12345, "list.$.read", true);
+
+        // Same kind of changes in a write batch
+        db.beginWriteBatch();
+        mailbox.readMail(ids.get(3), 0);
+        mailbox.recvMail(player, ids.get(0));
+        player.getInventory().addItem(1, 500);
+        player.getInventory().addHeadIcon(123456);
+        db.commitWriteBatch();
+
+        for (var mail : db.getObjectByUid(Mailbox.class, uid).getList()) {
+            result("mail", mail.getId(), mail.isRead(), mail.isPin(), mail.isRecv(), mail.getSubject());
+        }
+
+        // Sets, unsets, nested fields and upserts
+        var inventory = player.getInventory();
+        db.addToSet(inventory, uid, "titles", 7);
+        db.addToSet(inventory, uid, "titles", 7);
+        db.addToSet(inventory, uid, "titles", 8);
+        db.update(inventory, uid, "mallPackageBuyCount.parity", 3);
+        db.update(inventory, uid, "parity.nested.value", 1, true);
+        db.updateUnset(inventory, uid, "parity.nested");
+        db.update(inventory, uid, Map.of("parity1", 1, "parity2", "two"));
+        db.update(inventory, 424242, "parity1", 5, true);
+        db.update(inventory, 434343, "parity1", 5, false);
+
+        result("upsert", db.getObjectByUid(Inventory.class, 424242) != null, db.getObjectByUid(Inventory.class, 434343) != null);
+
+        // Sorted queries. The log time is set directly so that the order doesn't depend on the clock
+        var timeField = GachaHistoryLog.class.getDeclaredField("time");
+        timeField.setAccessible(true);
+
+        for (int i = 0; i < 20; i++) {
+            var log = new GachaHistoryLog(uid, i % 2, 100 + i, IntArrayList.of(i, i + 1));
+            timeField.setLong(log, 1000 + (i * 7) % 20);
+            db.save(log);
+        }
+
+        var sorted = db.getSortedObjects(GachaHistoryLog.class, "playerUid", uid, "type", 1, "time", 1005, "time", 4);
+        result("sorted with filter", sorted.stream().map(log -> log.getGid() + "@" + log.getTime()).toList());
+
+        sorted = db.getSortedObjects(GachaHistoryLog.class, "playerUid", uid, "time", 3);
+        result("sorted", sorted.stream().map(log -> log.getGid() + "@" + log.getTime()).toList());
+        result("log id", sorted.get(0).getId() != null);
+
+        // Projections
+        player.save();
+
+        for (var document : db.getProjectedObjects(Player.class, "_id", List.of(uid, 999), PlayerSummary.FIELDS)) {
+            result("projected", new TreeMap<>(document).keySet(), document.get("name"), document.get("_id").getClass().getSimpleName());
+        }
+
+        // Counters
+        result("ids", db.getNextObjectId(StorageParityCheck.class), db.getNextObjectId(StorageParityCheck.class));
+
+        dump(db);
+
+        // Deletes
+        Nebula.getGameContext().getPlayerModule().getCachedPlayers().remove(uid);
+
+        result("delete player", Nebula.getGameContext().getPlayerModule().deletePlayer(uid));
+        result("after delete", db.getObjects(GameCharacter.class, "playerUid", uid).count(), db.getObjectByUid(Mailbox.class, uid), db.getObjectByUid(Player.class, uid));
+        result("delete account", db.delete(account), db.delete(account), db.getObjects(Account.class).count());
+
+        dump(db);
+    }
+
+    /**
+     * Prints every stored document, sorted so that the order of the collections and documents doesn't matter
+     */
+    private static void dump(DatabaseManager db) {
+        var lines = new ArrayList<String>();
+        var settings = JsonWriterSettings.builder().build();
+
+        if (db.getStorage() instanceof EmbeddedStorage storage) {
+            for (var name : storage.getCollectionNames()) {
+                storage.getCollection(name).find(null, null).forEach(document -> {
+                    lines.add(name + " " + normalize(sorted(document).toJson(settings)));
+                });
+            }
+        } else {
+            var database = db.getDatabase();
+
+            for (var name : database.listCollectionNames()) {
+                for (var document : database.getCollection(name, RawBsonDocument.class).find()) {
+                    lines.add(name + " " + normalize(sorted(document).toJson(settings)));
+                }
+            }
+        }
+
+        lines.sort(null);
+        lines.forEach(line -> System.out.println(DOCUMENT + line));
+    }
+
+    /**
+     * Returns a copy of the document with the fields of it and all nested documents in sorted order
+     */
+    private static BsonDocument sorted(BsonDocument document) {
+        var result = new BsonDocument();
+
+        document.keySet().stream().sorted().forEach(key -> result.put(key, sorted(document.get(key))));
+
+        return result;
+    }
+
+    private static BsonValue sorted(BsonValue value) {
+        if (value.isDocument()) {
+            return sorted(value.asDocument());
+        } else if (value.isArray()) {
+            var array = new BsonArray();
+            value.asArray().forEach(element -> array.add(sorted(element)));
+            return array;
+        }
+
+        return value;
+    }
+
+    /**
+     * Masks values that are different every run
+     */
+    private static String normalize(String json) {
+        return json.replaceAll("\\{\"\\$oid\": \"[0-9a-f]+\"\\}", "OID")
+                .replaceAll("\"(_id|accountUid)\": \"\\d+\"", "\"$1\": \"ACCOUNT\"")
+                .replaceAll("\\{\"\\$numberLong\": \"\\d{10,}\"\\}", "TIME")
+                .replaceAll("\\b\\d{10,}\\b", "TIME")
+                .replaceAll("\"(loginToken|remoteToken|sessionKey|token)\": \"[^\"]*\"", "\"$1\": \"X\"");
+    }
+}
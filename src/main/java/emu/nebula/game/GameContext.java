@@ -1,5 +1,7 @@
 package emu.nebula.game;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -13,17 +15,20 @@ import emu.nebula.game.mall.PayModule;
 import emu.nebula.game.player.PlayerModule;
 import emu.nebula.game.scoreboss.ScoreBossModule;
 import emu.nebula.game.tutorial.TutorialModule;
+import emu.nebula.metrics.Metrics;
 import emu.nebula.net.GameSession;
+import emu.nebula.net.KeyPairPool;
 import emu.nebula.util.ResetCycle;
+import emu.nebula.util.TimingWheel;
 import emu.nebula.util.Utils;
-import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 
 import lombok.Getter;
 
 @Getter
 public class GameContext implements Runnable {
-    private final Object2ObjectMap<String, GameSession> sessions;
+    private final Map<String, GameSession> sessions;
+    private final TimingWheel<GameSession> sessionExpiry;
+    private final KeyPairPool keyPairPool;
     
     // Modules
     private final PlayerModule playerModule;
@@ -45,7 +50,9 @@ public class GameContext implements Runnable {
     
     public GameContext() {
         // Create session map
-        this.sessions = new Object2ObjectOpenHashMap<>();
+        this.sessions = new ConcurrentHashMap<>();
+        this.sessionExpiry = new TimingWheel<>(512, 1000);
+        this.keyPairPool = new KeyPairPool(Nebula.getConfig().getServerOptions().keyPairPoolSize);
         
         // Setup game modules
         this.playerModule = new PlayerModule(this);
@@ -60,20 +67,24 @@ public class GameContext implements Runnable {
         // Run game loop
         this.scheduler = Executors.newScheduledThreadPool(1);
         this.scheduler.scheduleAtFixedRate(this, 0, 1, TimeUnit.SECONDS);
+        
+        // Remove expired bans
+        this.scheduler.scheduleAtFixedRate(this.banModule::removeExpiredBans, 1, 1, TimeUnit.MINUTES);
     }
     
-    public synchronized GameSession getSessionByToken(String token) {
+    public GameSession getSessionByToken(String token) {
         return sessions.get(token);
     }
     
-    public synchronized void addSession(GameSession session) {
+    public void addSession(GameSession session) {
         this.sessions.put(session.getToken(), session);
+        this.scheduleSessionExpiry(session);
     }
 
-    public synchronized void generateSessionToken(GameSession session) {
+    public void generateSessionToken(GameSession session) {
         // Remove token
         if (session.getToken() != null) {
-            this.sessions.remove(session.getToken());
+            this.sessions.remove(session.getToken(), session);
         }
         
         // Generate token
@@ -81,33 +92,56 @@ public class GameContext implements Runnable {
         
         do {
             token = session.generateToken();
-        } while (this.getSessions().containsKey(token));
+        } while (this.getSessions().putIfAbsent(token, session) != null);
         
-        // Register session
-        this.sessions.put(session.getToken(), session);
+        // Schedule session cleanup
+        this.scheduleSessionExpiry(session);
     }
     
-    public synchronized void cleanupInactiveSessions() {
-        var it = this.getSessions().entrySet().iterator();
-        
-        int time = Nebula.getConfig().getServerOptions().sessionTimeout;
-        long timeout = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(time);
+    private long getSessionTimeout() {
+        return TimeUnit.SECONDS.toMillis(Nebula.getConfig().getServerOptions().sessionTimeout);
+    }
+    
+    private void scheduleSessionExpiry(GameSession session) {
+        this.sessionExpiry.schedule(session, session.getLastActiveTime() + this.getSessionTimeout());
+    }
+    
+    /**
+     * Removes the session from the server on the next cleanup tick
+     */
+    public void scheduleSessionRemoval(GameSession session) {
+        this.sessionExpiry.schedule(session, 0);
+    }
+    
+    public void cleanupInactiveSessions() {
+        long time = System.currentTimeMillis();
+        long timeout = this.getSessionTimeout();
         
-        while (it.hasNext()) {
-            var session = it.next().getValue();
+        this.sessionExpiry.advance(time, session -> {
+            // Skip if the session was already removed
+            if (session.getToken() == null || this.sessions.get(session.getToken()) != session) {
+                return;
+            }
+            
+            // Session was active recently, check it again later
+            long deadline = session.getLastActiveTime() + timeout;
             
-            if (timeout > session.getLastActiveTime() || session.isRemove()) {
-                // Remove from session map
-                it.remove();
-                
-                // Clear player
-                session.clearPlayer();
+            if (deadline > time && !session.isRemove()) {
+                this.sessionExpiry.schedule(session, deadline);
+                return;
             }
-        }
+            
+            // Remove from session map
+            this.sessions.remove(session.getToken(), session);
+            
+            // Clear player
+            session.clearPlayer();
+        });
     }
 
     @Override
     public void run() {
+        long start = System.nanoTime();
         long lastResetDays = this.resetDays;
         this.resetDays = Utils.getResetEpochDay();
         
@@ -120,18 +154,27 @@ public class GameContext implements Runnable {
             // Update score boss season
             this.getScoreBossModule().updateSeason();
             
+            // Drop leaderboards of joint drills that are over
+            this.getJointDrillModule().evictLeaderboards();
+            
             // Reset dailies for players
             this.resetDailies();
         }
         
         // Clean up any inactive sessions
         this.cleanupInactiveSessions();
+        
+        // Unload players that have been offline for too long
+        this.getPlayerModule().cleanupOfflinePlayers();
+        
+        // Record tick time
+        Metrics.recordTick(System.nanoTime() - start);
     }
 
     /**
      * Resets the daily missions/etc for all players on the server
      */
-    public synchronized void resetDailies() {
+    public void resetDailies() {
         for (var session : this.getSessions().values()) {
             // Cache
             var player = session.getPlayer();
@@ -2,25 +2,19 @@ package emu.nebula.game.achievement;
 
 import java.util.List;
 
+import emu.nebula.data.GameData;
 import emu.nebula.data.resources.AchievementDef;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 
-import lombok.Getter;
-
 // Because achievements in the data files do not have params, we will hardcode them here
 public class AchievementHelper {
     // Cache
     private static IntSet incrementalAchievementSet = new IntOpenHashSet();
     
-    @Getter
-    private static Int2ObjectMap<List<AchievementDef>> cache = new Int2ObjectOpenHashMap<>();
-    
     public static List<AchievementDef> getAchievementsByCondition(int condition) {
-        return cache.get(condition);
+        return GameData.getAchievementDataTable().lookupBy("condition", condition);
     }
     
     //
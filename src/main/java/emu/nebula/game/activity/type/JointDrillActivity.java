@@ -175,8 +175,13 @@ public class JointDrillActivity extends GameActivity {
                 
                 // Settle ranking and save if we have a higher score
                 if (score.getTotal() > this.ranking.getScore()) {
+                    int previousActivityId = this.ranking.getActivityId();
+                    
                     this.ranking.settle(this.getPlayer(), this.getTeams(), this.getId(), score.getTotal());
                     this.ranking.save();
+                    
+                    // Update leaderboard
+                    Nebula.getGameContext().getJointDrillModule().updateRanking(this.ranking, previousActivityId);
                 }
             }
             
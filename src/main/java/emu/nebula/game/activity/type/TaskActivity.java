@@ -32,23 +32,12 @@ public class TaskActivity extends GameActivity {
         this.quests = new HashMap<>();
         this.completedGroups = new IntOpenHashSet();
         
-        var groupSet = new IntOpenHashSet();
-        for (var group : GameData.getActivityTaskGroupDataTable()) {
-            if (group.getActivityId() != this.getId()) {
-                continue;
+        for (var group : GameData.getActivityTaskGroupDataTable().lookupBy("activity", this.getId())) {
+            for (var task : GameData.getActivityTaskDataTable().lookupBy("group", group.getId())) {
+                var quest = new ActivityTaskQuest(task);
+                
+                this.getQuests().put(quest.getId(), quest);
             }
-            
-            groupSet.add(group.getId());
-        }
-        
-        for (var task : GameData.getActivityTaskDataTable()) {
-            if (!groupSet.contains(task.getActivityTaskGroupId())) {
-                continue;
-            }
-            
-            var quest = new ActivityTaskQuest(task);
-            
-            this.getQuests().put(quest.getId(), quest);
         }
     }
     
@@ -0,0 +1,41 @@
+package emu.nebula.game.ban;
+
+import java.util.Collection;
+import java.util.List;
+
+import emu.nebula.util.IpPrefixTrie;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+/**
+ * Immutable snapshot of all active bans. The ban module builds a new one whenever a ban is added or removed,
+ * so readers never need to lock.
+ */
+class BanIndex {
+    static final BanIndex EMPTY = new BanIndex(List.of());
+
+    private final Int2ObjectMap<BanInfo> playerBans;
+    private final IpPrefixTrie<BanInfo> ipBans;
+
+    BanIndex(Collection<BanInfo> bans) {
+        this.playerBans = new Int2ObjectOpenHashMap<>();
+        this.ipBans = new IpPrefixTrie<>();
+
+        for (var banInfo : bans) {
+            if (banInfo.isIpBan()) {
+                // Invalid addresses are already filtered out by the ban module
+                this.ipBans.put(banInfo.getIpAddress(), banInfo);
+            } else if (banInfo.getPlayerUid() != 0) {
+                this.playerBans.put(banInfo.getPlayerUid(), banInfo);
+            }
+        }
+    }
+
+    BanInfo getPlayerBan(int uid) {
+        return this.playerBans.get(uid);
+    }
+
+    BanInfo getIpBan(String ipAddress) {
+        return this.ipBans.get(ipAddress);
+    }
+}
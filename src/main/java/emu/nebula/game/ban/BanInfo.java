@@ -37,6 +37,13 @@ public class BanInfo implements GameDatabaseObject {
                 "player_" + playerUid;
     }
     
+    /**
+     * IP bans have no player, the ip address of a player ban is only kept so it can be unbanned later
+     */
+    public boolean isIpBan() {
+        return playerUid == 0 && ipAddress != null && !ipAddress.isEmpty();
+    }
+    
     public boolean isExpired() {
         return endTime != 0 && endTime < System.currentTimeMillis();
     }
@@ -4,19 +4,131 @@ import emu.nebula.Nebula;
 import emu.nebula.game.player.Player;
 import emu.nebula.game.GameContext;
 import emu.nebula.game.GameContextModule;
+import emu.nebula.util.IpPrefixTrie;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * All bans are loaded when the server starts. Lookups read from an immutable {@link BanIndex} that is rebuilt
+ * and swapped in whenever a ban changes, so checking a login never touches the database.
+ */
 public class BanModule extends GameContextModule {
-    private final Map<String, BanInfo> cachedIpBans = new ConcurrentHashMap<>();
-    private final Map<Integer, BanInfo> cachedPlayerBans = new ConcurrentHashMap<>();
-    
+    // Active bans by id, only used by writers
+    private final Map<String, BanInfo> bans = new HashMap<>();
+    private volatile BanIndex index = BanIndex.EMPTY;
+
     public BanModule(GameContext context) {
         super(context);
+        this.loadBans();
+    }
+
+    private synchronized void loadBans() {
+        var removed = new ArrayList<BanInfo>();
+
+        try {
+            Nebula.getGameDatabase().getObjects(BanInfo.class).forEach(banInfo -> {
+                if (banInfo.isExpired()) {
+                    removed.add(banInfo);
+                    return;
+                }
+
+                // Flag invalid IP bans once here instead of every time the index is rebuilt
+                var key = getKey(banInfo);
+
+                if (key == null) {
+                    Nebula.getLogger().warn("Ignoring IP ban with an invalid address: " + banInfo.getIpAddress());
+                    return;
+                }
+
+                // The same range may have been banned twice before addresses were normalized
+                var other = this.bans.get(key);
+
+                if (other != null && lastsLonger(other, banInfo)) {
+                    removed.add(banInfo);
+                    return;
+                } else if (other != null) {
+                    removed.add(other);
+                }
+
+                this.bans.put(key, banInfo);
+            });
+        } catch (Exception e) {
+            Nebula.getLogger().error("Failed to load bans from database", e);
+        }
+
+        // Clean up bans that expired while the server was offline
+        removed.forEach(this::deleteBan);
+
+        this.publish();
+    }
+
+    /**
+     * Returns the key of a ban in the ban map. IP bans are keyed by their canonical prefix, so bans that were saved
+     * before addresses were normalized are still found. Returns null if the IP address of an IP ban is invalid.
+     */
+    private static String getKey(BanInfo banInfo) {
+        if (!banInfo.isIpBan()) {
+            return banInfo.getId();
+        }
+
+        var prefix = IpPrefixTrie.normalize(banInfo.getIpAddress());
+        return prefix != null ? "ip_" + prefix : null;
+    }
+
+    private static boolean lastsLonger(BanInfo a, BanInfo b) {
+        if (a.getEndTime() == 0 || b.getEndTime() == 0) {
+            return a.getEndTime() == 0;
+        }
+
+        return a.getEndTime() >= b.getEndTime();
+    }
+
+    /**
+     * Rebuilds the ban index. Must be called while holding the lock.
+     */
+    private void publish() {
+        this.index = new BanIndex(this.bans.values());
     }
-    
+
+    /**
+     * Adds a ban and returns the ban that it replaced, if any
+     */
+    private synchronized BanInfo addBan(BanInfo banInfo) {
+        var previous = this.bans.put(getKey(banInfo), banInfo);
+        this.publish();
+        return previous;
+    }
+
+    private synchronized BanInfo removeBan(String id) {
+        var banInfo = this.bans.remove(id);
+        if (banInfo != null) {
+            this.publish();
+        }
+        return banInfo;
+    }
+
+    /**
+     * Removes any bans that have expired. Called periodically by the game context.
+     */
+    public void removeExpiredBans() {
+        List<BanInfo> expired;
+
+        synchronized (this) {
+            expired = this.bans.values().stream().filter(BanInfo::isExpired).toList();
+            if (expired.isEmpty()) {
+                return;
+            }
+
+            expired.forEach(banInfo -> this.bans.remove(getKey(banInfo)));
+            this.publish();
+        }
+
+        expired.forEach(this::deleteBan);
+    }
+
     /**
      * Ban a player by UID
      * @param uid Player UID
@@ -42,8 +154,7 @@ public class BanModule extends GameContextModule {
         }
 
         BanInfo banInfo = new BanInfo(uid, endTime, reason, bannedBy, playerBindIp);
-        cachedPlayerBans.put(uid, banInfo);
-        banInfo.save();
+        this.saveBan(banInfo);
 
         // Kick player
         if (player != null && player.isLoaded()) {
@@ -52,21 +163,28 @@ public class BanModule extends GameContextModule {
     }
 
     /**
-     * Ban an IP address
+     * Ban an IP address or a CIDR range (e.g. 10.0.0.0/8 or 2001:db8::/32)
      * <p>
      * Please be cautious about disabling IPs
      * in some regions where IPs are scarce, many people may share a public IP
      * and restarting the optical cat device will reassign a new IP
      *
-     * @param ipAddress IP address to ban
+     * @param ipAddress IP address or range to ban
      * @param endTime Ban expiration time (0 = permanent)
      * @param reason Ban reason
      * @param bannedBy Who banned the IP
+     * @return False if the IP address could not be parsed
      */
-    public void banIp(String ipAddress, long endTime, String reason, String bannedBy) {
-        BanInfo banInfo = new BanInfo(0, endTime, reason, bannedBy, ipAddress);
-        cachedIpBans.put(ipAddress, banInfo);
-        banInfo.save();
+    public boolean banIp(String ipAddress, long endTime, String reason, String bannedBy) {
+        // Ranges are saved in their canonical form, so that they can be unbanned however they are written
+        String prefix = IpPrefixTrie.normalize(ipAddress);
+
+        if (prefix == null) {
+            return false;
+        }
+
+        BanInfo banInfo = new BanInfo(0, endTime, reason, bannedBy, prefix);
+        this.saveBan(banInfo);
 
         List<Player> playerList = Nebula.getGameContext().getPlayerModule().getCachedPlayers()
                 .values().stream().toList();
@@ -83,126 +201,113 @@ public class BanModule extends GameContextModule {
             }
 
             // Kick player
-            if (playerIpAddress.equals(ipAddress)) {
+            if (this.isIpBanned(playerIpAddress)) {
                 player.setSession(null);
             }
         }
+
+        return true;
+    }
+
+    private void saveBan(BanInfo banInfo) {
+        var previous = this.addBan(banInfo);
+        banInfo.save();
+
+        // Delete the ban that was replaced if it was saved with a different id
+        if (previous != null && !previous.getId().equals(banInfo.getId())) {
+            deleteBan(previous);
+        }
     }
 
     /**
      * Unban a player
      * @param uid Player UID
+     * @return False if the player was not banned
      */
-    public void unbanPlayer(int uid) {
-        BanInfo banInfo = cachedPlayerBans.remove(uid);
-        if (banInfo == null) {
-            banInfo = getPlayerBanInfo(uid);
-        }
+    public boolean unbanPlayer(int uid) {
+        BanInfo banInfo = this.removeBan("player_" + uid);
 
         if (banInfo == null) {
-            return;
+            return false;
         }
 
         deleteBan(banInfo);
+        return true;
     }
-    
+
     /**
-     * Unban an IP address
-     * @param ipAddress IP address to unban
+     * Unban an IP address or range. This must be the same range that was banned, but it may be written differently
+     * (e.g. "10.1.2.3/8" unbans "10.0.0.0/8"). Addresses inside a banned range can't be unbanned on their own.
+     * @param ipAddress IP address or range to unban
+     * @return False if there was no ban for this address or range
      */
-    public void unbanIp(String ipAddress) {
-        BanInfo banInfo = cachedIpBans.remove(ipAddress);
-        if (banInfo == null) {
-            banInfo = getIpBanInfo(ipAddress);
+    public boolean unbanIp(String ipAddress) {
+        String prefix = IpPrefixTrie.normalize(ipAddress);
+
+        if (prefix == null) {
+            return false;
         }
 
+        BanInfo banInfo = this.removeBan("ip_" + prefix);
+
         if (banInfo == null) {
-            return;
+            return false;
         }
 
         deleteBan(banInfo);
+        return true;
     }
-    
+
     /**
      * Check if a player is banned
      * @param uid Player UID
      * @return True if banned, false otherwise
      */
     public boolean isPlayerBanned(int uid) {
-        BanInfo banInfo = cachedPlayerBans.get(uid);
-        if (banInfo == null) {
-            banInfo = loadPlayerBanFromDatabase(uid);
-            if (banInfo == null) {
-                return false;
-            }
-            cachedPlayerBans.put(uid, banInfo);
-        }
-        
-        // Check if ban has expired
-        if (banInfo.isExpired()) {
-            unbanPlayer(uid);
-            return false;
-        }
-        
-        return true;
+        return getPlayerBanInfo(uid) != null;
     }
-    
+
     /**
      * Check if an IP address is banned
      * @param ipAddress IP address
      * @return True if banned, false otherwise
      */
     public boolean isIpBanned(String ipAddress) {
-        BanInfo banInfo = cachedIpBans.get(ipAddress);
-        if (banInfo == null) {
-            banInfo = loadIpBanFromDatabase(ipAddress);
-            if (banInfo == null) {
-                return false;
-            }
-            cachedIpBans.put(ipAddress, banInfo);
-        }
-        
-        // Check if ban has expired
-        if (banInfo.isExpired()) {
-            unbanIp(ipAddress);
-            return false;
-        }
-        
-        return true;
+        return getIpBanInfo(ipAddress) != null;
     }
-    
+
     /**
      * Get ban info for a player
      * @param uid Player UID
      * @return BanInfo or null if not banned
      */
     public BanInfo getPlayerBanInfo(int uid) {
-        BanInfo banInfo = cachedPlayerBans.get(uid);
-        if (banInfo == null) {
-            banInfo = loadPlayerBanFromDatabase(uid);
-            if (banInfo != null) {
-                cachedPlayerBans.put(uid, banInfo);
-            }
+        BanInfo banInfo = this.index.getPlayerBan(uid);
+
+        // Expired bans are removed by the next sweep
+        if (banInfo == null || banInfo.isExpired()) {
+            return null;
         }
+
         return banInfo;
     }
-    
+
     /**
-     * Get ban info for an IP
+     * Get ban info for an IP, including any banned range that contains it
      * @param ipAddress IP address
      * @return BanInfo or null if not banned
      */
     public BanInfo getIpBanInfo(String ipAddress) {
-        BanInfo banInfo = cachedIpBans.get(ipAddress);
-        if (banInfo == null) {
-            banInfo = loadIpBanFromDatabase(ipAddress);
-            if (banInfo != null) {
-                cachedIpBans.put(ipAddress, banInfo);
-            }
+        BanInfo banInfo = this.index.getIpBan(ipAddress);
+
+        // Expired bans are removed by the next sweep
+        if (banInfo == null || banInfo.isExpired()) {
+            return null;
         }
+
         return banInfo;
     }
-    
+
     /**
      * Delete ban from database
      */
@@ -213,34 +318,4 @@ public class BanModule extends GameContextModule {
             Nebula.getLogger().error("Failed to delete ban info from database", e);
         }
     }
-    
-    /**
-     * Load player ban from database
-     */
-    private BanInfo loadPlayerBanFromDatabase(int uid) {
-        if (uid == 0)
-            return null;
-
-        try {
-            return Nebula.getGameDatabase().getObjectByField(BanInfo.class, "playerUid", uid);
-        } catch (Exception e) {
-            Nebula.getLogger().error("Failed to load player ban from database", e);
-        }
-        return null;
-    }
-    
-    /**
-     * Load IP ban from database
-     */
-    private BanInfo loadIpBanFromDatabase(String ipAddress) {
-        if (ipAddress == null || ipAddress.isEmpty())
-            return null;
-
-        try {
-            return Nebula.getGameDatabase().getObjectByField(BanInfo.class, "ipAddress", ipAddress);
-        } catch (Exception e) {
-            Nebula.getLogger().error("Failed to load IP ban from database", e);
-        }
-        return null;
-    }
-}
\ No newline at end of file
+}
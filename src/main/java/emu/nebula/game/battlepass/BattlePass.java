@@ -12,10 +12,12 @@ import emu.nebula.game.inventory.ItemParamMap;
 import emu.nebula.game.player.Player;
 import emu.nebula.game.player.PlayerChangeInfo;
 import emu.nebula.game.quest.GameQuest;
+import emu.nebula.game.quest.QuestIndex;
 import emu.nebula.game.quest.QuestType;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.BattlePassInfoOuterClass.BattlePassInfo;
 import emu.nebula.util.Bitset;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -42,6 +44,9 @@ public class BattlePass implements GameDatabaseObject {
     
     private Map<Integer, GameQuest> quests;
     
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private transient QuestIndex questIndex;
+    
     @Deprecated // Morphia only
     public BattlePass() {
         
@@ -193,7 +198,13 @@ public class BattlePass implements GameDatabaseObject {
         // Reset daily quests
         for (var data : GameData.getBattlePassQuestDataTable()) {
             // Get quest
-            var quest = getQuests().computeIfAbsent(data.getId(), i -> new GameQuest(data));
+            var quest = getQuests().get(data.getId());
+            
+            if (quest == null) {
+                quest = new GameQuest(data);
+                this.getQuestIndex().add(quest);
+                getQuests().put(data.getId(), quest);
+            }
             
             // Don't reset weekly quests
             if (!data.isDaily() && !resetWeekly) {
@@ -216,8 +227,18 @@ public class BattlePass implements GameDatabaseObject {
         this.save();
     }
     
+    private QuestIndex getQuestIndex() {
+        // Build index from our quests if we dont have one yet
+        if (this.questIndex == null) {
+            this.questIndex = new QuestIndex(this.getQuests().values());
+        }
+        
+        return this.questIndex;
+    }
+    
     public synchronized void trigger(int condition, int progress, int param1, int param2) {
-        for (var quest : getQuests().values()) {
+        // Only check quests with this condition
+        for (var quest : this.getQuestIndex().get(condition)) {
             // Try to trigger quest
             boolean result = quest.trigger(condition, progress, param1, param2);
             
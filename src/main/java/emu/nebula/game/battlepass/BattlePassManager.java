@@ -16,7 +16,11 @@ public class BattlePassManager extends PlayerManager {
     // Database
     
     public void loadFromDatabase() {
-        this.battlePass = Nebula.getGameDatabase().getObjectByUid(BattlePass.class, getPlayer().getUid());
+        this.loadFromDatabase(Nebula.getGameDatabase().getObjectByUid(BattlePass.class, getPlayer().getUid()));
+    }
+    
+    public void loadFromDatabase(BattlePass battlePass) {
+        this.battlePass = battlePass;
         
         if (this.battlePass == null) {
             this.battlePass = new BattlePass(this);
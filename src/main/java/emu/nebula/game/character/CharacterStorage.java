@@ -372,13 +372,20 @@ public class CharacterStorage extends PlayerManager {
     public void loadFromDatabase() {
         var db = Nebula.getGameDatabase();
         
-        db.getObjects(GameCharacter.class, "playerUid", getPlayerUid()).forEach(character -> {
+        this.loadFromDatabase(
+            db.getObjects(GameCharacter.class, "playerUid", getPlayerUid()).toList(),
+            db.getObjects(GameDisc.class, "playerUid", getPlayerUid()).toList()
+        );
+    }
+    
+    public void loadFromDatabase(Collection<GameCharacter> characters, Collection<GameDisc> discs) {
+        for (var character : characters) {
             // Get data
             var data = GameData.getCharacterDataTable().get(character.getCharId());
             
             // Validate
             if (data == null) {
-                return;
+                continue;
             }
             
             character.setPlayer(this.getPlayer());
@@ -386,18 +393,18 @@ public class CharacterStorage extends PlayerManager {
             
             // Add to characters
             this.characters.put(character.getCharId(), character);
-        });
+        }
         
-        db.getObjects(GameDisc.class, "playerUid", getPlayerUid()).forEach(disc -> {
+        for (var disc : discs) {
             // Get data
             var data = GameData.getDiscDataTable().get(disc.getDiscId());
-            if (data == null) return;
+            if (data == null) continue;
             
             disc.setPlayer(this.getPlayer());
             disc.setData(data);
             
             // Add
             this.discs.put(disc.getDiscId(), disc);
-        });
+        }
     }
 }
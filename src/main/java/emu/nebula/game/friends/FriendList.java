@@ -16,6 +16,7 @@ import emu.nebula.proto.Public.FriendEnergyState;
 import emu.nebula.proto.Public.FriendState;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongList;
 import lombok.Getter;
@@ -399,7 +400,11 @@ public class FriendList extends PlayerManager {
     public synchronized void loadFromDatabase() {
         var friendships = Nebula.getGameDatabase().getObjects(Friendship.class, "playerUid", this.getPlayer().getUid());
         
-        friendships.forEach(friendship -> {
+        this.loadFromDatabase(friendships.toList());
+    }
+    
+    public synchronized void loadFromDatabase(Collection<Friendship> friendships) {
+        for (var friendship : friendships) {
             // Set ownership first
             friendship.setPlayer(this.getPlayer());
             
@@ -409,7 +414,7 @@ public class FriendList extends PlayerManager {
             } else {
                 getPendingFriends().put(friendship.getFriendUid(), friendship);
             }
-        });
+        }
     }
     
     // Proto 
@@ -426,11 +431,25 @@ public class FriendList extends PlayerManager {
     private FriendListGetResp updateCache() {
         var proto = FriendListGetResp.newInstance();
         
+        // Get summaries of all friends and invites in one go
+        var uids = new IntArrayList(this.getFullFriendCount());
+        uids.addAll(getFriends().keySet());
+        
+        for (var friend : getPendingFriends().values()) {
+            if (friend.getAskerUid() != this.getPlayerUid()) {
+                uids.add(friend.getFriendUid());
+            }
+        }
+        
+        var summaries = getGameContext().getPlayerModule().getSummaries(uids);
+        
         // Encode friends list
         for (var friend : getFriends().values()) {
             // Get base friend info
-            var base = friend.toProto();
-            if (base == null) continue;
+            var summary = summaries.get(friend.getFriendUid());
+            if (summary == null) continue;
+            
+            var base = summary.toProto();
             
             // Create info
             var info = FriendDetail.newInstance()
@@ -451,11 +470,11 @@ public class FriendList extends PlayerManager {
             }
             
             // Get base friend info
-            var base = friend.toProto();
-            if (base == null) continue;
+            var summary = summaries.get(friend.getFriendUid());
+            if (summary == null) continue;
             
             // Add
-            proto.addInvites(base);
+            proto.addInvites(summary.toProto());
         }
         
         return proto;
@@ -65,12 +65,12 @@ public class Friendship implements GameDatabaseObject {
     // Proto
     
     public Friend toProto() {
-        // Get target player
-        var target = Nebula.getGameContext().getPlayerModule().getPlayer(this.getFriendUid());
+        // Get target player summary
+        var target = Nebula.getGameContext().getPlayerModule().getSummary(this.getFriendUid());
         if (target == null) return null;
         
         // Encode player to simple friend proto
-        return target.getFriendProto();
+        return target.toProto();
     }
     
     // Extra
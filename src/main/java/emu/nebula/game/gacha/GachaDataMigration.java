@@ -8,6 +8,7 @@ import emu.nebula.data.GameData;
 import emu.nebula.util.JsonUtils;
 import org.bson.Document;
 
+import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
@@ -101,8 +102,17 @@ public final class GachaDataMigration {
     // - Derive pityStates from banner-embedded pity counters.
     // - Move embedded histories into a single table: gacha_history.
     public static void run() {
-        // Collections: source player gacha state + target split history table.
+        // The embedded storage has no legacy data, it was migrated when the embedded database was created.
         var database = Nebula.getGameDatabase().getDatabase();
+        if (database == null) {
+            return;
+        }
+
+        run(database);
+    }
+
+    public static void run(MongoDatabase database) {
+        // Collections: source player gacha state + target split history table.
         var gachaCollection = database.getCollection(TABLE_GACHA);
         var historyCollection = database.getCollection(TABLE_GACHA_HISTORY);
 
@@ -1,6 +1,5 @@
 package emu.nebula.game.inventory;
 
-import com.mongodb.client.model.Filters;
 import dev.morphia.annotations.Entity;
 import dev.morphia.annotations.Id;
 import emu.nebula.GameConstants;
@@ -390,11 +389,7 @@ public class Inventory extends PlayerManager implements GameDatabaseObject {
                 }
                 
                 if (diff != 0) {
-                    var proto = Res.newInstance()
-                            .setTid(id)
-                            .setQty(diff);
-                    
-                    change.add(proto);
+                    change.addResource(id, diff);
                 }
             }
             case Item -> {
@@ -451,11 +446,7 @@ public class Inventory extends PlayerManager implements GameDatabaseObject {
                 }
                 
                 if (diff != 0) {
-                    var proto = Item.newInstance()
-                            .setTid(id)
-                            .setQty(diff);
-                    
-                    change.add(proto);
+                    change.addItem(id, diff);
                 }
             }
             case Disc -> {
@@ -1191,7 +1182,7 @@ public class Inventory extends PlayerManager implements GameDatabaseObject {
             });
             
             // Delete all inventory items
-            db.getDatastore().getCollection(GameItem.class).deleteMany(Filters.eq("playerUid", uid));
+            db.delete(GameItem.class, "playerUid", uid);
             
             // Set to save inventory to database
             save = true;
@@ -1211,7 +1202,7 @@ public class Inventory extends PlayerManager implements GameDatabaseObject {
             });
             
             // Delete all inventory resources
-            db.getDatastore().getCollection(GameResource.class).deleteMany(Filters.eq("playerUid", uid));
+            db.delete(GameResource.class, "playerUid", uid);
             
             // Set to save inventory to database
             save = true;
@@ -1,55 +1,100 @@
 package emu.nebula.game.jointdrill;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import emu.nebula.Nebula;
 import emu.nebula.game.GameContext;
 import emu.nebula.game.GameContextModule;
+import emu.nebula.game.leaderboard.Leaderboard;
+import emu.nebula.game.leaderboard.LeaderboardPlayerInfo;
 import emu.nebula.proto.JointDrillRank.JointDrillRankData;
+import us.hebi.quickbuf.RepeatedMessage;
 
-@SuppressWarnings("unused")
 public class JointDrillModule extends GameContextModule {
-    private long lastUpdate;
-    private long nextUpdate;
-    private List<JointDrillRankData> ranking;
+    private static final LeaderboardPlayerInfo<JointDrillRankData> PLAYER_INFO = new LeaderboardPlayerInfo<>(
+        JointDrillRankData::getId,
+        JointDrillRankData::setNickName,
+        JointDrillRankData::setWorldClass,
+        JointDrillRankData::setHeadIcon,
+        JointDrillRankData::setTitlePrefix,
+        JointDrillRankData::setTitleSuffix,
+        JointDrillRankData::getMutableHonors
+    );
+    
+    // Leaderboards by activity id, only activities that the server is running are kept
+    private Map<Integer, Leaderboard<JointDrillRankData>> leaderboards;
     
     public JointDrillModule(GameContext context) {
         super(context);
-        this.nextUpdate = -1;
-        this.ranking = new ArrayList<>();
+        this.leaderboards = new ConcurrentHashMap<>();
+        this.loadLeaderboards();
+    }
+    
+    private boolean isActive(int activityId) {
+        return this.getGameContext().getActivityModule().getActivities().contains(activityId);
+    }
+    
+    public Leaderboard<JointDrillRankData> getLeaderboard(int activityId) {
+        return this.leaderboards.computeIfAbsent(activityId, id -> new Leaderboard<>());
     }
     
-    private long getRefreshTime() {
-        return Nebula.getConfig().getServerOptions().leaderboardRefreshTime * 1000;
+    /**
+     * Removes the leaderboards of activities that the server is no longer running
+     */
+    public void evictLeaderboards() {
+        this.leaderboards.keySet().removeIf(activityId -> !this.isActive(activityId));
     }
     
-    public synchronized List<JointDrillRankData> getRanking(int activityId) {
-        if (System.currentTimeMillis() > this.nextUpdate) {
-            this.updateRanking(activityId);
+    /**
+     * Updates the player on the leaderboard after their rank entry was settled
+     * @param previousActivityId The activity id of the rank entry before it was settled
+     */
+    public void updateRanking(JointDrillRankEntry entry, int previousActivityId) {
+        // Remove from the last activity's leaderboard
+        if (previousActivityId != entry.getActivityId()) {
+            var leaderboard = this.leaderboards.get(previousActivityId);
+            
+            if (leaderboard != null) {
+                leaderboard.remove(entry.getPlayerUid());
+            }
         }
         
-        return this.ranking;
+        // Update
+        this.putRanking(entry);
     }
-
-    // Cache ranking so we dont query the database too much
-    private void updateRanking(int activityId) {
-        // Clear
-        this.ranking.clear();
-        
-        // Get from database
-        var list = Nebula.getGameDatabase().getSortedObjects(JointDrillRankEntry.class, "activityId", activityId, "score", 50);
+    
+    public void removeRanking(int uid) {
+        for (var leaderboard : this.leaderboards.values()) {
+            leaderboard.remove(uid);
+        }
+    }
+    
+    private void putRanking(JointDrillRankEntry entry) {
+        // Don't create leaderboards for activities that are over
+        if (!this.isActive(entry.getActivityId())) {
+            return;
+        }
         
-        for (int i = 0; i < list.size(); i++) {
-            // Get rank entry and set proto
-            var entry = list.get(i);
-            entry.setRank(i + 1);
-            
-            // Add to ranking
-            this.ranking.add(entry.toProto());
+        this.getLeaderboard(entry.getActivityId()).put(entry.getPlayerUid(), entry.getScore(), entry.getTime(), entry.toProto());
+    }
+    
+    private void loadLeaderboards() {
+        // Sanity check
+        if (Nebula.getGameDatabase() == null) {
+            return;
         }
         
-        this.nextUpdate = System.currentTimeMillis() + this.getRefreshTime();
-        this.lastUpdate = Nebula.getCurrentServerTime();
+        // Add every rank entry to the leaderboard of its activity
+        try (var stream = Nebula.getGameDatabase().getObjects(JointDrillRankEntry.class)) {
+            stream.forEach(this::putRanking);
+        }
+    }
+    
+    /**
+     * Replaces the player info in these ranking protos with the current player summaries
+     */
+    public void refreshPlayerInfo(RepeatedMessage<JointDrillRankData> ranking) {
+        PLAYER_INFO.refresh(ranking, this.getGameContext().getPlayerModule().getSummaryCache());
     }
 }
@@ -5,6 +5,7 @@ import java.util.List;
 
 import dev.morphia.annotations.Entity;
 import dev.morphia.annotations.Id;
+import emu.nebula.Nebula;
 import emu.nebula.data.GameData;
 import emu.nebula.database.GameDatabaseObject;
 import emu.nebula.game.player.Player;
@@ -36,6 +37,7 @@ public class JointDrillRankEntry implements GameDatabaseObject {
     private int[] honor;
     private int[] honorAff;
     private int score;
+    private long time; // When the current score was reached
     private IntSet claimedRewards;
     
     private int activityId;
@@ -102,11 +104,15 @@ public class JointDrillRankEntry implements GameDatabaseObject {
         }
         
         // Calculate score
-        this.score = score;
+        if (this.score != score) {
+            this.score = score;
+            this.time = Nebula.getCurrentServerTime();
+        }
     }
     
     private void reset() {
         this.score = 0;
+        this.time = 0;
         this.getClaimedRewards().clear();
         this.getTeams().clear();
     }
@@ -0,0 +1,257 @@
+package emu.nebula.game.leaderboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ranked list of players backed by an immutable order statistic tree (treap). Writers are serialized and publish
+ * a new tree root on every change, only copying the path to the changed node. Readers take a {@link Snapshot}
+ * of the current root and never block writers.
+ */
+public class Leaderboard<T> {
+    private final Map<Integer, LeaderboardEntry<T>> entries;
+    private volatile Snapshot<T> snapshot;
+    
+    public Leaderboard() {
+        this.entries = new ConcurrentHashMap<>();
+        this.snapshot = new Snapshot<>(null);
+    }
+    
+    public int size() {
+        return this.getSnapshot().size();
+    }
+    
+    public Snapshot<T> getSnapshot() {
+        return this.snapshot;
+    }
+    
+    public LeaderboardEntry<T> getEntry(int uid) {
+        return this.entries.get(uid);
+    }
+    
+    /**
+     * Returns the 1-based rank of the player, or 0 if the player is not on this leaderboard
+     */
+    public int getRank(int uid) {
+        var entry = this.getEntry(uid);
+        
+        if (entry == null) {
+            return 0;
+        }
+        
+        return this.getSnapshot().getRank(entry);
+    }
+    
+    // Update
+    
+    /**
+     * Adds the player to the leaderboard, or replaces their current entry
+     */
+    public synchronized void put(int uid, long score, long time, T value) {
+        var entry = new LeaderboardEntry<>(uid, score, time, value);
+        var root = this.getSnapshot().root;
+        
+        // Remove old entry
+        var old = this.entries.get(uid);
+        
+        if (old != null) {
+            root = remove(root, old);
+        }
+        
+        // Insert new entry and publish
+        root = insert(root, entry);
+        
+        this.snapshot = new Snapshot<>(root);
+        this.entries.put(uid, entry);
+    }
+    
+    public synchronized void remove(int uid) {
+        var old = this.entries.get(uid);
+        
+        if (old == null) {
+            return;
+        }
+        
+        this.snapshot = new Snapshot<>(remove(this.getSnapshot().root, old));
+        this.entries.remove(uid);
+    }
+    
+    // Snapshot
+    
+    /**
+     * Immutable view of a leaderboard at one point in time
+     */
+    public static class Snapshot<T> {
+        private final Node<T> root;
+        
+        private Snapshot(Node<T> root) {
+            this.root = root;
+        }
+        
+        public int size() {
+            return sizeOf(this.root);
+        }
+        
+        /**
+         * Returns the 1-based rank that this entry has (or would have) on the leaderboard
+         */
+        public int getRank(LeaderboardEntry<T> entry) {
+            int rank = 1;
+            var node = this.root;
+            
+            while (node != null) {
+                int cmp = node.entry.compareTo(entry);
+                
+                if (cmp < 0) {
+                    rank += sizeOf(node.left) + 1;
+                    node = node.right;
+                } else if (cmp > 0) {
+                    node = node.left;
+                } else {
+                    return rank + sizeOf(node.left);
+                }
+            }
+            
+            return rank;
+        }
+        
+        /**
+         * Returns the entry at this 0-based index
+         */
+        public LeaderboardEntry<T> get(int index) {
+            var node = this.root;
+            
+            while (node != null) {
+                int leftSize = sizeOf(node.left);
+                
+                if (index < leftSize) {
+                    node = node.left;
+                } else if (index > leftSize) {
+                    index -= leftSize + 1;
+                    node = node.right;
+                } else {
+                    return node.entry;
+                }
+            }
+            
+            return null;
+        }
+        
+        /**
+         * Returns up to count entries, starting at the 0-based index. The rank of each entry is start + i + 1.
+         */
+        public List<LeaderboardEntry<T>> getPage(int start, int count) {
+            start = Math.max(start, 0);
+            int end = Math.min(start + count, this.size());
+            
+            var list = new ArrayList<LeaderboardEntry<T>>(Math.max(end - start, 0));
+            
+            for (int i = start; i < end; i++) {
+                list.add(this.get(i));
+            }
+            
+            return list;
+        }
+        
+        public List<LeaderboardEntry<T>> getTop(int count) {
+            return this.getPage(0, count);
+        }
+        
+        /**
+         * Returns the entries around this entry. The first entry in the list has the rank getRank(entry) - before,
+         * or 1 if that would be less than 1.
+         */
+        public List<LeaderboardEntry<T>> getAround(LeaderboardEntry<T> entry, int before, int after) {
+            int index = this.getRank(entry) - 1;
+            return this.getPage(index - before, before + after + 1);
+        }
+    }
+    
+    // Tree
+    
+    private static class Node<T> {
+        private final LeaderboardEntry<T> entry;
+        private final int priority;
+        private final int size;
+        private final Node<T> left;
+        private final Node<T> right;
+        
+        private Node(LeaderboardEntry<T> entry, int priority, Node<T> left, Node<T> right) {
+            this.entry = entry;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = sizeOf(left) + sizeOf(right) + 1;
+        }
+        
+        private Node<T> with(Node<T> left, Node<T> right) {
+            return new Node<>(this.entry, this.priority, left, right);
+        }
+    }
+    
+    private static int sizeOf(Node<?> node) {
+        return node != null ? node.size : 0;
+    }
+    
+    private static <T> Node<T> insert(Node<T> node, LeaderboardEntry<T> entry) {
+        var parts = split(node, entry);
+        var added = new Node<>(entry, ThreadLocalRandom.current().nextInt(), null, null);
+        
+        return merge(merge(parts.left(), added), parts.right());
+    }
+    
+    private static <T> Node<T> remove(Node<T> node, LeaderboardEntry<T> entry) {
+        if (node == null) {
+            return null;
+        }
+        
+        int cmp = node.entry.compareTo(entry);
+        
+        if (cmp < 0) {
+            return node.with(node.left, remove(node.right, entry));
+        } else if (cmp > 0) {
+            return node.with(remove(node.left, entry), node.right);
+        } else {
+            return merge(node.left, node.right);
+        }
+    }
+    
+    /**
+     * Splits the tree into the nodes that come before the entry (left) and all other nodes (right)
+     */
+    private static <T> Split<T> split(Node<T> node, LeaderboardEntry<T> entry) {
+        if (node == null) {
+            return new Split<>(null, null);
+        }
+        
+        if (node.entry.compareTo(entry) < 0) {
+            var parts = split(node.right, entry);
+            return new Split<>(node.with(node.left, parts.left()), parts.right());
+        } else {
+            var parts = split(node.left, entry);
+            return new Split<>(parts.left(), node.with(parts.right(), node.right));
+        }
+    }
+    
+    private record Split<T>(Node<T> left, Node<T> right) {}
+    
+    /**
+     * Merges two trees, every node in left must come before every node in right
+     */
+    private static <T> Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        } else if (right == null) {
+            return left;
+        }
+        
+        if (left.priority > right.priority) {
+            return left.with(left.left, merge(left.right, right));
+        } else {
+            return right.with(merge(left, right.left), right.right);
+        }
+    }
+}
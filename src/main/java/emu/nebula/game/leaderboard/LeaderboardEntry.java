@@ -0,0 +1,21 @@
+package emu.nebula.game.leaderboard;
+
+/**
+ * A single player on a leaderboard. Entries are sorted by score (highest first), then by the time the score
+ * was reached (earliest first) and then by player uid.
+ */
+public record LeaderboardEntry<T>(int uid, long score, long time, T value) implements Comparable<LeaderboardEntry<T>> {
+
+    @Override
+    public int compareTo(LeaderboardEntry<T> other) {
+        if (this.score != other.score) {
+            return Long.compare(other.score, this.score);
+        }
+        
+        if (this.time != other.time) {
+            return Long.compare(this.time, other.time);
+        }
+        
+        return Integer.compare(this.uid, other.uid);
+    }
+}
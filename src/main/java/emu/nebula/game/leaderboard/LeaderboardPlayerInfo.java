@@ -0,0 +1,69 @@
+package emu.nebula.game.leaderboard;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToLongFunction;
+
+import emu.nebula.game.player.PlayerSummaryCache;
+import emu.nebula.proto.Public.HonorInfo;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import us.hebi.quickbuf.RepeatedMessage;
+
+/**
+ * Replaces the player info (name, level, head icon, titles and honors) in ranking protos with the current player
+ * summaries, since leaderboard entries only have the player info from when the score was settled. The ranking protos
+ * of each leaderboard have the same fields but no common type, so the fields are accessed through these functions.
+ */
+public record LeaderboardPlayerInfo<T>(
+    ToLongFunction<T> uid,
+    BiConsumer<T, String> name,
+    ObjIntConsumer<T> level,
+    ObjIntConsumer<T> headIcon,
+    ObjIntConsumer<T> titlePrefix,
+    ObjIntConsumer<T> titleSuffix,
+    Function<T, RepeatedMessage<HonorInfo>> honors
+) {
+    
+    public void refresh(Iterable<T> ranking, PlayerSummaryCache summaryCache) {
+        // Get summaries
+        var uids = new IntArrayList();
+        
+        for (var data : ranking) {
+            uids.add((int) this.uid.applyAsLong(data));
+        }
+        
+        var summaries = summaryCache.getAll(uids);
+        
+        // Update player info
+        for (var data : ranking) {
+            var summary = summaries.get((int) this.uid.applyAsLong(data));
+            
+            if (summary == null) {
+                continue;
+            }
+            
+            this.name.accept(data, summary.getName());
+            this.level.accept(data, summary.getLevel());
+            this.headIcon.accept(data, summary.getHeadIcon());
+            this.titlePrefix.accept(data, summary.getTitlePrefix());
+            this.titleSuffix.accept(data, summary.getTitleSuffix());
+            
+            // Summaries don't have affinity levels, so keep the ones of honors that didn't change
+            var honors = this.honors.apply(data);
+            var affinityLevels = new int[summary.getHonor().length];
+            
+            for (int i = 0; i < affinityLevels.length && i < honors.length(); i++) {
+                if (honors.get(i).getId() == summary.getHonor()[i]) {
+                    affinityLevels[i] = honors.get(i).getAffinityLV();
+                }
+            }
+            
+            honors.clear();
+            
+            for (int i = 0; i < affinityLevels.length; i++) {
+                honors.add(HonorInfo.newInstance().setId(summary.getHonor()[i]).setAffinityLV(affinityLevels[i]));
+            }
+        }
+    }
+}
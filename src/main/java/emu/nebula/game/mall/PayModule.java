@@ -296,20 +296,17 @@ public class PayModule extends GameContextModule {
         }
 
         var display = new PlayerChangeInfo();
-        for (var any : change.getList()) {
-            String typeUrl = any.getTypeUrl();
-            if (typeUrl.endsWith(Item.class.getSimpleName()) || typeUrl.endsWith(Res.class.getSimpleName())) {
-                display.getList().add(any.clone());
+        display.getResources().putAll(change.getResources());
+        display.getItems().putAll(change.getItems());
+
+        for (var proto : change.getProtos()) {
+            if (proto instanceof Item || proto instanceof Res) {
+                display.getProtos().add(proto);
                 continue;
             }
 
-            if (typeUrl.endsWith(HeadIcon.class.getSimpleName())) {
-                try {
-                    var headIcon = HeadIcon.parseFrom(any.getValue().toArray());
-                    display.add(Item.newInstance().setTid(headIcon.getTid()).setQty(1));
-                } catch (Exception ignored) {
-                    // ignore
-                }
+            if (proto instanceof HeadIcon headIcon) {
+                display.addItem(headIcon.getTid(), 1);
             }
         }
 
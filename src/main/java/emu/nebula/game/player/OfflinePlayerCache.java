@@ -0,0 +1,146 @@
+package emu.nebula.game.player;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+/**
+ * Keeps players that recently went offline in memory, so they don't have to be loaded from the database again
+ * if they log back in. Players are evicted in the order they went offline, once they have been offline for
+ * too long or when the cache is full.
+ * <p>
+ * Evicted players are returned to the caller, which is responsible for unloading them.
+ * <p>
+ * Lookups by uid read a concurrent map without locking. Only changes to the cache, which also have to update the
+ * eviction order, are synchronized.
+ */
+public class OfflinePlayerCache {
+    private final Map<Integer, Player> players;
+
+    // Guarded by this
+    private final Map<Integer, CachedPlayer> evictionOrder;
+    private final Object2ObjectMap<String, Player> playersByAccount;
+
+    private final int maxSize;
+    private final long maxTime;
+
+    public OfflinePlayerCache(int maxSize, long maxTime) {
+        this.players = new ConcurrentHashMap<>();
+        this.evictionOrder = new LinkedHashMap<>();
+        this.playersByAccount = new Object2ObjectOpenHashMap<>();
+        this.maxSize = maxSize;
+        this.maxTime = maxTime;
+    }
+
+    public int size() {
+        return this.players.size();
+    }
+
+    public Player get(int uid) {
+        return this.players.get(uid);
+    }
+
+    /**
+     * Adds a player that just went offline
+     * @return Players that were evicted to make room
+     */
+    public synchronized List<Player> add(Player player, long time) {
+        // Don't keep any players if the cache is disabled
+        if (this.maxSize <= 0 || this.maxTime <= 0) {
+            return List.of(player);
+        }
+
+        // Re-add so the player is moved to the back of the eviction order
+        this.evictionOrder.remove(player.getUid());
+        this.evictionOrder.put(player.getUid(), new CachedPlayer(player, time));
+        this.players.put(player.getUid(), player);
+        this.playersByAccount.put(player.getAccountUid(), player);
+
+        // Evict oldest players
+        List<Player> evicted = null;
+        var it = this.evictionOrder.values().iterator();
+
+        while (this.evictionOrder.size() > this.maxSize) {
+            var cached = it.next();
+            it.remove();
+
+            evicted = this.onEvict(cached, evicted);
+        }
+
+        return evicted != null ? evicted : List.of();
+    }
+
+    /**
+     * Removes the player with this uid from the cache
+     */
+    public synchronized Player remove(int uid) {
+        var cached = this.evictionOrder.remove(uid);
+
+        if (cached == null) {
+            return null;
+        }
+
+        this.players.remove(uid);
+        this.playersByAccount.remove(cached.player().getAccountUid());
+        return cached.player();
+    }
+
+    /**
+     * Removes the player with this account from the cache
+     */
+    public synchronized Player removeByAccount(String accountUid) {
+        var player = this.playersByAccount.remove(accountUid);
+
+        if (player != null) {
+            this.evictionOrder.remove(player.getUid());
+            this.players.remove(player.getUid());
+        }
+
+        return player;
+    }
+
+    /**
+     * Removes all players that have been offline for too long
+     * @return Players that were evicted
+     */
+    public synchronized List<Player> expire(long time) {
+        List<Player> evicted = null;
+        var it = this.evictionOrder.values().iterator();
+
+        // Players are ordered by the time they went offline, so we can stop at the first one that is still valid
+        while (it.hasNext()) {
+            var cached = it.next();
+
+            if (cached.time() + this.maxTime > time) {
+                break;
+            }
+
+            it.remove();
+
+            evicted = this.onEvict(cached, evicted);
+        }
+
+        return evicted != null ? evicted : List.of();
+    }
+
+    private List<Player> onEvict(CachedPlayer cached, List<Player> evicted) {
+        this.players.remove(cached.player().getUid());
+        this.playersByAccount.remove(cached.player().getAccountUid());
+
+        if (evicted == null) {
+            evicted = new ArrayList<>();
+        }
+
+        evicted.add(cached.player());
+        return evicted;
+    }
+
+    private static record CachedPlayer(Player player, long time) {
+
+    }
+}
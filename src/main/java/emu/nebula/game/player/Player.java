@@ -14,11 +14,15 @@ import emu.nebula.game.achievement.AchievementCondition;
 import emu.nebula.game.achievement.AchievementManager;
 import emu.nebula.game.activity.ActivityManager;
 import emu.nebula.game.agent.AgentManager;
+import emu.nebula.game.battlepass.BattlePass;
 import emu.nebula.game.battlepass.BattlePassManager;
 import emu.nebula.game.character.CharacterStorage;
+import emu.nebula.game.character.GameCharacter;
+import emu.nebula.game.character.GameDisc;
 import emu.nebula.game.dating.DatingManager;
 import emu.nebula.game.formation.FormationManager;
 import emu.nebula.game.friends.FriendList;
+import emu.nebula.game.friends.Friendship;
 import emu.nebula.game.gacha.GachaManager;
 import emu.nebula.game.infinitytower.InfinityTowerManager;
 import emu.nebula.game.instance.InstanceManager;
@@ -28,7 +32,9 @@ import emu.nebula.game.quest.QuestCondition;
 import emu.nebula.game.quest.QuestManager;
 import emu.nebula.game.scoreboss.ScoreBossManager;
 import emu.nebula.game.story.StoryManager;
+import emu.nebula.game.tower.StarTowerBuild;
 import emu.nebula.game.tower.StarTowerManager;
+import emu.nebula.game.tower.StarTowerPotentialPreset;
 import emu.nebula.game.vampire.VampireSurvivorManager;
 import emu.nebula.net.GameSession;
 import emu.nebula.net.NetMsgId;
@@ -48,6 +54,7 @@ import us.hebi.quickbuf.ProtoMessage;
 import us.hebi.quickbuf.RepeatedInt;
 
 import java.lang.String;
+import java.util.Arrays;
 import java.util.Stack;
 
 @Getter
@@ -213,6 +220,13 @@ public class Player implements GameDatabaseObject {
     public boolean hasSession() {
         return this.session != null;
     }
+    
+    /**
+     * Updates the cached summary of this player. Should be called whenever a field that other players can see is changed.
+     */
+    private void updateSummary() {
+        Nebula.getGameContext().getPlayerModule().getSummaryCache().update(this);
+    }
 
     public void setLevel(int level) {
         int oldLevel = this.level;
@@ -222,6 +236,7 @@ public class Player implements GameDatabaseObject {
         
         // Save to database
         Nebula.getGameDatabase().update(this, this.getUid(), "level", this.level);
+        this.updateSummary();
         
         // Trigger achievement
         this.trigger(AchievementCondition.WorldClassSpecific, this.getLevel());
@@ -273,6 +288,7 @@ public class Player implements GameDatabaseObject {
         
         // Update in database
         Nebula.getGameDatabase().update(this, this.getUid(), "name", this.getName());
+        this.updateSummary();
         
         // Success
         return true;
@@ -305,6 +321,7 @@ public class Player implements GameDatabaseObject {
         
         // Update in database
         Nebula.getGameDatabase().update(this, this.getUid(), "titlePrefix", this.getTitlePrefix(), "titleSuffix", this.getTitleSuffix());
+        this.updateSummary();
         
         return true;
     }
@@ -325,6 +342,7 @@ public class Player implements GameDatabaseObject {
         
         // Update in database
         Nebula.getGameDatabase().update(this, this.getUid(), "headIcon", this.getHeadIcon());
+        this.updateSummary();
         
         // Success
         return true;
@@ -346,6 +364,7 @@ public class Player implements GameDatabaseObject {
         
         // Update in database
         Nebula.getGameDatabase().update(this, this.getUid(), "signature", this.getSignature());
+        this.updateSummary();
         
         // Success
         return true;
@@ -415,6 +434,7 @@ public class Player implements GameDatabaseObject {
         
         // Update in database
         Nebula.getGameDatabase().update(this, this.getUid(), "showChars", this.getShowChars());
+        this.updateSummary();
         
         // Success
         return true;
@@ -460,6 +480,7 @@ public class Player implements GameDatabaseObject {
         
         // Update in database
         Nebula.getGameDatabase().update(this, this.getUid(), "honor", this.getHonor());
+        this.updateSummary();
         
         // Success
         return true;
@@ -772,9 +793,7 @@ public class Player implements GameDatabaseObject {
     
     // Login
     
-    private <T extends PlayerManager> T loadManagerFromDatabase(Class<T> cls) {
-        var manager = Nebula.getGameDatabase().getObjectByField(cls, "_id", this.getUid());
-        
+    private <T extends PlayerManager> T loadManager(Class<T> cls, T manager) {
         if (manager != null) {
             manager.setPlayer(this);
             manager.onLoad();
@@ -793,28 +812,51 @@ public class Player implements GameDatabaseObject {
      * Called when the player is loaded from the database
      */
     public void onLoad() {
+        // Fetch player data from the database in parallel
+        var loader = new PlayerLoader(this);
+        
+        var characters = loader.fetchAll(GameCharacter.class);
+        var discs = loader.fetchAll(GameDisc.class);
+        var friendships = loader.fetchAll(Friendship.class);
+        var builds = loader.fetchAll(StarTowerBuild.class);
+        var presets = loader.fetchAll(StarTowerPotentialPreset.class);
+        var battlePass = loader.fetch(BattlePass.class);
+        
+        var inventory = this.inventory == null ? loader.fetch(Inventory.class) : null;
+        var formations = loader.fetch(FormationManager.class);
+        var mailbox = loader.fetch(Mailbox.class);
+        var progress = loader.fetch(PlayerProgress.class);
+        var gachaManager = loader.fetch(GachaManager.class);
+        var storyManager = loader.fetch(StoryManager.class);
+        var questManager = loader.fetch(QuestManager.class);
+        var achievementManager = loader.fetch(AchievementManager.class);
+        var agentManager = loader.fetch(AgentManager.class);
+        var activityManager = loader.fetch(ActivityManager.class);
+        
+        loader.join();
+        
         // Load from database
-        this.getCharacters().loadFromDatabase();
-        this.getFriendList().loadFromDatabase();
-        this.getStarTowerManager().loadFromDatabase();
-        this.getBattlePassManager().loadFromDatabase();
+        this.getCharacters().loadFromDatabase(characters.join(), discs.join());
+        this.getFriendList().loadFromDatabase(friendships.join());
+        this.getStarTowerManager().loadFromDatabase(builds.join(), presets.join());
+        this.getBattlePassManager().loadFromDatabase(battlePass.join());
         
         // Load inventory before referenced classes
         if (this.inventory == null) {
-            this.inventory = this.loadManagerFromDatabase(Inventory.class);
+            this.inventory = this.loadManager(Inventory.class, inventory.join());
         }
         this.getInventory().migrateFromDatabase();
         
         // Load referenced classes from the database
-        this.formations = this.loadManagerFromDatabase(FormationManager.class);
-        this.mailbox = this.loadManagerFromDatabase(Mailbox.class);
-        this.progress = this.loadManagerFromDatabase(PlayerProgress.class);
-        this.gachaManager = this.loadManagerFromDatabase(GachaManager.class);
-        this.storyManager = this.loadManagerFromDatabase(StoryManager.class);
-        this.questManager = this.loadManagerFromDatabase(QuestManager.class);
-        this.achievementManager = this.loadManagerFromDatabase(AchievementManager.class);
-        this.agentManager = this.loadManagerFromDatabase(AgentManager.class);
-        this.activityManager = this.loadManagerFromDatabase(ActivityManager.class);
+        this.formations = this.loadManager(FormationManager.class, formations.join());
+        this.mailbox = this.loadManager(Mailbox.class, mailbox.join());
+        this.progress = this.loadManager(PlayerProgress.class, progress.join());
+        this.gachaManager = this.loadManager(GachaManager.class, gachaManager.join());
+        this.storyManager = this.loadManager(StoryManager.class, storyManager.join());
+        this.questManager = this.loadManager(QuestManager.class, questManager.join());
+        this.achievementManager = this.loadManager(AchievementManager.class, achievementManager.join());
+        this.agentManager = this.loadManager(AgentManager.class, agentManager.join());
+        this.activityManager = this.loadManager(ActivityManager.class, activityManager.join());
         
         // Database fixes
         if (this.showChars == null) {
@@ -839,6 +881,15 @@ public class Player implements GameDatabaseObject {
         this.loaded = true;
     }
 
+    /**
+     * Called when an offline player is taken out of the offline player cache on login. Everything that onLoad reads
+     * from the database is still in memory, but activities depend on which activities the server is running now,
+     * so they are set up again.
+     */
+    public void onRestore() {
+        this.getActivityManager().init();
+    }
+
     public void onCreate() {
         // Send welcome mail
         this.getMailbox().sendWelcomeMail();
@@ -854,6 +905,30 @@ public class Player implements GameDatabaseObject {
         // Update last login time
         this.lastLogin = System.currentTimeMillis();
         Nebula.getGameDatabase().update(this, this.getUid(), "lastLogin", this.getLastLogin());
+        this.updateSummary();
+    }
+    
+    /**
+     * Called when the player is removed from memory after being offline
+     */
+    public void onUnload() {
+        // Save the player right away. Writes made while handling requests were already committed at the end of
+        // each request, so this only catches changes that were never saved. It doesn't go through the write batch
+        // because that belongs to the thread that is evicting the player, not to this player.
+        var db = Nebula.getGameDatabase();
+        
+        for (var obj : Arrays.asList(this, inventory, formations, mailbox, progress, gachaManager, storyManager,
+                questManager, achievementManager, agentManager, activityManager)) {
+            if (obj != null) {
+                db.saveNow(obj);
+            }
+        }
+        
+        // Clear packages that were queued while the player was offline
+        this.getNextPackages().clear();
+        
+        // Any code that still has a reference to this player should use the database from now on
+        this.loaded = false;
     }
 
     /**
@@ -1310,33 +1385,7 @@ public class Player implements GameDatabaseObject {
     }
 
     public Friend getFriendProto() {
-        var proto = Friend.newInstance()
-                .setId(this.getUid())
-                .setWorldClass(this.getLevel())
-                .setHeadIcon(this.getHeadIcon())
-                .setNickName(this.getName())
-                .setSignature(this.getSignature())
-                .setTitlePrefix(this.getTitlePrefix())
-                .setTitleSuffix(this.getTitleSuffix())
-                .setLastLoginTime(this.getLastLogin() * 1_000_000L);
-        
-        for (int charId : this.getShowChars()) {
-            var info = CharShow.newInstance()
-                    .setCharId(charId)
-                    .setLevel(1)                    // TODO
-                    .setSkin((charId * 100) + 1);   // TODO
-            
-            proto.addCharShows(info);
-        }
-        
-        for (int honorId : this.getHonor()) {
-            var info = HonorInfo.newInstance()
-                    .setId(honorId);
-            
-            proto.addHonors(info);
-        }
-        
-        return proto;
+        return new PlayerSummary(this).toProto();
     }
     
     public Energy getEnergyProto() {
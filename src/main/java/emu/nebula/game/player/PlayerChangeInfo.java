@@ -4,56 +4,127 @@ import java.util.ArrayList;
 import java.util.List;
 
 import emu.nebula.GameConstants;
-import emu.nebula.proto.AnyOuterClass.Any;
 import emu.nebula.proto.Public.ChangeInfo;
+import emu.nebula.proto.Public.Item;
+import emu.nebula.proto.Public.Res;
+import it.unimi.dsi.fastutil.ints.Int2IntLinkedOpenHashMap;
 import lombok.Getter;
 import us.hebi.quickbuf.ProtoMessage;
 
+/**
+ * Changes made to a player during a request. Resource and item deltas are merged by tid, everything else is kept as
+ * a list of protos. Nothing is serialized until {@link #toProto()} is called when the response is built.
+ */
 @Getter
 public class PlayerChangeInfo {
+    // Type urls are only built once for each proto class
+    private static final ClassValue<String> TYPE_URLS = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return GameConstants.PROTO_BASE_TYPE_URL + type.getSimpleName();
+        }
+    };
+
     private boolean success;
-    private List<Any> list;
+    private Int2IntLinkedOpenHashMap resources;
+    private Int2IntLinkedOpenHashMap items;
+    private List<ProtoMessage<?>> protos;
     private Object extraData;
-    
+
     public PlayerChangeInfo() {
-        this.list = new ArrayList<>();
+        this.resources = new Int2IntLinkedOpenHashMap();
+        this.items = new Int2IntLinkedOpenHashMap();
+        this.protos = new ArrayList<>();
     }
-    
+
     public PlayerChangeInfo setSuccess(boolean success) {
         this.success = success;
         return this;
     }
 
     public boolean isEmpty() {
-        return this.list == null || this.list.isEmpty();
+        return this.resources.isEmpty() && this.items.isEmpty() && this.protos.isEmpty();
     }
-    
+
     public PlayerChangeInfo setExtraData(Object extraData) {
         this.extraData = extraData;
         return this;
     }
 
+    public void addResource(int tid, int qty) {
+        this.resources.addTo(tid, qty);
+    }
+
+    public void addItem(int tid, int qty) {
+        this.items.addTo(tid, qty);
+    }
+
+    /**
+     * Adds a proto to this change. Resource and item protos are merged with the other deltas of the same tid. The
+     * proto should not be changed after it is added, since it is serialized later.
+     */
     public void add(ProtoMessage<?> proto) {
-        var any = Any.newInstance()
-                .setTypeUrl(GameConstants.PROTO_BASE_TYPE_URL + proto.getClass().getSimpleName())
-                .setValue(proto.toByteArray());
-        
-        this.list.add(any);
+        if (proto instanceof Res res) {
+            this.addResource(res.getTid(), res.getQty());
+        } else if (proto instanceof Item item && !item.hasId() && !item.hasExpire()) {
+            this.addItem(item.getTid(), item.getQty());
+        } else {
+            this.protos.add(proto);
+        }
     }
-    
+
     public void add(PlayerChangeInfo otherChange) {
-        this.getList().addAll(otherChange.getList());
+        for (var entry : otherChange.getResources().int2IntEntrySet()) {
+            this.addResource(entry.getIntKey(), entry.getIntValue());
+        }
+
+        for (var entry : otherChange.getItems().int2IntEntrySet()) {
+            this.addItem(entry.getIntKey(), entry.getIntValue());
+        }
+
+        this.protos.addAll(otherChange.getProtos());
     }
-    
+
     // Proto
-    
+
     public ChangeInfo toProto() {
         var proto = ChangeInfo.newInstance();
-        
-        for (var any : this.getList()) {
-            proto.addProps(any);
+
+        // Resources
+        if (!this.resources.isEmpty()) {
+            var res = Res.newInstance();
+
+            for (var entry : this.resources.int2IntEntrySet()) {
+                if (entry.getIntValue() == 0) continue;
+
+                res.setTid(entry.getIntKey()).setQty(entry.getIntValue());
+                addProp(proto, res);
+            }
         }
-        
+
+        // Items
+        if (!this.items.isEmpty()) {
+            var item = Item.newInstance();
+
+            for (var entry : this.items.int2IntEntrySet()) {
+                if (entry.getIntValue() == 0) continue;
+
+                item.setTid(entry.getIntKey()).setQty(entry.getIntValue());
+                addProp(proto, item);
+            }
+        }
+
+        // Everything else
+        for (var other : this.protos) {
+            addProp(proto, other);
+        }
+
         return proto;
     }
+
+    private static void addProp(ChangeInfo changeInfo, ProtoMessage<?> proto) {
+        changeInfo.getMutableProps().next()
+                .setTypeUrl(TYPE_URLS.get(proto.getClass()))
+                .setValue(proto.toByteArray());
+    }
 }
@@ -0,0 +1,112 @@
+package emu.nebula.game.player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import emu.nebula.Nebula;
+import emu.nebula.metrics.Metrics;
+
+/**
+ * Fetches the documents that make up a player from the database in parallel on virtual threads.
+ * The fetched objects are only returned to the caller after {@link #join()}, so the caller can
+ * still attach them to the player in a fixed order.
+ * <p>
+ * Fetch times are exported as metrics, and each load is also logged at debug level.
+ */
+public class PlayerLoader {
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Player player;
+    private final List<CompletableFuture<?>> tasks;
+    private final List<LoadTiming> timings;
+    private final long startTime;
+
+    public PlayerLoader(Player player) {
+        this.player = player;
+        this.tasks = new ArrayList<>();
+        this.timings = new ArrayList<>();
+        this.startTime = System.nanoTime();
+
+        // Make sure any pending writes from this thread are visible to our queries
+        Nebula.getGameDatabase().flushWriteBatch();
+    }
+
+    public List<LoadTiming> getTimings() {
+        return this.timings;
+    }
+
+    /**
+     * Fetches the document with the player's uid as its id
+     */
+    public <T> CompletableFuture<T> fetch(Class<T> cls) {
+        return this.submit(cls.getSimpleName(), () -> {
+            return Nebula.getGameDatabase().getObjectByField(cls, "_id", this.player.getUid());
+        });
+    }
+
+    /**
+     * Fetches all documents that are owned by the player
+     */
+    public <T> CompletableFuture<List<T>> fetchAll(Class<T> cls) {
+        return this.submit(cls.getSimpleName(), () -> {
+            return Nebula.getGameDatabase().getObjects(cls, "playerUid", this.player.getUid()).toList();
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(String name, Supplier<T> supplier) {
+        var task = CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+
+            try {
+                return supplier.get();
+            } finally {
+                this.addTiming(name, System.nanoTime() - start);
+            }
+        }, executor);
+
+        this.tasks.add(task);
+
+        return task;
+    }
+
+    private synchronized void addTiming(String name, long time) {
+        this.timings.add(new LoadTiming(name, time));
+        Metrics.recordPlayerFetch(name, time);
+    }
+
+    /**
+     * Waits for all fetches to complete
+     */
+    public void join() {
+        // Wait for all tasks
+        CompletableFuture.allOf(this.tasks.toArray(CompletableFuture[]::new)).join();
+
+        long total = System.nanoTime() - this.startTime;
+        Metrics.recordPlayerLoad(total);
+
+        // Log timings
+        if (Nebula.getLogger().isDebugEnabled()) {
+            var builder = new StringBuilder();
+
+            for (var timing : this.getTimings()) {
+                if (builder.length() > 0) {
+                    builder.append(", ");
+                }
+
+                builder.append(timing.name()).append('=').append(timing.millis()).append("ms");
+            }
+
+            Nebula.getLogger().debug("Fetched player " + this.player.getUid() + " in " + (total / 1_000_000L) + "ms (" + builder + ")");
+        }
+    }
+
+    public record LoadTiming(String name, long nanos) {
+        public long millis() {
+            return this.nanos / 1_000_000L;
+        }
+    }
+}
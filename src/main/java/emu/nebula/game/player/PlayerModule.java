@@ -2,10 +2,11 @@ package emu.nebula.game.player;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-import com.mongodb.client.model.Filters;
-
 import emu.nebula.Nebula;
 import emu.nebula.game.GameContext;
 import emu.nebula.game.GameContextModule;
@@ -22,6 +23,7 @@ import emu.nebula.game.gacha.GachaManager;
 import emu.nebula.game.inventory.GameItem;
 import emu.nebula.game.inventory.GameResource;
 import emu.nebula.game.inventory.Inventory;
+import emu.nebula.game.jointdrill.JointDrillRankEntry;
 import emu.nebula.game.mail.Mailbox;
 import emu.nebula.game.quest.QuestManager;
 import emu.nebula.game.scoreboss.ScoreBossRankEntry;
@@ -30,42 +32,98 @@ import emu.nebula.game.tower.StarTowerBuild;
 import emu.nebula.net.GameSession;
 
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntCollection;
 
 public class PlayerModule extends GameContextModule {
-    private final Int2ObjectMap<Player> cachedPlayers;
-    private final Object2ObjectMap<String, Player> cachedPlayersByAccount;
+    // Online players
+    private final Map<Integer, Player> cachedPlayers;
+    private final Map<String, Player> cachedPlayersByAccount;
+    
+    // Recently offline players
+    private final OfflinePlayerCache offlinePlayers;
+    private final PlayerSummaryCache summaryCache;
 
     public PlayerModule(GameContext gameContext) {
         super(gameContext);
 
-        this.cachedPlayers = new Int2ObjectOpenHashMap<>();
-        this.cachedPlayersByAccount = new Object2ObjectOpenHashMap<>();
+        var options = Nebula.getConfig().getServerOptions();
+        
+        this.cachedPlayers = new ConcurrentHashMap<>();
+        this.cachedPlayersByAccount = new ConcurrentHashMap<>();
+        this.offlinePlayers = new OfflinePlayerCache(options.getOfflinePlayerCacheSize(), TimeUnit.SECONDS.toMillis(options.getOfflinePlayerCacheTime()));
+        this.summaryCache = new PlayerSummaryCache(this, options.getPlayerSummaryCacheSize());
     }
 
-    public Int2ObjectMap<Player> getCachedPlayers() {
+    /**
+     * Returns the players that are currently online
+     */
+    public Map<Integer, Player> getCachedPlayers() {
         return cachedPlayers;
     }
     
+    public OfflinePlayerCache getOfflinePlayers() {
+        return offlinePlayers;
+    }
+    
+    public PlayerSummaryCache getSummaryCache() {
+        return summaryCache;
+    }
+    
     private void addToCache(Player player) {
         this.cachedPlayers.put(player.getUid(), player);
         this.cachedPlayersByAccount.put(player.getAccountUid(), player);
     }
     
+    /**
+     * Removes a player that went offline from the online player cache. The player is kept in the offline player cache
+     * for a while, so they dont have to be loaded again if they log back in.
+     */
     public void removeFromCache(Player player) {
-        this.cachedPlayers.remove(player.getUid());
-        this.cachedPlayersByAccount.remove(player.getAccountUid());
+        List<Player> evicted;
+        
+        synchronized (this) {
+            // Skip if the player isnt in the cache
+            if (!this.cachedPlayers.remove(player.getUid(), player)) {
+                return;
+            }
+            
+            this.cachedPlayersByAccount.remove(player.getAccountUid(), player);
+            
+            // Move to offline player cache
+            evicted = this.offlinePlayers.add(player, System.currentTimeMillis());
+        }
+        
+        // Unload evicted players outside of the lock, saving them shouldn't block logins
+        for (var p : evicted) {
+            p.onUnload();
+        }
+    }
+    
+    /**
+     * Unloads players that have been offline for too long
+     */
+    public void cleanupOfflinePlayers() {
+        var evicted = this.offlinePlayers.expire(System.currentTimeMillis());
+        
+        for (var player : evicted) {
+            player.onUnload();
+        }
     }
 
     /**
      * Returns a player object that has been previously cached. Returns null if the player isnt in the cache.
+     * Players that went offline recently are also returned.
      * @param uid User id of the player
      * @return
      */
-    public synchronized Player getCachedPlayerByUid(int uid) {
-        return getCachedPlayers().get(uid);
+    public Player getCachedPlayerByUid(int uid) {
+        Player player = this.cachedPlayers.get(uid);
+        
+        if (player == null) {
+            player = this.offlinePlayers.get(uid);
+        }
+        
+        return player;
     }
     
     /**
@@ -74,9 +132,9 @@ public class PlayerModule extends GameContextModule {
      * @param uid User id of the player
      * @return
      */
-    public synchronized Player getPlayer(int uid) {
+    public Player getPlayer(int uid) {
         // Get player from cache
-        Player player = this.cachedPlayers.get(uid);
+        Player player = this.getCachedPlayerByUid(uid);
 
         if (player == null) {
             // Retrieve player object from database if its not there
@@ -86,6 +144,26 @@ public class PlayerModule extends GameContextModule {
         return player;
     }
     
+    /**
+     * Returns the summary of the player with the given uid. Returns null if the player doesnt exist.
+     * Use this instead of {@link #getPlayer(int)} if only the publicly visible info of the player is needed.
+     * @param uid User id of the player
+     * @return
+     */
+    public PlayerSummary getSummary(int uid) {
+        return this.summaryCache.get(uid);
+    }
+    
+    /**
+     * Returns the summaries of the players with the given uids. Players that arent cached are fetched from the
+     * database in a single query.
+     * @param uids User ids of the players
+     * @return
+     */
+    public Int2ObjectMap<PlayerSummary> getSummaries(IntCollection uids) {
+        return this.summaryCache.getAll(uids);
+    }
+    
     /**
      * Returns a player object with the given account. Returns null if the player doesnt exist.
      * @param uid User id of the player
@@ -94,6 +172,17 @@ public class PlayerModule extends GameContextModule {
     public synchronized Player loadPlayer(Account account) {
         // Get player from cache
         Player player = this.cachedPlayersByAccount.get(account.getUid());
+        
+        if (player == null) {
+            // Get player from offline player cache
+            player = this.offlinePlayers.removeByAccount(account.getUid());
+            
+            if (player != null) {
+                player.onRestore();
+                this.addToCache(player);
+                return player;
+            }
+        }
 
         if (player == null) {
             // Retrieve player object from database if its not there
@@ -150,50 +239,60 @@ public class PlayerModule extends GameContextModule {
     @SuppressWarnings("deprecation")
     public synchronized boolean deletePlayer(int uid) {
         // Make sure player is not online when we are deleting the player
-        Player player = this.getCachedPlayerByUid(uid);
-        if (player != null) {
+        if (this.cachedPlayers.containsKey(uid)) {
             return false;
         }
         
+        // Unload player if they are still in memory
+        var offlinePlayer = this.offlinePlayers.remove(uid);
+        if (offlinePlayer != null) {
+            offlinePlayer.onUnload();
+        }
+        
         // Get player from database
-        player = Nebula.getGameDatabase().getObjectByUid(Player.class, uid);
+        Player player = Nebula.getGameDatabase().getObjectByUid(Player.class, uid);
         if (player == null) {
             return false;
         }
         
-        // Cache filter objects so we can reuse it for our delete queries
-        var multiFilter = Filters.eq("playerUid", uid);
-        var idFilter = Filters.eq("_id", uid);
-        
-        // Get datastore
-        var datastore = Nebula.getGameDatabase().getDatastore();
+        // Get database
+        var db = Nebula.getGameDatabase();
         
         // Delete data from collections
-        datastore.getCollection(GameCharacter.class).deleteMany(multiFilter);
-        datastore.getCollection(GameDisc.class).deleteMany(multiFilter);
-        datastore.getCollection(GameItem.class).deleteMany(multiFilter);
-        datastore.getCollection(GameResource.class).deleteMany(multiFilter);
-        datastore.getCollection(StarTowerBuild.class).deleteMany(multiFilter);
-
-        datastore.getCollection(Inventory.class).deleteOne(idFilter);
-        datastore.getCollection(FormationManager.class).deleteOne(idFilter);
-        datastore.getCollection(Mailbox.class).deleteOne(idFilter);
-        datastore.getCollection(PlayerProgress.class).deleteOne(idFilter);
-        datastore.getCollection(GachaManager.class).deleteOne(idFilter);
-        datastore.getCollection(StoryManager.class).deleteOne(idFilter);
-        datastore.getCollection(QuestManager.class).deleteOne(idFilter);
-        datastore.getCollection(AgentManager.class).deleteOne(idFilter);
-        datastore.getCollection(AchievementManager.class).deleteOne(idFilter);
-        datastore.getCollection(ActivityManager.class).deleteOne(idFilter);
-        
-        datastore.getCollection(BattlePass.class).deleteOne(idFilter);
-        datastore.getCollection(ScoreBossRankEntry.class).deleteOne(idFilter);
+        db.delete(GameCharacter.class, "playerUid", uid);
+        db.delete(GameDisc.class, "playerUid", uid);
+        db.delete(GameItem.class, "playerUid", uid);
+        db.delete(GameResource.class, "playerUid", uid);
+        db.delete(StarTowerBuild.class, "playerUid", uid);
+
+        db.delete(Inventory.class, "_id", uid);
+        db.delete(FormationManager.class, "_id", uid);
+        db.delete(Mailbox.class, "_id", uid);
+        db.delete(PlayerProgress.class, "_id", uid);
+        db.delete(GachaManager.class, "_id", uid);
+        db.delete(StoryManager.class, "_id", uid);
+        db.delete(QuestManager.class, "_id", uid);
+        db.delete(AgentManager.class, "_id", uid);
+        db.delete(AchievementManager.class, "_id", uid);
+        db.delete(ActivityManager.class, "_id", uid);
+        
+        db.delete(BattlePass.class, "_id", uid);
+        db.delete(ScoreBossRankEntry.class, "_id", uid);
+        db.delete(JointDrillRankEntry.class, "_id", uid);
+        
+        // Remove from summary cache
+        this.summaryCache.remove(uid);
+        
+        // Remove from leaderboards
+        this.getGameContext().getScoreBossModule().removeRanking(uid);
+        this.getGameContext().getJointDrillModule().removeRanking(uid);
         
         // Delete friendships
-        datastore.getCollection(Friendship.class).deleteMany(Filters.or(Filters.eq("playerUid", uid), Filters.eq("friendUid", uid)));
+        db.delete(Friendship.class, "playerUid", uid);
+        db.delete(Friendship.class, "friendUid", uid);
         
         // Finally delete the player
-        datastore.getCollection(Player.class).deleteOne(idFilter);
+        db.delete(Player.class, "_id", uid);
         
         // Success
         return true;
@@ -203,7 +302,7 @@ public class PlayerModule extends GameContextModule {
      * Returns a list of recent players that have logged on
      * @param player Player that requested this
      */
-    public synchronized List<Player> getRandomPlayerList(Player player) {
+    public List<Player> getRandomPlayerList(Player player) {
         List<Player> list = getCachedPlayers().values().stream()
                 .filter(p -> p != player)
                 .limit(10)
@@ -0,0 +1,109 @@
+package emu.nebula.game.player;
+
+import java.util.List;
+
+import org.bson.Document;
+
+import emu.nebula.proto.Public.CharShow;
+import emu.nebula.proto.Public.Friend;
+import emu.nebula.proto.Public.HonorInfo;
+import lombok.Getter;
+
+/**
+ * Immutable copy of the player fields that other players can see (friend list, search, etc.)
+ */
+@Getter
+public class PlayerSummary {
+    /**
+     * Player document fields that are needed to create a summary
+     */
+    public static final String[] FIELDS = {
+        "name", "signature", "headIcon", "titlePrefix", "titleSuffix", "honor", "showChars", "level", "lastLogin"
+    };
+
+    private final int uid;
+    private final String name;
+    private final String signature;
+    private final int headIcon;
+    private final int titlePrefix;
+    private final int titleSuffix;
+    private final int[] honor;
+    private final int[] showChars;
+    private final int level;
+    private final long lastLogin;
+
+    public PlayerSummary(Player player) {
+        this.uid = player.getUid();
+        this.name = player.getName();
+        this.signature = player.getSignature();
+        this.headIcon = player.getHeadIcon();
+        this.titlePrefix = player.getTitlePrefix();
+        this.titleSuffix = player.getTitleSuffix();
+        this.honor = player.getHonor() != null ? player.getHonor().clone() : new int[0];
+        this.showChars = player.getShowChars() != null ? player.getShowChars().clone() : new int[0];
+        this.level = player.getLevel();
+        this.lastLogin = player.getLastLogin();
+    }
+
+    /**
+     * Creates a summary from a projected player document
+     */
+    public PlayerSummary(Document doc) {
+        this.uid = doc.getInteger("_id");
+        this.name = doc.get("name", "");
+        this.signature = doc.get("signature", "");
+        this.headIcon = doc.getInteger("headIcon", 0);
+        this.titlePrefix = doc.getInteger("titlePrefix", 0);
+        this.titleSuffix = doc.getInteger("titleSuffix", 0);
+        this.honor = toIntArray(doc.getList("honor", Integer.class));
+        this.showChars = toIntArray(doc.getList("showChars", Integer.class));
+        this.level = doc.getInteger("level", 0);
+        this.lastLogin = doc.get("lastLogin") instanceof Number n ? n.longValue() : 0;
+    }
+
+    private static int[] toIntArray(List<Integer> list) {
+        if (list == null) {
+            return new int[0];
+        }
+
+        var array = new int[list.size()];
+
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+
+        return array;
+    }
+
+    // Proto
+
+    public Friend toProto() {
+        var proto = Friend.newInstance()
+                .setId(this.getUid())
+                .setWorldClass(this.getLevel())
+                .setHeadIcon(this.getHeadIcon())
+                .setNickName(this.getName())
+                .setSignature(this.getSignature())
+                .setTitlePrefix(this.getTitlePrefix())
+                .setTitleSuffix(this.getTitleSuffix())
+                .setLastLoginTime(this.getLastLogin() * 1_000_000L);
+
+        for (int charId : this.getShowChars()) {
+            var info = CharShow.newInstance()
+                    .setCharId(charId)
+                    .setLevel(1)                    // TODO
+                    .setSkin((charId * 100) + 1);   // TODO
+
+            proto.addCharShows(info);
+        }
+
+        for (int honorId : this.getHonor()) {
+            var info = HonorInfo.newInstance()
+                    .setId(honorId);
+
+            proto.addHonors(info);
+        }
+
+        return proto;
+    }
+}
@@ -0,0 +1,115 @@
+package emu.nebula.game.player;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import emu.nebula.Nebula;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntList;
+
+/**
+ * LRU cache of player summaries. Missing summaries are created from online players if possible, otherwise
+ * they are fetched from the database with a projection query, so the full player document is never loaded.
+ * <p>
+ * Summaries are replaced whenever the player changes one of its visible fields.
+ */
+public class PlayerSummaryCache {
+    private final PlayerModule playerModule;
+    private final Map<Integer, PlayerSummary> cache;
+
+    public PlayerSummaryCache(PlayerModule playerModule, int maxSize) {
+        this.playerModule = playerModule;
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, PlayerSummary> eldest) {
+                return this.size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized int size() {
+        return this.cache.size();
+    }
+
+    /**
+     * Returns the summary of the player with the given uid. Returns null if the player doesnt exist.
+     */
+    public PlayerSummary get(int uid) {
+        return this.getAll(IntList.of(uid)).get(uid);
+    }
+
+    /**
+     * Returns the summaries of the players with the given uids. Uids of players that dont exist are not included.
+     * Summaries that aren't cached are fetched from the database in a single query.
+     */
+    public Int2ObjectMap<PlayerSummary> getAll(IntCollection uids) {
+        var results = new Int2ObjectOpenHashMap<PlayerSummary>(uids.size());
+        var missing = new IntArrayList();
+
+        // Get cached summaries
+        synchronized (this) {
+            for (int uid : uids) {
+                var summary = this.cache.get(uid);
+
+                if (summary != null) {
+                    results.put(uid, summary);
+                } else {
+                    missing.add(uid);
+                }
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return results;
+        }
+
+        // Create summaries for online players
+        var query = new IntArrayList();
+
+        for (int uid : missing) {
+            var player = this.playerModule.getCachedPlayerByUid(uid);
+
+            if (player != null) {
+                this.put(results, new PlayerSummary(player));
+            } else {
+                query.add(uid);
+            }
+        }
+
+        // Fetch the rest from the database
+        if (!query.isEmpty()) {
+            var docs = Nebula.getGameDatabase().getProjectedObjects(Player.class, "_id", query, PlayerSummary.FIELDS);
+
+            for (var doc : docs) {
+                this.put(results, new PlayerSummary(doc));
+            }
+        }
+
+        return results;
+    }
+
+    private void put(Int2ObjectMap<PlayerSummary> results, PlayerSummary summary) {
+        results.put(summary.getUid(), summary);
+
+        synchronized (this) {
+            // Don't replace a summary that was updated by the player while we were fetching
+            this.cache.putIfAbsent(summary.getUid(), summary);
+        }
+    }
+
+    /**
+     * Replaces the cached summary of this player
+     */
+    public synchronized void update(Player player) {
+        this.cache.put(player.getUid(), new PlayerSummary(player));
+    }
+
+    public synchronized void remove(int uid) {
+        this.cache.remove(uid);
+    }
+}
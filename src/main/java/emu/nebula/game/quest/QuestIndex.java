@@ -0,0 +1,53 @@
+package emu.nebula.game.quest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+/**
+ * Quests grouped by their complete condition, so a trigger only has to check the quests it can affect.
+ */
+public class QuestIndex {
+    private final Int2ObjectMap<List<GameQuest>> quests;
+    
+    public QuestIndex() {
+        this.quests = new Int2ObjectOpenHashMap<>();
+    }
+    
+    public QuestIndex(Collection<GameQuest> quests) {
+        this();
+        
+        for (var quest : quests) {
+            this.add(quest);
+        }
+    }
+    
+    public void add(GameQuest quest) {
+        this.quests.computeIfAbsent(quest.getCond(), c -> new ArrayList<>()).add(quest);
+    }
+    
+    public void remove(GameQuest quest) {
+        var list = this.quests.get(quest.getCond());
+        
+        if (list == null) {
+            return;
+        }
+        
+        list.remove(quest);
+        
+        if (list.isEmpty()) {
+            this.quests.remove(quest.getCond());
+        }
+    }
+    
+    /**
+     * Returns all quests with this complete condition
+     */
+    public List<GameQuest> get(int condition) {
+        var list = this.quests.get(condition);
+        return list != null ? list : List.of();
+    }
+}
@@ -39,6 +39,7 @@ public class QuestManager extends PlayerManager implements GameDatabaseObject {
     
     // Quests
     private Map<Long, GameQuest> list;
+    @Getter(AccessLevel.NONE) private transient QuestIndex index;
     
     // Level rewards
     private Bitset levelRewards;
@@ -71,10 +72,29 @@ public class QuestManager extends PlayerManager implements GameDatabaseObject {
     }
     
     public synchronized GameQuest addQuest(GameQuest quest) {
-        this.list.put(quest.getKey(), quest);
+        // Get index before adding, so the quest isn't indexed twice
+        var index = this.getIndex();
+        var old = this.list.put(quest.getKey(), quest);
+        
+        // Update condition index
+        if (old != null) {
+            index.remove(old);
+        }
+        
+        index.add(quest);
+        
         return quest;
     }
     
+    private QuestIndex getIndex() {
+        // Build index from our quest list if we dont have one yet
+        if (this.index == null) {
+            this.index = new QuestIndex(this.list.values());
+        }
+        
+        return this.index;
+    }
+    
     public synchronized Collection<GameQuest> getQuests() {
         return this.getList().values();
     }
@@ -141,11 +161,8 @@ public class QuestManager extends PlayerManager implements GameDatabaseObject {
     }
 
     public synchronized void trigger(int condition, int progress, int param1, int param2) {
-        // TODO optimize so we dont loop through every quest
-        for (var entry : getList().entrySet()) {
-            // Get quest from entry
-            var quest = entry.getValue();
-            
+        // Only check quests with this condition
+        for (var quest : this.getIndex().get(condition)) {
             // Try to trigger quest
             boolean result = quest.trigger(condition, progress, param1, param2);
             
@@ -158,7 +175,7 @@ public class QuestManager extends PlayerManager implements GameDatabaseObject {
             this.syncQuest(quest);
             
             // Update in database
-            Nebula.getGameDatabase().update(this, this.getUid(), "list." + entry.getKey(), quest);
+            Nebula.getGameDatabase().update(this, this.getUid(), "list." + quest.getKey(), quest);
         }
     }
     
@@ -526,6 +543,7 @@ public class QuestManager extends PlayerManager implements GameDatabaseObject {
         // Fix quest lists
         if (this.getList() == null) {
             this.list = new HashMap<>();
+            this.index = null;
             this.resetDailyQuests(true);
             
             // QuestManager::resetDailyQuests will save to the database, so we dont need to set the shouldSave flag
@@ -87,11 +87,15 @@ public class ScoreBossManager extends PlayerManager  {
         }
         
         // Settle
+        int previousControlId = this.ranking.getControlId();
         this.ranking.settle(this.getPlayer(), build, getControlId(), getLevelId(), stars, score, skillScore);
         
         // Save ranking
         this.ranking.save();
         
+        // Update leaderboard
+        Nebula.getGameContext().getScoreBossModule().updateRanking(this.ranking, previousControlId);
+        
         // Clear
         this.levelId = 0;
         this.buildId = 0;
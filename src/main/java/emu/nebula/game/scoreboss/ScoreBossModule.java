@@ -1,27 +1,40 @@
 package emu.nebula.game.scoreboss;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import emu.nebula.Nebula;
 import emu.nebula.data.GameData;
 import emu.nebula.game.GameContext;
 import emu.nebula.game.GameContextModule;
+import emu.nebula.game.leaderboard.Leaderboard;
+import emu.nebula.game.leaderboard.LeaderboardPlayerInfo;
 import emu.nebula.proto.ScoreBossRank.ScoreBossRankData;
 import lombok.Getter;
+import us.hebi.quickbuf.RepeatedMessage;
 
 @Getter
 public class ScoreBossModule extends GameContextModule {
+    private static final LeaderboardPlayerInfo<ScoreBossRankData> PLAYER_INFO = new LeaderboardPlayerInfo<>(
+        ScoreBossRankData::getId,
+        ScoreBossRankData::setNickName,
+        ScoreBossRankData::setWorldClass,
+        ScoreBossRankData::setHeadIcon,
+        ScoreBossRankData::setTitlePrefix,
+        ScoreBossRankData::setTitleSuffix,
+        ScoreBossRankData::getMutableHonors
+    );
+    
     private int seasonId;
     
-    private long lastUpdate;
-    private long nextUpdate;
-    private List<ScoreBossRankData> ranking;
+    // Leaderboards by control id, only the current season is kept
+    private Map<Integer, Leaderboard<ScoreBossRankData>> leaderboards;
     
     public ScoreBossModule(GameContext context) {
         super(context);
-        this.nextUpdate = -1;
-        this.ranking = new ArrayList<>();
+        this.leaderboards = new ConcurrentHashMap<>();
+        this.updateSeason();
+        this.loadLeaderboards();
     }
     
     public int getControlId() {
@@ -43,38 +56,70 @@ public class ScoreBossModule extends GameContextModule {
         }
         
         this.seasonId = season;
+        
+        // Evict leaderboards of past seasons
+        this.leaderboards.keySet().removeIf(controlId -> controlId != this.seasonId);
+    }
+    
+    // Leaderboards
+    
+    public Leaderboard<ScoreBossRankData> getLeaderboard() {
+        return this.getLeaderboard(this.getControlId());
     }
     
-    private long getRefreshTime() {
-        return Nebula.getConfig().getServerOptions().leaderboardRefreshTime * 1000;
+    public Leaderboard<ScoreBossRankData> getLeaderboard(int controlId) {
+        return this.leaderboards.computeIfAbsent(controlId, id -> new Leaderboard<>());
     }
     
-    public synchronized List<ScoreBossRankData> getRanking() {
-        if (System.currentTimeMillis() > this.nextUpdate) {
-            this.updateRanking();
+    /**
+     * Updates the player on the leaderboard after their rank entry was settled
+     * @param previousControlId The control id of the rank entry before it was settled
+     */
+    public void updateRanking(ScoreBossRankEntry entry, int previousControlId) {
+        // Remove from the last season's leaderboard
+        if (previousControlId != entry.getControlId()) {
+            var leaderboard = this.leaderboards.get(previousControlId);
+            
+            if (leaderboard != null) {
+                leaderboard.remove(entry.getPlayerUid());
+            }
         }
         
-        return this.ranking;
+        // Update
+        this.putRanking(entry);
     }
-
-    // Cache ranking so we dont query the database too much
-    private void updateRanking() {
-        // Clear
-        this.ranking.clear();
-        
-        // Get from database
-        var list = Nebula.getGameDatabase().getSortedObjects(ScoreBossRankEntry.class, "controlId", this.getControlId(), "score", 50);
+    
+    public void removeRanking(int uid) {
+        for (var leaderboard : this.leaderboards.values()) {
+            leaderboard.remove(uid);
+        }
+    }
+    
+    private void putRanking(ScoreBossRankEntry entry) {
+        // Don't create leaderboards for past seasons
+        if (entry.getControlId() != this.getControlId()) {
+            return;
+        }
         
-        for (int i = 0; i < list.size(); i++) {
-            // Get rank entry and set proto
-            var entry = list.get(i);
-            entry.setRank(i + 1);
-            
-            // Add to ranking
-            this.ranking.add(entry.toProto());
+        this.getLeaderboard(entry.getControlId()).put(entry.getPlayerUid(), entry.getScore(), entry.getTime(), entry.toProto());
+    }
+    
+    private void loadLeaderboards() {
+        // Sanity check
+        if (Nebula.getGameDatabase() == null) {
+            return;
         }
         
-        this.nextUpdate = System.currentTimeMillis() + this.getRefreshTime();
-        this.lastUpdate = Nebula.getCurrentServerTime();
+        // Add every rank entry of the current season to the leaderboard
+        try (var stream = Nebula.getGameDatabase().getObjects(ScoreBossRankEntry.class, "controlId", this.getControlId())) {
+            stream.forEach(this::putRanking);
+        }
+    }
+    
+    /**
+     * Replaces the player info in these ranking protos with the current player summaries
+     */
+    public void refreshPlayerInfo(RepeatedMessage<ScoreBossRankData> ranking) {
+        PLAYER_INFO.refresh(ranking, this.getGameContext().getPlayerModule().getSummaryCache());
     }
 }
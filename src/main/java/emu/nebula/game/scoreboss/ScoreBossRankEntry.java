@@ -7,6 +7,7 @@ import java.util.Map;
 
 import dev.morphia.annotations.Entity;
 import dev.morphia.annotations.Id;
+import emu.nebula.Nebula;
 import emu.nebula.data.GameData;
 import emu.nebula.database.GameDatabaseObject;
 import emu.nebula.game.player.Player;
@@ -38,6 +39,7 @@ public class ScoreBossRankEntry implements GameDatabaseObject {
     private int[] honor;
     private int[] honorAff;
     private int score;
+    private long time; // When the current score was reached
     @SuppressWarnings("unused")
     private int stars;
     private IntSet claimedRewards;
@@ -117,6 +119,8 @@ public class ScoreBossRankEntry implements GameDatabaseObject {
         this.getTeams().put(level, team);
         
         // Calculate score/stars
+        int oldScore = this.score;
+        
         this.score = 0;
         this.stars = 0;
         
@@ -124,10 +128,16 @@ public class ScoreBossRankEntry implements GameDatabaseObject {
             this.score += t.getLevelScore();
             this.stars += t.getStars();
         }
+        
+        // Update score time
+        if (this.score != oldScore) {
+            this.time = Nebula.getCurrentServerTime();
+        }
     }
     
     private void reset() {
         this.score = 0;
+        this.time = 0;
         this.stars = 0;
         this.getClaimedRewards().clear();
         this.getTeams().clear();
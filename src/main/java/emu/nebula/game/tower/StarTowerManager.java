@@ -1,5 +1,7 @@
 package emu.nebula.game.tower;
 
+import java.util.Collection;
+
 import emu.nebula.GameConstants;
 import emu.nebula.Nebula;
 import emu.nebula.data.GameData;
@@ -108,13 +110,8 @@ public class StarTowerManager extends PlayerManager {
         var change = new PlayerChangeInfo();
         var unlocked = new IntArrayList();
         
-        // Filter data
-        for (var data : GameData.getStarTowerGrowthNodeDataTable()) {
-            // Filter out nodes that are not from our group
-            if (data.getGroup() != group) {
-                continue;
-            }
-            
+        // Get nodes from our group
+        for (var data : GameData.getStarTowerGrowthNodeDataTable().lookupBy("group", group)) {
             // Filter out set growth nodes
             if (this.hasGrowthNode(data)) {
                 continue;
@@ -463,12 +460,21 @@ public class StarTowerManager extends PlayerManager {
     // Database
     
     public void loadFromDatabase() {
+        var db = Nebula.getGameDatabase();
+        
+        this.loadFromDatabase(
+            db.getObjects(StarTowerBuild.class, "playerUid", getPlayerUid()).toList(),
+            db.getObjects(StarTowerPotentialPreset.class, "playerUid", getPlayerUid()).toList()
+        );
+    }
+    
+    public void loadFromDatabase(Collection<StarTowerBuild> builds, Collection<StarTowerPotentialPreset> presets) {
         // Init variables
         this.builds = new Long2ObjectOpenHashMap<>();
         this.presets = new Long2ObjectOpenHashMap<>();
         
         // Load builds with the current player's uid
-        Nebula.getGameDatabase().getObjects(StarTowerBuild.class, "playerUid", getPlayerUid()).forEach(build -> {
+        for (var build : builds) {
             // Fix outdated builds
             if (build.getSecondarySkills() == null) {
                 build.calculateScore();
@@ -477,12 +483,12 @@ public class StarTowerManager extends PlayerManager {
             
             // Add build
             this.builds.put(build.getUid(), build);
-        });
+        }
         
         // Load presets with the current player's uid
-        Nebula.getGameDatabase().getObjects(StarTowerPotentialPreset.class, "playerUid", getPlayerUid()).forEach(preset -> {
+        for (var preset : presets) {
             // Add preset
             this.presets.put(preset.getUid(), preset);
-        });
+        }
     }
 }
@@ -0,0 +1,191 @@
+package emu.nebula.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+
+import com.google.gson.JsonParser;
+
+import emu.nebula.Nebula;
+import emu.nebula.net.NetMsgId;
+import emu.nebula.net.NetMsgIdUtils;
+import emu.nebula.net.PacketHelper;
+import emu.nebula.proto.Ike.IKEReq;
+import emu.nebula.proto.Ike.IKEResp;
+import emu.nebula.proto.PlayerLogin.LoginReq;
+import emu.nebula.proto.PlayerLogin.LoginResp;
+import emu.nebula.util.AeadHelper;
+import us.hebi.quickbuf.ProtoMessage;
+import us.hebi.quickbuf.ProtoSource;
+
+/**
+ * Headless client that speaks the same protocol as the game client: sdk login over http, the ike key exchange,
+ * player login and then encrypted requests to the agent zone.
+ */
+public class LoadClient {
+    // The client sends 10 bytes in front of the message id, which the server skips
+    private static final int REQUEST_HEADER_SIZE = 10;
+
+    private final HttpClient http;
+    private final URI loginUri;
+    private final URI agentZoneUri;
+    private final LoadStats stats;
+
+    // Session
+    private String token;
+    private int encryptMethod;
+    private SecretKeySpec keySpec;
+
+    public LoadClient(HttpClient http, String baseUrl, LoadStats stats) {
+        this.http = http;
+        this.loginUri = URI.create(baseUrl + "/user/login");
+        this.agentZoneUri = URI.create(baseUrl + "/agent-zone-1/");
+        this.stats = stats;
+    }
+
+    /**
+     * Logs in with this email and sets up a session. The account is created by the server if it doesn't exist yet.
+     */
+    public void connect(String email) throws Exception {
+        var loginToken = this.sdkLogin(email);
+
+        this.handshake();
+        this.login(loginToken);
+    }
+
+    private String sdkLogin(String email) throws Exception {
+        var body = "{\"OpenID\":\"" + email + "\",\"Token\":\"loadtest\"}";
+
+        var request = HttpRequest.newBuilder(this.loginUri)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        var response = this.http.send(request, HttpResponse.BodyHandlers.ofString());
+        var json = JsonParser.parseString(response.body()).getAsJsonObject();
+
+        if (json.get("Code").getAsInt() != 200) {
+            throw new IOException("Sdk login failed: " + response.body());
+        }
+
+        return json.getAsJsonObject("Data").getAsJsonObject("UserInfo").get("Token").getAsString();
+    }
+
+    private void handshake() throws Exception {
+        // Create key pair
+        var pair = AeadHelper.generateECDHKEyPair();
+        var publicKey = ((ECPublicKeyParameters) pair.getPublic()).getQ().getEncoded(false);
+        var privateKey = ((ECPrivateKeyParameters) pair.getPrivate()).getD().toByteArray();
+
+        var req = IKEReq.newInstance()
+                .setPubKey(publicKey)
+                .setClientTs(Nebula.getCurrentServerTime());
+
+        // Requests without a session are encrypted with the garble key
+        var stats = this.stats.get(NetMsgId.ike_req);
+        long start = System.nanoTime();
+        byte[] message;
+
+        try {
+            var data = AeadHelper.encrypt(PacketHelper.encodeMsg(NetMsgId.ike_req, req), AeadHelper.getServerGarbleKeySpec(), 0);
+            AeadHelper.encryptBasic(data, 0, data.length, AeadHelper.serverGarbleKey);
+
+            var response = this.post(data, null);
+
+            AeadHelper.decryptBasic(response, 0, response.length, AeadHelper.serverGarbleKey);
+            message = AeadHelper.decrypt(response, AeadHelper.getServerGarbleKeySpec(), 0);
+
+            stats.record(System.nanoTime() - start, getMsgId(message));
+        } catch (Exception e) {
+            stats.recordError();
+            throw e;
+        }
+
+        // Derive session key
+        var rsp = IKEResp.parseFrom(getSource(this.expect(message, NetMsgId.ike_succeed_ack)));
+        var key = AeadHelper.generateClientKey(publicKey, privateKey, rsp.getPubKey().toArray());
+
+        this.token = rsp.getToken();
+        this.encryptMethod = rsp.getCipher();
+        this.keySpec = AeadHelper.createKeySpec(key, this.encryptMethod);
+    }
+
+    private void login(String loginToken) throws Exception {
+        var req = LoginReq.newInstance();
+        req.getMutableOfficialOverseas().setToken(loginToken);
+
+        var message = this.request(NetMsgId.player_login_req, req);
+        var rsp = LoginResp.parseFrom(getSource(this.expect(message, NetMsgId.player_login_succeed_ack)));
+
+        // Server switches to a new token after login
+        this.token = rsp.getToken();
+    }
+
+    /**
+     * Sends a request and records its latency and result. Returns the decrypted response, which starts with
+     * its message id.
+     */
+    public byte[] request(int msgId, ProtoMessage<?> proto) throws Exception {
+        var stats = this.stats.get(msgId);
+        long start = System.nanoTime();
+
+        try {
+            // Encode like the client: header, message id and then the proto
+            var message = proto != null ? PacketHelper.encodeMsg(msgId, proto) : PacketHelper.encodeMsg(msgId);
+            var data = new byte[REQUEST_HEADER_SIZE + message.length];
+            System.arraycopy(message, 0, data, REQUEST_HEADER_SIZE, message.length);
+
+            // Send
+            var response = this.post(AeadHelper.encrypt(data, this.keySpec, this.encryptMethod), this.token);
+            var result = AeadHelper.decrypt(response, this.keySpec, this.encryptMethod);
+
+            stats.record(System.nanoTime() - start, getMsgId(result));
+
+            return result;
+        } catch (Exception e) {
+            stats.recordError();
+            throw e;
+        }
+    }
+
+    private byte[] post(byte[] data, String token) throws Exception {
+        var builder = HttpRequest.newBuilder(this.agentZoneUri)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(data));
+
+        if (token != null) {
+            builder.header("X-Token", token);
+        }
+
+        var response = this.http.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        if (response.statusCode() != 200) {
+            throw new IOException("Agent zone returned status " + response.statusCode());
+        }
+
+        return response.body();
+    }
+
+    // Utils
+
+    static int getMsgId(byte[] message) {
+        return ((message[0] & 0xff) << 8) | (message[1] & 0xff);
+    }
+
+    private byte[] expect(byte[] message, int msgId) throws IOException {
+        if (getMsgId(message) != msgId) {
+            throw new IOException("Expected " + NetMsgIdUtils.getMsgIdName(msgId) + " but got " + NetMsgIdUtils.getMsgIdName(getMsgId(message)));
+        }
+
+        return message;
+    }
+
+    private static ProtoSource getSource(byte[] message) {
+        return ProtoSource.newArraySource().setInput(message, 2, message.length - 2);
+    }
+}
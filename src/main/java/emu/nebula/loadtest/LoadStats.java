@@ -0,0 +1,76 @@
+package emu.nebula.loadtest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import emu.nebula.metrics.LatencyHistogram;
+import emu.nebula.net.NetMsgIdUtils;
+import lombok.Getter;
+
+/**
+ * Request counts and latencies of a load test, by request message id
+ */
+public class LoadStats {
+    private final Map<Integer, RequestStats> requests;
+
+    public LoadStats() {
+        this.requests = new ConcurrentHashMap<>();
+    }
+
+    public RequestStats get(int msgId) {
+        return this.requests.computeIfAbsent(msgId, RequestStats::new);
+    }
+
+    /**
+     * Returns the stats of every request that was sent, sorted by message id
+     */
+    public List<RequestStats> getRequests() {
+        var list = new ArrayList<>(this.requests.values());
+        list.sort(Comparator.comparingInt(RequestStats::getMsgId));
+        return list;
+    }
+
+    @Getter
+    public static class RequestStats {
+        private final int msgId;
+        private final String name;
+        private final LatencyHistogram latency;
+        private final LongAdder count;
+        private final LongAdder failed;
+        private final LongAdder errors;
+
+        private RequestStats(int msgId) {
+            this.msgId = msgId;
+            this.name = NetMsgIdUtils.getMsgIdName(msgId);
+            this.latency = new LatencyHistogram();
+            this.count = new LongAdder();
+            this.failed = new LongAdder();
+            this.errors = new LongAdder();
+        }
+
+        /**
+         * Records a request that got a response. Responses with a failed ack are counted as failed, these are
+         * rejected by the game logic but still handled normally by the server.
+         */
+        public void record(long nanos, int responseMsgId) {
+            this.latency.record(nanos);
+            this.count.increment();
+
+            if (NetMsgIdUtils.getMsgIdName(responseMsgId).endsWith("_failed_ack")) {
+                this.failed.increment();
+            }
+        }
+
+        /**
+         * Records a request that didn't get a valid response
+         */
+        public void recordError() {
+            this.count.increment();
+            this.errors.increment();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package emu.nebula.loadtest;
+
+import java.net.ServerSocket;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import emu.nebula.Nebula;
+import emu.nebula.Nebula.ServerType;
+import emu.nebula.data.GameData;
+import emu.nebula.net.NetMsgId;
+import emu.nebula.proto.GachaSpin.GachaSpinReq;
+import emu.nebula.proto.StarTowerApply.StarTowerApplyReq;
+import emu.nebula.proto.StarTowerInteract.StarTowerInteractReq;
+import emu.nebula.server.HttpServer;
+import emu.nebula.util.Utils;
+import emu.nebula.util.WeightedList;
+import us.hebi.quickbuf.ProtoMessage;
+
+/**
+ * Capacity test for a shard. Starts a local server with an in-memory database, then connects virtual thread
+ * clients that log in like the game client and send a weighted random mix of requests until the test ends.
+ * Throughput and latency percentiles are printed for every request.
+ * <p>
+ * Usage: java -cp Nebula.jar emu.nebula.loadtest.LoadTest [options]
+ * <ul>
+ * <li>-clients [count] - Number of clients, default 1000</li>
+ * <li>-duration [seconds] - How long to send requests, default 60</li>
+ * <li>-rampup [seconds] - Clients connect evenly spread over this time, default 10</li>
+ * <li>-think [ms] - Time each client waits between requests, default 0</li>
+ * <li>-mix [name=weight,...] - Requests to send, by message id name. Requests without a known body are sent empty.</li>
+ * <li>-maxerrors [rate] - Exit with status 1 if more than this fraction of requests fail, default 0.001</li>
+ * <li>-maxp99 [ms] - Exit with status 1 if the p99 latency of any request is higher than this, default 0 (off)</li>
+ * </ul>
+ * Should be run from the server directory so the config and resources are found.
+ */
+public class LoadTest {
+    private static final String DEFAULT_MIX = "player_data_req=10,mail_list_req=4,friend_list_get_req=4,gacha_spin_req=2,star_tower_apply_req=1,star_tower_interact_req=2";
+
+    private int clients = 1000;
+    private int duration = 60;
+    private int rampUp = 10;
+    private int think = 0;
+    private String mix = DEFAULT_MIX;
+    private double maxErrorRate = 0.001;
+    private int maxP99 = 0;
+
+    private final LoadStats stats = new LoadStats();
+    private final AtomicLong connectErrors = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        var test = new LoadTest();
+
+        // Parse arguments
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-clients" -> test.clients = Integer.parseInt(args[++i]);
+                case "-duration" -> test.duration = Integer.parseInt(args[++i]);
+                case "-rampup" -> test.rampUp = Integer.parseInt(args[++i]);
+                case "-think" -> test.think = Integer.parseInt(args[++i]);
+                case "-mix" -> test.mix = args[++i];
+                case "-maxerrors" -> test.maxErrorRate = Double.parseDouble(args[++i]);
+                case "-maxp99" -> test.maxP99 = Integer.parseInt(args[++i]);
+                default -> {
+                    System.out.println("Unknown argument: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        boolean passed = test.run(startServer());
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Starts a local server with an internal in-memory database. Returns the url of the server.
+     */
+    private static String startServer() throws Exception {
+        // Listen on a free local port
+        int port;
+
+        try (var socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        // Use an internal MongoDB server with the memory backend
+        Nebula.initLocalServer(false, config -> {
+            // Clients get an account and player as soon as they log in
+            config.getServerOptions().autoCreateAccount = true;
+            config.getServerOptions().skipIntro = true;
+
+            config.getHttpServer().bindAddress = "127.0.0.1";
+            config.getHttpServer().bindPort = port;
+            config.getHttpServer().useSSL = false;
+        });
+
+        // Start http server
+        new HttpServer(ServerType.BOTH).start();
+
+        return "http://127.0.0.1:" + port;
+    }
+
+    /**
+     * Runs the test against the server at this url. Returns true if the results are within the limits.
+     */
+    public boolean run(String baseUrl) throws Exception {
+        var requests = this.parseMix();
+        var http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        Nebula.getLogger().info("Starting load test with " + this.clients + " clients for " + this.duration + " seconds");
+
+        // Run clients
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(this.rampUp + this.duration);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < this.clients; i++) {
+                long delay = TimeUnit.SECONDS.toNanos(this.rampUp) * i / this.clients;
+                int id = i;
+
+                executor.submit(() -> this.runClient(new LoadClient(http, baseUrl, this.stats), id, start + delay, end, requests));
+            }
+        }
+
+        return this.report(System.nanoTime() - start);
+    }
+
+    private void runClient(LoadClient client, int id, long startTime, long endTime, WeightedList<Request> requests) {
+        try {
+            // Wait for our turn to connect
+            long wait = startTime - System.nanoTime();
+
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+
+            client.connect("loadtest" + id + "@nebula");
+            client.request(NetMsgId.player_data_req, null);
+        } catch (Exception e) {
+            // Only log the first error, the others are usually the same
+            if (this.connectErrors.incrementAndGet() == 1) {
+                Nebula.getLogger().warn("Client could not connect: " + e);
+            }
+
+            return;
+        }
+
+        // Send requests until the test ends
+        while (System.nanoTime() < endTime) {
+            var request = requests.next();
+
+            try {
+                client.request(request.msgId(), request.body().get());
+            } catch (Exception e) {
+                // Recorded by the client
+            }
+
+            if (this.think > 0) {
+                try {
+                    Thread.sleep(this.think);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Requests
+
+    private static record Request(int msgId, Supplier<ProtoMessage<?>> body) {
+
+    }
+
+    private WeightedList<Request> parseMix() throws Exception {
+        var bodies = getRequestBodies();
+        var list = new WeightedList<Request>();
+
+        for (var entry : this.mix.split(",")) {
+            var split = entry.split("=");
+            var name = split[0].trim();
+            double weight = split.length > 1 ? Double.parseDouble(split[1].trim()) : 1;
+
+            int msgId = NetMsgId.class.getField(name).getInt(null);
+            list.add(weight, new Request(msgId, bodies.getOrDefault(msgId, () -> null)));
+        }
+
+        return list;
+    }
+
+    /**
+     * Creates request bodies for requests that need one. Ids are picked at random from the game data.
+     */
+    private static Map<Integer, Supplier<ProtoMessage<?>>> getRequestBodies() {
+        var gachaIds = GameData.getGachaDataTable().keySet().toIntArray();
+        var towerIds = GameData.getStarTowerDataTable().keySet().toIntArray();
+
+        var bodies = new LinkedHashMap<Integer, Supplier<ProtoMessage<?>>>();
+
+        if (gachaIds.length > 0) {
+            bodies.put(NetMsgId.gacha_spin_req, () -> GachaSpinReq.newInstance()
+                    .setId(Utils.randomElement(gachaIds))
+                    .setMode(ThreadLocalRandom.current().nextInt(1, 3)));
+        }
+
+        if (towerIds.length > 0) {
+            bodies.put(NetMsgId.star_tower_apply_req, () -> StarTowerApplyReq.newInstance()
+                    .setId(Utils.randomElement(towerIds))
+                    .setFormationId(1));
+        }
+
+        bodies.put(NetMsgId.star_tower_interact_req, () -> StarTowerInteractReq.newInstance());
+
+        return bodies;
+    }
+
+    // Report
+
+    private boolean report(long time) {
+        double seconds = time / 1e9;
+        long total = 0;
+        long errors = 0;
+        boolean passed = true;
+
+        System.out.println(String.format("%-40s %9s %9s %8s %8s %10s %10s %10s %10s",
+                "Request", "Count", "Req/s", "Failed", "Errors", "p50 (ms)", "p90 (ms)", "p99 (ms)", "p99.9 (ms)"));
+
+        for (var request : this.stats.getRequests()) {
+            long count = request.getCount().sum();
+            var latency = request.getLatency();
+            long p99 = latency.getPercentile(99);
+
+            total += count;
+            errors += request.getErrors().sum();
+
+            System.out.println(String.format("%-40s %9d %9.1f %8d %8d %10.2f %10.2f %10.2f %10.2f",
+                    request.getName() + " (" + request.getMsgId() + ")",
+                    count,
+                    count / seconds,
+                    request.getFailed().sum(),
+                    request.getErrors().sum(),
+                    latency.getPercentile(50) / 1e6,
+                    latency.getPercentile(90) / 1e6,
+                    p99 / 1e6,
+                    latency.getPercentile(99.9) / 1e6));
+
+            if (this.maxP99 > 0 && p99 > TimeUnit.MILLISECONDS.toNanos(this.maxP99)) {
+                Nebula.getLogger().warn("p99 latency of " + request.getName() + " is over " + this.maxP99 + " ms");
+                passed = false;
+            }
+        }
+
+        double errorRate = total > 0 ? (double) errors / total : 0;
+
+        Nebula.getLogger().info(String.format("Sent %d requests in %.1f seconds (%.1f req/s), %d errors, %d clients could not connect",
+                total, seconds, total / seconds, errors, this.connectErrors.get()));
+
+        if (errorRate > this.maxErrorRate) {
+            Nebula.getLogger().warn(String.format("Error rate %.4f is over the limit of %.4f", errorRate, this.maxErrorRate));
+            passed = false;
+        }
+
+        if (this.connectErrors.get() > 0) {
+            passed = false;
+        }
+
+        return passed;
+    }
+}
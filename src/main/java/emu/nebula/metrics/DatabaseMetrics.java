@@ -0,0 +1,69 @@
+package emu.nebula.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+
+import lombok.Getter;
+
+/**
+ * Records every command that the mongo driver sends, by command name. Operations of the embedded storage are recorded
+ * under the name of the matching command. Commands are also added to the timer of the request that is being handled on
+ * the same thread.
+ */
+@Getter
+public class DatabaseMetrics implements CommandListener {
+    private final Map<String, Command> commands;
+
+    public DatabaseMetrics() {
+        this.commands = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        this.record(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), false);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        this.record(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), true);
+    }
+
+    public void record(String name, long nanos, boolean failed) {
+        if (!Metrics.isEnabled()) {
+            return;
+        }
+
+        var command = this.commands.get(name);
+
+        if (command == null) {
+            command = this.commands.computeIfAbsent(name, n -> new Command());
+        }
+
+        command.getCount().increment();
+        command.getTime().add(nanos);
+
+        if (failed) {
+            command.getFailures().increment();
+        }
+
+        // Add to request
+        var timer = Metrics.getRequestTimer();
+
+        if (timer.isActive()) {
+            timer.addDatabaseTime(nanos);
+        }
+    }
+
+    @Getter
+    public static class Command {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder time = new LongAdder();
+    }
+}
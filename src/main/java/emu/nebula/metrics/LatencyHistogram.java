@@ -0,0 +1,137 @@
+package emu.nebula.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear latency histogram, similar to a HDR histogram with 2 bits of precision. Every power of 2 is split into
+ * 4 buckets, so recorded values are accurate to within 25%. Values are recorded in units of 1024 nanoseconds, from
+ * about 1 microsecond up to about 17 seconds. Longer values are put in the last bucket.
+ * <p>
+ * Buckets are {@link LongAdder}s, so threads recording at the same time don't contend with each other.
+ */
+public class LatencyHistogram {
+    private static final int UNIT_SHIFT = 10;
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 24;
+
+    public static final int BUCKETS = MAX_EXPONENT * SUB_BUCKETS;
+
+    private final LongAdder[] buckets;
+    private final LongAdder sum;
+
+    public LatencyHistogram() {
+        this.buckets = new LongAdder[BUCKETS];
+        this.sum = new LongAdder();
+
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a value in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        this.buckets[getBucket(nanos)].increment();
+        this.sum.add(nanos);
+    }
+
+    /**
+     * Returns the sum of all recorded values in nanoseconds
+     */
+    public long getSum() {
+        return this.sum.sum();
+    }
+
+    /**
+     * Returns the number of values in each bucket
+     */
+    public long[] getCounts() {
+        var counts = new long[BUCKETS];
+
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets[i].sum();
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the upper bound in nanoseconds of the bucket that holds this percentile (0 - 100), or 0 if nothing was
+     * recorded
+     */
+    public long getPercentile(double percentile) {
+        var counts = this.getCounts();
+        long total = 0;
+
+        for (long count : counts) {
+            total += count;
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        // Find the bucket with the value at this rank
+        long rank = Math.max((long) Math.ceil(total * percentile / 100.0), 1);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+
+            if (seen >= rank) {
+                return getUpperBound(i);
+            }
+        }
+
+        return getUpperBound(BUCKETS - 1);
+    }
+
+    // Buckets
+
+    /**
+     * Returns the bucket that this value in nanoseconds is recorded in
+     */
+    public static int getBucket(long nanos) {
+        long value = nanos >>> UNIT_SHIFT;
+
+        // Small values get one bucket each
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        // Exponent selects the power of 2, the next bits below the highest one select the sub bucket
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        int bucket = ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    /**
+     * Returns the exclusive upper bound of this bucket in nanoseconds
+     */
+    public static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return (long) (bucket + 1) << UNIT_SHIFT;
+        }
+
+        int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket & (SUB_BUCKETS - 1);
+
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) << UNIT_SHIFT;
+    }
+
+    /**
+     * Returns true if the upper bound of this bucket is a power of 2. Only these buckets are exported, to keep the
+     * number of exported series low.
+     */
+    public static boolean isExported(int bucket) {
+        return (bucket & (SUB_BUCKETS - 1)) == SUB_BUCKETS - 1 && bucket < BUCKETS - SUB_BUCKETS;
+    }
+}
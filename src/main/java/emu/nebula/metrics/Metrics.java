@@ -0,0 +1,224 @@
+package emu.nebula.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import emu.nebula.Nebula;
+import emu.nebula.metrics.RequestTimer.Phase;
+import emu.nebula.net.NetMsgIdUtils;
+
+/**
+ * Server metrics. Recording is disabled unless metrics are enabled in the config, and all counters are
+ * {@link LongAdder}s so that request threads never contend when recording.
+ */
+public class Metrics {
+    private static final boolean ENABLED = Nebula.getConfig() != null && Nebula.getConfig().getMetrics().enabled;
+
+    private static final Map<Integer, PacketMetrics> packets = new ConcurrentHashMap<>();
+    private static final ThreadLocal<RequestTimer> requestTimer = ThreadLocal.withInitial(RequestTimer::new);
+    private static final DatabaseMetrics databaseMetrics = new DatabaseMetrics();
+
+    private static final LongAdder decryptErrors = new LongAdder();
+    private static final LongAdder encryptErrors = new LongAdder();
+    private static final LongAdder unhandled = new LongAdder();
+    private static final LatencyHistogram tickTime = new LatencyHistogram();
+    private static final LatencyHistogram handshakeTime = new LatencyHistogram();
+    private static final LongAdder keyPairPoolMisses = new LongAdder();
+    private static final LatencyHistogram playerLoadTime = new LatencyHistogram();
+    private static final Map<String, LatencyHistogram> playerFetchTime = new ConcurrentHashMap<>();
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Requests
+
+    /**
+     * Returns the request timer of the current thread
+     */
+    public static RequestTimer getRequestTimer() {
+        return requestTimer.get();
+    }
+
+    /**
+     * Returns the metrics of this message id. Only use this for message ids that have a handler, otherwise clients
+     * could create an entry for every possible id.
+     */
+    public static PacketMetrics getPacketMetrics(int msgId) {
+        var metrics = packets.get(msgId);
+
+        if (metrics == null) {
+            metrics = packets.computeIfAbsent(msgId, PacketMetrics::new);
+        }
+
+        return metrics;
+    }
+
+    public static void recordDecryptError() {
+        if (ENABLED) {
+            decryptErrors.increment();
+        }
+    }
+
+    public static void recordEncryptError() {
+        if (ENABLED) {
+            encryptErrors.increment();
+        }
+    }
+
+    public static void recordError(int msgId) {
+        if (ENABLED) {
+            getPacketMetrics(msgId).getErrors().increment();
+        }
+    }
+
+    public static void recordUnhandled() {
+        if (ENABLED) {
+            unhandled.increment();
+        }
+    }
+
+    /**
+     * Adds time spent encoding a response to the request that is being handled on this thread
+     */
+    public static void recordEncode(long nanos) {
+        if (!ENABLED) {
+            return;
+        }
+
+        var timer = requestTimer.get();
+
+        if (timer.isActive()) {
+            timer.addEncodeTime(nanos);
+        }
+    }
+
+    // Handshake
+
+    /**
+     * Records the time spent creating the keys of a new session
+     */
+    public static void recordHandshake(long nanos) {
+        if (ENABLED) {
+            handshakeTime.record(nanos);
+        }
+    }
+
+    public static void recordKeyPairPoolMiss() {
+        if (ENABLED) {
+            keyPairPoolMisses.increment();
+        }
+    }
+
+    // Database
+
+    public static DatabaseMetrics getDatabaseMetrics() {
+        return databaseMetrics;
+    }
+
+    /**
+     * Records the time spent fetching one type of document while loading a player
+     */
+    public static void recordPlayerFetch(String type, long nanos) {
+        if (ENABLED) {
+            playerFetchTime.computeIfAbsent(type, t -> new LatencyHistogram()).record(nanos);
+        }
+    }
+
+    /**
+     * Records the time spent fetching all documents of a player
+     */
+    public static void recordPlayerLoad(long nanos) {
+        if (ENABLED) {
+            playerLoadTime.record(nanos);
+        }
+    }
+
+    // Game context
+
+    public static void recordTick(long nanos) {
+        if (ENABLED) {
+            tickTime.record(nanos);
+        }
+    }
+
+    // Export
+
+    /**
+     * Writes all metrics in the Prometheus text format
+     */
+    public static String toPrometheus() {
+        var writer = new PrometheusWriter();
+
+        // Packets
+        var phaseHistograms = writer.begin("nebula_packet_phase_seconds", "histogram", "Time spent in each phase of a game request");
+
+        for (var metrics : packets.values()) {
+            for (var phase : Phase.values()) {
+                phaseHistograms.histogram(metrics.getPhase(phase), getMsgLabels(metrics.getMsgId()) + ",phase=\"" + phase.getLabel() + "\"");
+            }
+        }
+
+        var errors = writer.begin("nebula_packet_errors_total", "counter", "Game requests where the handler threw an exception");
+        var databaseOps = writer.begin("nebula_packet_database_operations_total", "counter", "Database commands sent while handling game requests");
+        var databaseTime = writer.begin("nebula_packet_database_seconds_total", "counter", "Time spent on database commands while handling game requests");
+
+        for (var metrics : packets.values()) {
+            var labels = getMsgLabels(metrics.getMsgId());
+
+            errors.value(labels, metrics.getErrors().sum());
+            databaseOps.value(labels, metrics.getDatabaseOps().sum());
+            databaseTime.value(labels, PrometheusWriter.toSeconds(metrics.getDatabaseTime().sum()));
+        }
+
+        writer.begin("nebula_packet_unhandled_total", "counter", "Game requests without a handler").value(null, unhandled.sum());
+        writer.begin("nebula_decrypt_errors_total", "counter", "Game requests that could not be decrypted").value(null, decryptErrors.sum());
+        writer.begin("nebula_encrypt_errors_total", "counter", "Game responses that could not be encrypted").value(null, encryptErrors.sum());
+
+        // Handshake
+        writer.begin("nebula_handshake_seconds", "histogram", "Time spent creating the keys of a new session").histogram(handshakeTime, null);
+        writer.begin("nebula_key_pair_pool_misses_total", "counter", "Handshakes that had to generate a key pair because the pool was empty").value(null, keyPairPoolMisses.sum());
+
+        // Database
+        var commands = writer.begin("nebula_database_commands_total", "counter", "Database commands by name");
+        var failures = writer.begin("nebula_database_command_failures_total", "counter", "Failed database commands by name");
+        var commandTime = writer.begin("nebula_database_command_seconds_total", "counter", "Time spent on database commands by name");
+
+        for (var entry : databaseMetrics.getCommands().entrySet()) {
+            var labels = "command=\"" + PrometheusWriter.escape(entry.getKey()) + "\"";
+            var command = entry.getValue();
+
+            commands.value(labels, command.getCount().sum());
+            failures.value(labels, command.getFailures().sum());
+            commandTime.value(labels, PrometheusWriter.toSeconds(command.getTime().sum()));
+        }
+
+        writer.begin("nebula_player_load_seconds", "histogram", "Time spent fetching all documents of a player when it is loaded").histogram(playerLoadTime, null);
+
+        var fetchHistograms = writer.begin("nebula_player_fetch_seconds", "histogram", "Time spent fetching each type of document when a player is loaded");
+
+        for (var entry : playerFetchTime.entrySet()) {
+            fetchHistograms.histogram(entry.getValue(), "type=\"" + PrometheusWriter.escape(entry.getKey()) + "\"");
+        }
+
+        // Game context
+        var context = Nebula.getGameContext();
+
+        if (context != null) {
+            writer.begin("nebula_sessions", "gauge", "Sessions on the server").value(null, context.getSessions().size());
+            writer.begin("nebula_players_online", "gauge", "Players that are loaded and online").value(null, context.getPlayerModule().getCachedPlayers().size());
+            writer.begin("nebula_players_offline_cached", "gauge", "Players that recently went offline and are still in memory").value(null, context.getPlayerModule().getOfflinePlayers().size());
+            writer.begin("nebula_player_summaries_cached", "gauge", "Cached player summaries").value(null, context.getPlayerModule().getSummaryCache().size());
+            writer.begin("nebula_key_pair_pool_size", "gauge", "Server key pairs that are ready for new sessions").value(null, context.getKeyPairPool().size());
+        }
+
+        writer.begin("nebula_tick_seconds", "histogram", "Time spent on each game context tick").histogram(tickTime, null);
+
+        return writer.toString();
+    }
+
+    private static String getMsgLabels(int msgId) {
+        return "msg=\"" + PrometheusWriter.escape(NetMsgIdUtils.getMsgIdName(msgId)) + "\",msg_id=\"" + msgId + "\"";
+    }
+}
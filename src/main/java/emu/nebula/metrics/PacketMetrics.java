@@ -0,0 +1,44 @@
+package emu.nebula.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import emu.nebula.metrics.RequestTimer.Phase;
+import lombok.Getter;
+
+/**
+ * Metrics of a single message id
+ */
+@Getter
+public class PacketMetrics {
+    private final int msgId;
+    private final LatencyHistogram[] phases;
+
+    private final LongAdder errors;
+    private final LongAdder databaseOps;
+    private final LongAdder databaseTime;
+
+    PacketMetrics(int msgId) {
+        this.msgId = msgId;
+        this.phases = new LatencyHistogram[Phase.values().length];
+        this.errors = new LongAdder();
+        this.databaseOps = new LongAdder();
+        this.databaseTime = new LongAdder();
+
+        for (int i = 0; i < this.phases.length; i++) {
+            this.phases[i] = new LatencyHistogram();
+        }
+    }
+
+    public LatencyHistogram getPhase(Phase phase) {
+        return this.phases[phase.ordinal()];
+    }
+
+    void addDatabaseTime(int ops, long nanos) {
+        if (ops == 0) {
+            return;
+        }
+
+        this.databaseOps.add(ops);
+        this.databaseTime.add(nanos);
+    }
+}
@@ -0,0 +1,105 @@
+package emu.nebula.metrics;
+
+/**
+ * Writes metrics in the Prometheus text exposition format
+ */
+public class PrometheusWriter {
+    private final StringBuilder builder;
+
+    public PrometheusWriter() {
+        this.builder = new StringBuilder(4096);
+    }
+
+    /**
+     * Writes the header of a metric and returns a writer for its samples
+     */
+    public Metric begin(String name, String type, String help) {
+        this.builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        this.builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+
+        return new Metric(name);
+    }
+
+    @Override
+    public String toString() {
+        return this.builder.toString();
+    }
+
+    // Utility
+
+    public static double toSeconds(long nanos) {
+        return nanos / 1_000_000_000D;
+    }
+
+    public static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public class Metric {
+        private final String name;
+
+        private Metric(String name) {
+            this.name = name;
+        }
+
+        private void sample(String suffix, String labels, String extraLabel, String value) {
+            var builder = PrometheusWriter.this.builder;
+            builder.append(this.name).append(suffix);
+
+            boolean hasLabels = labels != null && !labels.isEmpty();
+
+            if (hasLabels || extraLabel != null) {
+                builder.append('{');
+
+                if (hasLabels) {
+                    builder.append(labels);
+                }
+
+                if (extraLabel != null) {
+                    if (hasLabels) {
+                        builder.append(',');
+                    }
+
+                    builder.append(extraLabel);
+                }
+
+                builder.append('}');
+            }
+
+            builder.append(' ').append(value).append('\n');
+        }
+
+        public Metric value(String labels, long value) {
+            this.sample("", labels, null, Long.toString(value));
+            return this;
+        }
+
+        public Metric value(String labels, double value) {
+            this.sample("", labels, null, Double.toString(value));
+            return this;
+        }
+
+        /**
+         * Writes a histogram with cumulative buckets at every power of 2
+         */
+        public Metric histogram(LatencyHistogram histogram, String labels) {
+            var counts = histogram.getCounts();
+            long total = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+                total += counts[i];
+
+                if (LatencyHistogram.isExported(i)) {
+                    double bound = toSeconds(LatencyHistogram.getUpperBound(i));
+                    this.sample("_bucket", labels, "le=\"" + bound + "\"", Long.toString(total));
+                }
+            }
+
+            this.sample("_bucket", labels, "le=\"+Inf\"", Long.toString(total));
+            this.sample("_sum", labels, null, Double.toString(toSeconds(histogram.getSum())));
+            this.sample("_count", labels, null, Long.toString(total));
+
+            return this;
+        }
+    }
+}
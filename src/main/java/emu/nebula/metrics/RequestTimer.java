@@ -0,0 +1,111 @@
+package emu.nebula.metrics;
+
+/**
+ * Times the phases of a single game request. Each request thread reuses its own timer, see {@link Metrics#getRequestTimer()}.
+ * <p>
+ * The handler phase includes the time spent encoding the response, which is measured separately by the packet
+ * encoder and subtracted when the request is finished. The commit phase covers the post response events and writing
+ * the database changes of the request, so the phases add up to the whole request.
+ */
+public class RequestTimer {
+    private final long[] phases;
+    private boolean active;
+    private long last;
+
+    private long encodeTime;
+    private long databaseTime;
+    private int databaseOps;
+
+    RequestTimer() {
+        this.phases = new long[Phase.values().length];
+    }
+
+    public boolean isActive() {
+        return this.active;
+    }
+
+    /**
+     * Starts timing a new request
+     */
+    public void start() {
+        if (!Metrics.isEnabled()) {
+            return;
+        }
+
+        for (int i = 0; i < this.phases.length; i++) {
+            this.phases[i] = 0;
+        }
+
+        this.encodeTime = 0;
+        this.databaseTime = 0;
+        this.databaseOps = 0;
+
+        this.active = true;
+        this.last = System.nanoTime();
+    }
+
+    /**
+     * Adds the time since the last mark to this phase
+     */
+    public void mark(Phase phase) {
+        if (!this.active) {
+            return;
+        }
+
+        long time = System.nanoTime();
+        this.phases[phase.ordinal()] += time - this.last;
+        this.last = time;
+    }
+
+    void addEncodeTime(long nanos) {
+        this.encodeTime += nanos;
+    }
+
+    void addDatabaseTime(long nanos) {
+        this.databaseTime += nanos;
+        this.databaseOps++;
+    }
+
+    /**
+     * Stops timing the current request without recording it
+     */
+    public void cancel() {
+        this.active = false;
+    }
+
+    /**
+     * Records the timed phases to the metrics of this message id
+     */
+    public void finish(int msgId) {
+        if (!this.active) {
+            return;
+        }
+
+        this.active = false;
+
+        // Move encoding time out of the handler phase
+        long encode = Math.min(this.encodeTime, this.phases[Phase.HANDLER.ordinal()]);
+
+        this.phases[Phase.HANDLER.ordinal()] -= encode;
+        this.phases[Phase.ENCODE.ordinal()] += encode;
+
+        // Record
+        var metrics = Metrics.getPacketMetrics(msgId);
+
+        for (var phase : Phase.values()) {
+            metrics.getPhase(phase).record(this.phases[phase.ordinal()]);
+        }
+
+        metrics.addDatabaseTime(this.databaseOps, this.databaseTime);
+    }
+
+    public static enum Phase {
+        DECRYPT, HANDLER, ENCODE, ENCRYPT, COMMIT;
+
+        private final String label = this.name().toLowerCase();
+
+        public String getLabel() {
+            return this.label;
+        }
+    }
+}
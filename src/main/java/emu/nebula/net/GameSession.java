@@ -1,10 +1,12 @@
 package emu.nebula.net;
 
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
 
-import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
-import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import javax.crypto.spec.SecretKeySpec;
 
 import emu.nebula.Nebula;
 import emu.nebula.game.account.Account;
@@ -16,13 +18,12 @@ import emu.nebula.proto.Public.Nil;
 import emu.nebula.util.AeadHelper;
 import emu.nebula.util.Utils;
 import lombok.Getter;
-import lombok.SneakyThrows;
 import us.hebi.quickbuf.ProtoMessage;
 import us.hebi.quickbuf.RepeatedByte;
 
 @Getter
 public class GameSession {
-    private String token;
+    private volatile String token;
     private Account account;
     private Player player;
     
@@ -36,10 +37,11 @@ public class GameSession {
     private byte[] serverPublicKey;
     private byte[] serverPrivateKey;
     private byte[] key;
+    private SecretKeySpec keySpec;
 
     // Session cleanup
-    private boolean remove;
-    private long lastActiveTime;
+    private volatile boolean remove;
+    private volatile long lastActiveTime;
 
     public GameSession() {
         this.platform = -1;
@@ -72,7 +74,10 @@ public class GameSession {
         }
 
         // Set session removal flag
-        this.remove = true;
+        if (!this.remove) {
+            this.remove = true;
+            Nebula.getGameContext().scheduleSessionRemoval(this);
+        }
     }
 
     public synchronized boolean hasPlayer() {
@@ -95,15 +100,18 @@ public class GameSession {
     }
 
     public void generateServerKey() {
-        var pair = AeadHelper.generateECDHKEyPair();
+        // Take a pre-generated key pair from the pool if the game context is running
+        var context = Nebula.getGameContext();
+        var pair = context != null ? context.getKeyPairPool().take() : AeadHelper.generateServerKeyPair();
 
-        this.serverPrivateKey = ((ECPrivateKeyParameters) pair.getPrivate()).getD().toByteArray();
-        this.serverPublicKey = ((ECPublicKeyParameters) pair.getPublic()).getQ().getEncoded(false);
+        this.serverPrivateKey = pair.privateKey();
+        this.serverPublicKey = pair.publicKey();
     }
 
     public void calculateKey() {
         this.key = AeadHelper.generateKey(clientPublicKey, serverPublicKey, serverPrivateKey);
         this.encryptMethod = Utils.randomRange(0, 1);
+        this.keySpec = AeadHelper.createKeySpec(this.key, this.encryptMethod);
     }
 
     public String generateToken() {
@@ -163,7 +171,6 @@ public class GameSession {
 
     // Packet encoding helper functions
 
-    @SneakyThrows
     public byte[] encodeMsg(int msgId, ProtoMessage<?> proto) {
         // Check if we have any packages to send to the client
         if (this.getPlayer() != null) {
@@ -171,13 +178,13 @@ public class GameSession {
             this.checkPlayerStates();
 
             // Chain next packages for player
-            if (this.getPlayer().hasNextPackages()) {
-                this.addNextPackages(proto);
+            if (this.getPlayer().hasNextPackages() && PacketHelper.hasNextPackageMethod(proto)) {
+                return PacketHelper.encodeResponse(msgId, proto, this.getNextPackageChain());
             }
         }
 
         // Encode to message like normal
-        return PacketHelper.encodeMsg(msgId, proto);
+        return PacketHelper.encodeResponse(msgId, proto);
     }
 
     public byte[] encodeMsg(int msgId) {
@@ -192,12 +199,12 @@ public class GameSession {
                 var proto = Nil.newInstance();
 
                 // Encode proto with next packages
-                return this.encodeMsg(msgId, this.addNextPackages(proto));
+                return PacketHelper.encodeResponse(msgId, proto, this.getNextPackageChain());
             }
         }
 
         // Encode simple message
-        return PacketHelper.encodeMsg(msgId);
+        return PacketHelper.encodeResponse(msgId);
     }
 
     private void checkPlayerStates() {
@@ -217,47 +224,27 @@ public class GameSession {
         this.getPlayer().getCharacters().checkPlayerState();
     }
 
-    private ProtoMessage<?> addNextPackages(ProtoMessage<?> proto) {
-        // Sanity check and make sure proto has a "nextPackage" field
-        if (!PacketHelper.hasNextPackageMethod(proto)) {
-            return proto;
-        }
-
-        // Set next package
-        if (this.getPlayer().getNextPackages().size() > 0) {
-            // Set current package
-            NetMsgPacket curPacket = null;
-
-            // Chain link next packages
-            while (getPlayer().getNextPackages().size() > 0) {
-                // Make sure the current packet has a nextPackage field
-                if (curPacket != null && !PacketHelper.hasNextPackageMethod(curPacket.getProto())) {
-                    break;
-                }
-
-                // Get current package
-                var nextPacket = getPlayer().getNextPackages().pop();
-
-                // Set cur packet if its null
-                if (curPacket == null) {
-                    curPacket = nextPacket;
-                    continue;
-                }
-
-                // Set next package
-                PacketHelper.setNextPackage(nextPacket.getProto(), curPacket.toByteArray());
+    /**
+     * Takes the next packages that can be chained from the player. The returned list starts with the packet that is
+     * set on the response, and ends with the innermost one. Packets are taken until one without a nextPackage field
+     * is next, the rest are left for the next response.
+     */
+    private List<NetMsgPacket> getNextPackageChain() {
+        var nextPackages = this.getPlayer().getNextPackages();
+        var chain = new ArrayList<NetMsgPacket>(nextPackages.size());
 
-                // Update next packet
-                curPacket = nextPacket;
-            }
+        // The innermost packet doesn't need a nextPackage field
+        chain.add(nextPackages.pop());
 
-            // Set next package of current proto via reflection
-            if (curPacket != null) {
-                PacketHelper.setNextPackage(proto, curPacket.toByteArray());
-            }
+        // Every packet around it does
+        while (nextPackages.size() > 0 && PacketHelper.hasNextPackageMethod(nextPackages.peek().getProto())) {
+            chain.add(nextPackages.pop());
         }
 
-        return proto;
+        // Outermost packet first
+        Collections.reverse(chain);
+
+        return chain;
     }
     
     // Misc network
@@ -269,5 +256,8 @@ public class GameSession {
         if (this.getPlayer() != null) {
             this.getPlayer().afterResponse();
         }
+        
+        // Write all database changes made during this request
+        Nebula.getGameDatabase().commitWriteBatch();
     }
 }
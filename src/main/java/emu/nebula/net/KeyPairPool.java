@@ -0,0 +1,70 @@
+package emu.nebula.net;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import emu.nebula.Nebula;
+import emu.nebula.metrics.Metrics;
+import emu.nebula.util.AeadHelper;
+import emu.nebula.util.AeadHelper.EcdhKeyPair;
+
+/**
+ * Bounded pool of server key pairs for the handshake. A background thread keeps the pool full, so when a lot of
+ * clients connect at once (like after a restart) the request threads only have to calculate the shared secret.
+ * If the pool runs out, key pairs are generated on the request thread instead.
+ */
+public class KeyPairPool {
+    private final BlockingQueue<EcdhKeyPair> pool;
+
+    public KeyPairPool(int size) {
+        if (size <= 0) {
+            this.pool = null;
+            return;
+        }
+
+        this.pool = new ArrayBlockingQueue<>(size);
+
+        // Start producer
+        Thread.ofPlatform()
+                .name("KeyPairPool")
+                .daemon()
+                .start(this::produce);
+    }
+
+    private void produce() {
+        try {
+            while (true) {
+                this.pool.put(AeadHelper.generateServerKeyPair());
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        } catch (Exception e) {
+            Nebula.getLogger().error("Key pair pool producer stopped", e);
+        }
+    }
+
+    /**
+     * Returns the amount of key pairs that are ready
+     */
+    public int size() {
+        return this.pool != null ? this.pool.size() : 0;
+    }
+
+    /**
+     * Takes a key pair from the pool, or generates one if the pool is empty. Each key pair is only handed out once.
+     */
+    public EcdhKeyPair take() {
+        if (this.pool == null) {
+            return AeadHelper.generateServerKeyPair();
+        }
+
+        var pair = this.pool.poll();
+
+        if (pair == null) {
+            Metrics.recordKeyPairPoolMiss();
+            pair = AeadHelper.generateServerKeyPair();
+        }
+
+        return pair;
+    }
+}
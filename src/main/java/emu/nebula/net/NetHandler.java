@@ -1,5 +1,7 @@
 package emu.nebula.net;
 
+import us.hebi.quickbuf.ProtoSource;
+
 public abstract class NetHandler {
 
     public boolean requireSession() {
@@ -12,6 +14,11 @@ public abstract class NetHandler {
     
     // Handler
 
-    public abstract byte[] handle(GameSession session, byte[] message) throws Exception;
+    /**
+     * Handles a request. The message source reads directly from the decrypted request buffer and is only valid
+     * for the duration of this call. The returned data should be created with {@link GameSession#encodeMsg}
+     * or {@link PacketHelper#encodeResponse} so it has room to be encrypted in place.
+     */
+    public abstract byte[] handle(GameSession session, ProtoSource message) throws Exception;
 
 }
@@ -0,0 +1,102 @@
+package emu.nebula.net;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import us.hebi.quickbuf.ProtoMessage;
+
+/**
+ * Accessors for the nextPackage field of a proto class. The setter and clear methods are bound with
+ * {@link LambdaMetafactory}, so calling them is as fast as a direct call. The encoded tag of the field is found
+ * once by encoding an empty proto that only has the field set.
+ */
+class NextPackageAccessor {
+    private final byte[] tag;
+    private final BiConsumer<ProtoMessage<?>, byte[]> setter;
+    private final Consumer<ProtoMessage<?>> clearer;
+
+    private NextPackageAccessor(byte[] tag, BiConsumer<ProtoMessage<?>, byte[]> setter, Consumer<ProtoMessage<?>> clearer) {
+        this.tag = tag;
+        this.setter = setter;
+        this.clearer = clearer;
+    }
+
+    /**
+     * Returns the encoded tag of the nextPackage field
+     */
+    public byte[] getTag() {
+        return this.tag;
+    }
+
+    public void set(ProtoMessage<?> proto, byte[] data) {
+        this.setter.accept(proto, data);
+    }
+
+    public void clear(ProtoMessage<?> proto) {
+        this.clearer.accept(proto);
+    }
+
+    /**
+     * Creates the accessors for a proto class
+     * @throws IllegalStateException If the tag of the nextPackage field could not be found
+     */
+    @SuppressWarnings("unchecked")
+    public static NextPackageAccessor create(Class<?> cls) throws ReflectiveOperationException, LambdaConversionException {
+        var lookup = MethodHandles.lookup();
+
+        // Bind setter
+        var setHandle = lookup.findVirtual(cls, "setNextPackage", MethodType.methodType(cls, byte[].class));
+        var setter = (BiConsumer<ProtoMessage<?>, byte[]>) getInstance(LambdaMetafactory.metafactory(
+                lookup,
+                "accept",
+                MethodType.methodType(BiConsumer.class),
+                MethodType.methodType(void.class, Object.class, Object.class),
+                setHandle,
+                MethodType.methodType(void.class, cls, byte[].class)
+        ));
+
+        // Bind clear
+        var clearHandle = lookup.findVirtual(cls, "clearNextPackage", MethodType.methodType(cls));
+        var clearer = (Consumer<ProtoMessage<?>>) getInstance(LambdaMetafactory.metafactory(
+                lookup,
+                "accept",
+                MethodType.methodType(Consumer.class),
+                MethodType.methodType(void.class, Object.class),
+                clearHandle,
+                MethodType.methodType(void.class, cls)
+        ));
+
+        // Find tag. An empty proto with a 1 byte next package is encoded as the tag, length 1 and the byte
+        var proto = (ProtoMessage<?>) cls.getMethod("newInstance").invoke(null);
+        setter.accept(proto, new byte[] {0x7f});
+
+        var data = proto.toByteArray();
+        int length = data.length - 2;
+
+        if (length < 1 || data[length] != 1 || data[length + 1] != 0x7f) {
+            throw new IllegalStateException("Could not find the next package tag of " + cls.getName());
+        }
+
+        return new NextPackageAccessor(Arrays.copyOf(data, length), setter, clearer);
+    }
+
+    /**
+     * Returns the lambda of a call site that doesn't capture any values
+     */
+    private static Object getInstance(CallSite site) throws ReflectiveOperationException {
+        try {
+            return site.getTarget().invoke();
+        } catch (RuntimeException | Error | ReflectiveOperationException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+}
@@ -1,44 +1,52 @@
 package emu.nebula.net;
 
-import org.reflections.Reflections;
-
-import com.esotericsoftware.reflectasm.MethodAccess;
+import java.lang.invoke.LambdaConversionException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import emu.nebula.Nebula;
-import it.unimi.dsi.fastutil.objects.Object2IntMap;
-import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import emu.nebula.metrics.Metrics;
+import emu.nebula.util.AeadHelper;
+import emu.nebula.util.ClassRegistry;
 import lombok.SneakyThrows;
 import us.hebi.quickbuf.ProtoMessage;
 import us.hebi.quickbuf.ProtoSink;
 
 public class PacketHelper {
-    private static Object2IntMap<Class<?>> methodIndexCache = new Object2IntOpenHashMap<>();
+    // Room that is left around encoded responses for the iv and tag
+    public static final int RESPONSE_HEADER_SIZE = AeadHelper.IV_LENGTH;
+    public static final int RESPONSE_FOOTER_SIZE = AeadHelper.TAG_LENGTH;
+    
+    // Immutable after startup, so it can be read from any thread without locking
+    private static volatile Map<Class<?>, NextPackageAccessor> nextPackageAccessors = Map.of();
     
     // Next packages
     
     public static void cacheProtos() {
-        var classes = new Reflections(Nebula.class.getPackage().getName()).getSubTypesOf(ProtoMessage.class);
+        var classes = ClassRegistry.getNextPackageProtos();
+        var accessors = new HashMap<Class<?>, NextPackageAccessor>();
         
         for (var cls : classes) {
             try {
-                var access = MethodAccess.get(cls);
-                int index = access.getIndex("setNextPackage");
-                methodIndexCache.put(cls, index);
-            } catch (Exception e) {
-                
+                accessors.put(cls, NextPackageAccessor.create(cls));
+            } catch (ReflectiveOperationException | LambdaConversionException | IllegalStateException e) {
+                // Every registered proto has a next package, so this is a bug and not a proto to skip
+                Nebula.getLogger().error("Could not create the next package accessor of " + cls.getName(), e);
             }
         }
         
-        Nebula.getLogger().info("Cached " + methodIndexCache.size() + " proto methods.");
+        nextPackageAccessors = Map.copyOf(accessors);
+        
+        Nebula.getLogger().info("Cached " + accessors.size() + " proto methods.");
     }
     
     public static boolean hasNextPackageMethod(Object obj) {
-        return methodIndexCache.containsKey(obj.getClass());
+        return nextPackageAccessors.containsKey(obj.getClass());
     }
     
     public static void setNextPackage(ProtoMessage<?> proto, byte[] data) {
-        int index = methodIndexCache.getInt(proto.getClass());
-        MethodAccess.get(proto.getClass()).invoke(proto, index, data);
+        nextPackageAccessors.get(proto.getClass()).set(proto, data);
     }
     
     // Packet encoding
@@ -48,9 +56,7 @@ public class PacketHelper {
         byte[] data = new byte[packet.length + 2];
         
         // Encode msgId
-        short id = (short) msgId;
-        data[0] = (byte) (id >> 8);
-        data[1] = (byte) id;
+        writeMsgId(data, 0, msgId);
         
         // Copy packet to data array
         System.arraycopy(packet, 0, data, 2, packet.length);
@@ -59,36 +65,150 @@ public class PacketHelper {
         return data;
     }
 
-    @SneakyThrows
     public static byte[] encodeMsg(int msgId, ProtoMessage<?> proto) {
+        return encode(msgId, proto, 0, 0);
+    }
+    
+    public static byte[] encodeMsg(int msgId) {
+        return encode(msgId, null, 0, 0);
+    }
+    
+    // Response encoding
+    
+    /**
+     * Encodes a response to the client. The returned array has {@link #RESPONSE_HEADER_SIZE} empty bytes in front
+     * of the message and {@link #RESPONSE_FOOTER_SIZE} empty bytes after it, so it can be encrypted in place.
+     */
+    public static byte[] encodeResponse(int msgId, ProtoMessage<?> proto) {
+        return encode(msgId, proto, RESPONSE_HEADER_SIZE, RESPONSE_FOOTER_SIZE);
+    }
+    
+    public static byte[] encodeResponse(int msgId) {
+        return encode(msgId, null, RESPONSE_HEADER_SIZE, RESPONSE_FOOTER_SIZE);
+    }
+    
+    /**
+     * Encodes a response with a chain of next packages. The first packet in the chain is set as the next package of
+     * the response, the second as the next package of the first and so on. Every proto except the last packet's must
+     * have a nextPackage field.
+     * <p>
+     * Nested sizes are computed from the back of the chain, then the whole chain is written into one array in a
+     * single pass, instead of encoding each link and copying it into the next one.
+     */
+    @SneakyThrows
+    public static byte[] encodeResponse(int msgId, ProtoMessage<?> proto, List<NetMsgPacket> chain) {
+        if (chain.isEmpty()) {
+            return encodeResponse(msgId, proto);
+        }
+        
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+        
+        // Get the accessor of every proto that has a next package, these are cleared so only the chain is written
+        int links = chain.size();
+        var accessors = new NextPackageAccessor[links];
+        
+        accessors[0] = getAccessor(proto);
+        accessors[0].clear(proto);
+        
+        for (int i = 1; i < links; i++) {
+            var linkProto = chain.get(i - 1).getProto();
+            accessors[i] = getAccessor(linkProto);
+            accessors[i].clear(linkProto);
+        }
+        
+        // Compute the size of each encoded link, starting from the last one
+        var sizes = new int[links];
+        int nextSize = 0;
+        
+        for (int i = links - 1; i >= 0; i--) {
+            int size = 2 + chain.get(i).getProto().getSerializedSize();
+            
+            if (i < links - 1) {
+                size += accessors[i + 1].getTag().length + ProtoSink.computeUInt32SizeNoTag(nextSize) + nextSize;
+            }
+            
+            sizes[i] = size;
+            nextSize = size;
+        }
+        
+        int size = proto.getSerializedSize() + accessors[0].getTag().length + ProtoSink.computeUInt32SizeNoTag(sizes[0]) + sizes[0];
+        
         // Create data array
-        byte[] data = new byte[proto.getCachedSize() + 2];
+        byte[] data = new byte[RESPONSE_HEADER_SIZE + 2 + size + RESPONSE_FOOTER_SIZE];
         
         // Encode msgId
-        short id = (short) msgId;
-        data[0] = (byte) (id >> 8);
-        data[1] = (byte) id;
-        
-        // Create proto sink
-        var output = ProtoSink.newInstance(data, 2, proto.getCachedSize());
+        writeMsgId(data, RESPONSE_HEADER_SIZE, msgId);
         
-        // Copy packet to data array
+        // Write the response, then each link as the next package field of the one before it
+        var output = ProtoSink.newInstance(data, RESPONSE_HEADER_SIZE + 2, size);
         proto.writeTo(output);
         
+        for (int i = 0; i < links; i++) {
+            var packet = chain.get(i);
+            
+            output.writeRawBytes(accessors[i].getTag());
+            output.writeUInt32NoTag(sizes[i]);
+            output.writeRawByte((byte) (packet.getMsgId() >> 8));
+            output.writeRawByte((byte) packet.getMsgId());
+            packet.getProto().writeTo(output);
+        }
+        
         // Complete
+        if (Metrics.isEnabled()) {
+            Metrics.recordEncode(System.nanoTime() - start);
+        }
+        
         return data;
     }
     
-    public static byte[] encodeMsg(int msgId) {
+    private static NextPackageAccessor getAccessor(ProtoMessage<?> proto) {
+        var accessor = nextPackageAccessors.get(proto.getClass());
+        
+        if (accessor == null) {
+            throw new IllegalArgumentException(proto.getClass().getName() + " does not have a next package field");
+        }
+        
+        return accessor;
+    }
+    
+    /**
+     * Returns the length of the message inside a response created by {@link #encodeResponse}
+     */
+    public static int getResponseLength(byte[] response) {
+        return response.length - RESPONSE_HEADER_SIZE - RESPONSE_FOOTER_SIZE;
+    }
+    
+    @SneakyThrows
+    private static byte[] encode(int msgId, ProtoMessage<?> proto, int header, int footer) {
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+        
+        // Get proto size
+        int size = proto != null ? proto.getSerializedSize() : 0;
+        
         // Create data array
-        byte[] data = new byte[2];
+        byte[] data = new byte[header + 2 + size + footer];
         
         // Encode msgId
-        short id = (short) msgId;
-        data[0] = (byte) (id >> 8);
-        data[1] = (byte) id;
+        writeMsgId(data, header, msgId);
+        
+        // Write proto directly into the data array
+        if (proto != null) {
+            var output = ProtoSink.newInstance(data, header + 2, size);
+            proto.writeTo(output);
+        }
+        
+        // Complete
+        if (Metrics.isEnabled()) {
+            Metrics.recordEncode(System.nanoTime() - start);
+        }
         
         return data;
     }
     
+    private static void writeMsgId(byte[] data, int offset, int msgId) {
+        short id = (short) msgId;
+        data[offset] = (byte) (id >> 8);
+        data[offset + 1] = (byte) id;
+    }
+    
 }
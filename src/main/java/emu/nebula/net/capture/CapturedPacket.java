@@ -0,0 +1,16 @@
+package emu.nebula.net.capture;
+
+/**
+ * A packet in a capture file
+ * @param time Time the packet was captured, in milliseconds
+ * @param session Hash of the session token, 0 if the request had no session
+ * @param msgId
+ * @param direction
+ * @param data Decrypted message without the message id
+ */
+public record CapturedPacket(long time, long session, int msgId, Direction direction, byte[] data) {
+
+    public static enum Direction {
+        RECV, SEND;
+    }
+}
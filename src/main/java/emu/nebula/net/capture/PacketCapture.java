@@ -0,0 +1,266 @@
+package emu.nebula.net.capture;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import emu.nebula.Config.PacketCaptureOptions;
+import emu.nebula.Nebula;
+import emu.nebula.net.GameSession;
+import emu.nebula.net.PacketHelper;
+import emu.nebula.net.capture.CapturedPacket.Direction;
+import emu.nebula.util.RingBuffer;
+
+/**
+ * Captures decrypted packets to binary files. Request threads only copy the packet into a lock-free ring buffer,
+ * a background thread writes them to disk. If the writer falls behind and the buffer is full, packets are dropped
+ * instead of slowing down requests.
+ * <p>
+ * Capture files start with a header, followed by length prefixed packets. A new file is started once the current
+ * one reaches the size limit, and the oldest files are deleted when there are too many. Use {@link PacketReplay}
+ * to replay them.
+ */
+public class PacketCapture {
+    static final int MAGIC = 0x4E425043; // NBPC
+    static final int VERSION = 1;
+    static final String FILE_PREFIX = "capture-";
+    static final String FILE_EXTENSION = ".bin";
+
+    // How long the writer sleeps when there is nothing to write
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final PacketCapture instance = create();
+
+    private final Path directory;
+    private final long maxFileSize;
+    private final int maxFiles;
+
+    private final RingBuffer<CapturedPacket> buffer;
+    private final AtomicLong dropped;
+    private final Thread writer;
+    private volatile boolean running;
+
+    // Writer state
+    private DataOutputStream out;
+    private long fileSize;
+    private long lastFileTime;
+
+    private PacketCapture(PacketCaptureOptions options) {
+        this.directory = Path.of(options.directory);
+        this.maxFileSize = Math.max(options.maxFileSize, 1) * 1024L * 1024L;
+        this.maxFiles = options.maxFiles;
+
+        this.buffer = new RingBuffer<>(options.bufferSize);
+        this.dropped = new AtomicLong();
+        this.running = true;
+
+        // Start writer
+        this.writer = new Thread(this::run, "Packet Capture Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+
+        // Write everything that is still buffered when the server stops
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
+    }
+
+    private static PacketCapture create() {
+        var config = Nebula.getConfig();
+
+        if (config == null || !config.getPacketCapture().enabled) {
+            return null;
+        }
+
+        Nebula.getLogger().info("Capturing packets to " + config.getPacketCapture().directory);
+
+        return new PacketCapture(config.getPacketCapture());
+    }
+
+    public static boolean isEnabled() {
+        return instance != null;
+    }
+
+    // Capture
+
+    /**
+     * Captures a decrypted request
+     */
+    public static void captureRecv(GameSession session, int msgId, byte[] data, int offset, int length) {
+        if (instance == null) {
+            return;
+        }
+
+        var copy = new byte[length];
+        System.arraycopy(data, offset, copy, 0, length);
+
+        instance.add(new CapturedPacket(System.currentTimeMillis(), hashSession(session), msgId, Direction.RECV, copy));
+    }
+
+    /**
+     * Captures a response before it is encrypted
+     */
+    public static void captureSend(GameSession session, byte[] response) {
+        if (instance == null) {
+            return;
+        }
+
+        int offset = PacketHelper.RESPONSE_HEADER_SIZE;
+        int msgId = ((response[offset] & 0xff) << 8) | (response[offset + 1] & 0xff);
+
+        var copy = new byte[PacketHelper.getResponseLength(response) - 2];
+        System.arraycopy(response, offset + 2, copy, 0, copy.length);
+
+        instance.add(new CapturedPacket(System.currentTimeMillis(), hashSession(session), msgId, Direction.SEND, copy));
+    }
+
+    private void add(CapturedPacket packet) {
+        if (!this.buffer.offer(packet)) {
+            this.dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns a 64 bit FNV-1a hash of the session token, so captures can tell sessions apart without storing tokens
+     */
+    static long hashSession(GameSession session) {
+        var token = session != null ? session.getToken() : null;
+
+        if (token == null) {
+            return 0;
+        }
+
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < token.length(); i++) {
+            hash ^= token.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        // 0 is reserved for requests without a session
+        return hash != 0 ? hash : 1;
+    }
+
+    // Writer
+
+    private void run() {
+        while (true) {
+            var packet = this.buffer.poll();
+
+            if (packet == null) {
+                // Only exit once the buffer is drained
+                if (!this.running) {
+                    break;
+                }
+
+                this.idle();
+                LockSupport.parkNanos(IDLE_NANOS);
+                continue;
+            }
+
+            try {
+                this.write(packet);
+            } catch (IOException e) {
+                Nebula.getLogger().error("Could not write packet capture: " + e);
+                this.closeFile();
+            }
+        }
+
+        this.idle();
+        this.closeFile();
+    }
+
+    private void idle() {
+        // Flush so captures are readable while the server is running
+        if (this.out != null) {
+            try {
+                this.out.flush();
+            } catch (IOException e) {
+                Nebula.getLogger().error("Could not write packet capture: " + e);
+                this.closeFile();
+            }
+        }
+
+        // Report dropped packets
+        long dropped = this.dropped.getAndSet(0);
+
+        if (dropped > 0) {
+            Nebula.getLogger().warn("Packet capture buffer is full, dropped " + dropped + " packets");
+        }
+    }
+
+    private void write(CapturedPacket packet) throws IOException {
+        // Rotate files
+        if (this.out == null || this.fileSize >= this.maxFileSize) {
+            this.openFile();
+        }
+
+        var data = packet.data();
+
+        this.out.writeInt(8 + 8 + 2 + 1 + data.length);
+        this.out.writeLong(packet.time());
+        this.out.writeLong(packet.session());
+        this.out.writeShort(packet.msgId());
+        this.out.writeByte(packet.direction().ordinal());
+        this.out.write(data);
+
+        this.fileSize += 4 + 8 + 8 + 2 + 1 + data.length;
+    }
+
+    private void openFile() throws IOException {
+        this.closeFile();
+
+        Files.createDirectories(this.directory);
+
+        // Name files by time so they sort in capture order
+        long time = Math.max(System.currentTimeMillis(), this.lastFileTime + 1);
+        this.lastFileTime = time;
+
+        var name = FILE_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(time)) + FILE_EXTENSION;
+        var file = this.directory.resolve(name);
+
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+        this.fileSize = 8;
+
+        // Delete old files, including ones from earlier runs
+        if (this.maxFiles > 0) {
+            var files = PacketCaptureReader.listFiles(this.directory);
+
+            for (int i = 0; i < files.size() - this.maxFiles; i++) {
+                Files.deleteIfExists(files.get(i));
+            }
+        }
+    }
+
+    private void closeFile() {
+        if (this.out == null) {
+            return;
+        }
+
+        try {
+            this.out.close();
+        } catch (IOException e) {
+            // Ignored
+        }
+
+        this.out = null;
+    }
+
+    private void stop() {
+        this.running = false;
+        LockSupport.unpark(this.writer);
+
+        try {
+            this.writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            // Ignored
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package emu.nebula.net.capture;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import emu.nebula.net.capture.CapturedPacket.Direction;
+
+/**
+ * Reads the packets of a capture file written by {@link PacketCapture}
+ */
+public class PacketCaptureReader implements Closeable {
+    private final DataInputStream in;
+
+    public PacketCaptureReader(Path file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+
+        // Check header
+        if (this.in.readInt() != PacketCapture.MAGIC || this.in.readInt() != PacketCapture.VERSION) {
+            this.in.close();
+            throw new IOException("Not a packet capture file: " + file);
+        }
+    }
+
+    /**
+     * Returns the next packet, or null at the end of the file. A packet that was only partly written (for example
+     * if the server was killed) also ends the file.
+     */
+    public CapturedPacket read() throws IOException {
+        try {
+            int length = this.in.readInt();
+
+            long time = this.in.readLong();
+            long session = this.in.readLong();
+            int msgId = this.in.readUnsignedShort();
+            var direction = Direction.values()[this.in.readUnsignedByte()];
+
+            var data = new byte[length - (8 + 8 + 2 + 1)];
+            this.in.readFully(data);
+
+            return new CapturedPacket(time, session, msgId, direction, data);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    /**
+     * Returns the capture files at this path in capture order. The path can be a capture file or a directory.
+     */
+    public static List<Path> listFiles(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+
+        try (var files = Files.list(path)) {
+            return files
+                    .filter(file -> {
+                        var name = file.getFileName().toString();
+                        return name.startsWith(PacketCapture.FILE_PREFIX) && name.endsWith(PacketCapture.FILE_EXTENSION);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package emu.nebula.net.capture;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import emu.nebula.Nebula;
+import emu.nebula.game.account.AccountHelper;
+import emu.nebula.net.GameSession;
+import emu.nebula.net.NetHandler;
+import emu.nebula.net.NetMsgId;
+import emu.nebula.net.NetMsgIdUtils;
+import emu.nebula.net.capture.CapturedPacket.Direction;
+import emu.nebula.server.routes.AgentZoneHandler;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import us.hebi.quickbuf.ProtoSource;
+
+/**
+ * Replays captured requests through the handler table against a scratch in-memory database, then prints how long
+ * each handler took. Every captured session gets its own new account and player, so the replay never touches the
+ * real database. Login requests are skipped since replayed sessions are logged in when they are created.
+ * <p>
+ * Usage: java -cp Nebula.jar emu.nebula.net.capture.PacketReplay [capture file or directory]...
+ * <p>
+ * Should be run from the server directory so the config and resources are found.
+ */
+public class PacketReplay {
+    private final Int2ObjectMap<NetHandler> handlers;
+    private final Long2ObjectMap<GameSession> sessions;
+    private final Int2ObjectMap<Stats> stats;
+    private final ProtoSource source;
+
+    private long skipped;
+
+    public PacketReplay(Int2ObjectMap<NetHandler> handlers) {
+        this.handlers = handlers;
+        this.sessions = new Long2ObjectOpenHashMap<>();
+        this.stats = new Int2ObjectOpenHashMap<>();
+        this.source = ProtoSource.newArraySource();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: PacketReplay [capture file or directory]...");
+            return;
+        }
+
+        // Replay against an internal MongoDB server with the memory backend
+        Nebula.initLocalServer(false, config -> {
+            config.getServerOptions().skipIntro = true;
+            config.getPacketCapture().enabled = false;
+        });
+
+        // Replay
+        var replay = new PacketReplay(new AgentZoneHandler().getHandlers());
+        long start = System.nanoTime();
+
+        for (var arg : args) {
+            for (var file : PacketCaptureReader.listFiles(Path.of(arg))) {
+                Nebula.getLogger().info("Replaying " + file);
+                replay.replay(file);
+            }
+        }
+
+        replay.printStats(System.nanoTime() - start);
+        System.exit(0);
+    }
+
+    /**
+     * Replays all requests in a capture file
+     */
+    public void replay(Path file) throws Exception {
+        try (var reader = new PacketCaptureReader(file)) {
+            CapturedPacket packet;
+
+            while ((packet = reader.read()) != null) {
+                this.replay(packet);
+            }
+        }
+    }
+
+    /**
+     * Replays a captured request. Responses and requests without a session are skipped.
+     */
+    public void replay(CapturedPacket packet) {
+        if (packet.direction() != Direction.RECV || packet.session() == 0 || packet.msgId() == NetMsgId.player_login_req) {
+            this.skipped++;
+            return;
+        }
+
+        // Get session
+        var session = this.sessions.get(packet.session());
+
+        if (session == null) {
+            session = this.createSession(packet.session());
+            this.sessions.put(packet.session(), session);
+        }
+
+        // Get handler
+        var handler = this.handlers.get(packet.msgId());
+        var stats = this.stats.computeIfAbsent(packet.msgId(), Stats::new);
+
+        if (handler == null || (handler.requirePlayer() && session.getPlayer() == null)) {
+            stats.skipped++;
+            return;
+        }
+
+        // Handle the same way the agent zone handler does
+        session.updateLastActiveTime();
+        Nebula.getGameDatabase().beginWriteBatch();
+
+        byte[] result = null;
+        long start = System.nanoTime();
+
+        try {
+            result = handler.handle(session, this.source.setInput(packet.data()));
+        } catch (Exception e) {
+            Nebula.getLogger().warn("Error replaying " + NetMsgIdUtils.getMsgIdName(packet.msgId()) + ": " + e);
+        }
+
+        if (result != null) {
+            session.afterResponse();
+        } else {
+            Nebula.getGameDatabase().commitWriteBatch();
+            stats.errors++;
+        }
+
+        stats.add(System.nanoTime() - start);
+    }
+
+    private GameSession createSession(long hash) {
+        // Create account
+        var account = AccountHelper.createAccount("replay-" + Long.toHexString(hash) + "@nebula", null, 0);
+        var loginToken = account.generateLoginToken();
+        account.save();
+
+        // Create session and login, skip intro is set so a player is always created
+        var session = new GameSession();
+        Nebula.getGameContext().generateSessionToken(session);
+        session.login(loginToken);
+
+        return session;
+    }
+
+    private void printStats(long time) {
+        var list = new ArrayList<>(this.stats.values());
+        list.sort(Comparator.comparingLong(Stats::getTotal).reversed());
+
+        long count = list.stream().mapToLong(s -> s.count).sum();
+
+        Nebula.getLogger().info(String.format("Replayed %d requests from %d sessions in %.1f ms (%d skipped)",
+                count, this.sessions.size(), time / 1e6, this.skipped));
+
+        System.out.println(String.format("%-50s %8s %8s %8s %12s %12s", "Message", "Count", "Errors", "Skipped", "Mean (us)", "Max (us)"));
+
+        for (var s : list) {
+            System.out.println(String.format("%-50s %8d %8d %8d %12.1f %12.1f",
+                    NetMsgIdUtils.getMsgIdName(s.msgId) + " (" + s.msgId + ")",
+                    s.count,
+                    s.errors,
+                    s.skipped,
+                    s.count > 0 ? s.total / 1e3 / s.count : 0,
+                    s.max / 1e3));
+        }
+    }
+
+    private static class Stats {
+        private final int msgId;
+        private long count;
+        private long errors;
+        private long skipped;
+        private long total;
+        private long max;
+
+        private Stats(int msgId) {
+            this.msgId = msgId;
+        }
+
+        private void add(long time) {
+            this.count++;
+            this.total += time;
+            this.max = Math.max(this.max, time);
+        }
+
+        private long getTotal() {
+            return this.total;
+        }
+    }
+}
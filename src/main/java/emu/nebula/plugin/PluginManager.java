@@ -1,5 +1,6 @@
 package emu.nebula.plugin;
 
+import emu.nebula.util.ClassRegistry;
 import emu.nebula.util.JsonUtils;
 import lombok.Getter;
 import org.slf4j.Logger;
@@ -136,7 +137,7 @@ public final class PluginManager {
                     ));
                 } else try {
                     pluginInstance.onLoad();
-                    this.plugins.put(pluginInstance.getName(), pluginInstance);
+                    this.addPlugin(pluginInstance);
                 } catch (Throwable exception) {
                     this.getLogger().warn("Failed to load plugin {}.", pluginFile.getName());
                 }
@@ -172,7 +173,7 @@ public final class PluginManager {
 
                 // Load the plugin.
                 pluginData.instance().onLoad();
-                this.plugins.put(pluginData.instance().getName(), pluginData.instance());
+                this.addPlugin(pluginData.instance());
             } catch (Throwable exception) {
                 this.getLogger().warn("Failed to load plugin {}.", exception.getMessage());
                 depth++;
@@ -180,6 +181,14 @@ public final class PluginManager {
         }
     }
 
+    /**
+     * Adds a loaded plugin and scans its classes, so its commands, handlers and resources are registered.
+     */
+    private void addPlugin(Plugin plugin) {
+        this.plugins.put(plugin.getName(), plugin);
+        ClassRegistry.addPlugin(plugin.getClassLoader(), plugin.getClass().getPackageName());
+    }
+
     /**
      * Enables all plugins.
      */
@@ -6,6 +6,7 @@ import emu.nebula.Config.HttpServerConfig;
 import emu.nebula.GameConstants;
 import emu.nebula.Nebula;
 import emu.nebula.Nebula.ServerType;
+import emu.nebula.metrics.Metrics;
 import emu.nebula.proto.Pb.ClientDiff;
 import emu.nebula.server.routes.*;
 import emu.nebula.util.JsonUtils;
@@ -151,6 +152,11 @@ public class HttpServer {
         
         // Custom api route(s)
         getApp().post("/api/command", new RemoteHandler());
+        
+        // Metrics
+        if (Metrics.isEnabled()) {
+            getApp().get(Nebula.getConfig().getMetrics().getRoute(), new MetricsHandler());
+        }
 
         // Exception handler
         getApp().exception(Exception.class, (e, c) -> {
@@ -8,12 +8,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.game.activity.type.LevelsActivity;
 import emu.nebula.game.instance.InstanceSettleData;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.activity_levels_settle_req)
 public class HandlerActivityLevelsSettleReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = ActivityLevelsSettleReq.parseFrom(message);
         
@@ -10,6 +10,7 @@ import emu.nebula.data.GameData;
 import emu.nebula.game.activity.type.LevelsActivity;
 import emu.nebula.game.inventory.ItemParamMap;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 import java.util.List;
 
@@ -17,7 +18,7 @@ import java.util.List;
 public class HandlerActivityLevelsSweepReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = ActivityLevelsSweepReq.parseFrom(message);
         
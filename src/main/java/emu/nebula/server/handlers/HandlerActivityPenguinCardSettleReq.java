@@ -7,12 +7,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.game.activity.type.PenguinCardActivity;
 import emu.nebula.game.activity.type.PenguinCardActivity.LevelStats;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.activity_penguin_card_level_settle_req)
 public class HandlerActivityPenguinCardSettleReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request proto
         var req = ActivityPenguinCardSettleReq.parseFrom(message);
 
@@ -8,12 +8,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.game.activity.type.ShopActivity;
 import emu.nebula.game.activity.type.ShopActivity.ActivityShopInfo;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.activity_shop_purchase_req)
 public class HandlerActivityShopPurchaseReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = ActivityShopPurchaseReq.parseFrom(message);
         
@@ -6,12 +6,13 @@ import emu.nebula.proto.ActivityTrekkerVersusApply.ActivityTrekkerVersusApplyReq
 import emu.nebula.net.HandlerId;
 import emu.nebula.game.activity.type.TrekkerVersusActivity;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.activity_trekker_versus_apply_req)
 public class HandlerActivityTrekkerVersusApplyReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = ActivityTrekkerVersusApplyReq.parseFrom(message);
         
@@ -7,12 +7,13 @@ import emu.nebula.proto.ActivityTrekkerVersusSettle.ActivityTrekkerVersusSettleR
 import emu.nebula.net.HandlerId;
 import emu.nebula.game.activity.type.TrekkerVersusActivity;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.activity_trekker_versus_settle_req)
 public class HandlerActivityTrekkerVersusSettleReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = ActivityTrekkerVersusSettleReq.parseFrom(message);
         
@@ -6,12 +6,13 @@ import emu.nebula.proto.AgentGiveUp.AgentGiveUpReq;
 import emu.nebula.proto.AgentGiveUp.AgentGiveUpResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.agent_give_up_req)
 public class HandlerAgentGiveUpReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = AgentGiveUpReq.parseFrom(message);
         
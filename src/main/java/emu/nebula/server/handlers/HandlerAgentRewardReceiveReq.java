@@ -6,6 +6,7 @@ import emu.nebula.proto.AgentRewardReceive.AgentRewardReceiveReq;
 import emu.nebula.proto.AgentRewardReceive.AgentRewardReceiveResp;
 import emu.nebula.proto.AgentRewardReceive.AgentRewardShow;
 import emu.nebula.net.HandlerId;
+import us.hebi.quickbuf.ProtoSource;
 
 import java.util.ArrayList;
 
@@ -17,7 +18,7 @@ public class HandlerAgentRewardReceiveReq extends NetHandler {
 
     @Override
     @SuppressWarnings("unchecked")
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = AgentRewardReceiveReq.parseFrom(message);
         
@@ -7,14 +7,14 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.BattlePassLevelBuy.BattlePassLevelBuyResp;
-import emu.nebula.proto.Public.ChangeInfo;
 import emu.nebula.proto.Public.UI32;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.battle_pass_level_buy_req)
 public class HandlerBattlePassLevelBuyReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         if (!session.getPlayer().isBattlePassUnlocked()) {
             return session.encodeMsg(NetMsgId.battle_pass_level_buy_failed_ack);
         }
@@ -86,11 +86,7 @@ public class HandlerBattlePassLevelBuyReq extends NetHandler {
         
         // Add change info (gem cost)
         if (!change.isEmpty()) {
-            var changeProto = ChangeInfo.newInstance();
-            for (var any : change.getList()) {
-                changeProto.addProps(any);
-            }
-            rsp.setChange(changeProto);
+            rsp.setChange(change.toProto());
         }
 
         session.getPlayer().queueBattlePassStateNotify();
@@ -7,12 +7,13 @@ import emu.nebula.proto.BattlePassOrderCollect.BattlePassOrderCollectResp;
 import emu.nebula.proto.Public.CollectResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.battle_pass_order_collect_req)
 public class HandlerBattlePassOrderCollectReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         if (!session.getPlayer().isBattlePassUnlocked()) {
             return session.encodeMsg(NetMsgId.battle_pass_order_collect_failed_ack);
         }
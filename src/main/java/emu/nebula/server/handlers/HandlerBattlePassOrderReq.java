@@ -8,12 +8,13 @@ import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.BattlePassOrder.BattlePassOrderReq;
 import emu.nebula.proto.MallGemOrder.OrderInfo;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.battle_pass_order_req)
 public class HandlerBattlePassOrderReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = BattlePassOrderReq.parseFrom(message);
         // Validate mode (1 = Premium, 2 = Luxury)
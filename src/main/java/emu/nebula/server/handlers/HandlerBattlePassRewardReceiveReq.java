@@ -7,12 +7,13 @@ import emu.nebula.proto.BattlePassRewardReceive.BattlePassRewardReceiveResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.game.player.PlayerChangeInfo;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.battle_pass_reward_receive_req)
 public class HandlerBattlePassRewardReceiveReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         if (!session.getPlayer().isBattlePassUnlocked()) {
             return session.encodeMsg(NetMsgId.battle_pass_reward_receive_failed_ack);
         }
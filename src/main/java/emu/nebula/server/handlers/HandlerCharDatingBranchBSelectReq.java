@@ -6,12 +6,13 @@ import emu.nebula.proto.CharDatingBranchBSelect.CharDatingBranchBSelectReq;
 import emu.nebula.proto.CharDatingBranchBSelect.CharDatingBranchBSelectResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.char_dating_branch_b_select_req)
 public class HandlerCharDatingBranchBSelectReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = CharDatingBranchBSelectReq.parseFrom(message);
         
@@ -9,12 +9,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.game.character.CharacterGem;
 import emu.nebula.game.player.PlayerChangeInfo;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.char_gem_generate_req)
 public class HandlerCharGemGenerateReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = CharGemGenerateReq.parseFrom(message);
         
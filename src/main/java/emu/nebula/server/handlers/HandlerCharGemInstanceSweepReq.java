@@ -6,6 +6,7 @@ import emu.nebula.proto.CharGemInstanceSweep.CharGemInstanceSweepReq;
 import emu.nebula.proto.CharGemInstanceSweep.CharGemInstanceSweepResp;
 import emu.nebula.proto.CharGemInstanceSweep.CharGemInstanceSweepReward;
 import emu.nebula.net.HandlerId;
+import us.hebi.quickbuf.ProtoSource;
 
 import java.util.List;
 
@@ -18,7 +19,7 @@ import emu.nebula.net.GameSession;
 public class HandlerCharGemInstanceSweepReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = CharGemInstanceSweepReq.parseFrom(message);
         
@@ -7,12 +7,13 @@ import emu.nebula.proto.CharUpgrade.CharUpgradeResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.game.inventory.ItemParamMap;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.char_upgrade_req)
 public class HandlerCharUpgradeReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = CharUpgradeReq.parseFrom(message);
         
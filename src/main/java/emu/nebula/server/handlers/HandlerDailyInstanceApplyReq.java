@@ -6,12 +6,13 @@ import emu.nebula.proto.DailyInstanceApply.DailyInstanceApplyReq;
 import emu.nebula.net.HandlerId;
 import emu.nebula.data.GameData;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.daily_instance_apply_req)
 public class HandlerDailyInstanceApplyReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = DailyInstanceApplyReq.parseFrom(message);
         
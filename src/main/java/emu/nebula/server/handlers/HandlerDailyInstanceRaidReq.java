@@ -6,6 +6,7 @@ import emu.nebula.proto.DailyInstanceRaid.DailyInstanceRaidReq;
 import emu.nebula.proto.DailyInstanceRaid.DailyInstanceRaidResp;
 import emu.nebula.proto.DailyInstanceRaid.DailyInstanceReward;
 import emu.nebula.net.HandlerId;
+import us.hebi.quickbuf.ProtoSource;
 
 import java.util.List;
 
@@ -18,7 +19,7 @@ import emu.nebula.net.GameSession;
 public class HandlerDailyInstanceRaidReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = DailyInstanceRaidReq.parseFrom(message);
         
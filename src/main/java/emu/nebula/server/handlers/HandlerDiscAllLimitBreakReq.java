@@ -5,6 +5,7 @@ import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.DiscAllLimitBreak.DiscAllLimitBreakResp;
 import emu.nebula.proto.DiscAllLimitBreak.DiscLimitBreakChange;
 import emu.nebula.net.HandlerId;
+import us.hebi.quickbuf.ProtoSource;
 
 import java.util.List;
 
@@ -15,7 +16,7 @@ import emu.nebula.net.GameSession;
 public class HandlerDiscAllLimitBreakReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Limit break all discs
         var change = session.getPlayer().getCharacters().limitBreakAllDiscs();
         
@@ -7,12 +7,13 @@ import emu.nebula.proto.DiscStrengthen.DiscStrengthenResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.game.inventory.ItemParamMap;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.disc_strengthen_req)
 public class HandlerDiscStrengthenReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = DiscStrengthenReq.parseFrom(message);
         
@@ -6,12 +6,13 @@ import emu.nebula.proto.FriendAddAgree.FriendAddAgreeReq;
 import emu.nebula.proto.FriendAddAgree.FriendAddAgreeResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.friend_add_agree_req)
 public class HandlerFriendAddAgreeReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = FriendAddAgreeReq.parseFrom(message);
         
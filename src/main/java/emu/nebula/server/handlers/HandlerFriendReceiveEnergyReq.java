@@ -6,12 +6,13 @@ import emu.nebula.proto.FriendReceiveEnergy.FriendReceiveEnergyReq;
 import emu.nebula.proto.FriendReceiveEnergy.FriendReceiveEnergyResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.friend_receive_energy_req)
 public class HandlerFriendReceiveEnergyReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = FriendReceiveEnergyReq.parseFrom(message);
         
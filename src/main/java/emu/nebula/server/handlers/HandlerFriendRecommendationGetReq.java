@@ -6,12 +6,13 @@ import emu.nebula.proto.FriendRecommendationGet.FriendRecommendationGetResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.Nebula;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.friend_recommendation_get_req)
 public class HandlerFriendRecommendationGetReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Build response
         var rsp = FriendRecommendationGetResp.newInstance();
         
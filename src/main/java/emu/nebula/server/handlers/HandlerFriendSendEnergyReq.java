@@ -6,12 +6,13 @@ import emu.nebula.proto.FriendSendEnergy.FriendSendEnergyReq;
 import emu.nebula.proto.FriendSendEnergy.FriendSendEnergyResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.friend_send_energy_req)
 public class HandlerFriendSendEnergyReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = FriendSendEnergyReq.parseFrom(message);
         
@@ -8,6 +8,7 @@ import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.GachaHistoriesOuterClass.GachaHistories;
 import emu.nebula.proto.Public.UI32;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.gacha_histories_req)
 public class HandlerGachaHistoriesReq extends NetHandler {
@@ -16,7 +17,7 @@ public class HandlerGachaHistoriesReq extends NetHandler {
     private static final long HISTORY_RETENTION_SECONDS = 60L * 60L * 24L * 30L * 6L;
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = UI32.parseFrom(message);
         int requestedStorageId = req.getValue();
@@ -6,12 +6,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.GachaNewbieInfoOuterClass.GachaNewbieInfoResp;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.gacha_newbie_info_req)
 public class HandlerGachaNewbieInfoReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var rsp = GachaNewbieInfoResp.newInstance();
         for (var info : Nebula.getGameContext().getGachaModule().listNewbieInfos(session.getPlayer())) {
             rsp.addList(info);
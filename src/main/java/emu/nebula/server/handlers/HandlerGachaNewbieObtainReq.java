@@ -6,12 +6,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.GachaNewbieObtain.GachaNewbieObtainReq;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.gacha_newbie_obtain_req)
 public class HandlerGachaNewbieObtainReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var req = GachaNewbieObtainReq.parseFrom(message);
         if (!req.hasId() || req.getId() < 0 || (req.hasIdx() && req.getIdx() < 0)) {
             return session.encodeMsg(NetMsgId.gacha_newbie_obtain_failed_ack);
@@ -6,12 +6,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.GachaNewbieSave.GachaNewbieSaveReq;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.gacha_newbie_save_req)
 public class HandlerGachaNewbieSaveReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var req = GachaNewbieSaveReq.parseFrom(message);
         Integer index = req.hasIdx() ? req.getIdx() : null;
         if (!req.hasId() || req.getId() < 0 || (index != null && index < 0)) {
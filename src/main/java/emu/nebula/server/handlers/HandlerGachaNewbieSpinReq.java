@@ -8,11 +8,12 @@ import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.GachaNewbieSpin.GachaNewbieSpinResp;
 import emu.nebula.proto.GachaSpin.GachaSpinReq;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.gacha_newbie_spin_req)
 public class HandlerGachaNewbieSpinReq extends NetHandler {
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var req = GachaSpinReq.parseFrom(message);
         Integer amount = GachaMode.getAmountByMode(req.getMode());
         if (amount == null) {
@@ -8,12 +8,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.GachaSpin.GachaSpinReq;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.gacha_spin_req)
 public class HandlerGachaSpinReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = GachaSpinReq.parseFrom(message);
         Integer amount = GachaMode.getAmountByMode(req.getMode());
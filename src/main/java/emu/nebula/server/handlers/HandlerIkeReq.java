@@ -6,7 +6,9 @@ import emu.nebula.proto.Ike.IKEReq;
 import emu.nebula.proto.Ike.IKEResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.Nebula;
+import emu.nebula.metrics.Metrics;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.ike_req)
 public class HandlerIkeReq extends NetHandler {
@@ -22,7 +24,7 @@ public class HandlerIkeReq extends NetHandler {
     }
     
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Make sure we dont already have a session
         if (session != null) {
             return session.encodeMsg(NetMsgId.ike_failed_ack);
@@ -32,11 +34,15 @@ public class HandlerIkeReq extends NetHandler {
         var req = IKEReq.parseFrom(message);
         
         // Create session
+        long start = System.nanoTime();
+        
         session = new GameSession();
         session.setClientKey(req.getPubKey());
         session.generateServerKey();
         session.calculateKey();
         
+        Metrics.recordHandshake(System.nanoTime() - start);
+        
         // Register session to game context
         Nebula.getGameContext().generateSessionToken(session);
         
@@ -6,12 +6,13 @@ import emu.nebula.proto.InfinityTowerInfo.InfinityTowerInfoResp;
 import emu.nebula.proto.Public.InfinityTowerLevelInfo;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.infinity_tower_info_req)
 public class HandlerInfinityTowerInfoReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Build response
         var rsp = InfinityTowerInfoResp.newInstance()
                 .setBountyLevel(session.getPlayer().getInfinityTowerManager().getBountyLevel());
@@ -6,12 +6,13 @@ import emu.nebula.proto.ItemUse.ItemUseReq;
 import emu.nebula.net.HandlerId;
 import emu.nebula.game.player.PlayerChangeInfo;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.item_use_req)
 public class HandlerItemUseReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = ItemUseReq.parseFrom(message);
         
@@ -8,12 +8,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.Nebula;
 import emu.nebula.game.activity.type.JointDrillActivity;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.joint_drill_2_apply_req)
 public class HandlerJointDrill2ApplyReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Get joint drill activity
         var activity = session.getPlayer().getActivityManager().getFirstActivity(JointDrillActivity.class);
         
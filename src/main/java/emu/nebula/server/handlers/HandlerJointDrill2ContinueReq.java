@@ -6,12 +6,13 @@ import emu.nebula.proto.JointDrill2Continue.JointDrill2ContinueReq;
 import emu.nebula.net.HandlerId;
 import emu.nebula.game.activity.type.JointDrillActivity;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.joint_drill_2_continue_req)
 public class HandlerJointDrill2ContinueReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Get joint drill activity
         var activity = session.getPlayer().getActivityManager().getFirstActivity(JointDrillActivity.class);
         
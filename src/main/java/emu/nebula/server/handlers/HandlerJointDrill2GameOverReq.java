@@ -6,12 +6,13 @@ import emu.nebula.proto.PublicJointDrill.JointDrillSettle;
 import emu.nebula.net.HandlerId;
 import emu.nebula.game.activity.type.JointDrillActivity;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.joint_drill_2_game_over_req)
 public class HandlerJointDrill2GameOverReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Get joint drill activity
         var activity = session.getPlayer().getActivityManager().getFirstActivity(JointDrillActivity.class);
         
@@ -4,15 +4,17 @@ import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.JointDrillRank.JointDrillRankInfo;
 import emu.nebula.net.HandlerId;
+import emu.nebula.GameConstants;
 import emu.nebula.Nebula;
 import emu.nebula.game.activity.type.JointDrillActivity;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.joint_drill_rank_req)
 public class HandlerJointDrillRankReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Get joint drill activity
         var activity = session.getPlayer().getActivityManager().getFirstActivity(JointDrillActivity.class);
         
@@ -24,28 +26,39 @@ public class HandlerJointDrillRankReq extends NetHandler {
         var rsp = JointDrillRankInfo.newInstance()
                 .setLastRefreshTime(Nebula.getCurrentServerTime());
         
+        // Get leaderboard
+        var leaderboard = Nebula.getGameContext().getJointDrillModule().getLeaderboard(activity.getId());
+        var snapshot = leaderboard.getSnapshot();
+        
         // Get self
         var self = activity.getRankEntry();
         
         if (self != null) {
             rsp.setSelf(self.toProto());
+            
+            // Set our rank if we are on the leaderboard
+            var entry = leaderboard.getEntry(self.getPlayerUid());
+            
+            if (entry != null) {
+                rsp.getMutableSelf().setRank(snapshot.getRank(entry));
+            }
         }
         
         // Get ranking
-        var ranking = Nebula.getGameContext().getJointDrillModule().getRanking(activity.getId());
+        var ranking = snapshot.getTop(GameConstants.MAX_LEADERBOARD_ENTRIES);
         
-        for (var entry : ranking) {
-            // Check self
-            if (self != null && self.getPlayerUid() == entry.getId()) {
-                rsp.getMutableSelf().setRank(entry.getRank());
-            }
-            
+        for (int i = 0; i < ranking.size(); i++) {
             // Add to ranking
-            rsp.addRank(entry);
+            rsp.getMutableRank().next()
+                .copyFrom(ranking.get(i).value())
+                .setRank(i + 1);
         }
         
+        // Player info on the leaderboard is from when each score was settled
+        Nebula.getGameContext().getJointDrillModule().refreshPlayerInfo(rsp.getMutableRank());
+        
         // Set total
-        rsp.setTotal(ranking.size());
+        rsp.setTotal(snapshot.size());
         
         // Encode and send
         return session.encodeMsg(NetMsgId.joint_drill_rank_succeed_ack, rsp);
@@ -6,6 +6,7 @@ import emu.nebula.proto.JointDrillSweep.JointDrillSweepReq;
 import emu.nebula.proto.JointDrillSweep.JointDrillSweepResp;
 import emu.nebula.proto.Public.ItemTpls;
 import emu.nebula.net.HandlerId;
+import us.hebi.quickbuf.ProtoSource;
 
 import java.util.List;
 
@@ -17,7 +18,7 @@ import emu.nebula.net.GameSession;
 public class HandlerJointDrillSweepReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Get joint drill activity
         var activity = session.getPlayer().getActivityManager().getFirstActivity(JointDrillActivity.class);
         
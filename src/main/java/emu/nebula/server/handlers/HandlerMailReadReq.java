@@ -6,12 +6,13 @@ import emu.nebula.proto.Public.MailRequest;
 import emu.nebula.proto.Public.UI32;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.mail_read_req)
 public class HandlerMailReadReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var req = MailRequest.parseFrom(message);
         
         boolean result = session.getPlayer().getMailbox().readMail(req.getId(), req.getFlag());
@@ -7,12 +7,13 @@ import emu.nebula.proto.Public.MailRequest;
 import it.unimi.dsi.fastutil.ints.IntList;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.mail_remove_req)
 public class HandlerMailRemoveReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = MailRequest.parseFrom(message);
         
@@ -6,12 +6,13 @@ import emu.nebula.proto.MallGemListOuterClass.MallGemList;
 import emu.nebula.net.HandlerId;
 import emu.nebula.data.GameData;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.mall_gem_list_req)
 public class HandlerMallGemListReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var player = session.getPlayer();
         var rsp = MallGemList.newInstance();
 
@@ -7,12 +7,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.MallGemOrder.OrderInfo;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.mall_gem_order_req)
 public class HandlerMallGemOrderReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var req = OrderInfo.parseFrom(message);
         var data = GameData.getMallGemDataTable().get(req.getId().hashCode());
         if (data == null) {
@@ -7,12 +7,13 @@ import emu.nebula.net.NetMsgId;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
 import emu.nebula.proto.MallMonthlycardList.MonthlyCardInfo;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.mall_monthlyCard_order_req)
 public class HandlerMallMonthlyCardOrderReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var req = MonthlyCardInfo.parseFrom(message);
         var data = GameData.getMallMonthlyCardDataTable().get(req.getId().hashCode());
         var order = Nebula.getGameContext().getPayModule().createMonthlyCardOrder(session, data);
@@ -5,12 +5,13 @@ import emu.nebula.net.GameSession;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.mall_order_cancel_req)
 public class HandlerMallOrderCancelReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var payModule = Nebula.getGameContext().getPayModule();
         payModule.clearPendingCollect(session.getPlayer().getUid());
         return session.encodeMsg(NetMsgId.mall_order_cancel_succeed_ack);
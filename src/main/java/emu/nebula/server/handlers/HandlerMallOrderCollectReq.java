@@ -6,12 +6,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.Public.CollectResp;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.mall_order_collect_req)
 public class HandlerMallOrderCollectReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var rsp = CollectResp.newInstance().setStatusValue(1);
         var payModule = Nebula.getGameContext().getPayModule();
         var collectResult = payModule.consumePendingCollect(session);
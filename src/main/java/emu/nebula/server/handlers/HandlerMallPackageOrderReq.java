@@ -8,12 +8,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
 import emu.nebula.proto.MallGemOrder.OrderInfo;
 import emu.nebula.proto.MallPackageOrderOuterClass.MallPackageOrder;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.mall_package_order_req)
 public class HandlerMallPackageOrderReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var req = OrderInfo.parseFrom(message);
         var data = GameData.getMallPackageDataTable().get(req.getId().hashCode());
         if (data == null) {
@@ -8,12 +8,13 @@ import emu.nebula.proto.MallShopList.MallShopProductList;
 import emu.nebula.net.HandlerId;
 import emu.nebula.data.GameData;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.mall_shop_list_req)
 public class HandlerMallShopListReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var rsp = MallShopProductList.newInstance();
 
         for (var data : GameData.getMallShopDataTable()) {
@@ -4,6 +4,7 @@ import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.player_data_req)
 public class HandlerPlayerDataReq extends NetHandler {
@@ -13,7 +14,7 @@ public class HandlerPlayerDataReq extends NetHandler {
     }
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Check if player has been created yet
         if (session.getPlayer() == null) {
             return session.encodeMsg(NetMsgId.player_new_notify);
@@ -8,12 +8,13 @@ import emu.nebula.proto.Public.HonorInfo;
 import emu.nebula.proto.Public.Nil;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.player_honor_edit_req)
 public class HandlerPlayerHonorEditReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse req
         var req = PlayerHonorEditReq.parseFrom(message);
         
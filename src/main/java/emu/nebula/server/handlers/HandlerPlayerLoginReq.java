@@ -9,6 +9,7 @@ import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.PlayerLogin.LoginReq;
 import emu.nebula.proto.PlayerLogin.LoginResp;
 import emu.nebula.proto.Public.Error;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.player_login_req)
 public class HandlerPlayerLoginReq extends NetHandler {
@@ -18,7 +19,7 @@ public class HandlerPlayerLoginReq extends NetHandler {
     }
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = LoginReq.parseFrom(message);
 
@@ -33,9 +34,9 @@ public class HandlerPlayerLoginReq extends NetHandler {
         var banModule = Nebula.getGameContext().getBanModule();
 
         // Check IP ban
-        if (banModule.isIpBanned(session.getIpAddress())) {
-            var banInfo = banModule.getIpBanInfo(session.getIpAddress());
-            return session.encodeMsg(NetMsgId.player_login_failed_ack, banInfo.toProto());
+        var ipBanInfo = banModule.getIpBanInfo(session.getIpAddress());
+        if (ipBanInfo != null) {
+            return session.encodeMsg(NetMsgId.player_login_failed_ack, ipBanInfo.toProto());
         }
 
         // Login
@@ -46,9 +47,9 @@ public class HandlerPlayerLoginReq extends NetHandler {
         }
 
         // Check player ban
-        if (session.getPlayer() != null && banModule.isPlayerBanned(session.getPlayer().getUid())) {
-            var banInfo = banModule.getPlayerBanInfo(session.getPlayer().getUid());
-            return session.encodeMsg(NetMsgId.player_login_failed_ack, banInfo.toProto());
+        var playerBanInfo = session.getPlayer() != null ? banModule.getPlayerBanInfo(session.getPlayer().getUid()) : null;
+        if (playerBanInfo != null) {
+            return session.encodeMsg(NetMsgId.player_login_failed_ack, playerBanInfo.toProto());
         }
         
         // Set platform
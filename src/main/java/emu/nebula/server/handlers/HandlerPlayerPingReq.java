@@ -6,12 +6,13 @@ import emu.nebula.proto.PlayerPing.Pong;
 import emu.nebula.net.HandlerId;
 import emu.nebula.Nebula;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.player_ping_req)
 public class HandlerPlayerPingReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Create response
         var rsp = Pong.newInstance()
                 .setServerTs(Nebula.getCurrentServerTime());
@@ -7,6 +7,7 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.Nebula;
 import emu.nebula.game.player.Player;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.player_reg_req)
 public class HandlerPlayerRegReq extends NetHandler {
@@ -16,7 +17,7 @@ public class HandlerPlayerRegReq extends NetHandler {
     }
     
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = PlayerReg.parseFrom(message);
         
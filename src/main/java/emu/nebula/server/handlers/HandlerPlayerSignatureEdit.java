@@ -8,12 +8,13 @@ import emu.nebula.proto.Public.Error;
 import emu.nebula.net.HandlerId;
 import emu.nebula.Nebula;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.player_signature_edit_req)
 public class HandlerPlayerSignatureEdit extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = PlayerSignatureEditReq.parseFrom(message);
         var signature = req.getSignature();
@@ -4,6 +4,7 @@ import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.PotentialPreselectionDelete.PotentialPreselectionDeleteReq;
 import emu.nebula.net.HandlerId;
+import us.hebi.quickbuf.ProtoSource;
 
 import java.util.HashSet;
 
@@ -14,7 +15,7 @@ import emu.nebula.net.GameSession;
 public class HandlerPotentialPreselectionDeleteReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = PotentialPreselectionDeleteReq.parseFrom(message);
 
@@ -5,6 +5,7 @@ import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.PotentialPreselectionPreferenceSet.PotentialPreselectionPreferenceSetReq;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 import java.util.HashSet;
 
@@ -14,7 +15,7 @@ import emu.nebula.game.tower.StarTowerPotentialPreset;
 public class HandlerPotentialPreselectionPreferenceSetReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = PotentialPreselectionPreferenceSetReq.parseFrom(message);
 
@@ -6,12 +6,13 @@ import emu.nebula.proto.QuestDailyActiveRewardRecevie.QuestDailyActiveRewardRece
 import it.unimi.dsi.fastutil.ints.IntList;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.quest_weekly_active_reward_receive_req)
 public class HandlerQuestWeeklyActiveRewardReceiveReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Receive rewards
         var change = session.getPlayer().getQuestManager().claimWeeklyActiveRewards();
         
@@ -9,12 +9,13 @@ import emu.nebula.data.GameData;
 import emu.nebula.game.instance.InstanceSettleData;
 import emu.nebula.game.quest.QuestCondition;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.region_boss_level_settle_req)
 public class HandlerRegionBossLevelSettleReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Cache player
         var player = session.getPlayer();
         
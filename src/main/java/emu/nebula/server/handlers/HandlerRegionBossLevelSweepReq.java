@@ -6,6 +6,7 @@ import emu.nebula.proto.RegionBossLevelSweep.RegionBossLevelSweepReq;
 import emu.nebula.proto.RegionBossLevelSweep.RegionBossLevelSweepResp;
 import emu.nebula.proto.RegionBossLevelSweep.RegionBossLevelSweepRewards;
 import emu.nebula.net.HandlerId;
+import us.hebi.quickbuf.ProtoSource;
 
 import java.util.List;
 
@@ -18,7 +19,7 @@ import emu.nebula.net.GameSession;
 public class HandlerRegionBossLevelSweepReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = RegionBossLevelSweepReq.parseFrom(message);
         
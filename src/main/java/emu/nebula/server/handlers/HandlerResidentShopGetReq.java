@@ -12,12 +12,13 @@ import it.unimi.dsi.fastutil.ints.IntSet;
 import emu.nebula.net.HandlerId;
 import emu.nebula.data.GameData;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.resident_shop_get_req)
 public class HandlerResidentShopGetReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         var req = ResidentShopGetReq.parseFrom(message);
         var requestedShopIds = req.getShopIds();
         IntSet requestedShopIdSet = null;
@@ -45,26 +46,23 @@ public class HandlerResidentShopGetReq extends NetHandler {
         }
         
         // Add bought goods
-        for (var data : GameData.getResidentGoodsDataTable()) {
-            if (!data.isVisible(session.getPlayer())) {
-                continue;
-            }
-
-            int bought = session.getPlayer().getInventory().getShopBuyCount().get(data.getId());
-            if (bought == 0) {
-                continue;
-            }
-            
-            var shop = shops.get(data.getShopId());
-            if (shop == null) {
-                continue;
+        for (var shop : shops.values()) {
+            for (var data : GameData.getResidentGoodsDataTable().lookupBy("shop", shop.getId())) {
+                if (!data.isVisible(session.getPlayer())) {
+                    continue;
+                }
+    
+                int bought = session.getPlayer().getInventory().getShopBuyCount().get(data.getId());
+                if (bought == 0) {
+                    continue;
+                }
+                
+                var info = BoughtGoods.newInstance()
+                        .setId(data.getId())
+                        .setNumber(bought);
+                
+                shop.addInfos(info);
             }
-            
-            var info = BoughtGoods.newInstance()
-                    .setId(data.getId())
-                    .setNumber(bought);
-            
-            shop.addInfos(info);
         }
         
         // Build response
@@ -6,12 +6,13 @@ import emu.nebula.proto.ScoreBossApply.ScoreBossApplyReq;
 import emu.nebula.server.error.NebulaException;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.score_boss_apply_req)
 public class HandlerScoreBossApplyReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = ScoreBossApplyReq.parseFrom(message);
         
@@ -6,12 +6,13 @@ import emu.nebula.proto.ScoreBossSettle.ScoreBossSettleReq;
 import emu.nebula.proto.ScoreBossSettle.ScoreBossSettleResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.score_boss_settle_req)
 public class HandlerScoreBossSettleReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = ScoreBossSettleReq.parseFrom(message);
         
@@ -6,12 +6,13 @@ import emu.nebula.proto.SkillInstanceApply.SkillInstanceApplyReq;
 import emu.nebula.net.HandlerId;
 import emu.nebula.data.GameData;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.skill_instance_apply_req)
 public class HandlerSkillInstanceApplyReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = SkillInstanceApplyReq.parseFrom(message);
         
@@ -6,6 +6,7 @@ import emu.nebula.proto.SkillInstanceSweep.SkillInstanceSweepReq;
 import emu.nebula.proto.SkillInstanceSweep.SkillInstanceSweepResp;
 import emu.nebula.proto.SkillInstanceSweep.SkillInstanceSweepRewards;
 import emu.nebula.net.HandlerId;
+import us.hebi.quickbuf.ProtoSource;
 
 import java.util.List;
 
@@ -18,7 +19,7 @@ import emu.nebula.net.GameSession;
 public class HandlerSkillInstanceSweepReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = SkillInstanceSweepReq.parseFrom(message);
         
@@ -8,12 +8,13 @@ import emu.nebula.net.HandlerId;
 import emu.nebula.GameConstants;
 import emu.nebula.game.tower.StarTowerGame;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.star_tower_apply_req)
 public class HandlerStarTowerApplyReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse req
         var req = StarTowerApplyReq.parseFrom(message);
         
@@ -7,12 +7,13 @@ import emu.nebula.proto.StarTowerBuildDelete.StarTowerBuildDeleteResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.game.player.PlayerChangeInfo;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.star_tower_build_delete_req)
 public class HandlerStarTowerBuildDeleteReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = StarTowerBuildDeleteReq.parseFrom(message);
         
@@ -6,12 +6,13 @@ import emu.nebula.proto.StarTowerBuildDetailGet.StarTowerBuildDetailGetReq;
 import emu.nebula.proto.StarTowerBuildDetailGet.StarTowerBuildDetailGetResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.star_tower_build_detail_get_req)
 public class HandlerStarTowerBuildDetailGetReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Parse request
         var req = StarTowerBuildDetailGetReq.parseFrom(message);
         
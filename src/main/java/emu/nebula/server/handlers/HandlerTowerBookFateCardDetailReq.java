@@ -6,12 +6,13 @@ import emu.nebula.proto.TowerBookFateCardDetail.TowerBookFateCardDetailResp;
 import emu.nebula.net.HandlerId;
 import emu.nebula.data.GameData;
 import emu.nebula.net.GameSession;
+import us.hebi.quickbuf.ProtoSource;
 
 @HandlerId(NetMsgId.tower_book_fate_card_detail_req)
 public class HandlerTowerBookFateCardDetailReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Build response
         var rsp = TowerBookFateCardDetailResp.newInstance();
         
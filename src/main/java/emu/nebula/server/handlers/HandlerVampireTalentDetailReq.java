@@ -4,6 +4,7 @@ import emu.nebula.net.NetHandler;
 import emu.nebula.net.NetMsgId;
 import emu.nebula.proto.VampireTalentDetail.VampireTalentDetailResp;
 import emu.nebula.net.HandlerId;
+import us.hebi.quickbuf.ProtoSource;
 
 import emu.nebula.net.GameSession;
 
@@ -11,7 +12,7 @@ import emu.nebula.net.GameSession;
 public class HandlerVampireTalentDetailReq extends NetHandler {
 
     @Override
-    public byte[] handle(GameSession session, byte[] message) throws Exception {
+    public byte[] handle(GameSession session, ProtoSource message) throws Exception {
         // Get vampire surv manager
         var manager = session.getPlayer().getVampireSurvivorManager();
         
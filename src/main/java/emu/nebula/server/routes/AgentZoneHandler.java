@@ -3,23 +3,32 @@ package emu.nebula.server.routes;
 import java.lang.reflect.Field;
 import java.util.Set;
 
-import org.reflections.Reflections;
+import javax.crypto.spec.SecretKeySpec;
 
 import emu.nebula.Nebula;
+import emu.nebula.database.DatabaseManager;
 import emu.nebula.game.GameContext;
+import emu.nebula.metrics.Metrics;
+import emu.nebula.metrics.RequestTimer.Phase;
 import emu.nebula.net.*;
+import emu.nebula.net.capture.PacketCapture;
 import emu.nebula.util.AeadHelper;
+import emu.nebula.util.ClassRegistry;
 import emu.nebula.util.Utils;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import lombok.Getter;
+import us.hebi.quickbuf.ProtoSource;
 
 @Getter
 public class AgentZoneHandler implements Handler {
     private final Int2ObjectMap<NetHandler> handlers;
     private final static byte[] EMPTY_BYTES = new byte[0];
+    
+    // Reused for every request handled on the same thread
+    private final static ThreadLocal<ProtoSource> messageSource = ThreadLocal.withInitial(ProtoSource::newArraySource);
 
     public AgentZoneHandler() {
         this.handlers = new Int2ObjectOpenHashMap<>();
@@ -31,12 +40,17 @@ public class AgentZoneHandler implements Handler {
         return Nebula.getGameContext();
     }
     
+    protected DatabaseManager getGameDatabase() {
+        return Nebula.getGameDatabase();
+    }
+    
     @Override
     public void handle(Context ctx) throws Exception {
         // Setup session
         GameSession session = null;
         
         byte[] sessionKey = AeadHelper.serverGarbleKey;
+        SecretKeySpec keySpec = AeadHelper.getServerGarbleKeySpec();
         boolean hasKey3 = false;
         int encryptMethod = 0;
         
@@ -52,7 +66,7 @@ public class AgentZoneHandler implements Handler {
             session = getGameContext().getSessionByToken(token);
             
             // Uh oh - session not found
-            if (session == null || session.getKey() == null) {
+            if (session == null || session.getKeySpec() == null) {
                 ctx.status(500);
                 ctx.result("");
                 return;
@@ -60,51 +74,72 @@ public class AgentZoneHandler implements Handler {
             
             // Set key
             sessionKey = session.getKey();
+            keySpec = session.getKeySpec();
             encryptMethod = session.getEncryptMethod();
             hasKey3 = true;
         }
         
+        // Start timing request
+        var timer = Metrics.getRequestTimer();
+        timer.start();
+        
         // Parse request
-        byte[] data = null;
+        byte[] message = null;
+        int offset = 0;
+        int length = 0;
         int msgId = 0;
         
         try {
             // Get message
-            byte[] message = ctx.bodyAsBytes();
-            int offset = 0;
+            message = ctx.bodyAsBytes();
             
             // Sanity for malformed packets
             if (message.length <= 12) {
                 ctx.status(500);
                 ctx.result("");
+                timer.cancel();
                 return;
             }
             
-            // Decrypt message
+            // Decrypt message in place. The plaintext starts right after the iv
             if (hasKey3) {
-                message = AeadHelper.decrypt(message, sessionKey, encryptMethod);
-                offset = 10;
+                length = AeadHelper.decryptInPlace(message, 0, message.length, keySpec, encryptMethod);
+                offset = AeadHelper.IV_LENGTH + 10;
+                length -= 10;
             } else {
-                message = AeadHelper.decryptBasic(message, sessionKey);
-                message = AeadHelper.decryptGCM(message, sessionKey);
+                AeadHelper.decryptBasic(message, 0, message.length, sessionKey);
+                length = AeadHelper.decryptInPlace(message, 0, message.length, keySpec, 0);
+                offset = AeadHelper.IV_LENGTH;
             }
             
-            // Get message id
-            msgId = (message[offset++] << 8) | (message[offset++] & 0xff);
+            // Sanity check
+            if (length < 2) {
+                throw new IllegalArgumentException("Message is too short: " + length);
+            }
             
-            // Set data
-            data = new byte[message.length - offset];
-            System.arraycopy(message, offset, data, 0, data.length);
+            // Get message id
+            msgId = (message[offset] << 8) | (message[offset + 1] & 0xff);
+            offset += 2;
+            length -= 2;
             
             // Log
             if (Nebula.getConfig().getLogOptions().packets) {
-                this.logRecv(msgId, data);
+                this.logRecv(msgId, message, offset, length);
             }
+            
+            // Capture
+            if (PacketCapture.isEnabled()) {
+                PacketCapture.captureRecv(session, msgId, message, offset, length);
+            }
+            
+            timer.mark(Phase.DECRYPT);
         } catch (Exception e) {
             // Decrypt error
             e.printStackTrace();
+            Metrics.recordDecryptError();
             ctx.status(500);
             ctx.result("");
+            timer.cancel();
             return;
         }
         
@@ -117,10 +152,16 @@ public class AgentZoneHandler implements Handler {
         // Handle packet
         NetHandler handler = this.handlers.get(msgId);
         byte[] result = null;
+        
+        // Collect database writes made while handling this request
+        this.getGameDatabase().beginWriteBatch();
     
         try {
             if (handler == null) {
+                // Not recorded by msg id, since the client can send any id it wants
                 Nebula.getLogger().warn("Unhandled request: " + msgId);
+                Metrics.recordUnhandled();
+                timer.cancel();
                 return;
             }
             
@@ -133,16 +174,25 @@ public class AgentZoneHandler implements Handler {
                 return;
             }
             
-            // Handle data
-            result = handler.handle(session, data);
+            // Handle data directly from the decrypted request
+            var source = messageSource.get().setInput(message, offset, length);
+            result = handler.handle(session, source);
         } catch (Exception e) {
             // Handler error
             e.printStackTrace();
+            Metrics.recordError(msgId);
         } finally {
+            timer.mark(Phase.HANDLER);
+            
             // Send result
             if (result == null) {
                 ctx.status(500);
                 ctx.result(EMPTY_BYTES);
+                
+                // Write any database changes from this request
+                this.getGameDatabase().commitWriteBatch();
+                timer.mark(Phase.COMMIT);
+                timer.finish(msgId);
                 return;
             }
             
@@ -151,14 +201,35 @@ public class AgentZoneHandler implements Handler {
                 this.logSend(result);
             }
             
-            // Encrypt
-            if (hasKey3) {
-                result = AeadHelper.encrypt(result, sessionKey, encryptMethod);
-            } else {
-                result = AeadHelper.encryptGCM(result, sessionKey);
-                result = AeadHelper.encryptBasic(result, sessionKey);
+            // Capture
+            if (PacketCapture.isEnabled()) {
+                PacketCapture.captureSend(session, result);
+            }
+            
+            // Encrypt in place. The response already has room for the iv and tag
+            int resultLength = PacketHelper.getResponseLength(result);
+            
+            try {
+                if (hasKey3) {
+                    AeadHelper.encryptInPlace(result, PacketHelper.RESPONSE_HEADER_SIZE, resultLength, keySpec, encryptMethod);
+                } else {
+                    AeadHelper.encryptInPlace(result, PacketHelper.RESPONSE_HEADER_SIZE, resultLength, keySpec, 0);
+                    AeadHelper.encryptBasic(result, 0, result.length, sessionKey);
+                }
+            } catch (Exception e) {
+                // Encrypt error
+                e.printStackTrace();
+                Metrics.recordEncryptError();
+                ctx.status(500);
+                ctx.result(EMPTY_BYTES);
+                this.getGameDatabase().commitWriteBatch();
+                timer.mark(Phase.COMMIT);
+                timer.finish(msgId);
+                return;
             }
             
+            timer.mark(Phase.ENCRYPT);
+            
             // Send to client
             ctx.status(200);
             ctx.result(result);
@@ -169,29 +240,34 @@ public class AgentZoneHandler implements Handler {
             // Handle post response events
             if (session != null) {
                 session.afterResponse();
+            } else {
+                this.getGameDatabase().commitWriteBatch();
             }
+            
+            timer.mark(Phase.COMMIT);
+            timer.finish(msgId);
         }
     }
     
     // Loggers
     
-    private void logRecv(int msgId, byte[] data) {
+    private void logRecv(int msgId, byte[] data, int offset, int length) {
         Nebula.getLogger().info("RECV: " + NetMsgIdUtils.getMsgIdName(msgId) + " (" + msgId + ")");
-        System.out.println(Utils.bytesToHex(data));
+        System.out.println(Utils.bytesToHex(data, offset, length));
     }
     
     private void logSend(byte[] data) {
-        int sendMsgId = (data[0] << 8) | (data[1] & 0xff);
+        int offset = PacketHelper.RESPONSE_HEADER_SIZE;
+        int sendMsgId = (data[offset] << 8) | (data[offset + 1] & 0xff);
         Nebula.getLogger().info("SEND: " + NetMsgIdUtils.getMsgIdName(sendMsgId) + " (" + sendMsgId + ")");
-        System.out.println(Utils.bytesToHex(data, 2));
+        System.out.println(Utils.bytesToHex(data, offset + 2, PacketHelper.getResponseLength(data) - 2));
     }
     
     // Register handlers
 
     private void registerHandlers() {
         // Setup handlers
-        Reflections reflections = new Reflections(Nebula.class.getPackageName());
-        Set<Class<?>> handlers = reflections.getTypesAnnotatedWith(HandlerId.class);
+        Set<Class<?>> handlers = ClassRegistry.getTypesAnnotatedWith(HandlerId.class);
 
         for (Class<?> cls : handlers) {
             // Make sure class is a handler
@@ -248,8 +324,8 @@ public class AgentZoneHandler implements Handler {
                     // Create dummy handler
                     var handler = new NetHandler() {
                         @Override
-                        public byte[] handle(GameSession session, byte[] message) throws Exception {
-                            return PacketHelper.encodeMsg(failedAckId);
+                        public byte[] handle(GameSession session, ProtoSource message) throws Exception {
+                            return PacketHelper.encodeResponse(failedAckId);
                         }
                     };
                     
@@ -0,0 +1,29 @@
+package emu.nebula.server.routes;
+
+import org.jetbrains.annotations.NotNull;
+
+import emu.nebula.Nebula;
+import emu.nebula.metrics.Metrics;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+public class MetricsHandler implements Handler {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Override
+    public void handle(@NotNull Context ctx) throws Exception {
+        // Check token
+        String token = Nebula.getConfig().getMetrics().getToken();
+
+        if (token != null && !token.isEmpty() && !("Bearer " + token).equals(ctx.header("Authorization"))) {
+            ctx.status(401);
+            ctx.result("");
+            return;
+        }
+
+        // Write metrics
+        ctx.status(200);
+        ctx.contentType(CONTENT_TYPE);
+        ctx.result(Metrics.toPrometheus());
+    }
+}
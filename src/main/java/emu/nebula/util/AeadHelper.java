@@ -2,15 +2,25 @@ package emu.nebula.util;
 
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
 import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPrivateKeySpec;
+import java.security.spec.ECPublicKeySpec;
+import java.util.Arrays;
 
 import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
-import org.bouncycastle.asn1.nist.NISTNamedCurves;
 import org.bouncycastle.asn1.sec.SECNamedCurves;
+import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.agreement.ECDHBasicAgreement;
 import org.bouncycastle.crypto.digests.SHA256Digest;
@@ -20,6 +30,8 @@ import org.bouncycastle.crypto.params.*;
 
 import emu.nebula.Nebula;
 import emu.nebula.RegionConfig;
+import lombok.Getter;
+import lombok.SneakyThrows;
 
 // Official Name: AeadTool
 public class AeadHelper {
@@ -30,9 +42,30 @@ public class AeadHelper {
         }
     };
     
+    // Cached ciphers
+    private static final ThreadLocal<Cipher> gcmCipher = ThreadLocal.withInitial(() -> createCipher("AES/GCM/NoPadding"));
+    private static final ThreadLocal<Cipher> chachaCipher = ThreadLocal.withInitial(() -> createCipher("ChaCha20-Poly1305/None/NoPadding"));
+    private static final ThreadLocal<byte[]> ivBuffer = ThreadLocal.withInitial(() -> new byte[AeadHelper.IV_LENGTH]);
+    
+    // Cached ECDH curve (secp256r1, also known as P-256)
+    private static final X9ECParameters curve = SECNamedCurves.getByName("secp256r1");
+    private static final ECDomainParameters domainParams = new ECDomainParameters(curve.getCurve(), curve.getG(), curve.getN(), curve.getH(), curve.getSeed());
+    private static final ECParameterSpec nativeParams = createNativeParams();
+    private static final ThreadLocal<KeyAgreement> keyAgreement = ThreadLocal.withInitial(AeadHelper::createKeyAgreement);
+    private static final ThreadLocal<KeyFactory> keyFactory = ThreadLocal.withInitial(AeadHelper::createKeyFactory);
+    
+    public static final int IV_LENGTH = 12;
+    public static final int TAG_LENGTH = 16;
+    
     public static byte[] serverGarbleKey = null;
     public static byte[] serverMetaKey = null;
     
+    @Getter private static SecretKeySpec serverGarbleKeySpec = null;
+    private static SecretKeySpec serverMetaKeySpec = null;
+    
+    // Calculates the ECDH shared secret with the JDK instead of BouncyCastle
+    @Getter private static boolean useNativeEcdh = false;
+    
     static {
         RegionConfig.getRegion("global")
             .setServerMetaKey("ma5Dn2FhC*Xhxy%c")
@@ -62,6 +95,13 @@ public class AeadHelper {
         // Set keys
         serverMetaKey = region.getServerMetaKey().getBytes(StandardCharsets.US_ASCII);
         serverGarbleKey = region.getServerGarbleKey().getBytes(StandardCharsets.US_ASCII);
+        
+        // Cache key specs
+        serverMetaKeySpec = new SecretKeySpec(serverMetaKey, "AES");
+        serverGarbleKeySpec = createKeySpec(serverGarbleKey, 0);
+        
+        // ECDH
+        useNativeEcdh = Nebula.getConfig().getServerOptions().useNativeEcdh;
     }
     
     public static byte[] generateBytes(int size) {
@@ -70,22 +110,116 @@ public class AeadHelper {
         return iv; 
     }
     
-    //
-
-    public static byte[] encrypt(byte[] data, byte[] sessionKey, int method) throws Exception {
+    @SneakyThrows
+    private static Cipher createCipher(String transformation) {
+        return Cipher.getInstance(transformation);
+    }
+    
+    /**
+     * Creates a key spec for the encryption method. Sessions should cache this instead of creating one for every packet.
+     */
+    public static SecretKeySpec createKeySpec(byte[] key, int method) {
+        return new SecretKeySpec(key, method == 1 ? "ChaCha20" : "AES");
+    }
+    
+    private static Cipher getCipher(int method) {
+        return method == 1 ? chachaCipher.get() : gcmCipher.get();
+    }
+    
+    private static AlgorithmParameterSpec createParams(int method, byte[] iv, int offset) {
         if (method == 1) {
-            return encryptChaCha(data, sessionKey);
+            return new IvParameterSpec(iv, offset, IV_LENGTH);
         } else {
-            return encryptGCM(data, sessionKey);
+            return new GCMParameterSpec(TAG_LENGTH * 8, iv, offset, IV_LENGTH);
         }
     }
     
+    // AEAD (0 = AES GCM, 1 = ChaCha20-Poly1305)
+    
+    public static byte[] encrypt(byte[] data, byte[] sessionKey, int method) throws Exception {
+        return encrypt(data, 0, data.length, createKeySpec(sessionKey, method), method);
+    }
+    
     public static byte[] decrypt(byte[] data, byte[] sessionKey, int method) throws Exception {
-        if (method == 1) {
-            return decryptChaCha(data, sessionKey);
-        } else {
-            return decryptGCM(data, sessionKey);
-        }
+        return decrypt(data, 0, data.length, createKeySpec(sessionKey, method), method);
+    }
+    
+    public static byte[] encrypt(byte[] data, SecretKeySpec key, int method) throws Exception {
+        return encrypt(data, 0, data.length, key, method);
+    }
+    
+    public static byte[] decrypt(byte[] data, SecretKeySpec key, int method) throws Exception {
+        return decrypt(data, 0, data.length, key, method);
+    }
+    
+    /**
+     * Encrypts the data with a random iv. The iv, ciphertext and tag are written directly into a single output array.
+     */
+    public static byte[] encrypt(byte[] data, int offset, int length, SecretKeySpec key, int method) throws Exception {
+        // Create output
+        byte[] output = new byte[IV_LENGTH + length + TAG_LENGTH];
+        
+        // Write iv
+        byte[] iv = ivBuffer.get();
+        random.get().nextBytes(iv);
+        System.arraycopy(iv, 0, output, 0, IV_LENGTH);
+        
+        // Encrypt
+        Cipher cipher = getCipher(method);
+        
+        cipher.init(Cipher.ENCRYPT_MODE, key, createParams(method, output, 0));
+        cipher.updateAAD(output, 0, IV_LENGTH);
+        cipher.doFinal(data, offset, length, output, IV_LENGTH);
+        
+        return output;
+    }
+    
+    /**
+     * Decrypts data that starts with its iv. The ciphertext is read in place.
+     */
+    public static byte[] decrypt(byte[] data, int offset, int length, SecretKeySpec key, int method) throws Exception {
+        Cipher cipher = getCipher(method);
+        
+        cipher.init(Cipher.DECRYPT_MODE, key, createParams(method, data, offset));
+        cipher.updateAAD(data, offset, IV_LENGTH);
+        
+        return cipher.doFinal(data, offset + IV_LENGTH, length - IV_LENGTH);
+    }
+
+    /**
+     * Encrypts the data in place. {@link #IV_LENGTH} bytes in front of the data are overwritten with the iv
+     * and {@link #TAG_LENGTH} bytes after it with the tag.
+     * @return Start of the encrypted output, which is always offset - IV_LENGTH
+     */
+    public static int encryptInPlace(byte[] data, int offset, int length, SecretKeySpec key, int method) throws Exception {
+        int start = offset - IV_LENGTH;
+
+        // Write iv
+        byte[] iv = ivBuffer.get();
+        random.get().nextBytes(iv);
+        System.arraycopy(iv, 0, data, start, IV_LENGTH);
+
+        // Encrypt
+        Cipher cipher = getCipher(method);
+
+        cipher.init(Cipher.ENCRYPT_MODE, key, createParams(method, data, start));
+        cipher.updateAAD(data, start, IV_LENGTH);
+        cipher.doFinal(data, offset, length, data, offset);
+
+        return start;
+    }
+
+    /**
+     * Decrypts data that starts with its iv in place. The plaintext is written right after the iv.
+     * @return Length of the plaintext
+     */
+    public static int decryptInPlace(byte[] data, int offset, int length, SecretKeySpec key, int method) throws Exception {
+        Cipher cipher = getCipher(method);
+
+        cipher.init(Cipher.DECRYPT_MODE, key, createParams(method, data, offset));
+        cipher.updateAAD(data, offset, IV_LENGTH);
+
+        return cipher.doFinal(data, offset + IV_LENGTH, length - IV_LENGTH, data, offset + IV_LENGTH);
     }
     
     // AES CBC
@@ -97,175 +231,157 @@ public class AeadHelper {
         
         cipher.init(
             Cipher.ENCRYPT_MODE,
-            new SecretKeySpec(serverMetaKey, "AES"),
+            serverMetaKeySpec,
             new IvParameterSpec(iv)
         );
 
-        byte[] encrypted = cipher.doFinal(messageData);
-        byte[] data = new byte[encrypted.length + iv.length];
-        
+        byte[] data = new byte[iv.length + cipher.getOutputSize(messageData.length)];
         System.arraycopy(iv, 0, data, 0, iv.length);
-        System.arraycopy(encrypted, 0, data, iv.length, encrypted.length);
+        
+        int length = cipher.doFinal(messageData, 0, messageData.length, data, iv.length);
+        
+        // Trim if the output size estimate was too large
+        if (iv.length + length != data.length) {
+            return Arrays.copyOf(data, iv.length + length);
+        }
         
         return data;
     }
     
     public static byte[] decryptCBC(byte[] messageData) throws Exception {
-        byte[] iv = new byte[16];
-        byte[] data = new byte[messageData.length - iv.length];
-        
-        System.arraycopy(messageData, 0, iv, 0, iv.length);
-        System.arraycopy(messageData, iv.length, data, 0, data.length);
-        
         Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
         
         cipher.init(
             Cipher.DECRYPT_MODE,
-            new SecretKeySpec(serverMetaKey, "AES"),
-            new IvParameterSpec(iv)
+            serverMetaKeySpec,
+            new IvParameterSpec(messageData, 0, 16)
         );
 
-        return cipher.doFinal(data);
+        return cipher.doFinal(messageData, 16, messageData.length - 16);
     }
     
     // AES GCM
     
     public static byte[] encryptGCM(byte[] messageData, byte[] key) throws Exception {
-        byte[] iv = generateBytes(12);
-        
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-        
-        cipher.init(
-            Cipher.ENCRYPT_MODE, 
-            new SecretKeySpec(key, "AES"), 
-            new GCMParameterSpec(128, iv)
-        );
-        cipher.updateAAD(iv);
-
-        byte[] encrypted = cipher.doFinal(messageData);
-        byte[] data = new byte[encrypted.length + iv.length];
-        
-        System.arraycopy(iv, 0, data, 0, iv.length);
-        System.arraycopy(encrypted, 0, data, iv.length, encrypted.length);
-        
-        return data;
+        return encrypt(messageData, key, 0);
     }
     
     public static byte[] decryptGCM(byte[] messageData, byte[] key) throws Exception {
-        byte[] iv = new byte[12];
-        byte[] data = new byte[messageData.length - iv.length];
-        System.arraycopy(messageData, 0, iv, 0, iv.length);
-        System.arraycopy(messageData, iv.length, data, 0, data.length);
-        
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-        
-        cipher.init(
-            Cipher.DECRYPT_MODE, 
-            new SecretKeySpec(key, "AES"), 
-            new GCMParameterSpec(128, iv)
-        );
-        cipher.updateAAD(iv);
-
-        return cipher.doFinal(data);
+        return decrypt(messageData, key, 0);
     }
     
     // Chacha20
     
     public static byte[] encryptChaCha(byte[] messageData, byte[] key) throws Exception {
-        byte[] iv = generateBytes(12);
-
-        Cipher cipher = Cipher.getInstance("ChaCha20-Poly1305/None/NoPadding");
-        
-        cipher.init(
-            Cipher.ENCRYPT_MODE, 
-            new SecretKeySpec(key, "ChaCha20"),
-            new IvParameterSpec(iv)
-        );
-        cipher.updateAAD(iv);
-        
-        byte[] encrypted = cipher.doFinal(messageData);
-        byte[] data = new byte[encrypted.length + iv.length];
-        
-        System.arraycopy(iv, 0, data, 0, iv.length);
-        System.arraycopy(encrypted, 0, data, iv.length, encrypted.length);
-        
-        return data;
+        return encrypt(messageData, key, 1);
     }
     
     public static byte[] decryptChaCha(byte[] messageData, byte[] key) throws Exception {
-        byte[] iv = new byte[12];
-        byte[] data = new byte[messageData.length - iv.length];
-        System.arraycopy(messageData, 0, iv, 0, iv.length);
-        System.arraycopy(messageData, iv.length, data, 0, data.length);
-
-        Cipher cipher = Cipher.getInstance("ChaCha20-Poly1305/None/NoPadding");
-        
-        cipher.init(
-            Cipher.DECRYPT_MODE, 
-            new SecretKeySpec(key, "ChaCha20"),
-            new IvParameterSpec(iv)
-        );
-        cipher.updateAAD(iv);
-        
-        return cipher.doFinal(data);
+        return decrypt(messageData, key, 1);
     }
     
     // XOR
     
     public static byte[] encryptBasic(byte[] messageData, byte[] key3) {
-        byte[] data = new byte[messageData.length];
-        System.arraycopy(messageData, 0, data, 0, data.length);
-        
-        for (int i = 0; i < data.length; i++) {
-            data[i] ^= key3[i % key3.length];
-            
-            int b = data[i];
-            
-            byte v7 = (byte) (b << 1);
-            byte v1 = (byte) ((b >> 7) & 0b00000001);
-            
-            data[i] = (byte) (v1 | v7);
-            
-            data[i] ^= data.length;
-        }
-        
+        byte[] data = messageData.clone();
+        encryptBasic(data, 0, data.length, key3);
         return data;
     }
     
     public static byte[] decryptBasic(byte[] messageData, byte[] key3) {
-        byte[] data = new byte[messageData.length];
-        System.arraycopy(messageData, 0, data, 0, data.length);
-        
-        for (int i = 0; i < data.length; i++) {
-            data[i] ^= data.length;
-            
-            int b = data[i];
-            
-            byte v1 = (byte) (b << 7);
-            byte v7 = (byte) ((b >> 1) & 0b01111111);
+        byte[] data = messageData.clone();
+        decryptBasic(data, 0, data.length, key3);
+        return data;
+    }
+    
+    /**
+     * In-place version of the XOR layer. Walks the data one key length at a time
+     * so the inner loop has no modulo and can be vectorized by the JIT.
+     */
+    public static void encryptBasic(byte[] data, int offset, int length, byte[] key3) {
+        byte size = (byte) length;
+        
+        for (int start = 0; start < length; start += key3.length) {
+            int base = offset + start;
+            int end = Math.min(key3.length, length - start);
             
-            data[i] = (byte) (v7 | v1);
+            for (int i = 0; i < end; i++) {
+                int b = (data[base + i] ^ key3[i]) & 0xff;
+                data[base + i] = (byte) (((b << 1) | (b >>> 7)) ^ size);
+            }
+        }
+    }
+    
+    /**
+     * In-place version of the XOR layer. See {@link #encryptBasic(byte[], int, int, byte[])}
+     */
+    public static void decryptBasic(byte[] data, int offset, int length, byte[] key3) {
+        byte size = (byte) length;
+        
+        for (int start = 0; start < length; start += key3.length) {
+            int base = offset + start;
+            int end = Math.min(key3.length, length - start);
             
-            data[i] ^= key3[i % key3.length];
+            for (int i = 0; i < end; i++) {
+                int b = (data[base + i] ^ size) & 0xff;
+                data[base + i] = (byte) (((b >>> 1) | (b << 7)) ^ key3[i]);
+            }
         }
-        
-        return data;
     }
     
     // ECDH
     
+    @SneakyThrows
+    private static ECParameterSpec createNativeParams() {
+        var params = AlgorithmParameters.getInstance("EC");
+        params.init(new ECGenParameterSpec("secp256r1"));
+        return params.getParameterSpec(ECParameterSpec.class);
+    }
+    
+    @SneakyThrows
+    private static KeyAgreement createKeyAgreement() {
+        return KeyAgreement.getInstance("ECDH");
+    }
+    
+    @SneakyThrows
+    private static KeyFactory createKeyFactory() {
+        return KeyFactory.getInstance("EC");
+    }
+    
     public static AsymmetricCipherKeyPair generateECDHKEyPair() {
         var generator = new ECKeyPairGenerator();
-        
-        var p = NISTNamedCurves.getByName("P-256");
-        var domainParams = new ECDomainParameters(p.getCurve(), p.getG(), p.getN(), p.getH());
         var genParams = new ECKeyGenerationParameters(domainParams, random.get());
         
         generator.init(genParams);
         return generator.generateKeyPair();
     }
     
+    /**
+     * Generates a server key pair in the format that is sent to the client
+     */
+    public static EcdhKeyPair generateServerKeyPair() {
+        var pair = generateECDHKEyPair();
+        
+        return new EcdhKeyPair(
+            ((ECPublicKeyParameters) pair.getPublic()).getQ().getEncoded(false),
+            ((ECPrivateKeyParameters) pair.getPrivate()).getD().toByteArray()
+        );
+    }
+    
     public static byte[] generateKey(byte[] clientPublic, byte[] serverPublic, byte[] serverPrivate) {
+        byte[] sharedKey = useNativeEcdh ? calcECDHSharedKeyNative(clientPublic, serverPrivate) : calcECDHSharedKey(clientPublic, serverPrivate);
+        return deriveKey(clientPublic, serverPublic, sharedKey);
+    }
+    
+    /**
+     * Client side of {@link #generateKey(byte[], byte[], byte[])}. Both sides get the same key since the ECDH shared
+     * secret is the same.
+     */
+    public static byte[] generateClientKey(byte[] clientPublic, byte[] clientPrivate, byte[] serverPublic) {
+        return deriveKey(clientPublic, serverPublic, calcECDHSharedKey(serverPublic, clientPrivate));
+    }
+    
+    private static byte[] deriveKey(byte[] clientPublic, byte[] serverPublic, byte[] sharedKey) {
         // Setup
         byte[] ikm = new byte[32];
         byte[] salt = serverPublic;
@@ -283,7 +399,6 @@ public class AeadHelper {
             info[i] = (byte) (s ^ c);
         }
         
-        var sharedKey = calcECDHSharedKey(clientPublic, serverPrivate);
         int count = Math.min(sharedKey.length, 32);
         System.arraycopy(sharedKey, 0, ikm, 32 - count, count);
         
@@ -300,10 +415,7 @@ public class AeadHelper {
     }
     
     public static byte[] calcECDHSharedKey(byte[] clientPublic, byte[] serverPrivate) {
-        var p = SECNamedCurves.getByName("secp256r1");
-        var domainParams = new ECDomainParameters(p.getCurve(), p.getG(), p.getN(), p.getH(), p.getSeed());
-        
-        var clientPoint = p.getCurve().decodePoint(clientPublic);
+        var clientPoint = curve.getCurve().decodePoint(clientPublic);
         var clientParams = new ECPublicKeyParameters(clientPoint, domainParams);
         
         var serverInteger = new BigInteger(serverPrivate);
@@ -316,6 +428,28 @@ public class AeadHelper {
         
         return getUnsignedByteArray(result);
     }
+    
+    /**
+     * Same as {@link #calcECDHSharedKey(byte[], byte[])}, but the agreement is done by the JDK. The client point is
+     * still decoded by BouncyCastle so that compressed points are accepted and invalid points are rejected.
+     */
+    @SneakyThrows
+    public static byte[] calcECDHSharedKeyNative(byte[] clientPublic, byte[] serverPrivate) {
+        var clientPoint = curve.getCurve().decodePoint(clientPublic).normalize();
+        var factory = keyFactory.get();
+        
+        var clientKey = factory.generatePublic(new ECPublicKeySpec(
+            new ECPoint(clientPoint.getAffineXCoord().toBigInteger(), clientPoint.getAffineYCoord().toBigInteger()),
+            nativeParams
+        ));
+        var serverKey = factory.generatePrivate(new ECPrivateKeySpec(new BigInteger(serverPrivate), nativeParams));
+        
+        var agreement = keyAgreement.get();
+        agreement.init(serverKey);
+        agreement.doPhase(clientKey, true);
+        
+        return agreement.generateSecret();
+    }
 
     public static byte[] getUnsignedByteArray(BigInteger b) {
         byte[] signedByteArray = b.toByteArray();
@@ -333,4 +467,9 @@ public class AeadHelper {
         
         return unsignedByteArray;
     }
+    
+    /**
+     * Encoded server key pair. The public key is an uncompressed point and the private key is a signed big integer.
+     */
+    public record EcdhKeyPair(byte[] publicKey, byte[] privateKey) {}
 }
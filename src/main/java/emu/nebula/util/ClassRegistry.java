@@ -0,0 +1,145 @@
+package emu.nebula.util;
+
+import java.lang.annotation.Annotation;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.reflections.Reflections;
+import org.reflections.util.ConfigurationBuilder;
+import org.reflections.util.FilterBuilder;
+
+import emu.nebula.Nebula;
+import us.hebi.quickbuf.ProtoMessage;
+
+/**
+ * Looks up the server's handlers, resources, entities, commands and protos. The classes are read from the registry
+ * that is generated at compile time by the registry annotation processor. If the registry is missing (for example
+ * when the server was compiled without the processor), the classpath is scanned once instead.
+ * <p>
+ * Plugin classes are never in the generated registry. Plugins are scanned with {@link #addPlugin(ClassLoader, String)}
+ * when they are loaded, and their annotated classes are returned along with the server's.
+ */
+public class ClassRegistry {
+    private static final String GENERATED_REGISTRY = "emu.nebula.util.GeneratedRegistry";
+
+    private static Map<String, String[]> generatedTypes;
+    private static String[] generatedProtos;
+    private static Reflections reflections;
+    private static final List<Reflections> plugins = new CopyOnWriteArrayList<>();
+
+    static {
+        try {
+            var cls = Class.forName(GENERATED_REGISTRY);
+
+            @SuppressWarnings("unchecked")
+            var types = (Map<String, String[]>) cls.getField("TYPES").get(null);
+
+            generatedTypes = types;
+            generatedProtos = (String[]) cls.getField("NEXT_PACKAGE_PROTOS").get(null);
+        } catch (Exception e) {
+            // Registry wasn't generated, we will scan the classpath instead
+        }
+    }
+
+    /**
+     * Returns true if the generated registry is used instead of classpath scans
+     */
+    public static boolean isGenerated() {
+        return generatedTypes != null;
+    }
+
+    /**
+     * Returns all server and plugin classes that have this annotation
+     */
+    public static Set<Class<?>> getTypesAnnotatedWith(Class<? extends Annotation> annotation) {
+        Set<Class<?>> results;
+
+        if (isGenerated()) {
+            results = loadClasses(generatedTypes.getOrDefault(annotation.getName(), new String[0]));
+        } else {
+            results = new LinkedHashSet<>(getReflections().getTypesAnnotatedWith(annotation));
+        }
+
+        // Add plugin classes
+        for (var plugin : plugins) {
+            results.addAll(plugin.getTypesAnnotatedWith(annotation));
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns all proto classes that have a setNextPackage method
+     */
+    @SuppressWarnings("rawtypes")
+    public static Set<Class<?>> getNextPackageProtos() {
+        if (isGenerated()) {
+            return loadClasses(generatedProtos);
+        }
+
+        var results = new LinkedHashSet<Class<?>>();
+
+        for (Class<? extends ProtoMessage> cls : getReflections().getSubTypesOf(ProtoMessage.class)) {
+            try {
+                cls.getMethod("setNextPackage", byte[].class);
+                results.add(cls);
+            } catch (NoSuchMethodException e) {
+                // Ignored
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Scans a plugin's classes, so that its handlers, resources, entities and commands are registered with the server's.
+     * Has to be called before those are registered, which is why plugins are loaded first.
+     */
+    public static void addPlugin(ClassLoader classLoader, String packageName) {
+        plugins.add(scan(classLoader, packageName));
+    }
+
+    /**
+     * Scans a package with the specified class loader for classes that have this annotation
+     */
+    public static Set<Class<?>> scanTypesAnnotatedWith(ClassLoader classLoader, String packageName, Class<? extends Annotation> annotation) {
+        return scan(classLoader, packageName).getTypesAnnotatedWith(annotation);
+    }
+
+    private static Reflections scan(ClassLoader classLoader, String packageName) {
+        var config = new ConfigurationBuilder()
+                .forPackage(packageName, classLoader)
+                .filterInputsBy(new FilterBuilder().includePackage(packageName))
+                .addClassLoaders(classLoader);
+
+        return new Reflections(config);
+    }
+
+    private static synchronized Reflections getReflections() {
+        // Only scan the classpath once
+        if (reflections == null) {
+            Nebula.getLogger().warn("Class registry was not generated, scanning classpath");
+            reflections = new Reflections(Nebula.class.getPackageName());
+        }
+
+        return reflections;
+    }
+
+    private static Set<Class<?>> loadClasses(String[] names) {
+        var classes = new LinkedHashSet<Class<?>>(names.length);
+        var loader = ClassRegistry.class.getClassLoader();
+
+        for (var name : names) {
+            try {
+                classes.add(Class.forName(name, false, loader));
+            } catch (ClassNotFoundException e) {
+                Nebula.getLogger().warn("Could not find registered class " + name);
+            }
+        }
+
+        return classes;
+    }
+}
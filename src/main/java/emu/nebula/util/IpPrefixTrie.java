@@ -0,0 +1,263 @@
+package emu.nebula.util;
+
+import java.net.InetAddress;
+
+import org.bouncycastle.util.IPAddress;
+
+/**
+ * Binary radix trie keyed by IP prefixes ("1.2.3.4", "10.0.0.0/8", "2001:db8::/32"). IPv4 addresses are stored as
+ * IPv4-mapped IPv6 addresses so both families share one trie, and a lookup returns the value of the longest prefix
+ * that contains the address.
+ * <p>
+ * Not thread safe. Build it once and only read from it after it has been published.
+ */
+public class IpPrefixTrie<T> {
+    private static final int ADDRESS_BITS = 128;
+    private static final int IPV4_OFFSET = 96;
+
+    private final Node<T> root = new Node<>();
+    private int size;
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Adds a value for an address or CIDR prefix
+     * @return False if the prefix could not be parsed
+     */
+    public boolean put(String prefix, T value) {
+        // Parse prefix
+        var range = parsePrefix(prefix);
+        if (range == null) {
+            return false;
+        }
+
+        // Walk down to the node for this prefix, creating nodes as needed
+        var node = this.root;
+
+        for (int i = 0; i < range.length(); i++) {
+            if (getBit(range.address(), i) == 0) {
+                if (node.zero == null) node.zero = new Node<>();
+                node = node.zero;
+            } else {
+                if (node.one == null) node.one = new Node<>();
+                node = node.one;
+            }
+        }
+
+        if (node.value == null) {
+            this.size++;
+        }
+
+        node.value = value;
+        return true;
+    }
+
+    /**
+     * Returns the value of the most specific prefix that contains this address, or null if there is none
+     */
+    public T get(String address) {
+        if (this.size == 0) {
+            return null;
+        }
+
+        var bytes = parseAddress(address);
+        if (bytes == null) {
+            return null;
+        }
+
+        var node = this.root;
+        T match = node.value;
+
+        for (int i = 0; i < ADDRESS_BITS && node != null; i++) {
+            node = getBit(bytes, i) == 0 ? node.zero : node.one;
+
+            if (node != null && node.value != null) {
+                match = node.value;
+            }
+        }
+
+        return match;
+    }
+
+    public static boolean isValidPrefix(String prefix) {
+        return parsePrefix(prefix) != null;
+    }
+
+    /**
+     * Returns the canonical form of an address or CIDR prefix, so that prefixes that cover the same range are
+     * equal. Host bits are cleared ("10.1.2.3/8" becomes "10.0.0.0/8"), single addresses have no prefix length,
+     * IPv4 (also when written as IPv4-mapped IPv6) is written in dotted form and IPv6 is written as in RFC 5952.
+     * @return The canonical prefix, or null if it could not be parsed
+     */
+    public static String normalize(String prefix) {
+        var range = parsePrefix(prefix);
+        if (range == null) {
+            return null;
+        }
+
+        // Clear host bits
+        var bytes = range.address().clone();
+
+        for (int i = range.length(); i < ADDRESS_BITS; i++) {
+            bytes[i >> 3] &= ~(1 << (7 - (i & 7)));
+        }
+
+        // Format
+        var builder = new StringBuilder();
+        int length = range.length();
+        int maxLength = ADDRESS_BITS;
+
+        if (length >= IPV4_OFFSET && isIpv4Mapped(bytes)) {
+            for (int i = 12; i < 16; i++) {
+                if (i > 12) builder.append('.');
+                builder.append(bytes[i] & 0xFF);
+            }
+
+            length -= IPV4_OFFSET;
+            maxLength -= IPV4_OFFSET;
+        } else {
+            appendIpv6(builder, bytes);
+        }
+
+        if (length < maxLength) {
+            builder.append('/').append(length);
+        }
+
+        return builder.toString();
+    }
+
+    private static boolean isIpv4Mapped(byte[] bytes) {
+        for (int i = 0; i < 10; i++) {
+            if (bytes[i] != 0) return false;
+        }
+
+        return bytes[10] == (byte) 0xFF && bytes[11] == (byte) 0xFF;
+    }
+
+    private static void appendIpv6(StringBuilder builder, byte[] bytes) {
+        var groups = new int[8];
+
+        for (int i = 0; i < 8; i++) {
+            groups[i] = ((bytes[i * 2] & 0xFF) << 8) | (bytes[i * 2 + 1] & 0xFF);
+        }
+
+        // Find the longest run of at least two zero groups, which is shortened to ::
+        int runStart = -1;
+        int runLength = 1;
+
+        for (int i = 0; i < 8; i++) {
+            int j = i;
+            while (j < 8 && groups[j] == 0) j++;
+
+            if (j - i > runLength) {
+                runStart = i;
+                runLength = j - i;
+            }
+
+            i = Math.max(i, j);
+        }
+
+        for (int i = 0; i < 8; i++) {
+            if (i == runStart) {
+                builder.append("::");
+                i += runLength - 1;
+                continue;
+            }
+
+            if (builder.length() > 0 && builder.charAt(builder.length() - 1) != ':') {
+                builder.append(':');
+            }
+
+            builder.append(Integer.toHexString(groups[i]));
+        }
+    }
+
+    private static int getBit(byte[] bytes, int index) {
+        return (bytes[index >> 3] >> (7 - (index & 7))) & 1;
+    }
+
+    private static Prefix parsePrefix(String prefix) {
+        if (prefix == null) {
+            return null;
+        }
+
+        // Split off prefix length
+        int slash = prefix.indexOf('/');
+        String address = slash >= 0 ? prefix.substring(0, slash) : prefix;
+
+        var bytes = parseAddress(address);
+        if (bytes == null) {
+            return null;
+        }
+
+        boolean ipv4 = address.indexOf(':') < 0;
+        int length = ipv4 ? ADDRESS_BITS - IPV4_OFFSET : ADDRESS_BITS;
+
+        if (slash >= 0) {
+            try {
+                int value = Integer.parseInt(prefix.substring(slash + 1));
+                if (value < 0 || value > length) {
+                    return null;
+                }
+                length = value;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        return new Prefix(bytes, ipv4 ? length + IPV4_OFFSET : length);
+    }
+
+    /**
+     * Parses an IPv4 or IPv6 literal into 16 bytes. Anything that isn't a literal is rejected before it gets to
+     * {@link InetAddress}, so this never does a DNS lookup.
+     */
+    private static byte[] parseAddress(String address) {
+        if (address == null || address.isEmpty()) {
+            return null;
+        }
+
+        // Strip brackets and zone id
+        if (address.charAt(0) == '[' && address.charAt(address.length() - 1) == ']') {
+            address = address.substring(1, address.length() - 1);
+        }
+
+        int zone = address.indexOf('%');
+        if (zone >= 0) {
+            address = address.substring(0, zone);
+        }
+
+        if (!IPAddress.isValidIPv4(address) && !IPAddress.isValidIPv6(address)) {
+            return null;
+        }
+
+        byte[] raw;
+
+        try {
+            raw = InetAddress.getByName(address).getAddress();
+        } catch (Exception e) {
+            return null;
+        }
+
+        if (raw.length == 16) {
+            return raw;
+        }
+
+        // Map IPv4 into ::ffff:0:0/96
+        var bytes = new byte[16];
+        bytes[10] = (byte) 0xFF;
+        bytes[11] = (byte) 0xFF;
+        System.arraycopy(raw, 0, bytes, 12, 4);
+        return bytes;
+    }
+
+    private record Prefix(byte[] address, int length) {}
+
+    private static class Node<T> {
+        private Node<T> zero;
+        private Node<T> one;
+        private T value;
+    }
+}
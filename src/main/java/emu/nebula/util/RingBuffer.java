@@ -0,0 +1,90 @@
+package emu.nebula.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Each slot has a sequence number that tells
+ * producers and the consumer whose turn it is to use the slot, so neither side ever waits on the other. Offering
+ * to a full buffer fails instead of blocking.
+ * <p>
+ * {@link #poll()} should only be called from one thread.
+ */
+public class RingBuffer<T> {
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    private final AtomicLong tail;
+    private volatile long head;
+
+    public RingBuffer(int capacity) {
+        // Round capacity up to a power of 2
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.tail = new AtomicLong();
+
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return this.slots.length;
+    }
+
+    public int size() {
+        return (int) Math.max(this.tail.get() - this.head, 0);
+    }
+
+    /**
+     * Adds a value to the buffer. Returns false if the buffer is full.
+     */
+    public boolean offer(T value) {
+        while (true) {
+            long pos = this.tail.get();
+            int index = (int) (pos & this.mask);
+            long diff = this.sequences.get(index) - pos;
+
+            if (diff == 0) {
+                // Slot is free, claim it
+                if (this.tail.compareAndSet(pos, pos + 1)) {
+                    this.slots[index] = value;
+                    this.sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                // Consumer hasn't freed this slot yet
+                return false;
+            }
+
+            // Another producer claimed this slot first, try again
+        }
+    }
+
+    /**
+     * Removes the oldest value from the buffer. Returns null if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long pos = this.head;
+        int index = (int) (pos & this.mask);
+
+        // Make sure the producer has finished writing this slot
+        if (this.sequences.get(index) != pos + 1) {
+            return null;
+        }
+
+        var value = (T) this.slots[index];
+        this.slots[index] = null;
+
+        // Free slot for the next time around the buffer
+        this.sequences.lazySet(index, pos + this.slots.length);
+        this.head = pos + 1;
+
+        return value;
+    }
+}
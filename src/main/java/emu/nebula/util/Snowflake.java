@@ -2,17 +2,20 @@ package emu.nebula.util;
 
 public class Snowflake {
     private static final long EPOCH = 1735689600000L; // Wednesday, January 1, 2025 12:00:00 AM (GMT)
+    private static final int MAX_SEQUENCE = 15;
     private static int cachedTimestamp;
-    private static byte sequence;
+    private static int sequence;
 
     public synchronized static int newUid() {
         int timestamp = (int) ((System.currentTimeMillis() - EPOCH) / 1000);
 
-        if (cachedTimestamp != timestamp) {
+        if (timestamp > cachedTimestamp) {
             sequence = 0;
             cachedTimestamp = timestamp;
-        } else {
-            sequence++;
+        } else if (++sequence > MAX_SEQUENCE) {
+            // Out of ids for this second, use the next second's ids so they are never repeated
+            sequence = 0;
+            cachedTimestamp++;
         }
 
         return (cachedTimestamp << 4) + sequence;
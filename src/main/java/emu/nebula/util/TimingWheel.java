@@ -0,0 +1,85 @@
+package emu.nebula.util;
+
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel. Values are put in a bucket by their deadline, and {@link #advance(long, Consumer)} only
+ * visits the buckets whose tick has passed. Deadlines further away than one revolution land in an earlier bucket,
+ * so the caller should check the real deadline of each value it receives and schedule it again if needed.
+ * <p>
+ * Scheduling is lock-free and can be done from any thread. Advancing should only be done from one thread.
+ */
+public class TimingWheel<T> {
+    private final Queue<T>[] buckets;
+    private final int mask;
+    private final long tickMillis;
+
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(int size, long tickMillis) {
+        // Round size up to a power of 2
+        int buckets = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+
+        this.buckets = new Queue[buckets];
+        this.mask = buckets - 1;
+        this.tickMillis = tickMillis;
+        this.currentTick = System.currentTimeMillis() / tickMillis;
+
+        for (int i = 0; i < buckets; i++) {
+            this.buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Schedules a value to be returned by {@link #advance(long, Consumer)} once its deadline has passed
+     * @param value
+     * @param deadline Time in milliseconds
+     */
+    public void schedule(T value, long deadline) {
+        // Round deadline up to the next tick
+        long tick = (deadline + this.tickMillis - 1) / this.tickMillis;
+
+        // Deadlines that already passed are handled on the next tick
+        tick = Math.max(tick, this.currentTick + 1);
+
+        // Cap to one revolution
+        tick = Math.min(tick, this.currentTick + this.buckets.length);
+
+        this.buckets[(int) (tick & this.mask)].add(value);
+    }
+
+    /**
+     * Advances the wheel to the specified time, passing every value in the buckets that are now due to the consumer.
+     * @param time Time in milliseconds
+     * @param consumer
+     */
+    public void advance(long time, Consumer<T> consumer) {
+        long targetTick = time / this.tickMillis;
+
+        // Don't go around the wheel more than once
+        long tick = Math.max(this.currentTick + 1, targetTick - this.mask);
+
+        for (; tick <= targetTick; tick++) {
+            // Set current tick first so values scheduled while we are working go into a later bucket
+            this.currentTick = tick;
+
+            // Drain bucket
+            var bucket = this.buckets[(int) (tick & this.mask)];
+            var due = new ArrayList<T>();
+
+            T value;
+            while ((value = bucket.poll()) != null) {
+                due.add(value);
+            }
+
+            // Handle due values
+            for (var v : due) {
+                consumer.accept(v);
+            }
+        }
+    }
+}
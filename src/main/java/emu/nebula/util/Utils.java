@@ -28,9 +28,14 @@ public class Utils {
     }
     
     public static String bytesToHex(byte[] bytes, int offset) {
-        if (bytes == null || (bytes.length - offset) <= 0) return "";
-        char[] hexChars = new char[(bytes.length - offset) * 2];
-        for (int j = offset; j < bytes.length; j++) {
+        if (bytes == null) return "";
+        return bytesToHex(bytes, offset, bytes.length - offset);
+    }
+
+    public static String bytesToHex(byte[] bytes, int offset, int length) {
+        if (bytes == null || length <= 0) return "";
+        char[] hexChars = new char[length * 2];
+        for (int j = offset; j < offset + length; j++) {
             int v = bytes[j] & 0xFF;
             int h = j - offset;
             hexChars[h * 2] = HEX_ARRAY[v >>> 4];
@@ -1,35 +1,174 @@
 package emu.nebula.util;
 
-import java.util.NavigableMap;
-import java.util.TreeMap;
+import java.util.Arrays;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
+/**
+ * Weighted random list. Values are added with {@link #add(double, Object)}, and the first call to {@link #next()}
+ * after the list was changed builds an alias table (Vose's method) from the weights. After that, every sample is
+ * O(1) and does not allocate.
+ * <p>
+ * Adding values is synchronized, so a list can be populated from several defs. Sampling is lock-free.
+ */
 public class WeightedList<E> {
-    private final NavigableMap<Double, E> map = new TreeMap<>();
-    private double total = 0;
+    private double[] weights;
+    private Object[] values;
+    private int size;
+    private double total;
 
-    public WeightedList() {
+    private volatile AliasTable table;
 
+    public WeightedList() {
+        this.weights = new double[8];
+        this.values = new Object[8];
     }
 
-    public WeightedList<E> add(double weight, E result) {
+    public synchronized WeightedList<E> add(double weight, E result) {
         if (weight <= 0) return this;
-        total += weight;
-        map.put(total, result);
+
+        // Grow arrays
+        if (this.size == this.weights.length) {
+            this.weights = Arrays.copyOf(this.weights, this.size << 1);
+            this.values = Arrays.copyOf(this.values, this.size << 1);
+        }
+
+        this.weights[this.size] = weight;
+        this.values[this.size] = result;
+        this.size++;
+        this.total += weight;
+
+        // Rebuild table on the next sample
+        this.table = null;
+
         return this;
     }
 
     public E next() {
-        double value = ThreadLocalRandom.current().nextDouble() * total;
-        return map.higherEntry(value).getValue();
+        return this.next(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Returns a random value from this list, using the specified random generator. Returns null if the list is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E next(RandomGenerator random) {
+        var table = this.getTable();
+
+        if (table.values.length == 0) {
+            return null;
+        }
+
+        return (E) table.values[table.sample(random)];
     }
 
     public int size() {
-        return map.size();
+        return this.size;
+    }
+
+    public double getTotal() {
+        return this.total;
     }
 
-    public void clear() {
-        this.map.clear();
+    public synchronized void clear() {
+        Arrays.fill(this.values, 0, this.size, null);
+
+        this.size = 0;
         this.total = 0;
+        this.table = null;
+    }
+
+    private AliasTable getTable() {
+        var table = this.table;
+
+        if (table == null) {
+            table = this.buildTable();
+        }
+
+        return table;
+    }
+
+    private synchronized AliasTable buildTable() {
+        // Another thread may have built the table while we were waiting
+        if (this.table != null) {
+            return this.table;
+        }
+
+        var table = new AliasTable(this.weights, this.values, this.size, this.total);
+        this.table = table;
+
+        return table;
+    }
+
+    /**
+     * Immutable alias table built with Vose's method. Each column holds a value and an alias, and the probability
+     * of picking the value over its alias.
+     */
+    private static class AliasTable {
+        private final Object[] values;
+        private final double[] prob;
+        private final int[] alias;
+
+        private AliasTable(double[] weights, Object[] values, int size, double total) {
+            this.values = Arrays.copyOf(values, size);
+            this.prob = new double[size];
+            this.alias = new int[size];
+
+            if (size == 0) {
+                return;
+            }
+
+            // Scale weights so that the average is 1
+            var scaled = new double[size];
+            var small = new int[size];
+            var large = new int[size];
+            int smallCount = 0;
+            int largeCount = 0;
+
+            for (int i = 0; i < size; i++) {
+                scaled[i] = weights[i] * size / total;
+
+                if (scaled[i] < 1.0) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+
+            // Pair each small column with a large one
+            while (smallCount > 0 && largeCount > 0) {
+                int l = small[--smallCount];
+                int g = large[--largeCount];
+
+                this.prob[l] = scaled[l];
+                this.alias[l] = g;
+
+                scaled[g] = (scaled[g] + scaled[l]) - 1.0;
+
+                if (scaled[g] < 1.0) {
+                    small[smallCount++] = g;
+                } else {
+                    large[largeCount++] = g;
+                }
+            }
+
+            // Leftover columns are full, small ones can only be left over because of rounding errors
+            while (largeCount > 0) {
+                int g = large[--largeCount];
+                this.prob[g] = 1.0;
+                this.alias[g] = g;
+            }
+
+            while (smallCount > 0) {
+                int l = small[--smallCount];
+                this.prob[l] = 1.0;
+                this.alias[l] = l;
+            }
+        }
+
+        private int sample(RandomGenerator random) {
+            int column = random.nextInt(this.prob.length);
+            return random.nextDouble() < this.prob[column] ? column : this.alias[column];
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,199 @@
+package emu.nebula.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Collects the classes that the server would otherwise find with classpath scans at startup, and writes them to
+ * a generated class (emu.nebula.util.GeneratedRegistry) that is read by ClassRegistry.
+ * <p>
+ * Class names are stored as strings, so classes that are not accessible from the generated class still work.
+ * <p>
+ * The registry is written at the end of the first round, which has all of the sources. Writing it in the last round
+ * would leave the generated file out of annotation processing and make javac warn about it.
+ * <p>
+ * The processor is registered with Gradle as an aggregating incremental processor, so it only claims the collected
+ * annotations (which all have runtime retention). Protos aren't annotated, they are found by walking the proto package,
+ * which also sees protos that were compiled in an earlier build.
+ */
+public class RegistryProcessor extends AbstractProcessor {
+    public static final String REGISTRY_PACKAGE = "emu.nebula.util";
+    public static final String REGISTRY_CLASS = "GeneratedRegistry";
+
+    // Annotations that are collected
+    private static final Set<String> ANNOTATIONS = Set.of(
+        "emu.nebula.net.HandlerId",
+        "emu.nebula.data.ResourceType",
+        "emu.nebula.command.Command",
+        "dev.morphia.annotations.Entity"
+    );
+
+    private static final String PROTO_PACKAGE = "emu.nebula.proto";
+    private static final String PROTO_MESSAGE = "us.hebi.quickbuf.ProtoMessage";
+    private static final String NEXT_PACKAGE_METHOD = "setNextPackage";
+
+    private final Map<String, Set<String>> types = new TreeMap<>();
+    private final Set<String> nextPackageProtos = new TreeSet<>();
+    private boolean written;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return ANNOTATIONS;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            return false;
+        }
+
+        int count = this.countTypes();
+
+        // Annotated classes
+        for (var annotation : annotations) {
+            var name = annotation.getQualifiedName().toString();
+
+            if (!ANNOTATIONS.contains(name)) {
+                continue;
+            }
+
+            var set = this.types.computeIfAbsent(name, k -> new TreeSet<>());
+
+            for (var element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element instanceof TypeElement type) {
+                    set.add(this.getBinaryName(type));
+                }
+            }
+        }
+
+        // Write the registry once all sources have been seen
+        if (!this.written) {
+            this.findProtos();
+            this.writeRegistry();
+            this.written = true;
+        } else if (this.countTypes() != count) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Classes generated after the first round are not added to the class registry");
+        }
+
+        return false;
+    }
+
+    private int countTypes() {
+        int count = this.nextPackageProtos.size();
+
+        for (var set : this.types.values()) {
+            count += set.size();
+        }
+
+        return count;
+    }
+
+    private void findProtos() {
+        // Protos with next packages
+        var elements = processingEnv.getElementUtils();
+        var protoType = elements.getTypeElement(PROTO_MESSAGE);
+        var protoPackage = elements.getPackageElement(PROTO_PACKAGE);
+
+        if (protoType == null || protoPackage == null) {
+            return;
+        }
+
+        var erasure = processingEnv.getTypeUtils().erasure(protoType.asType());
+
+        for (var element : protoPackage.getEnclosedElements()) {
+            this.findProtos(element, erasure);
+        }
+    }
+
+    private void findProtos(Element element, TypeMirror protoType) {
+        if (!(element instanceof TypeElement type)) {
+            return;
+        }
+
+        // Check if this is a proto with a setNextPackage method
+        var types = processingEnv.getTypeUtils();
+
+        if (type.getKind() == ElementKind.CLASS && types.isAssignable(types.erasure(type.asType()), protoType)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (method.getSimpleName().contentEquals(NEXT_PACKAGE_METHOD) && method.getModifiers().contains(Modifier.PUBLIC)) {
+                    this.nextPackageProtos.add(this.getBinaryName(type));
+                    break;
+                }
+            }
+        }
+
+        // Protos are usually nested in their outer class
+        for (var enclosed : type.getEnclosedElements()) {
+            this.findProtos(enclosed, protoType);
+        }
+    }
+
+    private String getBinaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private void writeRegistry() {
+        try {
+            var file = processingEnv.getFiler().createSourceFile(REGISTRY_PACKAGE + "." + REGISTRY_CLASS);
+
+            try (Writer writer = file.openWriter()) {
+                writer.write("package " + REGISTRY_PACKAGE + ";\n\n");
+                writer.write("import java.util.Map;\n\n");
+                writer.write("/**\n * Generated by " + RegistryProcessor.class.getName() + ", do not edit.\n */\n");
+                writer.write("public final class " + REGISTRY_CLASS + " {\n");
+
+                // Annotated types
+                writer.write("    public static final Map<String, String[]> TYPES = Map.of(\n");
+
+                int i = 0;
+                for (var entry : this.types.entrySet()) {
+                    writer.write("        \"" + entry.getKey() + "\", ");
+                    this.writeArray(writer, entry.getValue(), "        ");
+                    writer.write(++i < this.types.size() ? ",\n" : "\n");
+                }
+
+                writer.write("    );\n\n");
+
+                // Protos
+                writer.write("    public static final String[] NEXT_PACKAGE_PROTOS = ");
+                this.writeArray(writer, this.nextPackageProtos, "    ");
+                writer.write(";\n");
+
+                writer.write("}\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write class registry: " + e);
+        }
+    }
+
+    private void writeArray(Writer writer, Set<String> values, String indent) throws IOException {
+        writer.write("new String[] {\n");
+
+        for (var value : values) {
+            writer.write(indent + "    \"" + value + "\",\n");
+        }
+
+        writer.write(indent + "}");
+    }
+}